@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ys.succinct.xml.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.NodeList;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lookup of the attributes by their names via the {@link NamedNodeMap} and the
+ * {@link Element} API.
+ *
+ * @author Yauheni Shahun
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AttributeBenchmark {
+
+  @Param({"SUCCINCT", "DEFAULT"})
+  public DomImplementation implementation;
+
+  @Param({"10000"})
+  public int books;
+
+  private Element[] elements;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    Document document = implementation.newFactory().newDocumentBuilder()
+        .parse(BenchmarkDocuments.getFile(books));
+    NodeList nodes = document.getElementsByTagName("book");
+    elements = new Element[nodes.getLength()];
+    for (int i = 0; i < elements.length; i++) {
+      elements[i] = (Element) nodes.item(i);
+    }
+  }
+
+  @Benchmark
+  public void getNamedItem(Blackhole blackhole) {
+    for (Element element : elements) {
+      NamedNodeMap attributes = element.getAttributes();
+      blackhole.consume(attributes.getNamedItem("id").getNodeValue());
+      blackhole.consume(attributes.getNamedItem("missing"));
+    }
+  }
+
+  @Benchmark
+  public void getAttribute(Blackhole blackhole) {
+    for (Element element : elements) {
+      blackhole.consume(element.getAttribute("lang"));
+    }
+  }
+}
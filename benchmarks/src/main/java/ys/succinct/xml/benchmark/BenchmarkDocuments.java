@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ys.succinct.xml.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * The input documents of the benchmarks. The benchmarks run on the file given by the
+ * {@value #XML_FILE_PROPERTY} system property, or on a generated catalog of books that has the
+ * same structure as the test resources of the project.
+ *
+ * @author Yauheni Shahun
+ */
+public final class BenchmarkDocuments {
+
+  /**
+   * The system property of the path of the XML file to run the benchmarks on.
+   */
+  public static final String XML_FILE_PROPERTY = "ys.succinct.benchmark.xml";
+
+  private static final String[] GENRES = {"Computer", "Fantasy", "Romance", "Horror", "Science"};
+  private static final long SEED = 42;
+
+  private BenchmarkDocuments() {
+  }
+
+  /**
+   * Gets the XML file to run the benchmarks on.
+   *
+   * @param books the number of the books in the generated catalog, it's ignored if the file is
+   *        given by the system property
+   * @return the file
+   * @throws IOException if the catalog can't be generated
+   */
+  public static File getFile(int books) throws IOException {
+    String path = System.getProperty(XML_FILE_PROPERTY);
+    if (path != null && !path.isEmpty()) {
+      return new File(path);
+    }
+    File file = File.createTempFile("catalog-" + books + "-", ".xml");
+    file.deleteOnExit();
+    writeCatalog(file, books);
+    return file;
+  }
+
+  /**
+   * Writes the catalog of books. The content is deterministic for the given number of books.
+   */
+  static void writeCatalog(File file, int books) throws IOException {
+    Random random = new Random(SEED);
+    try (Writer writer = new BufferedWriter(
+        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+      writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+      writer.write("<!-- Generated catalog of " + books + " books. -->\n");
+      writer.write("<catalog>\n");
+      for (int i = 0; i < books; i++) {
+        writer.write("  <book id=\"bk" + i + "\" lang=\"en\">\n");
+        writer.write("    <author>Author " + random.nextInt(books / 10 + 1) + "</author>\n");
+        writer.write("    <title>Title of the book " + i + "</title>\n");
+        writer.write("    <genre>" + GENRES[random.nextInt(GENRES.length)] + "</genre>\n");
+        writer.write("    <price>" + random.nextInt(50) + "." + (10 + random.nextInt(90))
+            + "</price>\n");
+        writer.write("    <publish_date>20" + (10 + random.nextInt(10)) + "-0"
+            + (1 + random.nextInt(9)) + "-1" + random.nextInt(10) + "</publish_date>\n");
+        writer.write("    <description>A description of the book " + i
+            + " that is long enough to be a typical text node.</description>\n");
+        if (i % 10 == 0) {
+          writer.write("    <markup><![CDATA[<p>Sample & markup</p>]]></markup>\n");
+        }
+        writer.write("  </book>\n");
+      }
+      writer.write("</catalog>\n");
+    }
+  }
+}
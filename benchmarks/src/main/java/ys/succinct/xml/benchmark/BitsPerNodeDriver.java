@@ -0,0 +1,183 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ys.succinct.xml.benchmark;
+
+import org.w3c.dom.Document;
+
+import ys.succinct.xml.dom.MemoryFootprint;
+import ys.succinct.xml.dom.SuccinctDomSnapshot;
+import ys.succinct.xml.parser.ReaderSettings;
+import ys.succinct.xml.parser.SuccinctDomReader;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Measures how the space of the succinct DOM grows with the document. For the growing sizes the
+ * driver streams a generated document into {@link SuccinctDomReader} directly (no file is
+ * written) and reports the bits per node of the heap that the document retains and of its
+ * snapshot. The estimated bits per node of every structure are reported at the end for all the
+ * sizes, so it's seen which structures grow faster than the nodes.
+ * <p>
+ * Usage: {@code BitsPerNodeDriver [shape] [max nodes] [seed]}, the defaults are {@code MIXED},
+ * {@code 10000000} and {@code 42}. The sizes grow from 10000 nodes by the factor of 10. Run with
+ * the heap that is large enough for the biggest document.
+ *
+ * @author Yauheni Shahun
+ */
+public final class BitsPerNodeDriver {
+
+  private static final long MIN_NODES = 10000;
+
+  private BitsPerNodeDriver() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    DocumentShape shape = (args.length > 0) ? DocumentShape.valueOf(args[0]) : DocumentShape.MIXED;
+    long maxNodes = (args.length > 1) ? Long.parseLong(args[1]) : 10000000;
+    long seed = (args.length > 2) ? Long.parseLong(args[2]) : 42;
+
+    System.out.println("shape=" + shape + ", seed=" + seed);
+    System.out.println(String.format(Locale.ROOT, "%12s %12s %10s %14s %16s",
+        "nodes", "xml Mchars", "parse ms", "heap bits/node", "snapshot bits/node"));
+    Document document = null;
+    List<Long> nodeCounts = new ArrayList<>();
+    List<MemoryFootprint> footprints = new ArrayList<>();
+    for (long nodes = MIN_NODES; nodes <= maxNodes; nodes *= 10) {
+      document = null; // Release the previous document before the memory is measured.
+      XmlGenerator generator = new XmlGenerator(shape, nodes, seed);
+      CountingReader xml = new CountingReader(generator.newReader());
+
+      long usedBefore = getUsedMemory();
+      long start = System.nanoTime();
+      document = parse(xml);
+      long parseMillis = (System.nanoTime() - start) / 1000000;
+      long usedAfter = getUsedMemory();
+
+      CountingOutputStream snapshot = new CountingOutputStream();
+      SuccinctDomSnapshot.write(document, snapshot);
+
+      double count = generator.getNodeCount();
+      System.out.println(String.format(Locale.ROOT, "%12d %12.1f %10d %14.1f %16.1f",
+          generator.getNodeCount(), xml.count / 1e6, parseMillis,
+          (usedAfter - usedBefore) * 8 / count, snapshot.count * 8 / count));
+      nodeCounts.add(generator.getNodeCount());
+      footprints.add(MemoryFootprint.of(document));
+    }
+    if (!footprints.isEmpty()) {
+      System.out.println();
+      printFootprints(nodeCounts, footprints);
+    }
+  }
+
+  /**
+   * Prints the table of the bits per node of every structure (rows) for every size (columns).
+   */
+  private static void printFootprints(List<Long> nodeCounts, List<MemoryFootprint> footprints) {
+    // The optional structures (e.g. the indexes) may be absent for some sizes.
+    Set<String> structures = new LinkedHashSet<>();
+    for (MemoryFootprint footprint : footprints) {
+      structures.addAll(footprint.getStructureSizes().keySet());
+    }
+    StringBuilder header = new StringBuilder(String.format(Locale.ROOT, "%-32s", "bits/node"));
+    for (long nodeCount : nodeCounts) {
+      header.append(String.format(Locale.ROOT, " %12d", nodeCount));
+    }
+    System.out.println(header);
+    for (String structure : structures) {
+      StringBuilder row = new StringBuilder(String.format(Locale.ROOT, "%-32s", structure));
+      for (MemoryFootprint footprint : footprints) {
+        row.append(String.format(Locale.ROOT, " %12.2f",
+            footprint.getSize(structure) * 8.0 / footprint.getNodeCount()));
+      }
+      System.out.println(row);
+    }
+    StringBuilder total = new StringBuilder(String.format(Locale.ROOT, "%-32s", "total"));
+    for (MemoryFootprint footprint : footprints) {
+      total.append(String.format(Locale.ROOT, " %12.2f", footprint.getBitsPerNode()));
+    }
+    System.out.println(total);
+  }
+
+  private static Document parse(Reader xml) throws XMLStreamException {
+    XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(xml);
+    try {
+      return new SuccinctDomReader(reader, null, true, new ReaderSettings()).parse();
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Gets the used heap after the garbage collection.
+   */
+  private static long getUsedMemory() throws InterruptedException {
+    Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE;
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      Thread.sleep(50);
+      used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+    }
+    return used;
+  }
+
+  private static final class CountingReader extends FilterReader {
+
+    long count;
+
+    CountingReader(Reader in) {
+      super(in);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      int result = super.read(cbuf, off, len);
+      if (result > 0) {
+        count += result;
+      }
+      return result;
+    }
+  }
+
+  private static final class CountingOutputStream extends OutputStream {
+
+    long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+}
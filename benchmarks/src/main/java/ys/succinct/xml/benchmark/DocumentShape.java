@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ys.succinct.xml.benchmark;
+
+/**
+ * The shapes of the documents that {@link XmlGenerator} produces. Every shape stresses a particular
+ * structure of the succinct DOM.
+ *
+ * @author Yauheni Shahun
+ */
+public enum DocumentShape {
+
+  /**
+   * A flat list of the small records under the root, i.e. a very wide node.
+   */
+  WIDE,
+  /**
+   * The chains of the nested sections that are up to {@value XmlGenerator#MAX_DEPTH} levels deep.
+   */
+  DEEP,
+  /**
+   * The elements with many attributes and no text.
+   */
+  ATTRIBUTES,
+  /**
+   * The paragraphs of the long text.
+   */
+  TEXT,
+  /**
+   * The elements and attributes of several namespaces with the prefixes and the default
+   * namespace.
+   */
+  NAMESPACES,
+  /**
+   * The mixed content with the CDATA sections, the comments and the processing instructions.
+   */
+  MARKUP,
+  /**
+   * An XMark-like mix of all the shapes above.
+   */
+  MIXED
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ys.succinct.xml.benchmark;
+
+import ys.succinct.xml.parser.SuccinctDocumentBuilderFactory;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * The DOM implementations that the benchmarks compare.
+ *
+ * @author Yauheni Shahun
+ */
+public enum DomImplementation {
+
+  /**
+   * The succinct DOM.
+   */
+  SUCCINCT {
+    @Override
+    public DocumentBuilderFactory newFactory() {
+      return DocumentBuilderFactory.newInstance(SuccinctDocumentBuilderFactory.class.getName(),
+          DomImplementation.class.getClassLoader());
+    }
+  },
+  /**
+   * The default DOM of the JDK (Xerces).
+   */
+  DEFAULT {
+    @Override
+    public DocumentBuilderFactory newFactory() {
+      return DocumentBuilderFactory.newInstance();
+    }
+  };
+
+  /**
+   * Creates a new {@link DocumentBuilderFactory} of the implementation.
+   */
+  public abstract DocumentBuilderFactory newFactory();
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ys.succinct.xml.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the navigation over the whole tree of the parsed {@link Document} and the extraction
+ * of its text content.
+ *
+ * @author Yauheni Shahun
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NavigationBenchmark {
+
+  @Param({"SUCCINCT", "DEFAULT"})
+  public DomImplementation implementation;
+
+  @Param({"10000"})
+  public int books;
+
+  private Document document;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    document = implementation.newFactory().newDocumentBuilder()
+        .parse(BenchmarkDocuments.getFile(books));
+  }
+
+  /**
+   * Walks the tree in the document order by the sibling links.
+   */
+  @Benchmark
+  public int traverseSiblings(Blackhole blackhole) {
+    int count = 0;
+    Node node = document;
+    while (node != null) {
+      blackhole.consume(node.getNodeType());
+      count++;
+      Node next = node.getFirstChild();
+      while (next == null && node != null) {
+        next = node.getNextSibling();
+        if (next == null) {
+          node = node.getParentNode();
+        }
+      }
+      node = next;
+    }
+    return count;
+  }
+
+  /**
+   * Walks the tree in the document order by the child lists.
+   */
+  @Benchmark
+  public int traverseChildNodes(Blackhole blackhole) {
+    return traverse(document, blackhole);
+  }
+
+  private static int traverse(Node node, Blackhole blackhole) {
+    blackhole.consume(node.getNodeType());
+    int count = 1;
+    NodeList children = node.getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      count += traverse(children.item(i), blackhole);
+    }
+    return count;
+  }
+
+  @Benchmark
+  public String getTextContent() {
+    return document.getDocumentElement().getTextContent();
+  }
+}
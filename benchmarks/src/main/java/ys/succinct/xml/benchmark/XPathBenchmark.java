@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ys.succinct.xml.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * Measures the evaluation of the JDK XPath expressions over the parsed {@link Document}.
+ *
+ * @author Yauheni Shahun
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XPathBenchmark {
+
+  @Param({"SUCCINCT", "DEFAULT"})
+  public DomImplementation implementation;
+
+  @Param({"10000"})
+  public int books;
+
+  @Param({"/catalog/book[@id='bk500']/title", "//book[genre='Fantasy']/price", "//markup"})
+  public String expression;
+
+  private Document document;
+  private XPathExpression xpath;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    document = implementation.newFactory().newDocumentBuilder()
+        .parse(BenchmarkDocuments.getFile(books));
+    xpath = XPathFactory.newInstance().newXPath().compile(expression);
+  }
+
+  @Benchmark
+  public int evaluate() throws Exception {
+    return ((NodeList) xpath.evaluate(document, XPathConstants.NODESET)).getLength();
+  }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ys.succinct.xml.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * A generator of the synthetic XML documents of the given shape and size. The generator is
+ * deterministic, i.e. the same seed gives the same document. The document is produced record by
+ * record, so it's streamed to the output of any size without being held in the memory. It can be
+ * written to a file or read via {@link #newReader()} by a parser directly.
+ * <p>
+ * The size is given as the number of the DOM nodes (the elements, the text nodes, the comments
+ * and the processing instructions; the attributes aside). The generator stops after the record
+ * that reaches the size, so the actual number of the nodes slightly exceeds it.
+ *
+ * @author Yauheni Shahun
+ */
+public final class XmlGenerator {
+
+  static final int MAX_DEPTH = 64;
+
+  private static final String[] WORDS = {"succinct", "tree", "node", "parenthesis", "rank",
+      "select", "bit", "vector", "document", "element", "attribute", "text", "store", "name",
+      "value", "offset", "index", "query", "order", "depth", "child", "sibling", "parent", "space",
+      "memory", "cache", "stream", "token", "scan", "build", "load", "the", "a", "of", "and", "to",
+      "in", "is", "it", "with"};
+  private static final String[] ATTRIBUTE_NAMES = {"id", "name", "email", "age", "city",
+      "country", "since", "status", "rating", "currency", "category", "region"};
+  private static final String[] NAMESPACES = {"urn:example:site", "urn:example:auction",
+      "urn:example:person"};
+
+  private final DocumentShape shape;
+  private final long nodeLimit;
+  private final Random random;
+
+  private long nodeCount;
+  private long recordCount;
+  private boolean isStarted;
+  private boolean isFinished;
+
+  /**
+   * Constructs a generator.
+   *
+   * @param shape the shape of the document
+   * @param nodeLimit the number of the nodes to generate at least
+   * @param seed the seed of the random content
+   */
+  public XmlGenerator(DocumentShape shape, long nodeLimit, long seed) {
+    this.shape = shape;
+    this.nodeLimit = nodeLimit;
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Appends the next part of the document to the buffer.
+   *
+   * @return {@code false} if the document is complete and nothing is appended, otherwise
+   *         {@code true}
+   */
+  public boolean next(StringBuilder out) {
+    if (isFinished) {
+      return false;
+    }
+    if (!isStarted) {
+      isStarted = true;
+      out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+      out.append("<!-- Generated ").append(shape).append(" document. -->\n");
+      out.append("<site xmlns:a=\"").append(NAMESPACES[1]).append("\" xmlns:p=\"")
+          .append(NAMESPACES[2]).append("\">\n");
+      nodeCount += 4; // The document, the comment, the root and the newline in it.
+    } else if (nodeCount < nodeLimit) {
+      appendRecord(shape, out);
+      recordCount++;
+    } else {
+      out.append("</site>\n");
+      isFinished = true;
+    }
+    return true;
+  }
+
+  /**
+   * Writes the whole document.
+   *
+   * @param writer the output, it isn't closed
+   * @throws IOException if the output fails
+   */
+  public void write(Writer writer) throws IOException {
+    StringBuilder buffer = new StringBuilder();
+    while (next(buffer)) {
+      if (buffer.length() >= 8192) {
+        writer.write(buffer.toString());
+        buffer.setLength(0);
+      }
+    }
+    writer.write(buffer.toString());
+    writer.flush();
+  }
+
+  /**
+   * Returns a {@link Reader} that generates the document as it's read.
+   */
+  public Reader newReader() {
+    return new Reader() {
+
+      private final StringBuilder buffer = new StringBuilder();
+      private int position;
+
+      @Override
+      public int read(char[] cbuf, int off, int len) {
+        if (len == 0) {
+          return 0;
+        }
+        while (position == buffer.length()) {
+          buffer.setLength(0);
+          position = 0;
+          if (!next(buffer)) {
+            return -1;
+          }
+        }
+        int count = Math.min(len, buffer.length() - position);
+        buffer.getChars(position, position + count, cbuf, off);
+        position += count;
+        return count;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+
+  /**
+   * Returns the number of the nodes generated so far.
+   */
+  public long getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Returns the number of the records generated so far.
+   */
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  private void appendRecord(DocumentShape recordShape, StringBuilder out) {
+    switch (recordShape) {
+      case WIDE:
+        out.append("<r>").append(recordCount).append("</r>\n");
+        nodeCount += 3; // The record, its text and the newline.
+        break;
+      case DEEP:
+        int depth = 1 + random.nextInt(MAX_DEPTH);
+        for (int i = 0; i < depth; i++) {
+          out.append("<s level=\"").append(i).append("\">");
+          appendWords(out, 1 + random.nextInt(3));
+        }
+        for (int i = 0; i < depth; i++) {
+          out.append("</s>");
+        }
+        out.append('\n');
+        nodeCount += 2 * depth + 1;
+        break;
+      case ATTRIBUTES:
+        out.append("<person");
+        int attributeCount = 3 + random.nextInt(ATTRIBUTE_NAMES.length - 2);
+        for (int i = 0; i < attributeCount; i++) {
+          out.append(' ').append(ATTRIBUTE_NAMES[i]).append("=\"");
+          if (i == 0) {
+            out.append("person").append(recordCount);
+          } else {
+            appendWords(out, 1);
+          }
+          out.append('"');
+        }
+        out.append("/>\n");
+        nodeCount += 2;
+        break;
+      case TEXT:
+        out.append("<p>");
+        appendWords(out, 20 + random.nextInt(200));
+        out.append("</p>\n");
+        nodeCount += 3;
+        break;
+      case NAMESPACES:
+        out.append("<a:item xmlns=\"").append(NAMESPACES[0]).append("\" a:ref=\"item")
+            .append(recordCount).append("\"><name>");
+        appendWords(out, 2);
+        out.append("</name><p:seller p:id=\"").append(random.nextInt(1000)).append("\">");
+        appendWords(out, 1);
+        out.append("</p:seller><a:price>").append(random.nextInt(1000)).append('.')
+            .append(random.nextInt(100)).append("</a:price></a:item>\n");
+        nodeCount += 8;
+        break;
+      case MARKUP:
+        out.append("<note><!-- ");
+        appendWords(out, 3);
+        out.append(" --><?render ");
+        appendWords(out, 2);
+        out.append("?>");
+        appendWords(out, 2);
+        out.append(" <b>");
+        appendWords(out, 1);
+        out.append("</b> <![CDATA[<raw> & ");
+        appendWords(out, 2);
+        out.append("]]></note>\n");
+        nodeCount += 9;
+        break;
+      case MIXED:
+        DocumentShape[] shapes = DocumentShape.values();
+        appendRecord(shapes[random.nextInt(shapes.length - 1)], out);
+        break;
+      default:
+        throw new IllegalStateException("Unknown shape: " + recordShape);
+    }
+  }
+
+  private void appendWords(StringBuilder out, int count) {
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        out.append(' ');
+      }
+      out.append(WORDS[random.nextInt(WORDS.length)]);
+    }
+  }
+
+  /**
+   * Writes a generated document to a file.
+   * <p>
+   * Usage: {@code XmlGenerator <shape> <nodes> <seed> <file>}
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 4) {
+      System.err.println("Usage: XmlGenerator <shape> <nodes> <seed> <file>");
+      System.exit(1);
+    }
+    XmlGenerator generator = new XmlGenerator(
+        DocumentShape.valueOf(args[0]), Long.parseLong(args[1]), Long.parseLong(args[2]));
+    try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+        new FileOutputStream(new File(args[3])), StandardCharsets.UTF_8))) {
+      generator.write(writer);
+    }
+    System.out.println("Generated " + generator.getNodeCount() + " nodes.");
+  }
+}
@@ -0,0 +1,79 @@
+package ys.succinct.xml.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+import ys.succinct.xml.parser.SuccinctDocumentBuilderFactory;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Tests for {@link XmlGenerator}.
+ */
+public class XmlGeneratorTest {
+
+  private static final long NODES = 2000;
+  private static final long SEED = 42;
+
+  @Test
+  public void testWrite_deterministic() throws Exception {
+    for (DocumentShape shape : DocumentShape.values()) {
+      byte[] xml = generate(new XmlGenerator(shape, NODES, SEED)).getBytes(StandardCharsets.UTF_8);
+      byte[] again =
+          generate(new XmlGenerator(shape, NODES, SEED)).getBytes(StandardCharsets.UTF_8);
+      assertTrue(shape.toString(), Arrays.equals(xml, again));
+    }
+  }
+
+  @Test
+  public void testNewReader() throws Exception {
+    XmlGenerator generator = new XmlGenerator(DocumentShape.MIXED, NODES, SEED);
+    StringWriter xml = new StringWriter();
+    char[] buffer = new char[100];
+    try (Reader reader = generator.newReader()) {
+      for (int count = reader.read(buffer); count != -1; count = reader.read(buffer)) {
+        xml.write(buffer, 0, count);
+      }
+    }
+    assertEquals(generate(new XmlGenerator(DocumentShape.MIXED, NODES, SEED)), xml.toString());
+  }
+
+  @Test
+  public void testGetNodeCount() throws Exception {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance(
+        SuccinctDocumentBuilderFactory.class.getName(), getClass().getClassLoader());
+    factory.setNamespaceAware(true);
+    for (DocumentShape shape : DocumentShape.values()) {
+      XmlGenerator generator = new XmlGenerator(shape, NODES, SEED);
+      Document document = factory.newDocumentBuilder()
+          .parse(new InputSource(new StringReader(generate(generator))));
+      assertTrue(shape.toString(), generator.getNodeCount() >= NODES);
+      assertEquals(shape.toString(), generator.getNodeCount(), countNodes(document));
+    }
+  }
+
+  private static String generate(XmlGenerator generator) throws Exception {
+    StringWriter writer = new StringWriter();
+    generator.write(writer);
+    return writer.toString();
+  }
+
+  private static long countNodes(Node node) {
+    long count = 1;
+    for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+      count += countNodes(child);
+    }
+    return count;
+  }
+}
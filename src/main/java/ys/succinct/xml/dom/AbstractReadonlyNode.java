@@ -83,9 +83,68 @@ public abstract class AbstractReadonlyNode implements Node {
    * DOM Level 3.
    */
 
+  /**
+   * Compares the positions of the nodes by the arithmetic on their positions in the document (see
+   * {@link SuccinctDom#getPosition(int)}). The attributes follow their element and precede its
+   * children, and the order of the attributes of the same element is implementation-specific. The
+   * nodes of different documents are disconnected and ordered arbitrarily but consistently.
+   *
+   * @see SuccinctDom#compareDocumentPosition(int, int)
+   */
   @Override
   public short compareDocumentPosition(Node other) throws DOMException {
-    throw new DOMException(DOMException.NOT_SUPPORTED_ERR, "compareDocumentPosition");
+    if (isSameNode(other)) {
+      return 0;
+    }
+    SuccinctDom dom = getDom();
+    if (!(other instanceof AbstractReadonlyNode)
+        || !dom.isSameDocument(((AbstractReadonlyNode) other).getDom())) {
+      int order = Integer.compare(
+          System.identityHashCode(getDocument(this)), System.identityHashCode(getDocument(other)));
+      return (short) (DOCUMENT_POSITION_DISCONNECTED | DOCUMENT_POSITION_IMPLEMENTATION_SPECIFIC
+          | ((order < 0) ? DOCUMENT_POSITION_FOLLOWING : DOCUMENT_POSITION_PRECEDING));
+    }
+    AbstractReadonlyNode node = (AbstractReadonlyNode) other;
+    if (getAttributeIndex() == -1 && node.getAttributeIndex() == -1) {
+      return dom.compareDocumentPositionAt(getTreePosition(), node.getTreePosition());
+    }
+    if (contains(node)) {
+      return DOCUMENT_POSITION_CONTAINED_BY | DOCUMENT_POSITION_FOLLOWING;
+    }
+    if (node.contains(this)) {
+      return DOCUMENT_POSITION_CONTAINS | DOCUMENT_POSITION_PRECEDING;
+    }
+    long index = getTreePosition();
+    long otherIndex = node.getTreePosition();
+    if (index != otherIndex) {
+      return (index < otherIndex) ? DOCUMENT_POSITION_FOLLOWING : DOCUMENT_POSITION_PRECEDING;
+    }
+    // The nodes are the attributes (or their text) of the same element.
+    return (short) (DOCUMENT_POSITION_IMPLEMENTATION_SPECIFIC
+        | ((getAttributeIndex() < node.getAttributeIndex())
+            ? DOCUMENT_POSITION_FOLLOWING : DOCUMENT_POSITION_PRECEDING));
+  }
+
+  /**
+   * Checks whether the given node of the same DOM is a descendant of this node.
+   */
+  private boolean contains(AbstractReadonlyNode node) {
+    if (isAttributeText()) {
+      return false;
+    }
+    if (getAttributeIndex() != -1) {
+      return node.isAttributeText() && node.getAttributeIndex() == getAttributeIndex();
+    }
+    long index = getTreePosition();
+    long otherIndex = node.getTreePosition();
+    if (index == otherIndex) {
+      return node.getAttributeIndex() != -1;
+    }
+    return getDom().isAncestorAt(index, otherIndex);
+  }
+
+  private static Node getDocument(Node node) {
+    return (node.getNodeType() == DOCUMENT_NODE) ? node : node.getOwnerDocument();
   }
 
   @Override
@@ -213,4 +272,42 @@ public abstract class AbstractReadonlyNode implements Node {
     }
     return a.equals(b);
   }
+
+  /*
+   * Document position support.
+   */
+
+  /**
+   * Gets the succinct DOM that the node belongs to.
+   */
+  abstract SuccinctDom getDom();
+
+  /**
+   * Gets the index of the node in the balanced parentheses. For an attribute (or its text) it's
+   * the index of the element that the attribute belongs to.
+   */
+  abstract int getTreeIndex();
+
+  /**
+   * Gets the position of the node in the document, i.e. the position of the element for an
+   * attribute (or its text).
+   */
+  long getTreePosition() {
+    return getDom().getPosition(getTreeIndex());
+  }
+
+  /**
+   * Gets the index of the attribute (the attribute of the text) in the attribute bit string, or
+   * {@code -1} if the node isn't related to an attribute.
+   */
+  int getAttributeIndex() {
+    return -1;
+  }
+
+  /**
+   * Checks whether the node is the text of an attribute.
+   */
+  boolean isAttributeText() {
+    return false;
+  }
 }
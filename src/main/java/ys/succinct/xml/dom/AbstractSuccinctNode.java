@@ -68,6 +68,16 @@ public abstract class AbstractSuccinctNode extends AbstractReadonlyNode {
     return dom.isDefaultNamespace(namespaceURI);
   }
 
+  @Override
+  SuccinctDom getDom() {
+    return dom;
+  }
+
+  @Override
+  int getTreeIndex() {
+    return index;
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
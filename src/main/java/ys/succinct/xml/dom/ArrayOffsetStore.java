@@ -16,72 +16,172 @@
 
 package ys.succinct.xml.dom;
 
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
- *
- * A simple {@link OffsetStore} that is backed by the character array and stores the content as is.
+ * A simple {@link OffsetStore} that is backed by the character arrays and stores the content as
+ * is. The content is split into the fixed-size chunks, so it isn't limited by the maximum size of
+ * a single array.
  *
  * @author Yauheni Shahun
  */
-public class ArrayOffsetStore implements OffsetStore {
+public class ArrayOffsetStore extends ChunkedOffsetStore {
 
-  private final char[] content;
+  /**
+   * The number of bits to address the character within a chunk.
+   */
+  static final int CHUNK_BITS = 24;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
 
   /**
    * Constructs a store.
    *
-   * @param content the entire content concatenated into the character array
+   * @param chunks the character arrays, each except the last one holds {@code 2^CHUNK_BITS}
+   *        characters
+   * @param length the total number of the characters
    */
-  private ArrayOffsetStore(char[] content) {
-    this.content = content;
+  private ArrayOffsetStore(char[][] chunks, long length) {
+    super(wrap(chunks), CHUNK_BITS, length);
   }
 
-  @Override
-  public String getString(int startIndex, int endIndex /* exclusive */) {
-    return new String(content, startIndex, endIndex - startIndex);
+  private static CharBuffer[] wrap(char[][] chunks) {
+    CharBuffer[] buffers = new CharBuffer[chunks.length];
+    for (int i = 0; i < chunks.length; i++) {
+      buffers[i] = CharBuffer.wrap(chunks[i]);
+    }
+    return buffers;
+  }
+
+  /**
+   * Reads the store from the snapshot.
+   *
+   * @param in the snapshot input
+   * @return the {@link ArrayOffsetStore} instance
+   */
+  static ArrayOffsetStore readFrom(DataInput in) throws IOException {
+    long length = SnapshotIO.readLongLength(in);
+    char[][] chunks = new char[(int) ((length + CHUNK_SIZE - 1) >>> CHUNK_BITS)][];
+    for (int i = 0; i < chunks.length; i++) {
+      chunks[i] = new char[(int) Math.min(CHUNK_SIZE, length - ((long) i << CHUNK_BITS))];
+      SnapshotIO.readChars(in, chunks[i], 0, chunks[i].length);
+    }
+    return new ArrayOffsetStore(chunks, length);
   }
 
   /**
    * A builder that helps to construct a {@link ArrayOffsetStore}.
    */
-  public static class Builder {
+  public static class Builder implements OffsetStore.Builder {
 
-    private final StringBuilder buffer = new StringBuilder();
+    private static final int INITIAL_CAPACITY = 1024;
 
+    private final List<char[]> chunks = new ArrayList<>();
     /**
-     * Adds the character content to the store.
-     *
-     * @param chars the character array
-     * @param start the index in the array that the content starts from
-     * @param length the length of the content
-     * @return the offset value for the content in the store
+     * The expected length of the content or {@code -1} if it's unknown.
      */
-    public int addChars(char[] chars, int start, int length) {
-      int offset = buffer.length();
-      buffer.append(chars, start, length);
-      return offset;
+    private final long expectedLength;
+    /**
+     * The chunk that is being filled. It grows until it reaches the chunk size.
+     */
+    private char[] chunk;
+    private int chunkLength;
+    private long length;
+
+    /**
+     * Constructs a builder.
+     */
+    public Builder() {
+      this.expectedLength = -1;
+      this.chunk = new char[INITIAL_CAPACITY];
     }
 
     /**
-     * Adds the given string to the store.
+     * Constructs a builder that allocates the chunks for the expected length of the content, so
+     * the chunks are neither grown nor trimmed. If the content turns out to be longer, the builder
+     * grows the chunks as usual.
      *
-     * @param s the content
-     * @return the offset value for the content in the store
+     * @param expectedLength the expected length of the content
      */
-    public int addString(String s) {
-      int offset = buffer.length();
-      buffer.append(s);
+    public Builder(long expectedLength) {
+      if (expectedLength < 0) {
+        throw new IllegalArgumentException("Length must be non-negative: " + expectedLength);
+      }
+      this.expectedLength = expectedLength;
+      this.chunk = new char[getNewChunkSize()];
+    }
+
+    @Override
+    public long addChars(char[] chars, int start, int length) {
+      long offset = this.length;
+      int copied = 0;
+      while (copied < length) {
+        int count = Math.min(length - copied, ensureChunk(length - copied));
+        System.arraycopy(chars, start + copied, chunk, chunkLength, count);
+        chunkLength += count;
+        copied += count;
+      }
+      this.length += length;
       return offset;
     }
 
+    @Override
+    public long addString(String s) {
+      long offset = length;
+      int copied = 0;
+      while (copied < s.length()) {
+        int count = Math.min(s.length() - copied, ensureChunk(s.length() - copied));
+        s.getChars(copied, copied + count, chunk, chunkLength);
+        chunkLength += count;
+        copied += count;
+      }
+      length += s.length();
+      return offset;
+    }
+
+    @Override
+    public ArrayOffsetStore build() {
+      if (chunkLength > 0) {
+        chunks.add((chunkLength == chunk.length) ? chunk : Arrays.copyOf(chunk, chunkLength));
+      }
+      chunk = null;
+      return new ArrayOffsetStore(chunks.toArray(new char[chunks.size()][]), length);
+    }
+
     /**
-     * Builds the store using the content that the builder has collected.
+     * Ensures that the current chunk has the free space. The chunk is grown if it's smaller than
+     * the chunk size, otherwise the new chunk is started.
      *
-     * @return the {@link ArrayOffsetStore} instance
+     * @param required the number of characters to add
+     * @return the number of characters that the current chunk can accept
      */
-    public ArrayOffsetStore build() {
-      char[] text = new char[buffer.length()];
-      buffer.getChars(0, buffer.length(), text, 0);
-      return new ArrayOffsetStore(text);
+    private int ensureChunk(int required) {
+      if (chunkLength == CHUNK_SIZE) {
+        chunks.add(chunk);
+        chunk = new char[getNewChunkSize()];
+        chunkLength = 0;
+      }
+      if (chunk.length - chunkLength < required && chunk.length < CHUNK_SIZE) {
+        long capacity = Math.max((long) chunkLength + required, chunk.length * 2L);
+        chunk = Arrays.copyOf(chunk, (int) Math.min(capacity, CHUNK_SIZE));
+      }
+      return chunk.length - chunkLength;
+    }
+
+    /**
+     * Returns the size of the chunk to start with. The chunk fits the rest of the expected content
+     * if it's known.
+     */
+    private int getNewChunkSize() {
+      long completedLength = (long) chunks.size() << CHUNK_BITS;
+      if (expectedLength > completedLength) {
+        return (int) Math.min(expectedLength - completedLength, CHUNK_SIZE);
+      }
+      return INITIAL_CAPACITY;
     }
   }
 }
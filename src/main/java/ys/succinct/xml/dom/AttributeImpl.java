@@ -173,6 +173,16 @@ public class AttributeImpl extends AbstractSuccinctNode implements Attr {
     return (Element) dom.getAttributeElement(index);
   }
 
+  @Override
+  int getTreeIndex() {
+    return dom.getAttributeElementIndex(index);
+  }
+
+  @Override
+  int getAttributeIndex() {
+    return index;
+  }
+
   @Override
   public TypeInfo getSchemaTypeInfo() {
     throw new UnsupportedOperationException("getSchemaTypeInfo");
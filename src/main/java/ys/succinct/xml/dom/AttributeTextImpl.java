@@ -227,6 +227,30 @@ public class AttributeTextImpl extends AbstractReadonlyNode implements Text {
     throw new DOMException(DOMException.NO_MODIFICATION_ALLOWED_ERR, "replaceWholeText");
   }
 
+  /*
+   * Document position support.
+   */
+
+  @Override
+  SuccinctDom getDom() {
+    return dom;
+  }
+
+  @Override
+  int getTreeIndex() {
+    return dom.getAttributeElementIndex(attributeIndex);
+  }
+
+  @Override
+  int getAttributeIndex() {
+    return attributeIndex;
+  }
+
+  @Override
+  boolean isAttributeText() {
+    return true;
+  }
+
   /*
    * Object API.
    */
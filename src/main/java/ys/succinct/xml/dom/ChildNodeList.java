@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ys.succinct.xml.dom;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * A {@link NodeList} of the children of a succinct node that resolves the children on demand. The
+ * list remembers the last resolved child so that the sequential access takes an amortized
+ * constant time, and the random access is delegated to the degree/child support of
+ * {@link SuccinctDom}. No array of the children is built.
+ *
+ * @author Yauheni Shahun
+ */
+class ChildNodeList implements NodeList {
+
+  private final SuccinctDom dom;
+  private final int parentIndex;
+  /**
+   * The last resolved child packed as {@code (position << 32) | parenthesisIndex}, or {@code -1}
+   * if no child is resolved yet. The pair is kept in a single field to stay consistent if the list
+   * is shared among the threads.
+   */
+  private volatile long cache = -1;
+  /**
+   * The number of the children or {@code -1} if not counted yet.
+   */
+  private volatile int length = -1;
+
+  /**
+   * Constructs a list of the children.
+   *
+   * @param dom the succinct DOM
+   * @param parentIndex the index of the parent node in the balanced parentheses
+   */
+  ChildNodeList(SuccinctDom dom, int parentIndex) {
+    this.dom = dom;
+    this.parentIndex = parentIndex;
+  }
+
+  @Override
+  public Node item(int index) {
+    int childIndex = findChildIndex(index);
+    return (childIndex != -1) ? dom.getNode(childIndex) : null;
+  }
+
+  @Override
+  public int getLength() {
+    int count = length;
+    if (count == -1) {
+      count = dom.getLocalChildCount(parentIndex);
+      length = count;
+    }
+    return count;
+  }
+
+  /**
+   * Finds the child at the given position. The siblings are walked from the last resolved child if
+   * it's close enough, otherwise the child is looked up by the position.
+   *
+   * @return the index of the child in the balanced parentheses or {@code -1} if the position is
+   *         out of range
+   */
+  int findChildIndex(int position) {
+    int count = length;
+    if (position < 0 || (count != -1 && position >= count)) {
+      return -1;
+    }
+    long cached = cache;
+    int distance = position - (int) (cached >>> 32);
+    int i;
+    if (cached != -1 && distance >= 0 && distance < DegreeIndex.SAMPLE_RATE) {
+      i = (int) cached;
+      for (; distance > 0 && i != -1; distance--) {
+        i = dom.getNextSiblingIndex(i);
+      }
+    } else {
+      i = dom.getLocalChildIndex(parentIndex, position);
+    }
+    if (i != -1) {
+      cache = ((long) position << 32) | i;
+    }
+    return i;
+  }
+}
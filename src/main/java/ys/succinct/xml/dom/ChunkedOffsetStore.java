@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * An {@link OffsetStore} whose content is split into the {@link CharBuffer} chunks of the same
+ * size (except the last one). The nature of the buffers is defined in the subclasses.
+ *
+ * @author Yauheni Shahun
+ */
+public abstract class ChunkedOffsetStore implements OffsetStore {
+
+  private static final int APPEND_BUFFER_SIZE = 32 * 1024;
+
+  private final CharBuffer[] chunks;
+  private final int chunkBits;
+  private final int chunkMask;
+  private final long length;
+
+  /**
+   * Constructs a store.
+   *
+   * @param chunks the chunks of the content, each except the last one holds {@code 2^chunkBits}
+   *        characters
+   * @param chunkBits the number of bits to address the character within a chunk
+   * @param length the total number of the characters
+   */
+  ChunkedOffsetStore(CharBuffer[] chunks, int chunkBits, long length) {
+    this.chunks = chunks;
+    this.chunkBits = chunkBits;
+    this.chunkMask = (1 << chunkBits) - 1;
+    this.length = length;
+  }
+
+  @Override
+  public String getString(long startIndex, long endIndex /* exclusive */) {
+    char[] chars = new char[(int) (endIndex - startIndex)];
+    int copied = 0;
+    while (copied < chars.length) {
+      long position = startIndex + copied;
+      // Duplicate the buffer to keep the store thread-safe.
+      CharBuffer chunk = chunks[(int) (position >>> chunkBits)].duplicate();
+      chunk.limit(chunk.capacity()).position((int) position & chunkMask);
+      int count = Math.min(chars.length - copied, chunk.remaining());
+      chunk.get(chars, copied, count);
+      copied += count;
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Adds the entire content of the store to the builder of another store.
+   *
+   * @param builder the builder of the target store
+   */
+  void appendTo(OffsetStore.Builder builder) {
+    char[] buffer = null;
+    long remaining = length;
+    for (int i = 0; remaining > 0; i++) {
+      CharBuffer chunk = chunks[i].duplicate();
+      int count = (int) Math.min(chunk.capacity(), remaining);
+      if (chunk.hasArray()) {
+        builder.addChars(chunk.array(), chunk.arrayOffset(), count);
+      } else {
+        if (buffer == null) {
+          buffer = new char[APPEND_BUFFER_SIZE];
+        }
+        chunk.limit(count).position(0);
+        while (chunk.hasRemaining()) {
+          int length = Math.min(chunk.remaining(), buffer.length);
+          chunk.get(buffer, 0, length);
+          builder.addChars(buffer, 0, length);
+        }
+      }
+      remaining -= count;
+    }
+  }
+
+  /**
+   * Writes the store to the snapshot. The content is written as is regardless of the chunks, so
+   * it can be read back by the store with another chunk size.
+   *
+   * @param out the snapshot output
+   */
+  void writeTo(DataOutput out) throws IOException {
+    out.writeLong(length);
+    long remaining = length;
+    for (int i = 0; remaining > 0; i++) {
+      CharBuffer chunk = chunks[i].duplicate();
+      chunk.limit((int) Math.min(chunk.capacity(), remaining)).position(0);
+      remaining -= chunk.remaining();
+      SnapshotIO.writeChars(out, chunk);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * The concatenation of the node lists, e.g. of the parts of the list that come from the segments
+ * of the large document. The lengths of the parts are resolved on the first access. The length of
+ * the list is capped at {@link Integer#MAX_VALUE} as the {@link NodeList} API is int-indexed.
+ *
+ * @author Yauheni Shahun
+ * @see DomSegments
+ */
+class CompositeNodeList implements NodeList {
+
+  private final NodeList[] parts;
+  /**
+   * The numbers of the nodes in the parts up to and including the part, or {@code null} if not
+   * counted yet.
+   */
+  private volatile long[] ends;
+
+  /**
+   * Constructs a composite list.
+   *
+   * @param parts the lists in order
+   */
+  CompositeNodeList(NodeList[] parts) {
+    this.parts = parts;
+  }
+
+  @Override
+  public Node item(int index) {
+    if (index < 0) {
+      return null;
+    }
+    long[] partEnds = getEnds();
+    long start = 0;
+    for (int i = 0; i < parts.length; i++) {
+      if (index < partEnds[i]) {
+        return parts[i].item((int) (index - start));
+      }
+      start = partEnds[i];
+    }
+    return null;
+  }
+
+  @Override
+  public int getLength() {
+    long[] partEnds = getEnds();
+    long length = (partEnds.length > 0) ? partEnds[partEnds.length - 1] : 0;
+    return (int) Math.min(length, Integer.MAX_VALUE);
+  }
+
+  private long[] getEnds() {
+    long[] partEnds = ends;
+    if (partEnds == null) {
+      partEnds = new long[parts.length];
+      long end = 0;
+      for (int i = 0; i < parts.length; i++) {
+        end += parts[i].getLength();
+        partEnds[i] = end;
+      }
+      ends = partEnds;
+    }
+    return partEnds;
+  }
+}
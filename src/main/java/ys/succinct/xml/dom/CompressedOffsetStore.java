@@ -0,0 +1,294 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * An {@link OffsetStore} that keeps the content compressed in the fixed-size blocks. A block is
+ * decompressed on demand and kept in the bounded LRU cache of the decompressed blocks, so the
+ * sequential access to the neighboring values doesn't decompress the same block repeatedly.
+ * <p>
+ * The store suits the rarely queried documents as it trades the access time for the memory.
+ *
+ * @author Yauheni Shahun
+ */
+public class CompressedOffsetStore implements OffsetStore {
+
+  /**
+   * The number of bits to address the character within a block (32K characters (64 KB)).
+   */
+  static final int BLOCK_BITS = 15;
+  private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+  private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+  /**
+   * The default number of the decompressed blocks in the cache.
+   */
+  public static final int DEFAULT_CACHE_CAPACITY = 64;
+
+  private final byte[][] blocks;
+  private final long length;
+  private final BlockCache cache;
+
+  /**
+   * Constructs a store.
+   *
+   * @param blocks the compressed blocks, each except the last one holds {@code 2^BLOCK_BITS}
+   *        characters
+   * @param length the total number of the characters
+   * @param cacheCapacity the number of the decompressed blocks in the cache
+   */
+  private CompressedOffsetStore(byte[][] blocks, long length, int cacheCapacity) {
+    this.blocks = blocks;
+    this.length = length;
+    this.cache = new BlockCache(cacheCapacity);
+  }
+
+  @Override
+  public String getString(long startIndex, long endIndex /* exclusive */) {
+    char[] chars = new char[(int) (endIndex - startIndex)];
+    int copied = 0;
+    while (copied < chars.length) {
+      long position = startIndex + copied;
+      char[] block = getBlock((int) (position >>> BLOCK_BITS));
+      int blockOffset = (int) position & BLOCK_MASK;
+      int count = Math.min(chars.length - copied, block.length - blockOffset);
+      System.arraycopy(block, blockOffset, chars, copied, count);
+      copied += count;
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Gets the decompressed block either from the cache or by decompressing it.
+   *
+   * @param blockIndex the 0-based index of the block
+   */
+  private synchronized char[] getBlock(int blockIndex) {
+    char[] block = cache.get(blockIndex);
+    if (block == null) {
+      block = decompress(blocks[blockIndex], getBlockLength(blockIndex));
+      cache.put(blockIndex, block);
+    }
+    return block;
+  }
+
+  /**
+   * Returns the number of the characters in the block.
+   */
+  private int getBlockLength(int blockIndex) {
+    return (blockIndex == blocks.length - 1)
+        ? (int) (length - ((long) blockIndex << BLOCK_BITS)) : BLOCK_SIZE;
+  }
+
+  /**
+   * Decompresses the block. The store has no life cycle to release a shared inflater, so the one
+   * per block is ended right away.
+   */
+  private static char[] decompress(byte[] compressedBlock, int blockLength) {
+    ByteBuffer buffer = ByteBuffer.allocate(blockLength * 2);
+    Inflater inflater = new Inflater();
+    inflater.setInput(compressedBlock);
+    try {
+      while (buffer.hasRemaining() && !inflater.finished()) {
+        int count = inflater.inflate(buffer.array(), buffer.position(), buffer.remaining());
+        if (count == 0 && inflater.needsInput()) {
+          break;
+        }
+        buffer.position(buffer.position() + count);
+      }
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Compressed block is corrupted.", e);
+    } finally {
+      inflater.end();
+    }
+    if (buffer.hasRemaining()) {
+      throw new IllegalStateException("Compressed block is truncated.");
+    }
+
+    char[] block = new char[blockLength];
+    buffer.flip();
+    buffer.asCharBuffer().get(block);
+    return block;
+  }
+
+  /**
+   * Writes the store to the snapshot.
+   *
+   * @param out the snapshot output
+   */
+  void writeTo(DataOutput out) throws IOException {
+    out.writeLong(length);
+    out.writeInt(blocks.length);
+    for (byte[] block : blocks) {
+      out.writeInt(block.length);
+      out.write(block);
+    }
+  }
+
+  /**
+   * Reads the store from the snapshot. The cache gets the default capacity.
+   *
+   * @param in the snapshot input
+   * @return the {@link CompressedOffsetStore} instance
+   */
+  static CompressedOffsetStore readFrom(DataInput in) throws IOException {
+    long length = SnapshotIO.readLongLength(in);
+    byte[][] blocks = new byte[SnapshotIO.readLength(in)][];
+    for (int i = 0; i < blocks.length; i++) {
+      blocks[i] = new byte[SnapshotIO.readLength(in)];
+      in.readFully(blocks[i]);
+    }
+    return new CompressedOffsetStore(blocks, length, DEFAULT_CACHE_CAPACITY);
+  }
+
+  /**
+   * The LRU cache of the decompressed blocks.
+   */
+  private static class BlockCache extends LinkedHashMap<Integer, char[]> {
+
+    private final int capacity;
+
+    BlockCache(int capacity) {
+      super(16, 0.75f, true); // Access order.
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, char[]> eldest) {
+      return size() > capacity;
+    }
+  }
+
+  /**
+   * A builder that helps to construct a {@link CompressedOffsetStore}.
+   */
+  public static class Builder implements OffsetStore.Builder {
+
+    private final int cacheCapacity;
+    private final List<byte[]> blocks = new ArrayList<>();
+    private final char[] block = new char[BLOCK_SIZE];
+    private final ByteBuffer blockBuffer = ByteBuffer.allocate(BLOCK_SIZE * 2);
+    private byte[] output = new byte[BLOCK_SIZE * 2];
+    /**
+     * The number of the characters in the current block.
+     */
+    private int blockLength;
+    private long length;
+
+    /**
+     * Constructs a builder of the store with the default cache capacity.
+     */
+    public Builder() {
+      this(DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * Constructs a builder.
+     *
+     * @param cacheCapacity the number of the decompressed blocks in the cache
+     */
+    public Builder(int cacheCapacity) {
+      if (cacheCapacity < 1) {
+        throw new IllegalArgumentException("Cache capacity must be positive.");
+      }
+      this.cacheCapacity = cacheCapacity;
+    }
+
+    @Override
+    public long addChars(char[] chars, int start, int length) {
+      long offset = this.length;
+      int copied = 0;
+      while (copied < length) {
+        int count = Math.min(length - copied, BLOCK_SIZE - blockLength);
+        System.arraycopy(chars, start + copied, block, blockLength, count);
+        blockLength += count;
+        copied += count;
+        if (blockLength == BLOCK_SIZE) {
+          compressBlock();
+        }
+      }
+      this.length += length;
+      return offset;
+    }
+
+    @Override
+    public long addString(String s) {
+      long offset = length;
+      int copied = 0;
+      while (copied < s.length()) {
+        int count = Math.min(s.length() - copied, BLOCK_SIZE - blockLength);
+        s.getChars(copied, copied + count, block, blockLength);
+        blockLength += count;
+        copied += count;
+        if (blockLength == BLOCK_SIZE) {
+          compressBlock();
+        }
+      }
+      length += s.length();
+      return offset;
+    }
+
+    @Override
+    public CompressedOffsetStore build() {
+      if (blockLength > 0) {
+        compressBlock();
+      }
+      return new CompressedOffsetStore(
+          blocks.toArray(new byte[blocks.size()][]), length, cacheCapacity);
+    }
+
+    /**
+     * Compresses the current block and starts the new one. The builder may be dropped without
+     * being built, so the deflater isn't shared but ended right away like the inflater of a block.
+     */
+    private void compressBlock() {
+      blockBuffer.clear();
+      blockBuffer.asCharBuffer().put(block, 0, blockLength);
+
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      int size = 0;
+      try {
+        deflater.setInput(blockBuffer.array(), 0, blockLength * 2);
+        deflater.finish();
+        while (!deflater.finished()) {
+          if (size == output.length) {
+            output = Arrays.copyOf(output, output.length * 2);
+          }
+          size += deflater.deflate(output, size, output.length - size);
+        }
+      } finally {
+        deflater.end();
+      }
+
+      blocks.add(Arrays.copyOf(output, size));
+      blockLength = 0;
+    }
+  }
+}
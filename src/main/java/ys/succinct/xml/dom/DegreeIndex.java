@@ -0,0 +1,190 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ys.succinct.xml.dom;
+
+import ys.succinct.util.BitVector;
+
+import java.util.Arrays;
+
+/**
+ * An index of the wide nodes that supports the degree (the number of the children), child (the
+ * i-th child) and child rank (the position among the siblings) operations in a bounded time.
+ * <p>
+ * Only the nodes with at least {@link #SAMPLE_RATE} children are indexed. For such a node the
+ * index keeps its degree and the position of every {@code SAMPLE_RATE}-th child in the balanced
+ * parentheses, so an operation takes a binary search among the wide nodes followed by less than
+ * {@code SAMPLE_RATE} sibling steps. A narrow node is handled by the sibling steps alone. The
+ * index takes about {@code N / SAMPLE_RATE} integers at most, and nothing for the narrow trees.
+ *
+ * @author Yauheni Shahun
+ */
+final class DegreeIndex {
+
+  static final int SAMPLE_BITS = 6;
+  /**
+   * The minimal degree of an indexed node as well as the distance between the sampled children.
+   */
+  static final int SAMPLE_RATE = 1 << SAMPLE_BITS;
+
+  private static final int[] NO_VALUES = new int[0];
+
+  /**
+   * The sorted positions of the wide nodes in the balanced parentheses.
+   */
+  private final int[] nodes;
+  private final int[] degrees;
+  /**
+   * The start offsets of the samples of the wide nodes in {@link #samples}, the last value is the
+   * total number of the samples.
+   */
+  private final int[] sampleStarts;
+  /**
+   * The positions of the children {@code SAMPLE_RATE, 2 * SAMPLE_RATE, ...} of every wide node.
+   */
+  private final int[] samples;
+
+  private DegreeIndex(int[] nodes, int[] degrees, int[] sampleStarts, int[] samples) {
+    this.nodes = nodes;
+    this.degrees = degrees;
+    this.sampleStarts = sampleStarts;
+    this.samples = samples;
+  }
+
+  /**
+   * Builds the index in a single pass over the parentheses. The pass keeps the stack of the open
+   * nodes along with the numbers of their children met so far. A sampled child is recorded as
+   * soon as it's met since its parent is known to be wide at this point. The wide nodes are
+   * collected when they are closed, and the samples are grouped by them at the end.
+   *
+   * @param parenthesisVector the rank/select structure of the balanced parentheses
+   * @param parenthesisCount the number of the parentheses
+   * @return the index instance
+   */
+  static DegreeIndex build(BitVector parenthesisVector, int parenthesisCount) {
+    int[] stack = new int[16];
+    int[] childCounts = new int[16];
+    int depth = 0;
+    // The pairs of the wide node and its degree packed into longs.
+    long[] wideNodes = new long[0];
+    int wideCount = 0;
+    // The pairs of the parent and the sampled child in document order of the children.
+    int[] sampleParents = NO_VALUES;
+    int[] sampleChildren = NO_VALUES;
+    int sampleCount = 0;
+
+    for (int i = 0; i < parenthesisCount; i++) {
+      if (parenthesisVector.get(i)) {
+        if (depth > 0) {
+          int childCount = childCounts[depth - 1]++;
+          if (childCount > 0 && (childCount & (SAMPLE_RATE - 1)) == 0) {
+            if (sampleCount == sampleParents.length) {
+              int capacity = Math.max(16, sampleCount * 2);
+              sampleParents = Arrays.copyOf(sampleParents, capacity);
+              sampleChildren = Arrays.copyOf(sampleChildren, capacity);
+            }
+            sampleParents[sampleCount] = stack[depth - 1];
+            sampleChildren[sampleCount++] = i;
+          }
+        }
+        if (depth == stack.length) {
+          stack = Arrays.copyOf(stack, depth * 2);
+          childCounts = Arrays.copyOf(childCounts, depth * 2);
+        }
+        stack[depth] = i;
+        childCounts[depth++] = 0;
+      } else {
+        depth--;
+        if (childCounts[depth] >= SAMPLE_RATE) {
+          if (wideCount == wideNodes.length) {
+            wideNodes = Arrays.copyOf(wideNodes, Math.max(16, wideCount * 2));
+          }
+          wideNodes[wideCount++] = ((long) stack[depth] << 32) | childCounts[depth];
+        }
+      }
+    }
+
+    // The nodes are closed in the post-order, so put them in the document order.
+    Arrays.sort(wideNodes, 0, wideCount);
+    int[] nodes = new int[wideCount];
+    int[] degrees = new int[wideCount];
+    int[] sampleStarts = new int[wideCount + 1];
+    for (int k = 0; k < wideCount; k++) {
+      nodes[k] = (int) (wideNodes[k] >>> 32);
+      degrees[k] = (int) wideNodes[k];
+      sampleStarts[k + 1] = sampleStarts[k] + (degrees[k] - 1) / SAMPLE_RATE;
+    }
+    int[] samples = new int[sampleCount];
+    int[] offsets = Arrays.copyOf(sampleStarts, wideCount);
+    for (int j = 0; j < sampleCount; j++) {
+      int k = Arrays.binarySearch(nodes, sampleParents[j]);
+      samples[offsets[k]++] = sampleChildren[j];
+    }
+    return new DegreeIndex(nodes, degrees, sampleStarts, samples);
+  }
+
+  /**
+   * Finds the wide node.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @return the ordinal of the wide node in the index, or a negative value if the node isn't wide
+   */
+  int find(int parenthesisIndex) {
+    return Arrays.binarySearch(nodes, parenthesisIndex);
+  }
+
+  /**
+   * Gets the number of the children of the wide node.
+   *
+   * @param wideIndex the ordinal of the wide node returned by {@link #find(int)}
+   */
+  int getDegree(int wideIndex) {
+    return degrees[wideIndex];
+  }
+
+  /**
+   * Gets the sampled child of the wide node.
+   *
+   * @param wideIndex the ordinal of the wide node returned by {@link #find(int)}
+   * @param sample the number of the sample, i.e. the position of the child divided by
+   *        {@link #SAMPLE_RATE}, it must be positive and within the degree
+   * @return the index of the child in the balanced parentheses
+   */
+  int getSample(int wideIndex, int sample) {
+    return samples[sampleStarts[wideIndex] + sample - 1];
+  }
+
+  /**
+   * Finds the last sampled child of the wide node that precedes or is the given child.
+   *
+   * @param wideIndex the ordinal of the wide node returned by {@link #find(int)}
+   * @param childIndex the index of the child in the balanced parentheses
+   * @return the number of the sample, or {@code 0} if the child precedes the first sample
+   */
+  int findSample(int wideIndex, int childIndex) {
+    int start = sampleStarts[wideIndex];
+    int i = Arrays.binarySearch(samples, start, sampleStarts[wideIndex + 1], childIndex);
+    return (i >= 0) ? i - start + 1 : -i - 1 - start;
+  }
+
+  /**
+   * Returns the number of the indexed (wide) nodes.
+   */
+  int size() {
+    return nodes.length;
+  }
+}
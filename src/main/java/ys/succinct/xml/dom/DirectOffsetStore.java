@@ -0,0 +1,156 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link OffsetStore} that keeps the content in the direct (off-heap) memory. The content is
+ * split into the fixed-size chunks, so the store never requires a single huge allocation and the
+ * bulk of the document doesn't burden the garbage collector.
+ *
+ * @author Yauheni Shahun
+ */
+public class DirectOffsetStore extends ChunkedOffsetStore {
+
+  /**
+   * The number of bits to address the character within a chunk.
+   */
+  static final int CHUNK_BITS = 20;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+  /**
+   * Constructs a store.
+   *
+   * @param chunks the direct buffers, each except the last one holds {@code 2^CHUNK_BITS}
+   *        characters
+   * @param length the total number of the characters
+   */
+  private DirectOffsetStore(CharBuffer[] chunks, long length) {
+    super(chunks, CHUNK_BITS, length);
+  }
+
+  /**
+   * A builder that helps to construct a {@link DirectOffsetStore}.
+   */
+  public static class Builder implements OffsetStore.Builder {
+
+    private final List<CharBuffer> chunks = new ArrayList<>();
+    /**
+     * The expected length of the content or {@code -1} if it's unknown.
+     */
+    private final long expectedLength;
+    /**
+     * The chunk that is being filled.
+     */
+    private CharBuffer chunk;
+    private long length;
+
+    /**
+     * Constructs a builder.
+     */
+    public Builder() {
+      this.expectedLength = -1;
+    }
+
+    /**
+     * Constructs a builder that allocates the chunks for the expected length of the content, so
+     * the last chunk doesn't need to be shrunk.
+     *
+     * @param expectedLength the expected length of the content
+     */
+    public Builder(long expectedLength) {
+      if (expectedLength < 0) {
+        throw new IllegalArgumentException("Length must be non-negative: " + expectedLength);
+      }
+      this.expectedLength = expectedLength;
+    }
+
+    @Override
+    public long addChars(char[] chars, int start, int length) {
+      long offset = this.length;
+      int copied = 0;
+      while (copied < length) {
+        int count = Math.min(length - copied, ensureChunk());
+        chunk.put(chars, start + copied, count);
+        copied += count;
+      }
+      this.length += length;
+      return offset;
+    }
+
+    @Override
+    public long addString(String s) {
+      long offset = length;
+      int copied = 0;
+      while (copied < s.length()) {
+        int count = Math.min(s.length() - copied, ensureChunk());
+        chunk.put(s, copied, copied + count);
+        copied += count;
+      }
+      length += s.length();
+      return offset;
+    }
+
+    @Override
+    public DirectOffsetStore build() {
+      if (chunk != null && chunk.hasRemaining()) {
+        // Shrink the last chunk to release the unused memory.
+        CharBuffer lastChunk = allocate(chunk.position());
+        chunk.flip();
+        lastChunk.put(chunk);
+        chunks.set(chunks.size() - 1, lastChunk);
+      }
+      chunk = null;
+      return new DirectOffsetStore(chunks.toArray(new CharBuffer[chunks.size()]), length);
+    }
+
+    /**
+     * Ensures that the current chunk has the free space.
+     *
+     * @return the number of characters that the current chunk can accept
+     */
+    private int ensureChunk() {
+      if (chunk != null && !chunk.hasRemaining() && chunk.capacity() < CHUNK_SIZE) {
+        // The content exceeds the expected length, grow the chunk as all but the last chunks
+        // must be of the full size.
+        CharBuffer fullChunk = allocate(CHUNK_SIZE);
+        chunk.flip();
+        fullChunk.put(chunk);
+        chunks.set(chunks.size() - 1, fullChunk);
+        chunk = fullChunk;
+      } else if (chunk == null || !chunk.hasRemaining()) {
+        long completedLength = (long) chunks.size() << CHUNK_BITS;
+        int size = CHUNK_SIZE;
+        if (expectedLength > completedLength) {
+          size = (int) Math.min(expectedLength - completedLength, CHUNK_SIZE);
+        }
+        chunk = allocate(size);
+        chunks.add(chunk);
+      }
+      return chunk.remaining();
+    }
+
+    private static CharBuffer allocate(int capacity) {
+      return ByteBuffer.allocateDirect(capacity * 2).order(ByteOrder.nativeOrder()).asCharBuffer();
+    }
+  }
+}
@@ -16,6 +16,10 @@
 
 package ys.succinct.xml.dom;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * An object that holds the properties of the XML document like the XML declaration, URI, etc.
  *
@@ -83,4 +87,32 @@ public class DocumentContext {
   public boolean isXmlStandalone() {
     return isXmlStandalone;
   }
+
+  /**
+   * Writes the context to the snapshot.
+   *
+   * @param out the snapshot output
+   */
+  void writeTo(DataOutput out) throws IOException {
+    SnapshotIO.writeString(out, URI);
+    SnapshotIO.writeString(out, inputEncoding);
+    SnapshotIO.writeString(out, xmlEncoding);
+    SnapshotIO.writeString(out, xmlVersion);
+    out.writeBoolean(isXmlStandalone);
+  }
+
+  /**
+   * Reads the context from the snapshot.
+   *
+   * @param in the snapshot input
+   * @return the {@link DocumentContext} instance
+   */
+  static DocumentContext readFrom(DataInput in) throws IOException {
+    String URI = SnapshotIO.readString(in);
+    String inputEncoding = SnapshotIO.readString(in);
+    String xmlEncoding = SnapshotIO.readString(in);
+    String xmlVersion = SnapshotIO.readString(in);
+    boolean isXmlStandalone = in.readBoolean();
+    return new DocumentContext(URI, inputEncoding, xmlEncoding, xmlVersion, isXmlStandalone);
+  }
 }
@@ -211,8 +211,7 @@ public class DocumentImpl extends AbstractSuccinctNode implements Document {
 
   @Override
   public NodeList getElementsByTagName(String tagname) {
-    // TODO(yshahun): Auto-generated method stub
-    return null;
+    return dom.getElementsByTagName(index, tagname);
   }
 
   @Override
@@ -232,14 +231,12 @@ public class DocumentImpl extends AbstractSuccinctNode implements Document {
 
   @Override
   public NodeList getElementsByTagNameNS(String namespaceURI, String localName) {
-    // TODO(yshahun): Auto-generated method stub
-    return null;
+    return dom.getElementsByTagNameNS(index, namespaceURI, localName);
   }
 
   @Override
   public Element getElementById(String elementId) {
-    // TODO(yshahun): XML Stream API doesn't resolve the schema types properly.
-    return null;
+    return (Element) dom.getElementById(elementId);
   }
 
   @Override
@@ -0,0 +1,582 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The segments of the large document. The structures of a single {@link SuccinctDom} are
+ * addressed by int, which limits it to 2^31 - 1 parentheses (about 1.07 billion nodes), so the
+ * larger document is cut between the children of its root element into the segments. Every
+ * segment is the complete succinct DOM that starts with the copies of the document node and of the
+ * root element (along with its attributes) that enclose the next run of the root's children. The
+ * first segment also holds the prolog and the last one holds the epilog. Thus the balanced
+ * parentheses of every segment are balanced on their own, and the navigation within the segment
+ * takes its int-addressed structures as is.
+ * <p>
+ * The nodes are addressed across the segments by the {@code long} positions that pack the number
+ * of the segment into the high word and the index of the node in the balanced parentheses of the
+ * segment into the low word, so the positions grow in document order. The document node and the
+ * root element of the first segment stand for their copies in the other segments, i.e. the copies
+ * never surface, and the navigation among the children of the root steps from one segment to the
+ * next.
+ *
+ * @author Yauheni Shahun
+ */
+final class DomSegments {
+
+  private final SuccinctDom[] segments;
+
+  /**
+   * Constructs the segments.
+   *
+   * @param segments the succinct DOMs of the segments in document order
+   */
+  DomSegments(SuccinctDom[] segments) {
+    this.segments = segments;
+  }
+
+  /**
+   * Makes the position of the node.
+   *
+   * @param segmentIndex the number of the segment
+   * @param index the index of the node in the balanced parentheses of the segment, or {@code -1}
+   * @return the position of the node, or {@code -1} if the index is {@code -1}
+   */
+  static long toPosition(int segmentIndex, int index) {
+    return (index == -1) ? -1 : ((long) segmentIndex << 32) | index;
+  }
+
+  /**
+   * Gets the number of the segment from the position of the node.
+   */
+  static int getSegmentIndex(long position) {
+    return (int) (position >>> 32);
+  }
+
+  /**
+   * Gets the index of the node in the balanced parentheses of its segment from its position.
+   */
+  static int getIndex(long position) {
+    return (int) position;
+  }
+
+  /**
+   * Returns the number of the segments.
+   */
+  int size() {
+    return segments.length;
+  }
+
+  /**
+   * Returns the segment.
+   *
+   * @param segmentIndex the number of the segment
+   */
+  SuccinctDom get(int segmentIndex) {
+    return segments[segmentIndex];
+  }
+
+  /**
+   * Returns the succinct DOM of the segment that the position points to.
+   *
+   * @throws IndexOutOfBoundsException if there is no such segment
+   */
+  SuccinctDom getSegment(long position) {
+    return segments[getSegmentIndex(position)];
+  }
+
+  /**
+   * Returns the document node of the first segment.
+   */
+  DocumentImpl getDocument() {
+    return segments[0].getSegmentDocument();
+  }
+
+  /**
+   * Gets the node.
+   *
+   * @param position the position of the node, or {@code -1}
+   * @return the succinct {@link Node}, or {@code null} if the position is {@code -1}
+   */
+  Node getNode(long position) {
+    return (position != -1) ? getSegment(position).getNode(getIndex(position)) : null;
+  }
+
+  /**
+   * Makes the position of the node replacing the copies of the document node and the root element
+   * with their originals in the first segment.
+   *
+   * @param segmentIndex the number of the segment
+   * @param index the index of the node in the balanced parentheses of the segment, or {@code -1}
+   */
+  long canonicalize(int segmentIndex, int index) {
+    if (segmentIndex > 0 && index != -1) {
+      SuccinctDom segment = segments[segmentIndex];
+      if (index == segment.getDocumentIndex()) {
+        return toPosition(0, segments[0].getDocumentIndex());
+      }
+      if (index == segment.getDocumentElementIndex()) {
+        return toPosition(0, segments[0].getDocumentElementIndex());
+      }
+    }
+    return toPosition(segmentIndex, index);
+  }
+
+  /**
+   * Checks whether the node is the document node or the root element, i.e. the node whose
+   * children span the segments.
+   */
+  boolean isSpanning(int segmentIndex, int index) {
+    return isDocument(segmentIndex, index) || isRoot(segmentIndex, index);
+  }
+
+  private boolean isDocument(int segmentIndex, int index) {
+    return segmentIndex == 0 && index == segments[0].getDocumentIndex();
+  }
+
+  private boolean isRoot(int segmentIndex, int index) {
+    return segmentIndex == 0 && index == segments[0].getDocumentElementIndex();
+  }
+
+  /*
+   * Navigation methods. The nodes are given by the segment and the index in it, and the results
+   * are the positions or -1 if there is no such node.
+   */
+
+  long getParent(int segmentIndex, int index) {
+    return canonicalize(segmentIndex, segments[segmentIndex].getParentIndex(index));
+  }
+
+  long getFirstChild(int segmentIndex, int index) {
+    int childIndex = segments[segmentIndex].getFirstChildIndex(index);
+    if (childIndex == -1 && isRoot(segmentIndex, index)) {
+      return findFirstRootChild(1);
+    }
+    return canonicalize(segmentIndex, childIndex);
+  }
+
+  long getLastChild(int segmentIndex, int index) {
+    int last = segments.length - 1;
+    if (isDocument(segmentIndex, index)) {
+      // The epilog follows the root element in the last segment.
+      SuccinctDom segment = segments[last];
+      return canonicalize(last, segment.getLastChildIndex(segment.getDocumentIndex()));
+    }
+    if (isRoot(segmentIndex, index)) {
+      return findLastRootChild(last);
+    }
+    return canonicalize(segmentIndex, segments[segmentIndex].getLastChildIndex(index));
+  }
+
+  long getNextSibling(int segmentIndex, int index) {
+    if (isRoot(segmentIndex, index)) {
+      int last = segments.length - 1;
+      return toPosition(last,
+          segments[last].getNextSiblingIndex(segments[last].getDocumentElementIndex()));
+    }
+    SuccinctDom segment = segments[segmentIndex];
+    int siblingIndex = segment.getNextSiblingIndex(index);
+    if (siblingIndex != -1) {
+      return canonicalize(segmentIndex, siblingIndex);
+    }
+    if (segmentIndex < segments.length - 1
+        && segment.getParentIndex(index) == segment.getDocumentElementIndex()) {
+      return findFirstRootChild(segmentIndex + 1);
+    }
+    return -1;
+  }
+
+  long getPreviousSibling(int segmentIndex, int index) {
+    SuccinctDom segment = segments[segmentIndex];
+    int siblingIndex = segment.getPreviousSiblingIndex(index);
+    if (siblingIndex != -1) {
+      return canonicalize(segmentIndex, siblingIndex);
+    }
+    if (segmentIndex > 0 && segment.getParentIndex(index) == segment.getDocumentElementIndex()) {
+      return findLastRootChild(segmentIndex - 1);
+    }
+    return -1;
+  }
+
+  /**
+   * Finds the first child of the root element starting from the given segment.
+   */
+  private long findFirstRootChild(int segmentIndex) {
+    for (int i = segmentIndex; i < segments.length; i++) {
+      SuccinctDom segment = segments[i];
+      int childIndex = segment.getFirstChildIndex(segment.getDocumentElementIndex());
+      if (childIndex != -1) {
+        return toPosition(i, childIndex);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Finds the last child of the root element starting from the given segment backwards.
+   */
+  private long findLastRootChild(int segmentIndex) {
+    for (int i = segmentIndex; i >= 0; i--) {
+      SuccinctDom segment = segments[i];
+      int childIndex = segment.getLastChildIndex(segment.getDocumentElementIndex());
+      if (childIndex != -1) {
+        return toPosition(i, childIndex);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Checks whether the given node is a proper ancestor of the other node. The node of another
+   * segment is a descendant of the document node, and of the root element unless it's in the
+   * epilog.
+   */
+  boolean isAncestor(long position, long otherPosition) {
+    int segmentIndex = getSegmentIndex(position);
+    int index = getIndex(position);
+    int otherSegmentIndex = getSegmentIndex(otherPosition);
+    SuccinctDom otherSegment = segments[otherSegmentIndex];
+    if (segmentIndex == otherSegmentIndex) {
+      return otherSegment.isAncestor(index, getIndex(otherPosition));
+    }
+    if (isDocument(segmentIndex, index)) {
+      return true;
+    }
+    return isRoot(segmentIndex, index)
+        && otherSegment.isAncestor(otherSegment.getDocumentElementIndex(), getIndex(otherPosition));
+  }
+
+  /*
+   * The methods of the document node and the root element that span the segments.
+   */
+
+  /**
+   * Gets the number of the nodes in the subtree of the document node or the root element. The
+   * copies in the other segments aren't counted.
+   *
+   * @param index the index of the node in the first segment
+   */
+  long getSubtreeSize(int index) {
+    long size = 0;
+    int copyCount = isDocument(0, index) ? 2 : 1;
+    for (int i = 0; i < segments.length; i++) {
+      SuccinctDom segment = segments[i];
+      size += segment.getLocalSubtreeSize(getSpanningIndex(i, index));
+      if (i > 0) {
+        size -= copyCount;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Gets the number of the children of the document node or the root element.
+   *
+   * @param index the index of the node in the first segment
+   */
+  long getChildCount(int index) {
+    if (isDocument(0, index)) {
+      // The epilog follows the copy of the root element in the last segment.
+      SuccinctDom last = segments[segments.length - 1];
+      return segments[0].getLocalChildCount(index)
+          + last.getLocalChildCount(last.getDocumentIndex()) - 1;
+    }
+    long count = 0;
+    for (SuccinctDom segment : segments) {
+      count += segment.getLocalChildCount(segment.getDocumentElementIndex());
+    }
+    return count;
+  }
+
+  /**
+   * Gets the child of the document node or the root element at the given position.
+   *
+   * @param index the index of the node in the first segment
+   * @param position the position of the child among the children starting from {@code 0}
+   * @return the position of the child in the document or {@code -1} if there is no such child
+   */
+  long getChildPosition(int index, long position) {
+    if (position < 0) {
+      return -1;
+    }
+    if (isDocument(0, index)) {
+      int count = segments[0].getLocalChildCount(index);
+      if (position < count) {
+        return toPosition(0, segments[0].getLocalChildIndex(index, (int) position));
+      }
+      int last = segments.length - 1;
+      long epilogPosition = position - count + 1; // Skip the copy of the root element.
+      if (epilogPosition > Integer.MAX_VALUE) {
+        return -1;
+      }
+      SuccinctDom segment = segments[last];
+      return toPosition(last,
+          segment.getLocalChildIndex(segment.getDocumentIndex(), (int) epilogPosition));
+    }
+    for (int i = 0; i < segments.length; i++) {
+      SuccinctDom segment = segments[i];
+      int rootIndex = segment.getDocumentElementIndex();
+      int count = segment.getLocalChildCount(rootIndex);
+      if (position < count) {
+        return toPosition(i, segment.getLocalChildIndex(rootIndex, (int) position));
+      }
+      position -= count;
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the position of the node among the children of its parent. The children of the root
+   * element in the preceding segments and the prolog ahead of the epilog are counted in.
+   *
+   * @param segmentIndex the number of the segment
+   * @param index the index of the node in the balanced parentheses of the segment
+   */
+  long getChildRank(int segmentIndex, int index) {
+    SuccinctDom segment = segments[segmentIndex];
+    long rank = segment.getLocalChildRank(index);
+    if (segmentIndex == 0 || rank == -1) {
+      return rank;
+    }
+    int parentIndex = segment.getParentIndex(index);
+    if (parentIndex == segment.getDocumentElementIndex()) {
+      for (int i = 0; i < segmentIndex; i++) {
+        rank += segments[i].getLocalChildCount(segments[i].getDocumentElementIndex());
+      }
+    } else if (parentIndex == segment.getDocumentIndex()) {
+      // The epilog follows the children of the document node in the first segment, the local
+      // rank counts the copy of the root element.
+      rank += segments[0].getLocalChildCount(segments[0].getDocumentIndex()) - 1;
+    }
+    return rank;
+  }
+
+  /**
+   * Gets the index of the document node or the root element (or its copy) in the segment.
+   */
+  private int getSpanningIndex(int segmentIndex, int index) {
+    SuccinctDom segment = segments[segmentIndex];
+    return isDocument(0, index) ? segment.getDocumentIndex() : segment.getDocumentElementIndex();
+  }
+
+  /**
+   * Gets the children of the document node or the root element.
+   *
+   * @param index the index of the node in the first segment
+   */
+  NodeList getChildNodes(int index) {
+    if (isDocument(0, index)) {
+      // The prolog and the root element are in the first segment, the epilog is in the last one.
+      SuccinctDom last = segments[segments.length - 1];
+      IntArrayBuffer epilog = new IntArrayBuffer();
+      int count = 0;
+      for (int i = last.getNextSiblingIndex(last.getDocumentElementIndex()); i != -1;
+          i = last.getNextSiblingIndex(i)) {
+        epilog.setInt(count++, i);
+      }
+      return new CompositeNodeList(new NodeList[] {new ChildNodeList(segments[0], index),
+          new NodeListImpl(last, epilog.toIntArray(count))});
+    }
+    NodeList[] parts = new NodeList[segments.length];
+    for (int i = 0; i < segments.length; i++) {
+      parts[i] = new ChildNodeList(segments[i], segments[i].getDocumentElementIndex());
+    }
+    return new CompositeNodeList(parts);
+  }
+
+  /**
+   * Gets the descendant elements of the document node or the root element with the given tag
+   * name in document order.
+   *
+   * @param index the index of the node in the first segment
+   */
+  NodeList getElementsByTagName(int index, String name) {
+    NodeList[] parts = new NodeList[segments.length];
+    for (int i = 0; i < segments.length; i++) {
+      // The copy of the root element is excluded as the subtree of its copy is searched.
+      parts[i] = segments[i].findElementsByTagName(getSubtreeIndex(i, index), name);
+    }
+    return new CompositeNodeList(parts);
+  }
+
+  /**
+   * Gets the descendant elements of the document node or the root element with the given
+   * namespace URI and local name in document order.
+   *
+   * @param index the index of the node in the first segment
+   */
+  NodeList getElementsByTagNameNS(int index, String namespaceURI, String localName) {
+    NodeList[] parts = new NodeList[segments.length];
+    for (int i = 0; i < segments.length; i++) {
+      parts[i] = segments[i].findElementsByTagNameNS(
+          getSubtreeIndex(i, index), namespaceURI, localName);
+    }
+    return new CompositeNodeList(parts);
+  }
+
+  /**
+   * Gets the positions of the descendant elements of the document node or the root element with
+   * the given tag name in document order.
+   *
+   * @param index the index of the node in the first segment
+   */
+  long[] getElementPositionsByTagName(int index, String name) {
+    long[][] parts = new long[segments.length][];
+    for (int i = 0; i < segments.length; i++) {
+      parts[i] = segments[i].findElementsByTagName(getSubtreeIndex(i, index), name)
+          .toPositionArray();
+    }
+    return concat(parts);
+  }
+
+  /**
+   * Gets the positions of the descendant elements of the document node or the root element with
+   * the given namespace URI and local name in document order.
+   *
+   * @param index the index of the node in the first segment
+   */
+  long[] getElementPositionsByTagNameNS(int index, String namespaceURI, String localName) {
+    long[][] parts = new long[segments.length][];
+    for (int i = 0; i < segments.length; i++) {
+      parts[i] = segments[i].findElementsByTagNameNS(
+          getSubtreeIndex(i, index), namespaceURI, localName).toPositionArray();
+    }
+    return concat(parts);
+  }
+
+  /**
+   * Gets the index of the node whose subtree in the segment holds the part of the descendants of
+   * the document node or the root element, i.e. the node itself in the first segment and the copy
+   * of the root element in the others.
+   */
+  private int getSubtreeIndex(int segmentIndex, int index) {
+    return (segmentIndex == 0) ? index : segments[segmentIndex].getDocumentElementIndex();
+  }
+
+  private static long[] concat(long[][] parts) {
+    int length = 0;
+    for (long[] part : parts) {
+      length += part.length;
+    }
+    long[] result = new long[length];
+    int offset = 0;
+    for (long[] part : parts) {
+      System.arraycopy(part, 0, result, offset, part.length);
+      offset += part.length;
+    }
+    return result;
+  }
+
+  /**
+   * Gets the text content of the document node or the root element, i.e. the text of the root
+   * element as no text is outside of it.
+   */
+  String getTextContent() {
+    StringBuilder builder = new StringBuilder();
+    for (SuccinctDom segment : segments) {
+      segment.buildTextContent(segment.getDocumentElementIndex(), builder);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Gets the nodes at the given positions.
+   *
+   * @param positions the positions of the nodes
+   * @return the {@link NodeList} that consists of the lists of the runs of the nodes from the same
+   *         segment
+   */
+  NodeList getNodes(long[] positions) {
+    int runCount = 0;
+    for (int i = 0; i < positions.length; i++) {
+      if (i == 0 || getSegmentIndex(positions[i]) != getSegmentIndex(positions[i - 1])) {
+        runCount++;
+      }
+    }
+    NodeList[] parts = new NodeList[runCount];
+    int part = 0;
+    int start = 0;
+    for (int i = 1; i <= positions.length; i++) {
+      if (i == positions.length
+          || getSegmentIndex(positions[i]) != getSegmentIndex(positions[start])) {
+        int[] indexes = new int[i - start];
+        for (int j = start; j < i; j++) {
+          indexes[j - start] = getIndex(positions[j]);
+        }
+        parts[part++] = new NodeListImpl(getSegment(positions[start]), indexes);
+        start = i;
+      }
+    }
+    return new CompositeNodeList(parts);
+  }
+
+  /**
+   * Gets the element that has the ID attribute of the given value. The segments are looked up in
+   * document order, so the root element is found by its original.
+   *
+   * @return the element {@link Node}, or {@code null} if there is no such ID
+   */
+  Node getElementById(String id) {
+    for (SuccinctDom segment : segments) {
+      Node element = segment.findElementById(id);
+      if (element != null) {
+        return element;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Estimates the heap space of all the segments and counts the nodes of the document. The
+   * structures of the same name are summed up, the copies of the document node and the root
+   * element aren't counted.
+   *
+   * @return the {@link MemoryFootprint} instance
+   */
+  MemoryFootprint getMemoryFootprint() {
+    MemoryFootprint.Builder builder = new MemoryFootprint.Builder();
+    long[] counts = new long[4];
+    // The codes of the names are specific to the segment, so the names are compared instead.
+    Set<String> elementNames = new HashSet<>();
+    Set<String> attributeNames = new HashSet<>();
+    for (int i = 0; i < segments.length; i++) {
+      SuccinctDom segment = segments[i];
+      segment.estimate(builder);
+      BitSet elementCodes = new BitSet();
+      BitSet attributeCodes = new BitSet();
+      long[] segmentCounts = segment.count(elementCodes, attributeCodes);
+      for (int j = 0; j < counts.length; j++) {
+        counts[j] += segmentCounts[j];
+      }
+      if (i > 0) {
+        counts[0] -= 2; // The copies of the document node and the root element.
+        counts[1]--;
+        counts[3] -= segment.getAttributeCount(segment.getDocumentElementIndex());
+      }
+      segment.addNames(elementCodes, attributeCodes, elementNames, attributeNames);
+    }
+    return builder.setCounts(counts[0], counts[1], counts[2], counts[3])
+        .setNameCounts(elementNames.size(), attributeNames.size())
+        .build();
+  }
+}
@@ -197,8 +197,7 @@ public class ElementImpl extends AbstractSuccinctNode implements Element {
 
   @Override
   public NodeList getElementsByTagName(String name) {
-    // TODO(yshahun): Auto-generated method stub
-    return null;
+    return dom.getElementsByTagName(index, name);
   }
 
   @Override
@@ -235,8 +234,7 @@ public class ElementImpl extends AbstractSuccinctNode implements Element {
   @Override
   public NodeList getElementsByTagNameNS(String namespaceURI, String localName)
       throws DOMException {
-    // TODO(yshahun): Auto-generated method stub
-    return null;
+    return dom.getElementsByTagNameNS(index, namespaceURI, localName);
   }
 
   @Override
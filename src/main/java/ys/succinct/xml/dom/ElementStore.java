@@ -19,7 +19,10 @@ package ys.succinct.xml.dom;
 import org.w3c.dom.Node;
 
 import ys.succinct.util.CompactIntArray;
-import ys.succinct.util.IntBitSet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * An ordered store of the information about the following types of the XML nodes:
@@ -134,6 +137,81 @@ public class ElementStore {
     return (code > MAX_TYPE_CODE) ? Node.ELEMENT_NODE : code;
   }
 
+  /**
+   * Returns the code of the element's local name that is unique among the names of the store.
+   *
+   * @param index the 0-based index of the node
+   * @return the code or {@code -1} if the node isn't an element
+   */
+  int getElementNameCode(int index) {
+    int code = nameTypeCodes.getInt(index);
+    return (code > MAX_TYPE_CODE) ? code : -1;
+  }
+
+  /**
+   * Estimates the sizes of the parts of the store.
+   *
+   * @param builder the builder of the footprint
+   * @param name the name of the store in the footprint
+   */
+  void estimate(MemoryFootprint.Builder builder, String name) {
+    builder.add(name + ".nameCodes", nameTypeCodes)
+        .add(name + ".names", nameStore)
+        .add(name + ".namespaceIndexes", namespaceIndexes)
+        .add(name + ".namespaces", namespaceStore);
+  }
+
+  /**
+   * Returns the upper bound (exclusive) of the codes of the element names.
+   *
+   * @param nodeCount the number of the nodes in the store
+   */
+  int getNameCodeLimit(int nodeCount) {
+    if (nameStore instanceof NameStore) {
+      return ((NameStore) nameStore).size();
+    }
+    int limit = MAX_TYPE_CODE + 1;
+    for (int i = 0; i < nodeCount; i++) {
+      limit = Math.max(limit, nameTypeCodes.getInt(i) + 1);
+    }
+    return limit;
+  }
+
+  /**
+   * Returns the name that is identified by the code.
+   *
+   * @param code the code of the element name
+   */
+  String getNameByCode(int code) {
+    return nameStore.getString(code);
+  }
+
+  /**
+   * Finds the code of the element name.
+   *
+   * @param name the local name of the element
+   * @param nodeCount the number of the nodes in the store
+   * @return the code or {@code -1} if no element has such name
+   */
+  int findNameCode(String name, int nodeCount) {
+    if (nameStore instanceof NameStore) {
+      for (int code = MAX_TYPE_CODE + 1; code < ((NameStore) nameStore).size(); code++) {
+        if (name.equals(nameStore.getString(code))) {
+          return code;
+        }
+      }
+      return -1;
+    }
+    // The size of an arbitrary store is unknown so the names of the elements are checked.
+    for (int i = 0; i < nodeCount; i++) {
+      int code = nameTypeCodes.getInt(i);
+      if (code > MAX_TYPE_CODE && name.equals(nameStore.getString(code))) {
+        return code;
+      }
+    }
+    return -1;
+  }
+
   /**
    * Returns the index of the element name.
    *
@@ -148,17 +226,81 @@ public class ElementStore {
     }
   }
 
+  /**
+   * Writes the store to the snapshot.
+   *
+   * @param out the snapshot output
+   * @param nodeCount the number of the nodes in the store
+   * @throws IOException if the output fails or some name store can't be written
+   */
+  void writeTo(DataOutput out, int nodeCount) throws IOException {
+    out.writeInt(nodeCount);
+    SnapshotIO.writeInts(out, nameTypeCodes, nodeCount);
+    toNameStore(nameStore).writeTo(out);
+    SnapshotIO.writeInts(out, namespaceIndexes, nodeCount * 2);
+    toNameStore(namespaceStore).writeTo(out);
+  }
+
+  /**
+   * Reads the store from the snapshot.
+   *
+   * @param in the snapshot input
+   * @return the {@link ElementStore} instance
+   */
+  static ElementStore readFrom(DataInput in) throws IOException {
+    in.readInt(); // The node count is known from the node bit string.
+    int[] nameTypeCodes = SnapshotIO.readInts(in);
+    NameStore nameStore = NameStore.readFrom(in);
+    int[] namespaceIndexes = SnapshotIO.readInts(in);
+    NameStore namespaceStore = NameStore.readFrom(in);
+    return new ElementStore(
+        new CompactIntArray(nameTypeCodes, nameStore.size() - 1),
+        nameStore,
+        new CompactIntArray(namespaceIndexes, namespaceStore.size() - 1),
+        namespaceStore);
+  }
+
+  /**
+   * Casts the ordered store to the {@link NameStore} that can be written to the snapshot.
+   *
+   * @throws IOException if the store isn't a {@link NameStore}
+   */
+  private static NameStore toNameStore(OrderedStore store) throws IOException {
+    if (store instanceof NameStore) {
+      return (NameStore) store;
+    }
+    throw new IOException("Unsupported name store: " + store.getClass().getName());
+  }
+
   /**
    * A builder that helps to construct an {@link ElementStore}.
    */
   public static class Builder {
 
-    private IntBitSet nameTypeCodes = new IntBitSet();
-    private IntBitSet namespaceIndexes = new IntBitSet();
+    private IntArrayBuffer nameTypeCodes;
+    private IntArrayBuffer namespaceIndexes;
     private NameStore.Builder nameBuilder = new NameStore.Builder(MAX_TYPE_CODE);
     private NameStore.Builder namespaceBuilder = new NameStore.Builder();
     private int nameCount;
 
+    /**
+     * Constructs a builder.
+     */
+    public Builder() {
+      nameTypeCodes = new IntArrayBuffer();
+      namespaceIndexes = new IntArrayBuffer();
+    }
+
+    /**
+     * Constructs a builder that is sized for the expected number of the nodes.
+     *
+     * @param nodeCount the expected number of the nodes
+     */
+    public Builder(int nodeCount) {
+      nameTypeCodes = new IntArrayBuffer(nodeCount);
+      namespaceIndexes = new IntArrayBuffer((int) Math.min(nodeCount * 2L, Integer.MAX_VALUE - 8));
+    }
+
     /**
      * Adds an information about the node to the store. The qualified name is optional as not all
      * the nodes have it.
@@ -189,6 +331,33 @@ public class ElementStore {
       addNode(null, null, null, type);
     }
 
+    /**
+     * Appends the nodes that the other builder has collected to this builder. The names of the
+     * other builder are remapped to the names of this one.
+     *
+     * @param other the builder to append
+     */
+    public void append(Builder other) {
+      int[] nameMap = nameBuilder.append(other.nameBuilder);
+      int[] namespaceMap = namespaceBuilder.append(other.namespaceBuilder);
+      for (int i = 0; i < other.nameCount; i++) {
+        int code = other.nameTypeCodes.getInt(i);
+        nameTypeCodes.setInt(nameCount, (code > MAX_TYPE_CODE) ? nameMap[code] : code);
+        namespaceIndexes.setInt(nameCount * 2, namespaceMap[other.namespaceIndexes.getInt(i * 2)]);
+        namespaceIndexes.setInt(
+            nameCount * 2 + 1, namespaceMap[other.namespaceIndexes.getInt(i * 2 + 1)]);
+        nameCount++;
+      }
+    }
+
+    /**
+     * Estimates the size of the collected node data in bytes from the allocated buffers. The
+     * dictionaries of the unique names are small and aren't counted.
+     */
+    public long estimateSize() {
+      return nameTypeCodes.getAllocatedSize() + namespaceIndexes.getAllocatedSize();
+    }
+
     /**
      * Builds the store using the node data that the builder has collected.
      *
@@ -196,10 +365,10 @@ public class ElementStore {
      */
     public ElementStore build() {
       return new ElementStore(
-          new CompactIntArray(nameTypeCodes.toIntArray(nameCount * 32), nameBuilder.getMaxIndex()),
+          new CompactIntArray(nameTypeCodes.toIntArray(nameCount), nameBuilder.getMaxIndex()),
           nameBuilder.build(),
           new CompactIntArray(
-              namespaceIndexes.toIntArray(nameCount * 2 * 32), namespaceBuilder.getMaxIndex()),
+              namespaceIndexes.toIntArray(nameCount * 2), namespaceBuilder.getMaxIndex()),
           namespaceBuilder.build());
     }
   }
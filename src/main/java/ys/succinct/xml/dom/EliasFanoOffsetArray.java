@@ -0,0 +1,175 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import ys.succinct.util.BitVector;
+import ys.succinct.util.IntBitSet;
+import ys.succinct.util.SamplingBitVector;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * An {@link OffsetArray} that keeps the offsets in the Elias-Fano encoding. Every offset is split
+ * into the lower {@code L} bits that are packed densely and the upper bits that are written in
+ * unary as the gaps between the set bits of the bit vector, where {@code L} is chosen by the ratio
+ * of the largest offset to the number of the offsets. The upper bits are decoded by the select
+ * operation on the bit vector.
+ * <p>
+ * The encoding takes at most {@code 2 + L} bits per offset instead of 32 bits.
+ *
+ * @author Yauheni Shahun
+ */
+class EliasFanoOffsetArray implements OffsetArray {
+
+  /**
+   * The maximum number of the lower bits, so that they span at most 2 integers.
+   */
+  private static final int MAX_LOW_BIT_COUNT = 32;
+
+  private final int size;
+  private final int lowBitCount;
+  private final long lowMask;
+  private final int[] lowBits;
+  private final int[] highBits;
+  private final int highBitCount;
+  private final BitVector highVector;
+
+  private EliasFanoOffsetArray(
+      int size, int lowBitCount, int[] lowBits, int[] highBits, int highBitCount) {
+    this.size = size;
+    this.lowBitCount = lowBitCount;
+    this.lowMask = (1L << lowBitCount) - 1;
+    this.lowBits = lowBits;
+    this.highBits = highBits;
+    this.highBitCount = highBitCount;
+    this.highVector = new SamplingBitVector(highBits, highBitCount);
+  }
+
+  /**
+   * Encodes the offsets.
+   *
+   * @param offsets the non-decreasing non-negative offset values
+   * @return the {@link EliasFanoOffsetArray} instance
+   * @throws IllegalArgumentException if the offsets are decreasing or too sparse to be encoded
+   */
+  static EliasFanoOffsetArray encode(OffsetArray offsets) {
+    int size = offsets.size();
+    long maxOffset = (size == 0) ? 0 : offsets.get(size - 1);
+    int lowBitCount = 0;
+    if (size > 0 && maxOffset / size > 0) {
+      lowBitCount = 63 - Long.numberOfLeadingZeros(maxOffset / size);
+    }
+    while (size + (maxOffset >>> lowBitCount) + 1 > Integer.MAX_VALUE) {
+      lowBitCount++;
+    }
+    if (lowBitCount > MAX_LOW_BIT_COUNT) {
+      throw new IllegalArgumentException("Offsets are too sparse to be encoded.");
+    }
+
+    int[] lowBits = new int[(int) (((long) size * lowBitCount + 31) >>> 5)];
+    IntBitSet highBits = new IntBitSet();
+    int highBitCount = (int) (size + (maxOffset >>> lowBitCount) + 1);
+    long previous = 0;
+    for (int i = 0; i < size; i++) {
+      long offset = offsets.get(i);
+      if (offset < previous) {
+        throw new IllegalArgumentException("Offsets must be non-decreasing.");
+      }
+      previous = offset;
+      setLowBits(lowBits, i, lowBitCount, offset);
+      highBits.set((int) (offset >>> lowBitCount) + i);
+    }
+    return new EliasFanoOffsetArray(
+        size, lowBitCount, lowBits, highBits.toIntArray(highBitCount), highBitCount);
+  }
+
+  @Override
+  public long get(int index) {
+    long high = highVector.select(index) - index;
+    return (high << lowBitCount) | getLowBits(index);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  private long getLowBits(int index) {
+    if (lowBitCount == 0) {
+      return 0;
+    }
+    long position = (long) index * lowBitCount;
+    int word = (int) (position >>> 5);
+    int shift = (int) (position & 31);
+    long bits = (lowBits[word] & 0xFFFFFFFFL) >>> shift;
+    if (shift + lowBitCount > 32) {
+      bits |= (long) lowBits[word + 1] << (32 - shift);
+    }
+    return bits & lowMask;
+  }
+
+  private static void setLowBits(int[] lowBits, int index, int lowBitCount, long value) {
+    if (lowBitCount == 0) {
+      return;
+    }
+    long bits = value & ((1L << lowBitCount) - 1);
+    long position = (long) index * lowBitCount;
+    int word = (int) (position >>> 5);
+    int shift = (int) (position & 31);
+    lowBits[word] |= (int) (bits << shift);
+    if (shift + lowBitCount > 32) {
+      lowBits[word + 1] |= (int) (bits >>> (32 - shift));
+    }
+  }
+
+  /**
+   * Writes the offset array to the snapshot.
+   *
+   * @param out the snapshot output
+   */
+  void writeTo(DataOutput out) throws IOException {
+    out.writeInt(size);
+    out.writeInt(lowBitCount);
+    SnapshotIO.writeInts(out, lowBits);
+    out.writeInt(highBitCount);
+    SnapshotIO.writeInts(out, highBits);
+  }
+
+  /**
+   * Reads the offset array from the snapshot.
+   *
+   * @param in the snapshot input
+   * @return the {@link EliasFanoOffsetArray} instance
+   */
+  static EliasFanoOffsetArray readFrom(DataInput in) throws IOException {
+    int size = SnapshotIO.readLength(in);
+    int lowBitCount = in.readInt();
+    if (lowBitCount < 0 || lowBitCount > MAX_LOW_BIT_COUNT) {
+      throw new IOException("Snapshot is corrupted: invalid low bit count " + lowBitCount);
+    }
+    int[] lowBits = SnapshotIO.readInts(in);
+    int highBitCount = SnapshotIO.readLength(in);
+    int[] highBits = SnapshotIO.readInts(in);
+    if ((long) lowBits.length << 5 < (long) size * lowBitCount
+        || (long) highBits.length << 5 < highBitCount) {
+      throw new IOException("Snapshot is corrupted: offset bits are truncated.");
+    }
+    return new EliasFanoOffsetArray(size, lowBitCount, lowBits, highBits, highBitCount);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+/**
+ * A compact hash index of the element IDs. The index maps the values of the ID attributes to the
+ * positions of the attributes in the attribute bit string, so the element is resolved by
+ * {@link SuccinctDom#getAttributeElement(int)}. The values aren't copied, the index keeps only the
+ * attribute positions and the hash codes of the values in the open-addressing table (two ints per
+ * slot), and the values are compared against the attribute value store.
+ * <p>
+ * If several attributes have the same value, the first one in the document order wins.
+ *
+ * @author Yauheni Shahun
+ */
+final class IdIndex {
+
+  private static final int MAX_CAPACITY = 1 << 30;
+  /**
+   * The maximum number of the IDs that keeps the load factor of the largest table at 0.5.
+   */
+  static final int MAX_SIZE = MAX_CAPACITY >> 1;
+
+  private final int[] hashes;
+  /**
+   * The positions of the ID attributes in the attribute bit string, {@code -1} for the free slot.
+   */
+  private final int[] attributeIndexes;
+  private final int mask;
+
+  private IdIndex(int capacity) {
+    this.hashes = new int[capacity];
+    this.attributeIndexes = new int[capacity];
+    this.mask = capacity - 1;
+    for (int i = 0; i < capacity; i++) {
+      attributeIndexes[i] = -1;
+    }
+  }
+
+  /**
+   * Builds the index of the given attributes.
+   *
+   * @param dom the succinct DOM that holds the attribute values
+   * @param attributeIndexes the positions of the ID attributes in the attribute bit string
+   * @param count the number of the attributes
+   * @return the index instance
+   * @throws IllegalArgumentException if the number of the attributes exceeds {@link #MAX_SIZE}
+   */
+  static IdIndex build(SuccinctDom dom, int[] attributeIndexes, int count) {
+    if (count > MAX_SIZE) {
+      throw new IllegalArgumentException(
+          "Number of IDs exceeds the limit of the index (" + MAX_SIZE + "): " + count);
+    }
+    // Keep the load factor below 0.5 so that the probe sequences are short.
+    int capacity = 2;
+    while (capacity < count * 2) {
+      capacity <<= 1;
+    }
+    IdIndex index = new IdIndex(capacity);
+    for (int i = 0; i < count; i++) {
+      index.add(dom, attributeIndexes[i]);
+    }
+    return index;
+  }
+
+  private void add(SuccinctDom dom, int attributeIndex) {
+    String value = dom.getAttributeValue(attributeIndex);
+    int hash = hash(value);
+    int slot = hash & mask;
+    while (attributeIndexes[slot] != -1) {
+      if (hashes[slot] == hash && value.equals(dom.getAttributeValue(attributeIndexes[slot]))) {
+        return; // Keep the first attribute of the duplicate ID.
+      }
+      slot = (slot + 1) & mask;
+    }
+    hashes[slot] = hash;
+    attributeIndexes[slot] = attributeIndex;
+  }
+
+  /**
+   * Finds the ID attribute of the given value.
+   *
+   * @param dom the succinct DOM that holds the attribute values
+   * @param id the ID value
+   * @return the position of the attribute in the attribute bit string, or {@code -1} if there is
+   *         no such ID
+   */
+  int find(SuccinctDom dom, String id) {
+    int hash = hash(id);
+    int slot = hash & mask;
+    while (attributeIndexes[slot] != -1) {
+      if (hashes[slot] == hash && id.equals(dom.getAttributeValue(attributeIndexes[slot]))) {
+        return attributeIndexes[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Spreads the higher bits of the string hash code to the lower ones, as the mask keeps only the
+   * lower bits.
+   */
+  private static int hash(String s) {
+    int h = s.hashCode();
+    return h ^ (h >>> 16);
+  }
+}
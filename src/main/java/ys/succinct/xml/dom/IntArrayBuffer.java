@@ -0,0 +1,196 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import ys.succinct.util.IntBitSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A growable buffer of integers that is used to collect the arrays and bit strings of the succinct
+ * DOM during its construction.
+ * <p>
+ * The buffer grows by appending the fixed-size segments, so the collected values are never copied
+ * on growth. The values are assembled into a single array only once when the buffer is converted.
+ * If the buffer has been created with the capacity that matches the final size exactly, the
+ * underlying array is handed over as is, without any copy.
+ *
+ * @author Yauheni Shahun
+ */
+public final class IntArrayBuffer {
+
+  /**
+   * The number of bits to address the integer within a segment (except the first one).
+   */
+  static final int SEGMENT_BITS = 16;
+  private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+  private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+  private static final int DEFAULT_CAPACITY = 256;
+
+  /**
+   * The segments of the buffer. The first segment has the initial capacity, the others have the
+   * fixed size.
+   */
+  private List<int[]> segments = new ArrayList<>();
+  private int[] first;
+
+  /**
+   * Constructs a buffer with the default initial capacity.
+   */
+  public IntArrayBuffer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs a buffer.
+   *
+   * @param initialCapacity the number of the integers that the buffer can hold without growth
+   */
+  public IntArrayBuffer(int initialCapacity) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("Capacity must be non-negative: " + initialCapacity);
+    }
+    first = new int[initialCapacity];
+    segments.add(first);
+  }
+
+  /**
+   * Sets the bit in the buffer viewed as the bit string. The bits are ordered as in
+   * {@link IntBitSet}, i.e. the least significant bit of an integer goes first.
+   *
+   * @param bitIndex the 0-based index of the bit
+   */
+  public void set(int bitIndex) {
+    int index = bitIndex >>> 5;
+    int[] segment = getSegment(index);
+    segment[getOffset(index)] |= 1 << bitIndex; // The shift distance is taken modulo 32.
+  }
+
+  /**
+   * Sets the integer value.
+   *
+   * @param index the 0-based index of the integer
+   * @param value the value
+   */
+  public void setInt(int index, int value) {
+    int[] segment = getSegment(index);
+    segment[getOffset(index)] = value;
+  }
+
+  /**
+   * Returns the integer value.
+   *
+   * @param index the 0-based index of the integer
+   */
+  public int getInt(int index) {
+    if (index < first.length) {
+      return first[index];
+    }
+    int segmentIndex = ((index - first.length) >>> SEGMENT_BITS) + 1;
+    return (segmentIndex < segments.size()) ? segments.get(segmentIndex)[getOffset(index)] : 0;
+  }
+
+  /**
+   * Copies the bits of the other buffer viewed as the bit string to this buffer starting from the
+   * given position. The bits of this buffer in the target range must be clear.
+   *
+   * @param bitOffset the 0-based index of the bit in this buffer that the copy starts from
+   * @param source the buffer to copy the bits from
+   * @param bitCount the number of the bits to copy from the beginning of the source buffer
+   */
+  public void setBits(int bitOffset, IntArrayBuffer source, int bitCount) {
+    int wordCount = (int) ((bitCount + 31L) >>> 5);
+    int shift = bitOffset & 31;
+    for (int i = 0; i < wordCount; i++) {
+      int word = source.getInt(i);
+      if (word == 0) {
+        continue;
+      }
+      int index = (bitOffset >>> 5) + i;
+      // The low bits of the word go to the high bits of the target integer, the rest spill over.
+      setInt(index, getInt(index) | (word << shift));
+      if (shift != 0) {
+        setInt(index + 1, getInt(index + 1) | (word >>> (32 - shift)));
+      }
+    }
+  }
+
+  /**
+   * Converts the buffer to the array of the given length. The buffer must not be used after the
+   * conversion as its segments are released while they are copied.
+   *
+   * @param length the number of the integers
+   * @return the array whose length is exactly the given one
+   */
+  public int[] toIntArray(int length) {
+    int[] result;
+    if (first.length == length) {
+      result = first; // The buffer has been sized exactly.
+    } else {
+      result = new int[length];
+      int copied = 0;
+      for (int i = 0; i < segments.size() && copied < length; i++) {
+        int[] segment = segments.get(i);
+        int count = Math.min(segment.length, length - copied);
+        System.arraycopy(segment, 0, result, copied, count);
+        copied += count;
+        segments.set(i, null); // Release the segment as soon as possible.
+      }
+    }
+    segments = null;
+    first = null;
+    return result;
+  }
+
+  /**
+   * Converts the buffer viewed as the bit string to the array.
+   *
+   * @param bitCount the number of the bits
+   * @return the array that holds exactly the given number of bits
+   * @see #toIntArray(int)
+   */
+  public int[] toBitArray(int bitCount) {
+    return toIntArray((int) ((bitCount + 31L) >>> 5));
+  }
+
+  /**
+   * Returns the size of the allocated segments in bytes. It takes constant time, so it's cheap
+   * enough to be polled while the buffer grows.
+   */
+  public long getAllocatedSize() {
+    return (first.length + (long) (segments.size() - 1) * SEGMENT_SIZE) * 4;
+  }
+
+  /**
+   * Returns the segment that holds the integer, the missing segments are appended.
+   */
+  private int[] getSegment(int index) {
+    if (index < first.length) {
+      return first;
+    }
+    int segmentIndex = ((index - first.length) >>> SEGMENT_BITS) + 1;
+    while (segments.size() <= segmentIndex) {
+      segments.add(new int[SEGMENT_SIZE]);
+    }
+    return segments.get(segmentIndex);
+  }
+
+  private int getOffset(int index) {
+    return (index < first.length) ? index : (index - first.length) & SEGMENT_MASK;
+  }
+}
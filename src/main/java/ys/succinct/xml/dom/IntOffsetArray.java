@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import java.util.Arrays;
+
+/**
+ * An {@link OffsetArray} that is backed by the integer array. The array holds the lower 32 bits of
+ * the offsets. As the offsets are non-decreasing, their upper bits are restored from the indexes
+ * where the lower bits wrap around, which are rare.
+ *
+ * @author Yauheni Shahun
+ */
+class IntOffsetArray implements OffsetArray {
+
+  private final int[] offsets;
+  private final int[] wraps;
+
+  /**
+   * Constructs an offset array.
+   *
+   * @param offsets the array of the lower 32 bits of the offset values
+   * @param wraps the ascending indexes of the offsets whose upper 32 bits are incremented in
+   *        comparison with the previous offset
+   */
+  IntOffsetArray(int[] offsets, int[] wraps) {
+    this.offsets = offsets;
+    this.wraps = wraps;
+  }
+
+  @Override
+  public long get(int index) {
+    return getOffset(offsets[index], wraps, index);
+  }
+
+  @Override
+  public int size() {
+    return offsets.length;
+  }
+
+  /**
+   * Restores the offset value from its lower 32 bits.
+   *
+   * @param lowBits the lower 32 bits of the offset
+   * @param wraps the ascending indexes where the upper bits of the offsets are incremented
+   * @param index the index of the offset
+   */
+  static long getOffset(int lowBits, int[] wraps, int index) {
+    if (wraps.length == 0) {
+      return lowBits & 0xFFFFFFFFL;
+    }
+    // The number of the wraps at or before the index.
+    int position = Arrays.binarySearch(wraps, index);
+    long highBits = (position >= 0) ? position + 1 : -position - 1;
+    return (highBits << 32) | (lowBits & 0xFFFFFFFFL);
+  }
+}
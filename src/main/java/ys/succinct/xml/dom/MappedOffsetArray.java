@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * An {@link OffsetArray} that reads the offsets directly from the memory-mapped regions of the
+ * snapshot file. The offsets are split into the chunks as a single mapping can't exceed 2 GB.
+ *
+ * @author Yauheni Shahun
+ */
+class MappedOffsetArray implements OffsetArray {
+
+  /**
+   * The number of bits to address the offset within a chunk.
+   */
+  static final int CHUNK_BITS = 28;
+  private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+  private final IntBuffer[] chunks;
+  private final int size;
+  private final int[] wraps;
+
+  /**
+   * Constructs an offset array.
+   *
+   * @param chunks the mapped regions of the lower 32 bits of the offsets, each except the last
+   *        one holds {@code 2^CHUNK_BITS} offsets
+   * @param size the number of the offsets
+   * @param wraps the ascending indexes of the offsets whose upper 32 bits are incremented in
+   *        comparison with the previous offset
+   * @see IntOffsetArray
+   */
+  MappedOffsetArray(ByteBuffer[] chunks, int size, int[] wraps) {
+    this.chunks = new IntBuffer[chunks.length];
+    for (int i = 0; i < chunks.length; i++) {
+      this.chunks[i] = chunks[i].asIntBuffer();
+    }
+    this.size = size;
+    this.wraps = wraps;
+  }
+
+  @Override
+  public long get(int index) {
+    return IntOffsetArray.getOffset(
+        chunks[index >>> CHUNK_BITS].get(index & CHUNK_MASK), wraps, index);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+}
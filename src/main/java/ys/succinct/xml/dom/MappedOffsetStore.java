@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * An {@link OffsetStore} that reads the content directly from the memory-mapped regions of the
+ * snapshot file. The content isn't copied to the heap, it's paged in by the OS on demand. The
+ * content is split into the chunks as a single mapping can't exceed 2 GB.
+ *
+ * @author Yauheni Shahun
+ */
+public class MappedOffsetStore extends ChunkedOffsetStore {
+
+  /**
+   * The number of bits to address the character within a chunk.
+   */
+  static final int CHUNK_BITS = 29;
+
+  /**
+   * Constructs a store.
+   *
+   * @param chunks the mapped regions, each except the last one holds {@code 2^CHUNK_BITS}
+   *        characters
+   * @param length the total number of the characters
+   */
+  MappedOffsetStore(ByteBuffer[] chunks, long length) {
+    super(toCharBuffers(chunks), CHUNK_BITS, length);
+  }
+
+  private static CharBuffer[] toCharBuffers(ByteBuffer[] chunks) {
+    CharBuffer[] buffers = new CharBuffer[chunks.length];
+    for (int i = 0; i < chunks.length; i++) {
+      buffers[i] = chunks[i].asCharBuffer();
+    }
+    return buffers;
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A snapshot input that is able to map the regions of the snapshot file into the memory instead of
+ * reading them. The small parts of the snapshot are read as usual.
+ *
+ * @author Yauheni Shahun
+ */
+final class MappedSnapshotInput extends DataInputStream {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final FileChannel channel;
+  private final PositionInputStream stream;
+
+  /**
+   * Constructs a snapshot input.
+   *
+   * @param file the input stream of the snapshot file
+   */
+  MappedSnapshotInput(FileInputStream file) {
+    this(file.getChannel(), new PositionInputStream(new BufferedInputStream(file, BUFFER_SIZE)));
+  }
+
+  private MappedSnapshotInput(FileChannel channel, PositionInputStream stream) {
+    super(stream);
+    this.channel = channel;
+    this.stream = stream;
+  }
+
+  /**
+   * Maps the region of the snapshot file that starts from the current position and skips it. The
+   * region is split into the chunks as a single mapping can't exceed 2 GB.
+   *
+   * @param length the length of the region in bytes
+   * @param chunkBits the number of bits that defines the chunk size in bytes
+   * @return the read-only buffers that represent the region
+   * @throws IOException if the region exceeds the file or can't be mapped
+   */
+  ByteBuffer[] map(long length, int chunkBits) throws IOException {
+    long position = stream.position;
+    if (position + length > channel.size()) {
+      throw new IOException("Snapshot is truncated.");
+    }
+
+    long chunkSize = 1L << chunkBits;
+    ByteBuffer[] chunks = new ByteBuffer[(int) ((length + chunkSize - 1) >>> chunkBits)];
+    for (int i = 0; i < chunks.length; i++) {
+      long offset = i * chunkSize;
+      chunks[i] = channel.map(
+          FileChannel.MapMode.READ_ONLY, position + offset, Math.min(chunkSize, length - offset));
+    }
+
+    stream.skipFully(length);
+    return chunks;
+  }
+
+  /**
+   * An input stream that tracks the position of the consumed bytes.
+   */
+  private static class PositionInputStream extends FilterInputStream {
+
+    private long position;
+
+    PositionInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        position++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int count = super.read(b, off, len);
+      if (count > 0) {
+        position += count;
+      }
+      return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long count = super.skip(n);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    /**
+     * Skips exactly the given number of bytes.
+     */
+    void skipFully(long n) throws IOException {
+      long remaining = n;
+      while (remaining > 0) {
+        long count = skip(remaining);
+        if (count <= 0) {
+          if (read() == -1) {
+            throw new IOException("Snapshot is truncated.");
+          }
+          count = 1;
+        }
+        remaining -= count;
+      }
+    }
+  }
+}
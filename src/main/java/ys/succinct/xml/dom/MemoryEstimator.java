@@ -0,0 +1,223 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.Buffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An estimator of the heap space that the object graphs retain. The estimate presumes a 64-bit JVM
+ * with the compressed object pointers (the default for heaps under 32 GB).
+ * <p>
+ * The objects of the library classes (including the succinct data structures of the util
+ * library) are walked by their fields. The JDK objects aren't walked but estimated by their kind:
+ * the strings by their length, the maps and collections by their entries, the buffers by their
+ * backing arrays, and the others by their shallow size. The content of the direct and mapped
+ * buffers is off the heap, so it isn't counted.
+ * <p>
+ * Every object is counted once per estimator, so the parts that are shared among the structures
+ * are attributed to the structure that is estimated first.
+ *
+ * @author Yauheni Shahun
+ */
+final class MemoryEstimator {
+
+  private static final int OBJECT_HEADER = 12;
+  private static final int ARRAY_HEADER = 16;
+  private static final int REFERENCE = 4;
+  private static final int ALIGNMENT = 8;
+  /**
+   * The size of a {@link java.util.HashMap} entry (a header, a hash, three references).
+   */
+  private static final int MAP_ENTRY = 32;
+
+  private static final Map<Class<?>, Integer> PRIMITIVE_SIZES = new HashMap<>();
+
+  static {
+    PRIMITIVE_SIZES.put(boolean.class, 1);
+    PRIMITIVE_SIZES.put(byte.class, 1);
+    PRIMITIVE_SIZES.put(char.class, 2);
+    PRIMITIVE_SIZES.put(short.class, 2);
+    PRIMITIVE_SIZES.put(int.class, 4);
+    PRIMITIVE_SIZES.put(float.class, 4);
+    PRIMITIVE_SIZES.put(long.class, 8);
+    PRIMITIVE_SIZES.put(double.class, 8);
+  }
+
+  private final IdentityHashMap<Object, Boolean> visited = new IdentityHashMap<>();
+  private final Map<Class<?>, ClassLayout> layouts = new HashMap<>();
+
+  /**
+   * Estimates the size of the object graph excluding the objects that have been already counted
+   * by this estimator.
+   *
+   * @param root the root of the graph, may be {@code null}
+   * @return the size in bytes
+   */
+  long sizeOf(Object root) {
+    long size = 0;
+    Deque<Object> stack = new ArrayDeque<>();
+    push(stack, root);
+    while (!stack.isEmpty()) {
+      Object object = stack.pop();
+      Class<?> type = object.getClass();
+      if (type.isArray()) {
+        size += sizeOfArray(object, stack);
+      } else if (object instanceof String) {
+        size += sizeOfString((String) object);
+      } else if (object instanceof Map) {
+        size += sizeOfMap((Map<?, ?>) object, stack);
+      } else if (object instanceof Collection) {
+        size += sizeOfCollection((Collection<?>) object, stack);
+      } else {
+        ClassLayout layout = getLayout(type);
+        size += layout.size;
+        if (object instanceof Buffer) {
+          // The heap buffers wrap the arrays, the direct and mapped ones are off the heap.
+          Buffer buffer = (Buffer) object;
+          if (buffer.hasArray()) {
+            push(stack, buffer.array());
+          }
+        } else if (!isJdkClass(type)) {
+          for (Field field : layout.references) {
+            push(stack, getValue(field, object));
+          }
+        }
+      }
+    }
+    return size;
+  }
+
+  private void push(Deque<Object> stack, Object object) {
+    if (object != null && visited.put(object, Boolean.TRUE) == null) {
+      stack.push(object);
+    }
+  }
+
+  private long sizeOfArray(Object array, Deque<Object> stack) {
+    int length = Array.getLength(array);
+    Class<?> componentType = array.getClass().getComponentType();
+    if (componentType.isPrimitive()) {
+      return align(ARRAY_HEADER + (long) length * PRIMITIVE_SIZES.get(componentType));
+    }
+    for (Object element : (Object[]) array) {
+      push(stack, element);
+    }
+    return align(ARRAY_HEADER + (long) length * REFERENCE);
+  }
+
+  private static long sizeOfString(String string) {
+    // The compact strings keep the Latin-1 characters in a byte each.
+    int bytesPerChar = 1;
+    for (int i = 0; i < string.length(); i++) {
+      if (string.charAt(i) > 0xFF) {
+        bytesPerChar = 2;
+        break;
+      }
+    }
+    return align(OBJECT_HEADER + 2 * REFERENCE)
+        + align(ARRAY_HEADER + (long) string.length() * bytesPerChar);
+  }
+
+  private long sizeOfMap(Map<?, ?> map, Deque<Object> stack) {
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      push(stack, entry.getKey());
+      push(stack, entry.getValue());
+    }
+    // The table is kept under the load factor of 0.75 at the power of 2 capacity.
+    long capacity = Integer.highestOneBit(Math.max(1, map.size() * 4 / 3)) * 2L;
+    return align(OBJECT_HEADER + 6 * REFERENCE) + align(ARRAY_HEADER + capacity * REFERENCE)
+        + (long) map.size() * MAP_ENTRY;
+  }
+
+  private long sizeOfCollection(Collection<?> collection, Deque<Object> stack) {
+    for (Object element : collection) {
+      push(stack, element);
+    }
+    return align(OBJECT_HEADER + 4 * REFERENCE)
+        + align(ARRAY_HEADER + (long) collection.size() * REFERENCE);
+  }
+
+  private ClassLayout getLayout(Class<?> type) {
+    ClassLayout layout = layouts.get(type);
+    if (layout == null) {
+      layout = new ClassLayout(type);
+      layouts.put(type, layout);
+    }
+    return layout;
+  }
+
+  private static Object getValue(Field field, Object object) {
+    try {
+      return field.get(object);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static boolean isJdkClass(Class<?> type) {
+    String name = type.getName();
+    return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.")
+        || name.startsWith("jdk.") || name.startsWith("com.sun.");
+  }
+
+  private static long align(long size) {
+    return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+  }
+
+  /**
+   * The shallow size and the reference fields of a class.
+   */
+  private static final class ClassLayout {
+
+    final long size;
+    final List<Field> references = new ArrayList<>();
+
+    ClassLayout(Class<?> type) {
+      long fieldSize = 0;
+      boolean isAccessible = !isJdkClass(type);
+      for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+        for (Field field : c.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          Class<?> fieldType = field.getType();
+          if (fieldType.isPrimitive()) {
+            fieldSize += PRIMITIVE_SIZES.get(fieldType);
+          } else {
+            fieldSize += REFERENCE;
+            if (isAccessible) {
+              field.setAccessible(true);
+              references.add(field);
+            }
+          }
+        }
+      }
+      this.size = align(OBJECT_HEADER + fieldSize);
+    }
+  }
+}
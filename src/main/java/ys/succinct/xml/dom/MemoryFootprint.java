@@ -0,0 +1,220 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import org.w3c.dom.Document;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The breakdown of the heap space that a succinct DOM retains, along with the counts of its
+ * nodes. The sizes are estimated per structure in bytes:
+ * <ul>
+ * <li>{@code parentheses.bits}, {@code parentheses.rankSelect},
+ * {@code parentheses.rangeMinMaxTree} - the balanced parentheses and their rank/select and
+ * navigation support
+ * <li>{@code nodes.*}, {@code attributes.*} - the node and attribute bit strings and their
+ * rank/select support
+ * <li>{@code elements.*}, {@code attributeNames.*} - the compact arrays of the name and namespace
+ * codes and the dictionaries of the unique names and namespaces
+ * <li>{@code text.*}, {@code attributeValues.*} - the offsets and the character content of the
+ * values
+ * <li>{@code degreeIndex}, {@code tagIndex}, {@code idIndex} - the auxiliary indexes
+ * </ul>
+ * The content of a mapped snapshot is off the heap and isn't counted.
+ *
+ * @author Yauheni Shahun
+ * @see SuccinctDomMonitor
+ */
+public final class MemoryFootprint {
+
+  private final Map<String, Long> sizes;
+  private final long totalSize;
+  private final long nodeCount;
+  private final long elementCount;
+  private final long textCount;
+  private final long attributeCount;
+  private final long elementNameCount;
+  private final long attributeNameCount;
+
+  private MemoryFootprint(Builder builder) {
+    this.sizes = Collections.unmodifiableMap(new LinkedHashMap<>(builder.sizes));
+    long total = 0;
+    for (long size : sizes.values()) {
+      total += size;
+    }
+    this.totalSize = total;
+    this.nodeCount = builder.nodeCount;
+    this.elementCount = builder.elementCount;
+    this.textCount = builder.textCount;
+    this.attributeCount = builder.attributeCount;
+    this.elementNameCount = builder.elementNameCount;
+    this.attributeNameCount = builder.attributeNameCount;
+  }
+
+  /**
+   * Estimates the footprint of the succinct document.
+   *
+   * @param document the succinct {@link Document}
+   * @return the {@link MemoryFootprint} instance
+   * @throws IllegalArgumentException if the document isn't succinct
+   */
+  public static MemoryFootprint of(Document document) {
+    return SuccinctDomSnapshot.getDom(document).getMemoryFootprint();
+  }
+
+  /**
+   * Returns the estimated sizes of the structures in bytes in the order of the report.
+   */
+  public Map<String, Long> getStructureSizes() {
+    return sizes;
+  }
+
+  /**
+   * Returns the estimated size of the given structure in bytes, or {@code 0} if it's absent.
+   */
+  public long getSize(String structure) {
+    Long size = sizes.get(structure);
+    return (size != null) ? size : 0;
+  }
+
+  /**
+   * Returns the total estimated size of the structures in bytes.
+   */
+  public long getTotalSize() {
+    return totalSize;
+  }
+
+  /**
+   * Returns the number of the nodes including the document and the text nodes, but not the
+   * attributes.
+   */
+  public long getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Returns the number of the elements.
+   */
+  public long getElementCount() {
+    return elementCount;
+  }
+
+  /**
+   * Returns the number of the text nodes (including the CDATA sections).
+   */
+  public long getTextCount() {
+    return textCount;
+  }
+
+  /**
+   * Returns the number of the attributes.
+   */
+  public long getAttributeCount() {
+    return attributeCount;
+  }
+
+  /**
+   * Returns the number of the distinct element names.
+   */
+  public long getElementNameCount() {
+    return elementNameCount;
+  }
+
+  /**
+   * Returns the number of the distinct attribute names.
+   */
+  public long getAttributeNameCount() {
+    return attributeNameCount;
+  }
+
+  /**
+   * Returns the total size in bits per node.
+   */
+  public double getBitsPerNode() {
+    return (nodeCount > 0) ? totalSize * 8.0 / nodeCount : 0;
+  }
+
+  /**
+   * Returns the report of the structure sizes and the counts.
+   */
+  @Override
+  public String toString() {
+    StringBuilder report = new StringBuilder();
+    report.append(String.format(Locale.ROOT,
+        "nodes=%d, elements=%d, texts=%d, attributes=%d, element names=%d, attribute names=%d%n",
+        nodeCount, elementCount, textCount, attributeCount, elementNameCount,
+        attributeNameCount));
+    for (Map.Entry<String, Long> entry : sizes.entrySet()) {
+      report.append(String.format(Locale.ROOT, "%-32s %14d bytes %10.2f bits/node%n",
+          entry.getKey(), entry.getValue(),
+          (nodeCount > 0) ? entry.getValue() * 8.0 / nodeCount : 0));
+    }
+    report.append(String.format(Locale.ROOT, "%-32s %14d bytes %10.2f bits/node%n", "total",
+        totalSize, getBitsPerNode()));
+    return report.toString();
+  }
+
+  /**
+   * The builder of {@link MemoryFootprint} that estimates the structures as they are added.
+   */
+  static final class Builder {
+
+    private final MemoryEstimator estimator = new MemoryEstimator();
+    private final Map<String, Long> sizes = new LinkedHashMap<>();
+    private long nodeCount;
+    private long elementCount;
+    private long textCount;
+    private long attributeCount;
+    private long elementNameCount;
+    private long attributeNameCount;
+
+    /**
+     * Estimates the structure and adds its size. The parts that the previously added structures
+     * share with it aren't counted again.
+     *
+     * @param structure the name of the structure
+     * @param part the structure or its part, may be {@code null}
+     */
+    Builder add(String structure, Object part) {
+      Long size = sizes.get(structure);
+      sizes.put(structure, ((size != null) ? size : 0) + estimator.sizeOf(part));
+      return this;
+    }
+
+    Builder setCounts(long nodeCount, long elementCount, long textCount, long attributeCount) {
+      this.nodeCount = nodeCount;
+      this.elementCount = elementCount;
+      this.textCount = textCount;
+      this.attributeCount = attributeCount;
+      return this;
+    }
+
+    Builder setNameCounts(long elementNameCount, long attributeNameCount) {
+      this.elementNameCount = elementNameCount;
+      this.attributeNameCount = attributeNameCount;
+      return this;
+    }
+
+    MemoryFootprint build() {
+      return new MemoryFootprint(this);
+    }
+  }
+}
@@ -16,6 +16,9 @@
 
 package ys.succinct.xml.dom;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -56,6 +59,39 @@ public class NameStore implements OrderedStore {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Returns the number of the names in the store including the reserved ones.
+   */
+  int size() {
+    return names.length;
+  }
+
+  /**
+   * Writes the store to the snapshot.
+   *
+   * @param out the snapshot output
+   */
+  void writeTo(DataOutput out) throws IOException {
+    out.writeInt(names.length);
+    for (String name : names) {
+      SnapshotIO.writeString(out, name);
+    }
+  }
+
+  /**
+   * Reads the store from the snapshot.
+   *
+   * @param in the snapshot input
+   * @return the {@link NameStore} instance
+   */
+  static NameStore readFrom(DataInput in) throws IOException {
+    String[] names = new String[SnapshotIO.readLength(in)];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = SnapshotIO.readString(in);
+    }
+    return new NameStore(names);
+  }
+
   /**
    * A builder that helps to construct a {@link NameStore}.
    */
@@ -68,6 +104,10 @@ public class NameStore implements OrderedStore {
 
     private final List<String> names = new ArrayList<>();
     private final Map<String, Integer> uniqueNameMap = new HashMap<>();
+    /**
+     * The number of the reserved indexes including the index of the null names.
+     */
+    private final int reservedCount;
 
     /**
      * Constructs a builder that will track the names starting from the index 1.
@@ -83,8 +123,8 @@ public class NameStore implements OrderedStore {
      * @param reservedCount the number of reserved indexes
      */
     public Builder(int reservedCount) {
-      int count = reservedCount + 1;
-      for (int i = 0; i < count; i++) {
+      this.reservedCount = reservedCount + 1;
+      for (int i = 0; i < this.reservedCount; i++) {
         names.add(null);
       }
     }
@@ -119,6 +159,28 @@ public class NameStore implements OrderedStore {
       return names.size() - 1;
     }
 
+    /**
+     * Adds the names that the other builder has collected to this builder. The reserved indexes
+     * are kept as is.
+     *
+     * @param other the builder with the same number of the reserved indexes
+     * @return the mapping of the indexes of the other builder to the indexes of this builder
+     */
+    int[] append(Builder other) {
+      int[] indexMap = new int[other.names.size()];
+      for (int i = 0; i < indexMap.length; i++) {
+        String name = other.names.get(i);
+        if (i < other.reservedCount) {
+          indexMap[i] = i;
+        } else if (name == null) {
+          indexMap[i] = addEmptyName();
+        } else {
+          indexMap[i] = addName(name);
+        }
+      }
+      return indexMap;
+    }
+
     /**
      * Returns the maximum index that has been tracked so far.
      */
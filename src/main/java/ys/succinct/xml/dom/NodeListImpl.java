@@ -19,6 +19,8 @@ package ys.succinct.xml.dom;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import java.util.Arrays;
+
 /**
  * An ordered collection of the succinct {@link Node}s that are available lazily.
  *
@@ -31,6 +33,8 @@ public class NodeListImpl implements NodeList {
    * The indexes of the nodes in the balanced parentheses.
    */
   private final int[] nodeIndexes;
+  private final int start;
+  private final int length;
 
   /**
    * Constructs a succinct {@link NodeList}.
@@ -39,20 +43,55 @@ public class NodeListImpl implements NodeList {
    * @param nodeIndexes the array of the indexes of the nodes in the collection
    */
   public NodeListImpl(SuccinctDom dom, int[] nodeIndexes) {
+    this(dom, nodeIndexes, 0, nodeIndexes.length);
+  }
+
+  /**
+   * Constructs a succinct {@link NodeList} that is a view of the range of the index array. The
+   * array isn't copied.
+   *
+   * @param dom the succinct DOM
+   * @param nodeIndexes the array of the indexes of the nodes
+   * @param start the start of the range
+   * @param end the end of the range (exclusive)
+   */
+  public NodeListImpl(SuccinctDom dom, int[] nodeIndexes, int start, int end) {
     this.dom = dom;
     this.nodeIndexes = nodeIndexes;
+    this.start = start;
+    this.length = end - start;
   }
 
   @Override
   public Node item(int index) {
-    if (index < 0 || index >= nodeIndexes.length) {
+    if (index < 0 || index >= length) {
       return null;
     }
-    return dom.getNode(nodeIndexes[index]);
+    return dom.getNode(nodeIndexes[start + index]);
   }
 
   @Override
   public int getLength() {
-    return nodeIndexes.length;
+    return length;
+  }
+
+  /**
+   * Returns the new array of the indexes of the nodes in the balanced parentheses.
+   */
+  int[] toIndexArray() {
+    return Arrays.copyOfRange(nodeIndexes, start, start + length);
+  }
+
+  /**
+   * Returns the new array of the positions of the nodes in the document.
+   *
+   * @see SuccinctDom#getPosition(int)
+   */
+  long[] toPositionArray() {
+    long[] positions = new long[length];
+    for (int i = 0; i < length; i++) {
+      positions[i] = dom.getPosition(nodeIndexes[start + i]);
+    }
+    return positions;
   }
 }
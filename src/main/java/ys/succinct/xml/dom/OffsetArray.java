@@ -0,0 +1,37 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+/**
+ * A read-only sequence of the non-decreasing offsets of the values in the {@link OffsetStore}.
+ *
+ * @author Yauheni Shahun
+ */
+interface OffsetArray {
+
+  /**
+   * Returns the offset value.
+   *
+   * @param index the 0-based index of the offset
+   */
+  long get(int index);
+
+  /**
+   * Returns the number of the offsets.
+   */
+  int size();
+}
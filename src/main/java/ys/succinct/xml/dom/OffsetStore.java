@@ -20,6 +20,9 @@ package ys.succinct.xml.dom;
  * A store for the character content that can be read by the known offset. This implies that the
  * entire content is created by concatenating the individual contents. Subclasses may define
  * additional operations on the content, e.g. compression.
+ * <p>
+ * The offsets are {@code long} values so that the entire content may exceed {@code 2^31}
+ * characters, while a single content is limited to the length of the Java string.
  *
  * @author Yauheni Shahun
  */
@@ -32,5 +35,36 @@ public interface OffsetStore {
    * @param endIndex the index that the content is adjacent to (exclusive)
    * @return the string value
    */
-  String getString(int startIndex, int endIndex);
+  String getString(long startIndex, long endIndex);
+
+  /**
+   * A builder that helps to construct an {@link OffsetStore} by appending the individual contents.
+   */
+  interface Builder {
+
+    /**
+     * Adds the character content to the store.
+     *
+     * @param chars the character array
+     * @param start the index in the array that the content starts from
+     * @param length the length of the content
+     * @return the offset value for the content in the store
+     */
+    long addChars(char[] chars, int start, int length);
+
+    /**
+     * Adds the given string to the store.
+     *
+     * @param s the content
+     * @return the offset value for the content in the store
+     */
+    long addString(String s);
+
+    /**
+     * Builds the store using the content that the builder has collected.
+     *
+     * @return the {@link OffsetStore} instance
+     */
+    OffsetStore build();
+  }
 }
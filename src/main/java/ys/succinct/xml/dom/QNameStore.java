@@ -17,7 +17,10 @@
 package ys.succinct.xml.dom;
 
 import ys.succinct.util.CompactIntArray;
-import ys.succinct.util.IntBitSet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * An ordered store of the information about the qualified names of the XML nodes. The qualified
@@ -34,7 +37,7 @@ public class QNameStore {
   /**
    * The store of the unique local names.
    */
-  private final OrderedStore nameStore;
+  private final NameStore nameStore;
 
   /**
    * The compact array that points to the indexes of the unique namespace URIs and prefixes. The
@@ -44,19 +47,25 @@ public class QNameStore {
   /**
    * The store of the unique namespace URIs and prefixes.
    */
-  private final OrderedStore namespaceStore;
+  private final NameStore namespaceStore;
+  /**
+   * The number of the names in the store.
+   */
+  private final int nameCount;
 
   /**
    * Constructs a store for the qualified names of the XML nodes.
    *
+   * @param nameCount the number of the names in the store
    * @param nameIndexes the compact array that points to the indexes of the unique local names
    * @param nameStore the store of the unique local names
    * @param namespaceIndexes the compact array that points to the indexes of the unique namespace
    *        URIs and prefixes
    * @param namespaceStore the store of the unique namespace URIs and prefixes
    */
-  private QNameStore(CompactIntArray nameIndexes, OrderedStore nameStore,
-      CompactIntArray namespaceIndexes, OrderedStore namespaceStore) {
+  private QNameStore(int nameCount, CompactIntArray nameIndexes, NameStore nameStore,
+      CompactIntArray namespaceIndexes, NameStore namespaceStore) {
+    this.nameCount = nameCount;
     this.nameIndexes = nameIndexes;
     this.nameStore = nameStore;
     this.namespaceIndexes = namespaceIndexes;
@@ -103,17 +112,105 @@ public class QNameStore {
     return namespaceStore.getString(nameIndex);
   }
 
+  /**
+   * Returns the code of the local name that is unique among the names of the store.
+   *
+   * @param index the 0-based index of the node
+   */
+  int getNameCode(int index) {
+    return nameIndexes.getInt(index);
+  }
+
+  /**
+   * Returns the upper bound (exclusive) of the codes of the names.
+   */
+  int getNameCodeLimit() {
+    return nameStore.size();
+  }
+
+  /**
+   * Returns the local name that is identified by the code.
+   *
+   * @param code the code of the local name
+   */
+  String getNameByCode(int code) {
+    return nameStore.getString(code);
+  }
+
+  /**
+   * Estimates the sizes of the parts of the store.
+   *
+   * @param builder the builder of the footprint
+   * @param name the name of the store in the footprint
+   */
+  void estimate(MemoryFootprint.Builder builder, String name) {
+    builder.add(name + ".nameIndexes", nameIndexes)
+        .add(name + ".names", nameStore)
+        .add(name + ".namespaceIndexes", namespaceIndexes)
+        .add(name + ".namespaces", namespaceStore);
+  }
+
+  /**
+   * Writes the store to the snapshot.
+   *
+   * @param out the snapshot output
+   */
+  void writeTo(DataOutput out) throws IOException {
+    out.writeInt(nameCount);
+    SnapshotIO.writeInts(out, nameIndexes, nameCount);
+    nameStore.writeTo(out);
+    SnapshotIO.writeInts(out, namespaceIndexes, nameCount * 2);
+    namespaceStore.writeTo(out);
+  }
+
+  /**
+   * Reads the store from the snapshot.
+   *
+   * @param in the snapshot input
+   * @return the {@link QNameStore} instance
+   */
+  static QNameStore readFrom(DataInput in) throws IOException {
+    int nameCount = in.readInt();
+    int[] nameIndexes = SnapshotIO.readInts(in);
+    NameStore nameStore = NameStore.readFrom(in);
+    int[] namespaceIndexes = SnapshotIO.readInts(in);
+    NameStore namespaceStore = NameStore.readFrom(in);
+    return new QNameStore(nameCount,
+        new CompactIntArray(nameIndexes, nameStore.size() - 1),
+        nameStore,
+        new CompactIntArray(namespaceIndexes, namespaceStore.size() - 1),
+        namespaceStore);
+  }
+
   /**
    * A builder that helps to construct a {@link QNameStore}.
    */
   public static class Builder {
 
-    private IntBitSet nameIndexes = new IntBitSet();
-    private IntBitSet namespaceIndexes = new IntBitSet();
+    private IntArrayBuffer nameIndexes;
+    private IntArrayBuffer namespaceIndexes;
     private NameStore.Builder nameBuilder = new NameStore.Builder();
     private NameStore.Builder namespaceBuilder = new NameStore.Builder();
     private int nameCount;
 
+    /**
+     * Constructs a builder.
+     */
+    public Builder() {
+      nameIndexes = new IntArrayBuffer();
+      namespaceIndexes = new IntArrayBuffer();
+    }
+
+    /**
+     * Constructs a builder that is sized for the expected number of the names.
+     *
+     * @param nameCount the expected number of the names
+     */
+    public Builder(int nameCount) {
+      nameIndexes = new IntArrayBuffer(nameCount);
+      namespaceIndexes = new IntArrayBuffer((int) Math.min(nameCount * 2L, Integer.MAX_VALUE - 8));
+    }
+
     /**
      * Adds the qualified name of the node to the store.
      *
@@ -135,17 +232,43 @@ public class QNameStore {
       addName(null, null, null);
     }
 
+    /**
+     * Appends the names that the other builder has collected to this builder. The names of the
+     * other builder are remapped to the names of this one.
+     *
+     * @param other the builder to append
+     */
+    public void append(Builder other) {
+      int[] nameMap = nameBuilder.append(other.nameBuilder);
+      int[] namespaceMap = namespaceBuilder.append(other.namespaceBuilder);
+      for (int i = 0; i < other.nameCount; i++) {
+        nameIndexes.setInt(nameCount, nameMap[other.nameIndexes.getInt(i)]);
+        namespaceIndexes.setInt(nameCount * 2, namespaceMap[other.namespaceIndexes.getInt(i * 2)]);
+        namespaceIndexes.setInt(
+            nameCount * 2 + 1, namespaceMap[other.namespaceIndexes.getInt(i * 2 + 1)]);
+        nameCount++;
+      }
+    }
+
+    /**
+     * Estimates the size of the collected names in bytes from the allocated buffers. The
+     * dictionaries of the unique names are small and aren't counted.
+     */
+    public long estimateSize() {
+      return nameIndexes.getAllocatedSize() + namespaceIndexes.getAllocatedSize();
+    }
+
     /**
      * Builds the store using the qualified names that the builder has collected.
      *
      * @return the {@link QNameStore} instance
      */
     public QNameStore build() {
-      return new QNameStore(
-          new CompactIntArray(nameIndexes.toIntArray(nameCount * 32), nameBuilder.getMaxIndex()),
+      return new QNameStore(nameCount,
+          new CompactIntArray(nameIndexes.toIntArray(nameCount), nameBuilder.getMaxIndex()),
           nameBuilder.build(),
           new CompactIntArray(
-              namespaceIndexes.toIntArray(nameCount * 2 * 32), namespaceBuilder.getMaxIndex()),
+              namespaceIndexes.toIntArray(nameCount * 2), namespaceBuilder.getMaxIndex()),
           namespaceBuilder.build());
     }
   }
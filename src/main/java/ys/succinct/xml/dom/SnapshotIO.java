@@ -0,0 +1,220 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import ys.succinct.util.CompactIntArray;
+import ys.succinct.util.IntBitSet;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * Helper methods to write and read the primitive parts of the succinct DOM snapshot. All the
+ * values are written in the big-endian byte order as {@link DataOutput} does.
+ *
+ * @author Yauheni Shahun
+ */
+final class SnapshotIO {
+
+  /**
+   * The size of the intermediate buffer used to transfer the arrays.
+   */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private SnapshotIO() {
+  }
+
+  /**
+   * Writes the string that can be {@code null}.
+   */
+  static void writeString(DataOutput out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(s.length());
+      out.writeChars(s);
+    }
+  }
+
+  /**
+   * Reads the string that has been written by {@link #writeString(DataOutput, String)}.
+   */
+  static String readString(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = in.readChar();
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Writes the array of integers prefixed with its length.
+   */
+  static void writeInts(DataOutput out, int[] values) throws IOException {
+    out.writeInt(values.length);
+    writeInts(out, values, 0, values.length);
+  }
+
+  /**
+   * Writes the range of the array of integers as is.
+   */
+  static void writeInts(DataOutput out, int[] values, int start, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    int end = start + length;
+    for (int i = start; i < end;) {
+      int count = Math.min(end - i, BUFFER_SIZE / 4);
+      buffer.clear();
+      buffer.asIntBuffer().put(values, i, count);
+      out.write(buffer.array(), 0, count * 4);
+      i += count;
+    }
+  }
+
+  /**
+   * Writes the first values of the compact array prefixed with their number. The values can be
+   * read back by {@link #readInts(DataInput)}.
+   */
+  static void writeInts(DataOutput out, CompactIntArray values, int count) throws IOException {
+    out.writeInt(count);
+    int[] buffer = new int[Math.min(count, BUFFER_SIZE / 4)];
+    for (int i = 0; i < count;) {
+      int length = Math.min(count - i, buffer.length);
+      for (int j = 0; j < length; j++) {
+        buffer[j] = values.getInt(i + j);
+      }
+      writeInts(out, buffer, 0, length);
+      i += length;
+    }
+  }
+
+  /**
+   * Writes the lower 32 bits of the offsets prefixed with their number followed by the indexes
+   * where the upper bits are incremented (see {@link IntOffsetArray}). Both arrays can be read back
+   * by {@link #readInts(DataInput)}.
+   */
+  static void writeInts(DataOutput out, OffsetArray offsets) throws IOException {
+    int count = offsets.size();
+    out.writeInt(count);
+    IntBitSet wraps = new IntBitSet();
+    int wrapCount = 0;
+    long previous = 0;
+    int[] buffer = new int[Math.min(count, BUFFER_SIZE / 4)];
+    for (int i = 0; i < count;) {
+      int length = Math.min(count - i, buffer.length);
+      for (int j = 0; j < length; j++) {
+        long offset = offsets.get(i + j);
+        if ((offset >>> 32) != (previous >>> 32)) {
+          wraps.setInt(wrapCount++, i + j);
+        }
+        previous = offset;
+        buffer[j] = (int) offset;
+      }
+      writeInts(out, buffer, 0, length);
+      i += length;
+    }
+    writeInts(out, wraps.toIntArray(wrapCount * 32));
+  }
+
+  /**
+   * Reads the array of integers that has been written by {@link #writeInts(DataOutput, int[])}.
+   */
+  static int[] readInts(DataInput in) throws IOException {
+    int[] values = new int[readLength(in)];
+    readInts(in, values, 0, values.length);
+    return values;
+  }
+
+  /**
+   * Reads the given number of integers into the range of the array.
+   */
+  static void readInts(DataInput in, int[] values, int start, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    int end = start + length;
+    for (int i = start; i < end;) {
+      int count = Math.min(end - i, BUFFER_SIZE / 4);
+      in.readFully(buffer.array(), 0, count * 4);
+      buffer.clear();
+      buffer.asIntBuffer().get(values, i, count);
+      i += count;
+    }
+  }
+
+  /**
+   * Reads the given number of characters into the range of the array.
+   */
+  static void readChars(DataInput in, char[] chars, int start, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    int end = start + length;
+    for (int i = start; i < end;) {
+      int count = Math.min(end - i, BUFFER_SIZE / 2);
+      in.readFully(buffer.array(), 0, count * 2);
+      buffer.clear();
+      buffer.asCharBuffer().get(chars, i, count);
+      i += count;
+    }
+  }
+
+  /**
+   * Writes the remaining characters of the buffer as is. The buffer is consumed.
+   */
+  static void writeChars(DataOutput out, CharBuffer chars) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    CharBuffer charBuffer = buffer.asCharBuffer();
+    while (chars.hasRemaining()) {
+      int count = Math.min(chars.remaining(), BUFFER_SIZE / 2);
+      int limit = chars.limit();
+      chars.limit(chars.position() + count);
+      charBuffer.clear();
+      charBuffer.put(chars);
+      chars.limit(limit);
+      out.write(buffer.array(), 0, count * 2);
+    }
+  }
+
+  /**
+   * Reads the length of the array and checks that it's valid.
+   *
+   * @throws IOException if the length is negative
+   */
+  static int readLength(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("Snapshot is corrupted: negative array length " + length);
+    }
+    return length;
+  }
+
+  /**
+   * Reads the {@code long} length of the content and checks that it's valid.
+   *
+   * @throws IOException if the length is negative
+   */
+  static long readLongLength(DataInput in) throws IOException {
+    long length = in.readLong();
+    if (length < 0) {
+      throw new IOException("Snapshot is corrupted: negative content length " + length);
+    }
+    return length;
+  }
+}
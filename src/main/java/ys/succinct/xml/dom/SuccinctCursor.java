@@ -0,0 +1,368 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import org.w3c.dom.Node;
+
+/**
+ * A mutable cursor over the succinct DOM tree. Unlike the {@link Node} API that materializes
+ * a node object on every navigation step, the cursor moves over the indexes of the balanced
+ * parentheses, so the traversal of the tree allocates nothing. The element names are returned
+ * from the name dictionary as is, only the text values are copied to the new strings.
+ * <p>
+ * The navigation methods return {@code false} and leave the cursor in place if the target node
+ * doesn't exist. The cursor isn't thread-safe, but any number of the cursors can walk the same
+ * DOM concurrently.
+ * <p>
+ * The cursor over the large document steps from one segment to another, so {@link #dom()} is the
+ * segment of the current node, and {@link #position()} identifies the node within the document.
+ *
+ * <pre>
+ * SuccinctCursor cursor = SuccinctCursor.create(document);
+ * if (cursor.toFirstChild()) {
+ *   do {
+ *     ...
+ *   } while (cursor.toNextSibling());
+ * }
+ * </pre>
+ *
+ * @author Yauheni Shahun
+ */
+public final class SuccinctCursor {
+
+  /**
+   * The value of the store index that isn't resolved yet.
+   */
+  private static final int UNRESOLVED = Integer.MIN_VALUE;
+
+  /**
+   * The DOM of the segment of the current node.
+   */
+  private SuccinctDom dom;
+  /**
+   * The segments of the large document, or {@code null}.
+   */
+  private final DomSegments segments;
+  /**
+   * The index of the current node in the balanced parentheses of the segment.
+   */
+  private int index;
+  /**
+   * The index of the current node in its store (see {@link SuccinctDom#getStoreIndex(int)}). It's
+   * resolved lazily as the navigation doesn't need it.
+   */
+  private int storeIndex = UNRESOLVED;
+
+  private SuccinctCursor(SuccinctDom dom, int index) {
+    this.dom = dom;
+    this.segments = dom.getSegments();
+    this.index = index;
+  }
+
+  /**
+   * Creates a cursor that points to the given node.
+   *
+   * @param node the succinct node of the tree, i.e. the document or its descendant
+   * @return the cursor instance
+   * @throws IllegalArgumentException if the node isn't succinct or it's an attribute
+   */
+  public static SuccinctCursor create(Node node) {
+    if (!(node instanceof AbstractSuccinctNode) || node instanceof AttributeImpl
+        || node instanceof AttributeTextImpl) {
+      throw new IllegalArgumentException("Not a succinct tree node.");
+    }
+    AbstractSuccinctNode succinctNode = (AbstractSuccinctNode) node;
+    return new SuccinctCursor(succinctNode.dom, succinctNode.index);
+  }
+
+  /**
+   * Creates a copy of the cursor that points to the same node.
+   */
+  public SuccinctCursor copy() {
+    SuccinctCursor cursor = new SuccinctCursor(dom, index);
+    cursor.storeIndex = storeIndex;
+    return cursor;
+  }
+
+  /**
+   * Moves the cursor to the node that the other cursor points to.
+   *
+   * @param cursor the cursor over the same document
+   * @throws IllegalArgumentException if the cursor walks another document
+   */
+  public void moveTo(SuccinctCursor cursor) {
+    if (!dom.isSameDocument(cursor.dom)) {
+      throw new IllegalArgumentException("The cursor walks another DOM.");
+    }
+    dom = cursor.dom;
+    index = cursor.index;
+    storeIndex = cursor.storeIndex;
+  }
+
+  /**
+   * Moves the cursor to the node with the given index within the current segment.
+   *
+   * @param index the index of the node in the balanced parentheses, e.g. the one that
+   *        {@link #index()} returns
+   * @throws IllegalArgumentException if the index is out of bounds or doesn't point to the opening
+   *         parenthesis of a node
+   */
+  public void moveTo(int index) {
+    if (!dom.isNodeIndex(index)) {
+      throw new IllegalArgumentException("Not a node index: " + index);
+    }
+    if (segments != null) {
+      moveAt(segments.canonicalize(dom.getSegmentIndex(), index));
+    } else {
+      move(index);
+    }
+  }
+
+  /**
+   * Moves the cursor to the node at the given position in the document.
+   *
+   * @param position the position of the node, e.g. the one that {@link #position()} returns
+   * @throws IllegalArgumentException if the position doesn't point to a node
+   * @see SuccinctDom#getPosition(int)
+   */
+  public void moveToPosition(long position) {
+    SuccinctDom segment = dom.findSegment(position);
+    if (segment == null) {
+      throw new IllegalArgumentException("Not a node position: " + position);
+    }
+    dom = segment;
+    moveTo(DomSegments.getIndex(position));
+  }
+
+  /**
+   * Returns the succinct DOM that the cursor walks, i.e. the segment of the current node if the
+   * document is large.
+   */
+  public SuccinctDom dom() {
+    return dom;
+  }
+
+  /**
+   * Returns the index of the current node in the balanced parentheses. The index identifies the
+   * node within the DOM (the segment) and grows in the document order.
+   */
+  public int index() {
+    return index;
+  }
+
+  /**
+   * Returns the position of the current node in the document. The position identifies the node
+   * across the segments of the large document and grows in the document order.
+   *
+   * @see SuccinctDom#getPosition(int)
+   */
+  public long position() {
+    return dom.getPosition(index);
+  }
+
+  /**
+   * Moves the cursor to the parent of the current node.
+   *
+   * @return {@code true} if the cursor has moved, {@code false} if the node is the document
+   */
+  public boolean toParent() {
+    if (segments != null) {
+      return moveAt(segments.getParent(dom.getSegmentIndex(), index));
+    }
+    return move(dom.getParentIndex(index));
+  }
+
+  /**
+   * Moves the cursor to the first child of the current node.
+   *
+   * @return {@code true} if the cursor has moved, {@code false} if the node has no children
+   */
+  public boolean toFirstChild() {
+    if (segments != null) {
+      return moveAt(segments.getFirstChild(dom.getSegmentIndex(), index));
+    }
+    return move(dom.getFirstChildIndex(index));
+  }
+
+  /**
+   * Moves the cursor to the last child of the current node.
+   *
+   * @return {@code true} if the cursor has moved, {@code false} if the node has no children
+   */
+  public boolean toLastChild() {
+    if (segments != null) {
+      return moveAt(segments.getLastChild(dom.getSegmentIndex(), index));
+    }
+    return move(dom.getLastChildIndex(index));
+  }
+
+  /**
+   * Moves the cursor to the next sibling of the current node.
+   *
+   * @return {@code true} if the cursor has moved, {@code false} if the node is the last child
+   */
+  public boolean toNextSibling() {
+    if (index == 0) {
+      return false; // The document node.
+    }
+    if (segments != null) {
+      return moveAt(segments.getNextSibling(dom.getSegmentIndex(), index));
+    }
+    return move(dom.getNextSiblingIndex(index));
+  }
+
+  /**
+   * Moves the cursor to the previous sibling of the current node.
+   *
+   * @return {@code true} if the cursor has moved, {@code false} if the node is the first child
+   */
+  public boolean toPreviousSibling() {
+    if (segments != null) {
+      return moveAt(segments.getPreviousSibling(dom.getSegmentIndex(), index));
+    }
+    return move(dom.getPreviousSiblingIndex(index));
+  }
+
+  /**
+   * Returns the type of the current node.
+   *
+   * @see Node#getNodeType()
+   */
+  public short nodeType() {
+    int ordinalIndex = resolve();
+    return (ordinalIndex >= 0) ? dom.getNodeType(ordinalIndex) : Node.TEXT_NODE;
+  }
+
+  /**
+   * Returns the name of the current element. It's the local name if the DOM is aware of the
+   * namespaces, and the qualified name otherwise.
+   *
+   * @return the name or {@code null} if the node isn't an element
+   */
+  public String localName() {
+    int ordinalIndex = resolve();
+    if (ordinalIndex < 0 || dom.getNodeType(ordinalIndex) != Node.ELEMENT_NODE) {
+      return null;
+    }
+    return dom.getName(ordinalIndex);
+  }
+
+  /**
+   * Returns the namespace URI of the current element.
+   *
+   * @return the namespace URI or {@code null} if the node isn't an element, the element has no
+   *         namespace or the DOM isn't aware of the namespaces
+   */
+  public String namespaceURI() {
+    int ordinalIndex = resolve();
+    if (ordinalIndex < 0 || dom.getNodeType(ordinalIndex) != Node.ELEMENT_NODE) {
+      return null;
+    }
+    return dom.getNamespaceURI(ordinalIndex);
+  }
+
+  /**
+   * Returns the character content of the current node: the text of the text node, the data of
+   * the CDATA section, comment and processing instruction.
+   *
+   * @return the content or {@code null} for the element and the document
+   * @see Node#getNodeValue()
+   */
+  public String text() {
+    int ordinalIndex = resolve();
+    if (ordinalIndex < 0) {
+      return dom.getText(-ordinalIndex - 1);
+    }
+    switch (dom.getNodeType(ordinalIndex)) {
+      case Node.CDATA_SECTION_NODE:
+      case Node.COMMENT_NODE:
+      case Node.PROCESSING_INSTRUCTION_NODE:
+        // The data is the last pseudo-attribute of the node.
+        return dom.getPseudoAttribute(ordinalIndex, 1);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Returns the value of the attribute of the current element. No string is allocated to look up
+   * the attribute.
+   *
+   * @param name the qualified name of the attribute
+   * @return the value or {@code null} if the node isn't an element or it has no such attribute
+   * @see org.w3c.dom.Element#getAttributeNode(String)
+   */
+  public String attribute(String name) {
+    int ordinalIndex = resolve();
+    if (ordinalIndex < 0 || dom.getNodeType(ordinalIndex) != Node.ELEMENT_NODE) {
+      return null;
+    }
+    int attributeIndex = dom.findAttribute(ordinalIndex, name);
+    return (attributeIndex != -1) ? dom.getAttributeValue(attributeIndex) : null;
+  }
+
+  /**
+   * Returns the value of the attribute of the current element.
+   *
+   * @param namespaceURI the namespace URI of the attribute, {@code null} for no namespace
+   * @param localName the local name of the attribute
+   * @return the value or {@code null} if the node isn't an element, it has no such attribute or
+   *         the DOM isn't aware of the namespaces
+   * @see org.w3c.dom.Element#getAttributeNodeNS(String, String)
+   */
+  public String attributeNS(String namespaceURI, String localName) {
+    int ordinalIndex = resolve();
+    if (ordinalIndex < 0 || dom.getNodeType(ordinalIndex) != Node.ELEMENT_NODE) {
+      return null;
+    }
+    int attributeIndex = dom.findAttributeNS(ordinalIndex, namespaceURI, localName);
+    return (attributeIndex != -1) ? dom.getAttributeValue(attributeIndex) : null;
+  }
+
+  /**
+   * Materializes the current node.
+   *
+   * @return the succinct {@link Node} instance
+   */
+  public Node node() {
+    return dom.getNode(index);
+  }
+
+  private boolean move(int newIndex) {
+    if (newIndex == -1) {
+      return false;
+    }
+    index = newIndex;
+    storeIndex = UNRESOLVED;
+    return true;
+  }
+
+  private boolean moveAt(long position) {
+    if (position == -1) {
+      return false;
+    }
+    dom = segments.get(DomSegments.getSegmentIndex(position));
+    return move(DomSegments.getIndex(position));
+  }
+
+  private int resolve() {
+    if (storeIndex == UNRESOLVED) {
+      storeIndex = dom.getStoreIndex(index);
+    }
+    return storeIndex;
+  }
+}
@@ -27,14 +27,55 @@ import ys.succinct.util.IntBitSet;
 import ys.succinct.util.RangeTreeParentheses;
 import ys.succinct.util.SamplingBitVector;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
 /**
  * An object that contains all the succinct data structures to support DOM API. It's designed to
  * have the only instance of the succinct DOM per an XML document.
+ * <p>
+ * The structures are addressed by int, so a single instance holds up to 2^31 - 1 parentheses
+ * (about 1.07 billion nodes). The larger document is held by the {@link #join(SuccinctDom[])
+ * segments} each of which is an instance of its own. The {@link Node} API, the
+ * {@link SuccinctCursor} and the positions ({@link #getPosition(int)}) span the segments, while
+ * the methods that take the indexes in the balanced parentheses address the nodes within the
+ * segment.
  *
  * @author Yauheni Shahun
  */
 public class SuccinctDom {
 
+  /**
+   * The name code that matches all the elements.
+   */
+  private static final int ANY_NAME = -2;
+  private static final int[] NO_INDEXES = new int[0];
+
+  /**
+   * The bits of the balanced parentheses. They are retained to write the DOM to the snapshot.
+   */
+  private final int[] parenthesisBits;
+  private final int parenthesisCount;
+  /**
+   * The bits of the node bit string.
+   */
+  private final int[] nodeBits;
+  private final int nodeCount;
+  /**
+   * The bits of the attribute bit string.
+   */
+  private final int[] attributeBits;
+  private final int attributeCount;
+
   /**
    * The balanced parentheses representation (length 2N) of the DOM tree. It's used for navigation
    * within the DOM i.e. to resolve the parent/child/sibling relationships.
@@ -59,6 +100,11 @@ public class SuccinctDom {
    * of the node). A node without attributes is represented by the single 1 bit.
    */
   private final BitVector attributeVector;
+  /**
+   * The degree/child index of the nodes with many children. It's built on the first use by
+   * {@link #getDegreeIndex()}.
+   */
+  private volatile DegreeIndex degreeIndex;
   /**
    * An ordered store of information (type, name) about the non-text nodes (elements, etc.).
    */
@@ -95,18 +141,77 @@ public class SuccinctDom {
    * The index of the document (root) element in the balanced parentheses.
    */
   private final int documentElementIndex;
+  /**
+   * The optional posting index of the elements by their names.
+   */
+  private volatile TagIndex tagIndex;
+  /**
+   * The optional index of the element IDs.
+   */
+  private volatile IdIndex idIndex;
+  /**
+   * The segments of the large document that the DOM is one of, or {@code null} if the DOM holds
+   * the whole document. It's set by {@link #join(SuccinctDom[])} before the document is published.
+   */
+  private DomSegments segments;
+  /**
+   * The number of the segment of the large document.
+   */
+  private int segmentIndex;
 
   /**
-   * Constructs the succinct DOM.
+   * Constructs the succinct DOM. The auxiliary indexes are built in the calling thread.
    */
   public SuccinctDom(int[] parenthesisBits, int parenthesisCount, int[] nodeBits, int nodeCount,
       int[] attributeBits, int attributeCount, ElementStore elementStore, OrderedStore textStore,
       QNameStore attributeNameStore, OrderedStore attributeValueStore, int documentIndex,
       DocumentContext documentContext, String defaultNamespace, boolean isNamespaceAware) {
-    this.parentheses = new RangeTreeParentheses(parenthesisBits, parenthesisCount);
-    this.parenthesisVector = new SamplingBitVector(parenthesisBits, parenthesisCount);
-    this.nodeVector = new SamplingBitVector(nodeBits, nodeCount);
-    this.attributeVector = new SamplingBitVector(attributeBits, attributeCount);
+    this(parenthesisBits, parenthesisCount, nodeBits, nodeCount, attributeBits, attributeCount,
+        elementStore, textStore, attributeNameStore, attributeValueStore, documentIndex,
+        documentContext, defaultNamespace, isNamespaceAware, null, 0, null);
+  }
+
+  /**
+   * Constructs the succinct DOM. The auxiliary indexes (the range min-max tree of the parentheses
+   * and the rank/select structures of the bit strings) are independent of each other, so they are
+   * built concurrently if the executor is given.
+   *
+   * @param idAttributeIndexes the positions of the ID attributes in the attribute bit string in
+   *        the document order, or {@code null} if the IDs aren't indexed
+   * @param idAttributeCount the number of the ID attributes
+   * @param executor the executor to build the indexes on, or {@code null} to build them in the
+   *        calling thread
+   * @throws IllegalStateException if the calling thread is interrupted while it waits for the
+   *         indexes (the {@link InterruptedException} is the cause)
+   */
+  public SuccinctDom(int[] parenthesisBits, int parenthesisCount, int[] nodeBits, int nodeCount,
+      int[] attributeBits, int attributeCount, ElementStore elementStore, OrderedStore textStore,
+      QNameStore attributeNameStore, OrderedStore attributeValueStore, int documentIndex,
+      DocumentContext documentContext, String defaultNamespace, boolean isNamespaceAware,
+      int[] idAttributeIndexes, int idAttributeCount, ExecutorService executor) {
+    this.parenthesisBits = parenthesisBits;
+    this.parenthesisCount = parenthesisCount;
+    this.nodeBits = nodeBits;
+    this.nodeCount = nodeCount;
+    this.attributeBits = attributeBits;
+    this.attributeCount = attributeCount;
+    if (executor == null) {
+      this.parentheses = new RangeTreeParentheses(parenthesisBits, parenthesisCount);
+      this.parenthesisVector = new SamplingBitVector(parenthesisBits, parenthesisCount);
+      this.nodeVector = new SamplingBitVector(nodeBits, nodeCount);
+      this.attributeVector = new SamplingBitVector(attributeBits, attributeCount);
+    } else {
+      Future<BitVector> parenthesisVectorFuture =
+          executor.submit(newBitVectorTask(parenthesisBits, parenthesisCount));
+      Future<BitVector> nodeVectorFuture = executor.submit(newBitVectorTask(nodeBits, nodeCount));
+      Future<BitVector> attributeVectorFuture =
+          executor.submit(newBitVectorTask(attributeBits, attributeCount));
+      // Build the largest index in the calling thread meanwhile.
+      this.parentheses = new RangeTreeParentheses(parenthesisBits, parenthesisCount);
+      this.parenthesisVector = getIndex(parenthesisVectorFuture);
+      this.nodeVector = getIndex(nodeVectorFuture);
+      this.attributeVector = getIndex(attributeVectorFuture);
+    }
     this.elementStore = elementStore;
     this.textStore = textStore;
     this.attributeNameStore = attributeNameStore;
@@ -116,6 +221,41 @@ public class SuccinctDom {
     this.isNamespaceAware = isNamespaceAware;
     this.document = new DocumentImpl(this, documentIndex);
     this.documentElementIndex = findDocumentElementIndex();
+    if (idAttributeCount > 0) {
+      buildIdIndex(idAttributeIndexes, idAttributeCount);
+    }
+  }
+
+  private static Callable<BitVector> newBitVectorTask(final int[] bits, final int count) {
+    return new Callable<BitVector>() {
+      @Override
+      public BitVector call() {
+        return new SamplingBitVector(bits, count);
+      }
+    };
+  }
+
+  /**
+   * Waits for the index that is built concurrently.
+   *
+   * @throws IllegalStateException if the waiting thread is interrupted
+   */
+  private static <T> T getIndex(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Index construction is interrupted.", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
   }
 
   /**
@@ -136,13 +276,167 @@ public class SuccinctDom {
     throw new IllegalStateException("Document element is not found.");
   }
 
+  /**
+   * Joins the DOMs of the segments of the large document. Every segment but the first one starts
+   * with the copies of the document node and the root element that enclose the next children of
+   * the root element (see {@link DomSegments}). The document of the first segment stands for the
+   * whole document then.
+   *
+   * @param segments the DOMs of the segments in document order
+   * @return the DOM of the first segment
+   * @throws IllegalArgumentException if there is no segment or some DOM is already joined
+   */
+  public static SuccinctDom join(SuccinctDom[] segments) {
+    if (segments.length == 0) {
+      throw new IllegalArgumentException("No segments to join.");
+    }
+    for (SuccinctDom segment : segments) {
+      if (segment.segments != null) {
+        throw new IllegalArgumentException("The DOM is already joined.");
+      }
+    }
+    if (segments.length > 1) {
+      DomSegments domSegments = new DomSegments(segments.clone());
+      for (int i = 0; i < segments.length; i++) {
+        segments[i].segments = domSegments;
+        segments[i].segmentIndex = i;
+      }
+    }
+    return segments[0];
+  }
+
+  /**
+   * Returns the number of the segments of the document, {@code 1} unless the document is large.
+   */
+  public int getSegmentCount() {
+    return (segments != null) ? segments.size() : 1;
+  }
+
+  /**
+   * Returns the DOM of the segment of the document.
+   *
+   * @param segmentIndex the number of the segment
+   */
+  SuccinctDom getSegment(int segmentIndex) {
+    return (segments != null) ? segments.get(segmentIndex) : this;
+  }
+
+  /**
+   * Returns the number of the segment of the DOM in the document.
+   */
+  int getSegmentIndex() {
+    return segmentIndex;
+  }
+
+  /**
+   * Returns the segments of the large document, or {@code null} if the DOM holds the whole
+   * document.
+   */
+  DomSegments getSegments() {
+    return segments;
+  }
+
+  /**
+   * Checks whether the given DOM holds the same document, i.e. it's either this DOM or another
+   * segment of the same large document.
+   */
+  boolean isSameDocument(SuccinctDom dom) {
+    return dom == this || (segments != null && dom.segments == segments);
+  }
+
+  /**
+   * Gets the position of the node in the document. The position packs the number of the segment
+   * into the high word and the index of the node in the balanced parentheses of the segment into
+   * the low word. So it's equal to the index unless the document is large, and the positions of
+   * the nodes grow in document order across the segments.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @return the position of the node
+   */
+  public long getPosition(int parenthesisIndex) {
+    return DomSegments.toPosition(segmentIndex, parenthesisIndex);
+  }
+
+  /**
+   * Gets the node at the given position in the document.
+   *
+   * @param position the position of the node, e.g. the one that {@link #getPosition(int)} returns
+   * @return the succinct subclass of the {@link Node}
+   * @throws IllegalArgumentException if the position doesn't point to a node
+   */
+  public Node getNodeAt(long position) {
+    SuccinctDom segment = findSegment(position);
+    if (segment == null) {
+      throw new IllegalArgumentException("Not a node position: " + position);
+    }
+    return segment.getNode(DomSegments.getIndex(position));
+  }
+
+  /**
+   * Finds the DOM of the segment that holds the node at the given position.
+   *
+   * @param position the position of the node
+   * @return the DOM of the segment, or {@code null} if the position doesn't point to a node
+   */
+  SuccinctDom findSegment(long position) {
+    int index = DomSegments.getSegmentIndex(position);
+    SuccinctDom segment = null;
+    if (segments != null) {
+      if (index >= 0 && index < segments.size()) {
+        segment = segments.get(index);
+      }
+    } else if (index == 0) {
+      segment = this;
+    }
+    return (segment != null && segment.isNodeIndex(DomSegments.getIndex(position)))
+        ? segment : null;
+  }
+
+  /**
+   * Gets the nodes at the given positions in the document.
+   *
+   * @param positions the positions of the nodes
+   * @return the {@link NodeList} instance
+   */
+  public NodeList getNodes(long[] positions) {
+    if (segments != null) {
+      return segments.getNodes(positions);
+    }
+    int[] indexes = new int[positions.length];
+    for (int i = 0; i < positions.length; i++) {
+      indexes[i] = (int) positions[i];
+    }
+    return new NodeListImpl(this, indexes);
+  }
+
+  /**
+   * Returns whether the DOM is aware of the namespaces.
+   */
+  public boolean isNamespaceAware() {
+    return isNamespaceAware;
+  }
+
   /**
    * Returns the cached succinct {@link Document} instance.
    */
   public Document getDocument() {
+    return (segments != null) ? segments.getDocument() : document;
+  }
+
+  /**
+   * Returns the document node of the segment.
+   */
+  DocumentImpl getSegmentDocument() {
     return document;
   }
 
+  /**
+   * Returns the index of the document node in the balanced parentheses.
+   */
+  int getDocumentIndex() {
+    return document.index;
+  }
+
   /**
    * Returns the index of the document's element (root).
    */
@@ -164,6 +458,11 @@ public class SuccinctDom {
    * @return the succinct subclass of the {@link Node}
    */
   public Node getNode(int parenthesisIndex) {
+    if (segmentIndex > 0
+        && (parenthesisIndex == document.index || parenthesisIndex == documentElementIndex)) {
+      // The copies of the document node and the root element stand for their originals.
+      return segments.getNode(segments.canonicalize(segmentIndex, parenthesisIndex));
+    }
     int ordinalIndex = parenthesisVector.rank(parenthesisIndex) - 1;
     if (nodeVector.get(ordinalIndex)) { // it's non-text element
       int elementIndex = nodeVector.rank(ordinalIndex) - 1;
@@ -193,10 +492,20 @@ public class SuccinctDom {
    * @return the parent {@link Node} or {@code null} if there is no one
    */
   public Node getParentNode(int parenthesisIndex) {
-    int parentIndex = parentheses.enclose(parenthesisIndex);
+    int parentIndex = getParentIndex(parenthesisIndex);
     return (parentIndex != -1) ? getNode(parentIndex) : null;
   }
 
+  /**
+   * Gets the index of the parent of the given node.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @return the index of the parent node or {@code -1} if there is no one
+   */
+  int getParentIndex(int parenthesisIndex) {
+    return parentheses.enclose(parenthesisIndex);
+  }
+
   /**
    * Gets the first child of the given node.
    *
@@ -204,12 +513,11 @@ public class SuccinctDom {
    * @return the child {@link Node} or {@code null} if there is no one
    */
   public Node getFirstChild(int parenthesisIndex) {
-    int nextIndex = parenthesisIndex + 1;
-    if (parenthesisVector.get(nextIndex)) {
-      return getNode(nextIndex);
-    } else {
-      return null;
+    if (segments != null) {
+      return segments.getNode(segments.getFirstChild(segmentIndex, parenthesisIndex));
     }
+    int childIndex = getFirstChildIndex(parenthesisIndex);
+    return (childIndex != -1) ? getNode(childIndex) : null;
   }
 
   /**
@@ -218,7 +526,7 @@ public class SuccinctDom {
    * @param parenthesisIndex the index of the node in the balanced parentheses
    * @return the index of the child node or {@code -1} if there is no one
    */
-  private int getFirstChildIndex(int parenthesisIndex) {
+  int getFirstChildIndex(int parenthesisIndex) {
     int nextIndex = parenthesisIndex + 1;
     if (parenthesisVector.get(nextIndex)) {
       return nextIndex;
@@ -234,12 +542,25 @@ public class SuccinctDom {
    * @return the child {@link Node} or {@code null} if there is no one
    */
   public Node getLastChild(int parenthesisIndex) {
+    if (segments != null) {
+      return segments.getNode(segments.getLastChild(segmentIndex, parenthesisIndex));
+    }
+    int childIndex = getLastChildIndex(parenthesisIndex);
+    return (childIndex != -1) ? getNode(childIndex) : null;
+  }
+
+  /**
+   * Gets the index of the last child of the given node.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @return the index of the child node or {@code -1} if there is no one
+   */
+  int getLastChildIndex(int parenthesisIndex) {
     if (parenthesisVector.get(parenthesisIndex + 1)) { // if there are children
       int closeIndex = parentheses.findClose(parenthesisIndex);
-      int lastChildIndex = parentheses.findOpen(closeIndex - 1);
-      return getNode(lastChildIndex);
+      return parentheses.findOpen(closeIndex - 1);
     } else {
-      return null;
+      return -1;
     }
   }
 
@@ -250,13 +571,11 @@ public class SuccinctDom {
    * @return the next sibling {@link Node} or {@code null} if there is no one
    */
   public Node getNextSibling(int parenthesisIndex) {
-    int nextIndex = parentheses.findClose(parenthesisIndex) + 1;
-    // No range check is required as long as there is the document node.
-    if (parenthesisVector.get(nextIndex)) {
-      return getNode(nextIndex);
-    } else {
-      return null;
+    if (segments != null) {
+      return segments.getNode(segments.getNextSibling(segmentIndex, parenthesisIndex));
     }
+    int siblingIndex = getNextSiblingIndex(parenthesisIndex);
+    return (siblingIndex != -1) ? getNode(siblingIndex) : null;
   }
 
   /**
@@ -265,7 +584,7 @@ public class SuccinctDom {
    * @param parenthesisIndex the index of the node in the balanced parentheses
    * @return the index of the next sibling or {@code -1} if there is no one
    */
-  private int getNextSiblingIndex(int parenthesisIndex) {
+  int getNextSiblingIndex(int parenthesisIndex) {
     int nextIndex = parentheses.findClose(parenthesisIndex) + 1;
     // No range check is required as long as there is the document node.
     if (parenthesisVector.get(nextIndex)) {
@@ -282,15 +601,74 @@ public class SuccinctDom {
    * @return the previous sibling {@link Node} or {@code null} if there is no one
    */
   public Node getPreviousSibling(int parenthesisIndex) {
+    if (segments != null) {
+      return segments.getNode(segments.getPreviousSibling(segmentIndex, parenthesisIndex));
+    }
+    int siblingIndex = getPreviousSiblingIndex(parenthesisIndex);
+    return (siblingIndex != -1) ? getNode(siblingIndex) : null;
+  }
+
+  /**
+   * Gets the index of the previous sibling of the given node.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @return the index of the previous sibling or {@code -1} if there is no one
+   */
+  int getPreviousSiblingIndex(int parenthesisIndex) {
     int previousIndex = parenthesisIndex - 1;
-    if (!parenthesisVector.get(previousIndex)) {
-      previousIndex = parentheses.findOpen(previousIndex);
-      return getNode(previousIndex);
+    // The document node has no siblings.
+    if (previousIndex >= 0 && !parenthesisVector.get(previousIndex)) {
+      return parentheses.findOpen(previousIndex);
     } else {
-      return null;
+      return -1;
+    }
+  }
+
+  /**
+   * Gets the index of the node in the store that keeps it.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @return the index of the node among the non-text nodes, or the negative
+   *         {@code -(text index) - 1} for the text node
+   */
+  int getStoreIndex(int parenthesisIndex) {
+    int ordinalIndex = parenthesisVector.rank(parenthesisIndex) - 1;
+    if (nodeVector.get(ordinalIndex)) {
+      return nodeVector.rank(ordinalIndex) - 1;
+    } else {
+      return -nodeVector.rank0(ordinalIndex);
     }
   }
 
+  /**
+   * Gets the type of the non-text node.
+   *
+   * @param ordinalIndex the index of the node among the non-text nodes
+   */
+  short getNodeType(int ordinalIndex) {
+    return (short) elementStore.getType(ordinalIndex);
+  }
+
+  /**
+   * Gets the name of the element that is the local name if the DOM is aware of the namespaces,
+   * and the qualified name otherwise.
+   *
+   * @param ordinalIndex the index of the node (element) in the non-text node store
+   */
+  String getName(int ordinalIndex) {
+    return elementStore.getName(ordinalIndex);
+  }
+
+  /**
+   * Checks whether the index points to a node i.e. to an opening parenthesis.
+   *
+   * @param parenthesisIndex the index in the balanced parentheses
+   */
+  boolean isNodeIndex(int parenthesisIndex) {
+    return parenthesisIndex >= 0 && parenthesisIndex < parenthesisCount
+        && parenthesisVector.get(parenthesisIndex);
+  }
+
   /**
    * Checks whether the given node has the children.
    *
@@ -298,29 +676,529 @@ public class SuccinctDom {
    * @return {@code true} if the node has the children, otherwise {@code false}
    */
   public boolean hasChildNodes(int parenthesisIndex) {
+    if (segments != null && segments.isSpanning(segmentIndex, parenthesisIndex)) {
+      return segments.getFirstChild(segmentIndex, parenthesisIndex) != -1;
+    }
     return parenthesisVector.get(parenthesisIndex + 1);
   }
 
+  /**
+   * Gets the depth of the given node that is the number of its ancestors. The depth is the excess
+   * of the open parentheses over the closed ones before the node, so it takes a single rank.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @return the depth of the node, {@code 0} for the document node
+   */
+  public int getDepth(int parenthesisIndex) {
+    // rank1 - rank0 over [0, parenthesisIndex] minus the node itself.
+    return 2 * parenthesisVector.rank(parenthesisIndex) - parenthesisIndex - 2;
+  }
+
+  /**
+   * Gets the number of the nodes in the subtree of the given node (the attributes aside).
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @return the size of the subtree including the node itself
+   */
+  public long getSubtreeSize(int parenthesisIndex) {
+    if (segments != null && segments.isSpanning(segmentIndex, parenthesisIndex)) {
+      return segments.getSubtreeSize(parenthesisIndex);
+    }
+    return getLocalSubtreeSize(parenthesisIndex);
+  }
+
+  /**
+   * Gets the number of the nodes in the subtree of the given node within the segment.
+   */
+  int getLocalSubtreeSize(int parenthesisIndex) {
+    return (parentheses.findClose(parenthesisIndex) - parenthesisIndex + 1) / 2;
+  }
+
+  /**
+   * Checks whether the given node is a proper ancestor of the other node.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @param otherIndex the index of the other node in the balanced parentheses
+   * @return {@code true} if the other node is a descendant of the given node
+   */
+  public boolean isAncestor(int parenthesisIndex, int otherIndex) {
+    return parenthesisIndex < otherIndex && otherIndex < parentheses.findClose(parenthesisIndex);
+  }
+
+  /**
+   * Compares the positions of the given nodes in the document like
+   * {@link Node#compareDocumentPosition(Node)} does. Note that the indexes of the nodes in the
+   * balanced parentheses follow the document order, so the nodes can be sorted in the document
+   * order by their indexes alone.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @param otherIndex the index of the other node in the balanced parentheses
+   * @return the position of the other node relative to the given one as a bit mask of the
+   *         {@code Node.DOCUMENT_POSITION_*} constants, or {@code 0} if the nodes are the same
+   */
+  public short compareDocumentPosition(int parenthesisIndex, int otherIndex) {
+    return compareDocumentPositionAt(getPosition(parenthesisIndex), getPosition(otherIndex));
+  }
+
+  /**
+   * Checks whether the given node is a proper ancestor of the other node of the document.
+   *
+   * @param position the position of the node in the document
+   * @param otherPosition the position of the other node in the document
+   * @return {@code true} if the other node is a descendant of the given node
+   * @see #getPosition(int)
+   */
+  boolean isAncestorAt(long position, long otherPosition) {
+    return (segments != null)
+        ? segments.isAncestor(position, otherPosition)
+        : isAncestor((int) position, (int) otherPosition);
+  }
+
+  /**
+   * Compares the positions of the given nodes of the document like
+   * {@link #compareDocumentPosition(int, int)} does.
+   *
+   * @param position the position of the node in the document
+   * @param otherPosition the position of the other node in the document
+   * @return the position of the other node relative to the given one as a bit mask of the
+   *         {@code Node.DOCUMENT_POSITION_*} constants, or {@code 0} if the nodes are the same
+   * @see #getPosition(int)
+   */
+  short compareDocumentPositionAt(long position, long otherPosition) {
+    if (position == otherPosition) {
+      return 0;
+    }
+    if (position < otherPosition) {
+      return isAncestorAt(position, otherPosition)
+          ? Node.DOCUMENT_POSITION_CONTAINED_BY | Node.DOCUMENT_POSITION_FOLLOWING
+          : Node.DOCUMENT_POSITION_FOLLOWING;
+    }
+    return isAncestorAt(otherPosition, position)
+        ? Node.DOCUMENT_POSITION_CONTAINS | Node.DOCUMENT_POSITION_PRECEDING
+        : Node.DOCUMENT_POSITION_PRECEDING;
+  }
+
   /**
    * Gets the ordered collection of the children of the given node. In case the node has no children
-   * the empty collection is returned.
+   * the empty collection is returned. The children are resolved lazily on access.
    *
    * @param parenthesisIndex the index of the node in the balanced parentheses
    * @return the {@link NodeList} instance
    */
   public NodeList getChildNodes(int parenthesisIndex) {
-    IntBitSet bits = new IntBitSet();
+    if (segments != null && segments.isSpanning(segmentIndex, parenthesisIndex)) {
+      return segments.getChildNodes(parenthesisIndex);
+    }
+    return new ChildNodeList(this, parenthesisIndex);
+  }
+
+  /**
+   * Gets the number of the children of the given node. It takes a binary search among the wide
+   * nodes plus less than {@link DegreeIndex#SAMPLE_RATE} sibling steps.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @return the number of the children
+   */
+  public long getChildCount(int parenthesisIndex) {
+    if (segments != null && segments.isSpanning(segmentIndex, parenthesisIndex)) {
+      return segments.getChildCount(parenthesisIndex);
+    }
+    return getLocalChildCount(parenthesisIndex);
+  }
 
+  /**
+   * Gets the number of the children of the given node within the segment.
+   */
+  int getLocalChildCount(int parenthesisIndex) {
+    DegreeIndex degreeIndex = getDegreeIndex();
+    int wideIndex = degreeIndex.find(parenthesisIndex);
+    if (wideIndex >= 0) {
+      return degreeIndex.getDegree(wideIndex);
+    }
     int count = 0;
+    for (int i = getFirstChildIndex(parenthesisIndex); i != -1; i = getNextSiblingIndex(i)) {
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Gets the index of the child of the given node at the given position. It takes a binary search
+   * among the wide nodes plus less than {@link DegreeIndex#SAMPLE_RATE} sibling steps.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @param position the position of the child among the children starting from {@code 0}
+   * @return the index of the child in the balanced parentheses or {@code -1} if the position is
+   *         out of range
+   * @throws IllegalArgumentException if the child is in another segment of the large document
+   *         (see {@link #getChildPosition(int, long)})
+   */
+  public int getChildIndex(int parenthesisIndex, int position) {
+    if (segments != null && segments.isSpanning(segmentIndex, parenthesisIndex)) {
+      long childPosition = segments.getChildPosition(parenthesisIndex, position);
+      if (childPosition == -1) {
+        return -1;
+      }
+      if (DomSegments.getSegmentIndex(childPosition) != segmentIndex) {
+        throw new IllegalArgumentException(
+            "The child is in another segment, get its position instead: " + position);
+      }
+      return DomSegments.getIndex(childPosition);
+    }
+    return getLocalChildIndex(parenthesisIndex, position);
+  }
+
+  /**
+   * Gets the position of the child of the given node in the document. Unlike
+   * {@link #getChildIndex(int, int)} it covers the children in all the segments of the large
+   * document.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @param position the position of the child among the children starting from {@code 0}
+   * @return the position of the child in the document or {@code -1} if the position among the
+   *         children is out of range
+   * @see #getPosition(int)
+   */
+  public long getChildPosition(int parenthesisIndex, long position) {
+    if (segments != null && segments.isSpanning(segmentIndex, parenthesisIndex)) {
+      return segments.getChildPosition(parenthesisIndex, position);
+    }
+    if (position > Integer.MAX_VALUE) {
+      return -1;
+    }
+    return getPosition(getLocalChildIndex(parenthesisIndex, (int) position));
+  }
+
+  /**
+   * Gets the index of the child of the given node at the given position within the segment.
+   */
+  int getLocalChildIndex(int parenthesisIndex, int position) {
+    if (position < 0) {
+      return -1;
+    }
     int i = getFirstChildIndex(parenthesisIndex);
-    while (i != -1) {
-      bits.setInt(count++, i);
+    int steps = position;
+    DegreeIndex degreeIndex = getDegreeIndex();
+    int wideIndex = degreeIndex.find(parenthesisIndex);
+    if (wideIndex >= 0) {
+      if (position >= degreeIndex.getDegree(wideIndex)) {
+        return -1;
+      }
+      int sample = position >>> DegreeIndex.SAMPLE_BITS;
+      if (sample > 0) {
+        i = degreeIndex.getSample(wideIndex, sample);
+      }
+      steps = position & (DegreeIndex.SAMPLE_RATE - 1);
+    }
+    for (; steps > 0 && i != -1; steps--) {
       i = getNextSiblingIndex(i);
     }
+    return i;
+  }
+
+  /**
+   * Gets the position of the given node among the children of its parent. It takes a binary
+   * search among the wide nodes and their samples plus less than {@link DegreeIndex#SAMPLE_RATE}
+   * sibling steps.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @return the position of the node starting from {@code 0} or {@code -1} for the document node
+   */
+  public long getChildRank(int parenthesisIndex) {
+    if (segments != null) {
+      return segments.getChildRank(segmentIndex, parenthesisIndex);
+    }
+    return getLocalChildRank(parenthesisIndex);
+  }
+
+  /**
+   * Gets the position of the given node among the children of its parent within the segment.
+   */
+  int getLocalChildRank(int parenthesisIndex) {
+    int parentIndex = getParentIndex(parenthesisIndex);
+    if (parentIndex == -1) {
+      return -1;
+    }
+    DegreeIndex degreeIndex = getDegreeIndex();
+    int wideIndex = degreeIndex.find(parentIndex);
+    if (wideIndex < 0) {
+      int rank = 0;
+      for (int i = getPreviousSiblingIndex(parenthesisIndex); i != -1;
+          i = getPreviousSiblingIndex(i)) {
+        rank++;
+      }
+      return rank;
+    }
+    int sample = degreeIndex.findSample(wideIndex, parenthesisIndex);
+    int i = (sample > 0) ? degreeIndex.getSample(wideIndex, sample) : parentIndex + 1;
+    int rank = sample << DegreeIndex.SAMPLE_BITS;
+    for (; i != parenthesisIndex; i = getNextSiblingIndex(i)) {
+      rank++;
+    }
+    return rank;
+  }
+
+  /**
+   * Returns the degree/child index building it on the first call. The index takes a pass over the
+   * parentheses, so the DOMs that never ask for the child positions (e.g. the ones read from the
+   * snapshot for the navigation only) don't pay for it.
+   */
+  private DegreeIndex getDegreeIndex() {
+    DegreeIndex index = degreeIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = degreeIndex;
+        if (index == null) {
+          index = DegreeIndex.build(parenthesisVector, parenthesisCount);
+          degreeIndex = index;
+        }
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Builds the posting index of the elements by their names that speeds up
+   * {@link #getElementsByTagName(int, String)} and {@link #getElementsByTagNameNS(int, String,
+   * String)}. Without the index the subtree is scanned. The index takes an int per element and
+   * isn't kept in the snapshot. Does nothing if the index is already built.
+   */
+  public void buildTagIndex() {
+    if (segments != null) {
+      for (int i = 0; i < segments.size(); i++) {
+        segments.get(i).buildSegmentTagIndex();
+      }
+    } else {
+      buildSegmentTagIndex();
+    }
+  }
+
+  private synchronized void buildSegmentTagIndex() {
+    if (tagIndex == null) {
+      tagIndex = TagIndex.build(elementStore, getElementStoreSize(), parenthesisVector,
+          parenthesisCount, nodeVector);
+    }
+  }
+
+  /**
+   * Gets the descendant elements of the given node with the given tag name in document order.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @param name the qualified name of the elements, {@code "*"} matches all the elements
+   * @return the {@link NodeList} instance
+   */
+  public NodeList getElementsByTagName(int parenthesisIndex, String name) {
+    if (segments != null && segments.isSpanning(segmentIndex, parenthesisIndex)) {
+      return segments.getElementsByTagName(parenthesisIndex, name);
+    }
+    return findElementsByTagName(parenthesisIndex, name);
+  }
+
+  /**
+   * Gets the indexes of the descendant elements of the given node with the given tag name.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @param name the qualified name of the elements, {@code "*"} matches all the elements
+   * @return the new array of the indexes of the elements in the balanced parentheses in document
+   *         order
+   * @see #getElementsByTagName(int, String)
+   */
+  public int[] getElementIndexesByTagName(int parenthesisIndex, String name) {
+    return findElementsByTagName(parenthesisIndex, name).toIndexArray();
+  }
+
+  /**
+   * Gets the positions of the descendant elements of the given node with the given tag name. Unlike
+   * {@link #getElementIndexesByTagName(int, String)} it covers the descendants in all the segments
+   * of the large document.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @param name the qualified name of the elements, {@code "*"} matches all the elements
+   * @return the new array of the positions of the elements in document order
+   * @see #getPosition(int)
+   */
+  public long[] getElementPositionsByTagName(int parenthesisIndex, String name) {
+    if (segments != null && segments.isSpanning(segmentIndex, parenthesisIndex)) {
+      return segments.getElementPositionsByTagName(parenthesisIndex, name);
+    }
+    return findElementsByTagName(parenthesisIndex, name).toPositionArray();
+  }
+
+  /**
+   * Finds the descendant elements of the given node within the segment.
+   */
+  NodeListImpl findElementsByTagName(int parenthesisIndex, String name) {
+    if ("*".equals(name)) {
+      return findElements(parenthesisIndex, ANY_NAME, true, null, true, null);
+    }
+    if (!isNamespaceAware) {
+      return findElements(parenthesisIndex, findNameCode(name), true, null, true, null);
+    }
+    int colonIndex = name.indexOf(':');
+    String prefix = (colonIndex > 0) ? name.substring(0, colonIndex) : null;
+    String localName = (colonIndex > 0) ? name.substring(colonIndex + 1) : name;
+    return findElements(parenthesisIndex, findNameCode(localName), true, null, false, prefix);
+  }
+
+  /**
+   * Gets the descendant elements of the given node with the given namespace URI and local name in
+   * document order.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @param namespaceURI the namespace URI of the elements, {@code "*"} matches all the namespaces
+   * @param localName the local name of the elements, {@code "*"} matches all the local names
+   * @return the {@link NodeList} instance
+   */
+  public NodeList getElementsByTagNameNS(
+      int parenthesisIndex, String namespaceURI, String localName) {
+    if (segments != null && segments.isSpanning(segmentIndex, parenthesisIndex)) {
+      return segments.getElementsByTagNameNS(parenthesisIndex, namespaceURI, localName);
+    }
+    return findElementsByTagNameNS(parenthesisIndex, namespaceURI, localName);
+  }
+
+  /**
+   * Gets the indexes of the descendant elements of the given node with the given namespace URI
+   * and local name.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @param namespaceURI the namespace URI of the elements, {@code "*"} matches all the namespaces
+   * @param localName the local name of the elements, {@code "*"} matches all the local names
+   * @return the new array of the indexes of the elements in the balanced parentheses in document
+   *         order
+   * @see #getElementsByTagNameNS(int, String, String)
+   */
+  public int[] getElementIndexesByTagNameNS(
+      int parenthesisIndex, String namespaceURI, String localName) {
+    return findElementsByTagNameNS(parenthesisIndex, namespaceURI, localName).toIndexArray();
+  }
+
+  /**
+   * Gets the positions of the descendant elements of the given node with the given namespace URI
+   * and local name. Unlike {@link #getElementIndexesByTagNameNS(int, String, String)} it covers
+   * the descendants in all the segments of the large document.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @param namespaceURI the namespace URI of the elements, {@code "*"} matches all the namespaces
+   * @param localName the local name of the elements, {@code "*"} matches all the local names
+   * @return the new array of the positions of the elements in document order
+   * @see #getPosition(int)
+   */
+  public long[] getElementPositionsByTagNameNS(
+      int parenthesisIndex, String namespaceURI, String localName) {
+    if (segments != null && segments.isSpanning(segmentIndex, parenthesisIndex)) {
+      return segments.getElementPositionsByTagNameNS(parenthesisIndex, namespaceURI, localName);
+    }
+    return findElementsByTagNameNS(parenthesisIndex, namespaceURI, localName).toPositionArray();
+  }
+
+  /**
+   * Finds the descendant elements of the given node within the segment.
+   */
+  NodeListImpl findElementsByTagNameNS(
+      int parenthesisIndex, String namespaceURI, String localName) {
+    boolean isAnyNamespace = "*".equals(namespaceURI);
+    if (namespaceURI != null && namespaceURI.isEmpty()) {
+      namespaceURI = null;
+    }
+    boolean isAnyName = "*".equals(localName);
+    if (!isNamespaceAware) {
+      // The elements have neither the namespace URI nor the local name.
+      int nameCode = (isAnyName && (isAnyNamespace || namespaceURI == null)) ? ANY_NAME : -1;
+      return findElements(parenthesisIndex, nameCode, true, null, true, null);
+    }
+    int nameCode = isAnyName ? ANY_NAME : findNameCode(localName);
+    return findElements(parenthesisIndex, nameCode, isAnyNamespace, namespaceURI, true, null);
+  }
+
+  private int findNameCode(String name) {
+    TagIndex index = tagIndex;
+    return (index != null)
+        ? index.findNameCode(name) : elementStore.findNameCode(name, getElementStoreSize());
+  }
+
+  /**
+   * Returns the number of the non-text nodes i.e. the nodes that are kept in the element store.
+   */
+  private int getElementStoreSize() {
+    return (nodeCount > 0) ? nodeVector.rank(nodeCount - 1) : 0;
+  }
 
+  /**
+   * Finds the descendant elements of the node. If the name is given and the index is built, the
+   * elements are looked up in the posting list of the name, and the result is a view of the list
+   * unless the elements are to be checked for the namespace or the prefix. Otherwise the subtree
+   * is scanned.
+   *
+   * @param parenthesisIndex the index of the node in the balanced parentheses
+   * @param nameCode the code of the element name, {@link #ANY_NAME} or {@code -1} if the name is
+   *        unknown
+   * @param isAnyNamespace whether the elements of all the namespaces are matched
+   * @param namespaceURI the namespace URI of the elements
+   * @param isAnyPrefix whether the elements with all the prefixes are matched
+   * @param prefix the namespace prefix of the elements
+   */
+  private NodeListImpl findElements(int parenthesisIndex, int nameCode, boolean isAnyNamespace,
+      String namespaceURI, boolean isAnyPrefix, String prefix) {
+    if (nameCode == -1) {
+      return new NodeListImpl(this, NO_INDEXES);
+    }
+    int start = parenthesisIndex + 1;
+    int end = parentheses.findClose(parenthesisIndex);
+    IntBitSet bits = new IntBitSet();
+    int count = 0;
+
+    TagIndex index = tagIndex;
+    if (index != null && nameCode != ANY_NAME) {
+      int[] positions = index.getPositions();
+      int from = index.find(nameCode, start);
+      int to = index.find(nameCode, end);
+      if (isAnyNamespace && isAnyPrefix) {
+        return new NodeListImpl(this, positions, from, to);
+      }
+      for (int i = from; i < to; i++) {
+        if (isMatched(getStoreIndex(positions[i]), ANY_NAME, isAnyNamespace, namespaceURI,
+            isAnyPrefix, prefix)) {
+          bits.setInt(count++, positions[i]);
+        }
+      }
+    } else {
+      // Track the ordinal indexes along the scan instead of ranking every position.
+      int nodeIndex = parenthesisVector.rank(parenthesisIndex) - 1;
+      int elementIndex = nodeVector.rank(nodeIndex) - 1;
+      for (int i = start; i < end; i++) {
+        if (!parenthesisVector.get(i)) {
+          continue;
+        }
+        nodeIndex++;
+        if (!nodeVector.get(nodeIndex)) {
+          continue; // It's a text node.
+        }
+        elementIndex++;
+        if (isMatched(elementIndex, nameCode, isAnyNamespace, namespaceURI, isAnyPrefix, prefix)) {
+          bits.setInt(count++, i);
+        }
+      }
+    }
     return new NodeListImpl(this, bits.toIntArray(count * 32));
   }
 
+  private boolean isMatched(int ordinalIndex, int nameCode, boolean isAnyNamespace,
+      String namespaceURI, boolean isAnyPrefix, String prefix) {
+    int code = elementStore.getElementNameCode(ordinalIndex);
+    if (code == -1 || (nameCode != ANY_NAME && code != nameCode)) {
+      return false;
+    }
+    if (!isAnyNamespace && !equals(namespaceURI, elementStore.getNamespaceUri(ordinalIndex))) {
+      return false;
+    }
+    return isAnyPrefix || equals(prefix, elementStore.getPrefix(ordinalIndex));
+  }
+
+  private static boolean equals(String s1, String s2) {
+    return (s1 == null) ? (s2 == null) : s1.equals(s2);
+  }
+
   /**
    * Gets the local name of the node (element).
    *
@@ -462,6 +1340,9 @@ public class SuccinctDom {
    * @see Node#getTextContent()
    */
   public String getTextContent(int nodeIndex) {
+    if (segments != null && segments.isSpanning(segmentIndex, nodeIndex)) {
+      return segments.getTextContent();
+    }
     StringBuilder builder = new StringBuilder();
     buildTextContent(nodeIndex, builder);
     return builder.toString();
@@ -473,13 +1354,14 @@ public class SuccinctDom {
    * @param nodeIndex the index of the node in the balanced parentheses
    * @param builder the object that accumulates the character content from the nodes
    */
-  private void buildTextContent(int nodeIndex, StringBuilder builder) {
+  void buildTextContent(int nodeIndex, StringBuilder builder) {
     int nodeOrdinalIndex = parenthesisVector.rank(nodeIndex) - 1;
     if (nodeVector.get(nodeOrdinalIndex)) { // non-text node
       int elementIndex = nodeVector.rank(nodeOrdinalIndex) - 1;
       int nodeType = elementStore.getType(elementIndex);
       switch (nodeType) {
         case Node.ELEMENT_NODE:
+        case Node.DOCUMENT_NODE:
           int childIndex = getFirstChildIndex(nodeIndex);
           while (childIndex != -1) {
             buildTextContent(childIndex, builder);
@@ -524,13 +1406,66 @@ public class SuccinctDom {
    */
   public NamedNodeMap getAttributes(int ordinalIndex) {
     int position = attributeVector.select(ordinalIndex);
-    int firstAttributeIndex = 0;
-    if (ordinalIndex > 0) {
-      firstAttributeIndex = attributeVector.select(ordinalIndex - 1) + 1;
-    }
+    int firstAttributeIndex = getFirstAttributeIndex(ordinalIndex);
     return new AttributeMapImpl(this, firstAttributeIndex, position - firstAttributeIndex);
   }
 
+  private int getFirstAttributeIndex(int ordinalIndex) {
+    return (ordinalIndex > 0) ? attributeVector.select(ordinalIndex - 1) + 1 : 0;
+  }
+
+  /**
+   * Finds the attribute of the node (element) by the qualified name with no string allocated.
+   *
+   * @param ordinalIndex the index of the node (element) in the non-text node store
+   * @param name the qualified name of the attribute
+   * @return the index of the attribute in the attribute bit string, or {@code -1} if the element
+   *         has no such attribute
+   */
+  int findAttribute(int ordinalIndex, String name) {
+    int end = attributeVector.select(ordinalIndex);
+    for (int i = getFirstAttributeIndex(ordinalIndex); i < end; i++) {
+      // The attributes of the node are preceded by the separators of the previous nodes only.
+      int nameIndex = i - ordinalIndex;
+      String localName = attributeNameStore.getName(nameIndex);
+      String prefix = attributeNameStore.getPrefix(nameIndex);
+      if (prefix == null) {
+        if (name.equals(localName)) {
+          return i;
+        }
+      } else if (name.length() == prefix.length() + localName.length() + 1
+          && name.charAt(prefix.length()) == ':' && name.startsWith(prefix)
+          && name.endsWith(localName)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Finds the attribute of the node (element) by the namespace URI and local name.
+   *
+   * @param ordinalIndex the index of the node (element) in the non-text node store
+   * @param namespaceURI the namespace URI of the attribute, {@code null} for no namespace
+   * @param localName the local name of the attribute
+   * @return the index of the attribute in the attribute bit string, or {@code -1} if the element
+   *         has no such attribute or the DOM isn't aware of the namespaces
+   */
+  int findAttributeNS(int ordinalIndex, String namespaceURI, String localName) {
+    if (!isNamespaceAware) {
+      return -1;
+    }
+    int end = attributeVector.select(ordinalIndex);
+    for (int i = getFirstAttributeIndex(ordinalIndex); i < end; i++) {
+      int nameIndex = i - ordinalIndex;
+      if (localName.equals(attributeNameStore.getName(nameIndex))
+          && equals(namespaceURI, attributeNameStore.getNamespaceUri(nameIndex))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
   /*
    * Attribute methods.
    */
@@ -614,4 +1549,276 @@ public class SuccinctDom {
     int nodeIndex = parenthesisVector.select(nodeOrdinalIndex);
     return new ElementImpl(this, nodeIndex, elementIndex);
   }
+
+  /**
+   * Gets the index of the element that the given attribute belongs to.
+   *
+   * @param attributeIndex the index of the attribute in the attribute bit string
+   * @return the index of the element in the balanced parentheses
+   */
+  int getAttributeElementIndex(int attributeIndex) {
+    return parenthesisVector.select(nodeVector.select(attributeVector.rank(attributeIndex)));
+  }
+
+  /**
+   * Estimates the heap space that the structures of the DOM retain and counts its nodes. The
+   * estimate walks the structures, so it takes a time proportional to the number of the objects
+   * rather than of the nodes. The counts take a scan of the node stores though.
+   *
+   * @return the {@link MemoryFootprint} instance
+   */
+  public MemoryFootprint getMemoryFootprint() {
+    if (segments != null) {
+      return segments.getMemoryFootprint();
+    }
+    MemoryFootprint.Builder builder = new MemoryFootprint.Builder();
+    estimate(builder);
+    BitSet elementNames = new BitSet();
+    BitSet attributeNames = new BitSet();
+    long[] counts = count(elementNames, attributeNames);
+    return builder.setCounts(counts[0], counts[1], counts[2], counts[3])
+        .setNameCounts(elementNames.cardinality(), attributeNames.cardinality())
+        .build();
+  }
+
+  /**
+   * Adds the estimates of the structures of the DOM to the builder.
+   */
+  void estimate(MemoryFootprint.Builder builder) {
+    builder.add("parentheses.bits", parenthesisBits)
+        .add("parentheses.rankSelect", parenthesisVector)
+        .add("parentheses.rangeMinMaxTree", parentheses)
+        .add("nodes.bits", nodeBits)
+        .add("nodes.rankSelect", nodeVector)
+        .add("attributes.bits", attributeBits)
+        .add("attributes.rankSelect", attributeVector);
+    elementStore.estimate(builder, "elements");
+    attributeNameStore.estimate(builder, "attributeNames");
+    estimate(textStore, builder, "text");
+    estimate(attributeValueStore, builder, "attributeValues");
+    builder.add("degreeIndex", degreeIndex)
+        .add("tagIndex", tagIndex)
+        .add("idIndex", idIndex);
+  }
+
+  /**
+   * Counts the nodes of the DOM and collects the codes of the element and attribute names.
+   *
+   * @param elementNames the codes of the element names
+   * @param attributeNames the codes of the attribute names
+   * @return the numbers of the nodes, the elements, the text nodes and the attributes
+   */
+  long[] count(BitSet elementNames, BitSet attributeNames) {
+    int storeSize = getElementStoreSize();
+    long elementCount = 0;
+    long attributeNumber = 0;
+    // The CDATA sections are kept in the element store.
+    long textNumber = (nodeCount > 0) ? nodeVector.rank0(nodeCount - 1) : 0;
+    for (int i = 0; i < storeSize; i++) {
+      int nameCode = elementStore.getElementNameCode(i);
+      if (nameCode != -1) {
+        elementCount++;
+        elementNames.set(nameCode);
+        // The pseudo-attributes of the other nodes aren't counted.
+        int firstIndex = getFirstAttributeIndex(i);
+        int lastIndex = attributeVector.select(i);
+        if (firstIndex < lastIndex) {
+          int firstOrdinalIndex = attributeVector.rank0(firstIndex) - 1;
+          for (int j = 0; j < lastIndex - firstIndex; j++) {
+            attributeNames.set(attributeNameStore.getNameCode(firstOrdinalIndex + j));
+          }
+          attributeNumber += lastIndex - firstIndex;
+        }
+      } else if (elementStore.getType(i) == Node.CDATA_SECTION_NODE) {
+        textNumber++;
+      }
+    }
+    return new long[] {parenthesisCount / 2, elementCount, textNumber, attributeNumber};
+  }
+
+  /**
+   * Adds the names of the given codes to the sets of the names.
+   *
+   * @param elementCodes the codes of the element names
+   * @param attributeCodes the codes of the attribute names
+   * @param elementNames the element names
+   * @param attributeNames the attribute names
+   */
+  void addNames(BitSet elementCodes, BitSet attributeCodes, Set<String> elementNames,
+      Set<String> attributeNames) {
+    for (int i = elementCodes.nextSetBit(0); i >= 0; i = elementCodes.nextSetBit(i + 1)) {
+      elementNames.add(elementStore.getNameByCode(i));
+    }
+    for (int i = attributeCodes.nextSetBit(0); i >= 0; i = attributeCodes.nextSetBit(i + 1)) {
+      attributeNames.add(attributeNameStore.getNameByCode(i));
+    }
+  }
+
+  /**
+   * Gets the number of the attributes of the element.
+   *
+   * @param parenthesisIndex the index of the element in the balanced parentheses
+   */
+  int getAttributeCount(int parenthesisIndex) {
+    int ordinalIndex = getStoreIndex(parenthesisIndex);
+    return attributeVector.select(ordinalIndex) - getFirstAttributeIndex(ordinalIndex);
+  }
+
+  private static void estimate(OrderedStore store, MemoryFootprint.Builder builder, String name) {
+    if (store instanceof ValueStore) {
+      ((ValueStore) store).estimate(builder, name);
+    } else {
+      builder.add(name + ".content", store);
+    }
+  }
+
+  /**
+   * Builds the index of the element IDs that {@link #getElementById(String)} looks up from the
+   * attributes with the given qualified names. The index isn't kept in the snapshot, so this
+   * restores the lookup of the document that has been read from the snapshot. Unlike the index
+   * that is built on parsing, it doesn't include the attributes declared of the ID type in the DTD.
+   * Replaces the existing index.
+   *
+   * @param names the qualified names of the ID attributes
+   * @throws IllegalArgumentException if there are more IDs than the index can hold
+   */
+  public void buildIdIndex(Collection<String> names) {
+    if (segments != null) {
+      for (int i = 0; i < segments.size(); i++) {
+        segments.get(i).buildSegmentIdIndex(names);
+      }
+    } else {
+      buildSegmentIdIndex(names);
+    }
+  }
+
+  private void buildSegmentIdIndex(Collection<String> names) {
+    // Compare the codes of the local names first so that most of the attributes are skipped.
+    Set<String> localNames = new HashSet<>();
+    for (String name : names) {
+      localNames.add(name);
+      localNames.add(name.substring(name.indexOf(':') + 1));
+    }
+    BitSet nameCodes = new BitSet();
+    for (int code = 0; code < attributeNameStore.getNameCodeLimit(); code++) {
+      if (localNames.contains(attributeNameStore.getNameByCode(code))) {
+        nameCodes.set(code);
+      }
+    }
+
+    IntArrayBuffer attributeIndexes = new IntArrayBuffer();
+    int count = 0;
+    int ordinalIndex = 0;
+    for (int i = 0; i < attributeCount; i++) {
+      if (!attributeVector.get(i)) { // if it's an attribute rather than a separator
+        if (nameCodes.get(attributeNameStore.getNameCode(ordinalIndex))
+            && names.contains(attributeNameStore.getQName(ordinalIndex))) {
+          attributeIndexes.setInt(count++, i);
+        }
+        ordinalIndex++;
+      }
+    }
+    buildIdIndex(attributeIndexes.toIntArray(count), count);
+  }
+
+  /**
+   * Builds the index of the element IDs that {@link #getElementById(String)} looks up.
+   *
+   * @param attributeIndexes the positions of the ID attributes in the attribute bit string in the
+   *        document order
+   * @param count the number of the ID attributes
+   * @throws IllegalArgumentException if there are more IDs than the index can hold
+   */
+  void buildIdIndex(int[] attributeIndexes, int count) {
+    idIndex = IdIndex.build(this, attributeIndexes, count);
+  }
+
+  /**
+   * Gets the element that has the ID attribute of the given value.
+   *
+   * @param id the ID value
+   * @return the element {@link Node}, or {@code null} if there is no such ID or the IDs aren't
+   *         indexed
+   */
+  public Node getElementById(String id) {
+    return (segments != null) ? segments.getElementById(id) : findElementById(id);
+  }
+
+  /**
+   * Gets the element of the segment that has the ID attribute of the given value.
+   */
+  Node findElementById(String id) {
+    IdIndex index = idIndex;
+    if (index == null || id == null) {
+      return null;
+    }
+    int attributeIndex = index.find(this, id);
+    return (attributeIndex != -1) ? getAttributeElement(attributeIndex) : null;
+  }
+
+  /*
+   * Snapshot methods.
+   */
+
+  /**
+   * Writes the primary succinct data structures of the DOM to the snapshot. The auxiliary
+   * structures (e.g. rank/select) aren't written as they are rebuilt on reading.
+   *
+   * @param out the snapshot output
+   * @throws IOException if the output fails or some store can't be written
+   */
+  void writeTo(DataOutput out) throws IOException {
+    out.writeInt(parenthesisCount);
+    SnapshotIO.writeInts(out, parenthesisBits);
+    out.writeInt(nodeCount);
+    SnapshotIO.writeInts(out, nodeBits);
+    out.writeInt(attributeCount);
+    SnapshotIO.writeInts(out, attributeBits);
+    out.writeInt(document.index);
+    documentContext.writeTo(out);
+    SnapshotIO.writeString(out, defaultNamespace);
+    out.writeBoolean(isNamespaceAware);
+    elementStore.writeTo(out, getElementStoreSize());
+    toValueStore(textStore).writeTo(out);
+    attributeNameStore.writeTo(out);
+    toValueStore(attributeValueStore).writeTo(out);
+  }
+
+  /**
+   * Reads the DOM from the snapshot written by {@link #writeTo(DataOutput)}.
+   *
+   * @param in the snapshot input
+   * @return the {@link SuccinctDom} instance
+   */
+  static SuccinctDom readFrom(DataInput in) throws IOException {
+    int parenthesisCount = in.readInt();
+    int[] parenthesisBits = SnapshotIO.readInts(in);
+    int nodeCount = in.readInt();
+    int[] nodeBits = SnapshotIO.readInts(in);
+    int attributeCount = in.readInt();
+    int[] attributeBits = SnapshotIO.readInts(in);
+    int documentIndex = in.readInt();
+    DocumentContext documentContext = DocumentContext.readFrom(in);
+    String defaultNamespace = SnapshotIO.readString(in);
+    boolean isNamespaceAware = in.readBoolean();
+    ElementStore elementStore = ElementStore.readFrom(in);
+    ValueStore textStore = ValueStore.readFrom(in);
+    QNameStore attributeNameStore = QNameStore.readFrom(in);
+    ValueStore attributeValueStore = ValueStore.readFrom(in);
+    return new SuccinctDom(parenthesisBits, parenthesisCount, nodeBits, nodeCount, attributeBits,
+        attributeCount, elementStore, textStore, attributeNameStore, attributeValueStore,
+        documentIndex, documentContext, defaultNamespace, isNamespaceAware);
+  }
+
+  /**
+   * Casts the ordered store to the {@link ValueStore} that can be written to the snapshot.
+   *
+   * @throws IOException if the store isn't a {@link ValueStore}
+   */
+  private static ValueStore toValueStore(OrderedStore store) throws IOException {
+    if (store instanceof ValueStore) {
+      return (ValueStore) store;
+    }
+    throw new IOException("Unsupported value store: " + store.getClass().getName());
+  }
 }
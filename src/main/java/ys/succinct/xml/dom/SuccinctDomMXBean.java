@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import java.util.Map;
+
+/**
+ * The management interface of a loaded succinct DOM that exposes its memory footprint to the JMX
+ * consoles and the monitoring agents.
+ *
+ * @author Yauheni Shahun
+ * @see SuccinctDomMonitor
+ * @see MemoryFootprint
+ */
+public interface SuccinctDomMXBean {
+
+  /**
+   * Returns the number of the nodes including the document and the text nodes.
+   */
+  long getNodeCount();
+
+  /**
+   * Returns the number of the elements.
+   */
+  long getElementCount();
+
+  /**
+   * Returns the number of the text nodes.
+   */
+  long getTextCount();
+
+  /**
+   * Returns the number of the attributes.
+   */
+  long getAttributeCount();
+
+  /**
+   * Returns the number of the distinct element names.
+   */
+  long getElementNameCount();
+
+  /**
+   * Returns the number of the distinct attribute names.
+   */
+  long getAttributeNameCount();
+
+  /**
+   * Returns the total estimated size of the DOM structures in bytes.
+   */
+  long getTotalSize();
+
+  /**
+   * Returns the total estimated size in bits per node.
+   */
+  double getBitsPerNode();
+
+  /**
+   * Returns the estimated sizes of the DOM structures in bytes.
+   */
+  Map<String, Long> getStructureSizes();
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import org.w3c.dom.Document;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The {@link SuccinctDomMXBean} implementation. The monitor refers to the DOM weakly so that a
+ * registered monitor doesn't keep the document from being collected. The footprint is estimated
+ * anew on every call, so the attributes reflect the lazily built indexes. Once the document is
+ * collected, the monitor reports the zero counts and sizes.
+ *
+ * @author Yauheni Shahun
+ */
+public final class SuccinctDomMonitor implements SuccinctDomMXBean {
+
+  /**
+   * The domain of the object names that the monitors are registered under.
+   */
+  public static final String DOMAIN = "ys.succinct.xml";
+
+  private final WeakReference<SuccinctDom> dom;
+
+  /**
+   * Constructs a monitor of the succinct document.
+   *
+   * @param document the succinct {@link Document}
+   * @throws IllegalArgumentException if the document isn't succinct
+   */
+  public SuccinctDomMonitor(Document document) {
+    this.dom = new WeakReference<>(SuccinctDomSnapshot.getDom(document));
+  }
+
+  /**
+   * Registers a monitor of the succinct document in the platform MBean server under the name
+   * {@code ys.succinct.xml:type=SuccinctDom,name=<name>}. The caller is responsible for
+   * unregistering it when the document is disposed.
+   *
+   * @param document the succinct {@link Document}
+   * @param name the name that distinguishes the document, e.g. its URI
+   * @return the name of the registered MBean
+   * @throws IllegalArgumentException if the document isn't succinct
+   * @throws JMException if the registration fails e.g. the name is already taken
+   */
+  public static ObjectName register(Document document, String name) throws JMException {
+    ObjectName objectName =
+        new ObjectName(DOMAIN + ":type=SuccinctDom,name=" + ObjectName.quote(name));
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    server.registerMBean(new SuccinctDomMonitor(document), objectName);
+    return objectName;
+  }
+
+  /**
+   * Returns the footprint of the DOM or {@code null} if it has been collected.
+   */
+  public MemoryFootprint getMemoryFootprint() {
+    SuccinctDom succinctDom = dom.get();
+    return (succinctDom != null) ? succinctDom.getMemoryFootprint() : null;
+  }
+
+  @Override
+  public long getNodeCount() {
+    MemoryFootprint footprint = getMemoryFootprint();
+    return (footprint != null) ? footprint.getNodeCount() : 0;
+  }
+
+  @Override
+  public long getElementCount() {
+    MemoryFootprint footprint = getMemoryFootprint();
+    return (footprint != null) ? footprint.getElementCount() : 0;
+  }
+
+  @Override
+  public long getTextCount() {
+    MemoryFootprint footprint = getMemoryFootprint();
+    return (footprint != null) ? footprint.getTextCount() : 0;
+  }
+
+  @Override
+  public long getAttributeCount() {
+    MemoryFootprint footprint = getMemoryFootprint();
+    return (footprint != null) ? footprint.getAttributeCount() : 0;
+  }
+
+  @Override
+  public long getElementNameCount() {
+    MemoryFootprint footprint = getMemoryFootprint();
+    return (footprint != null) ? footprint.getElementNameCount() : 0;
+  }
+
+  @Override
+  public long getAttributeNameCount() {
+    MemoryFootprint footprint = getMemoryFootprint();
+    return (footprint != null) ? footprint.getAttributeNameCount() : 0;
+  }
+
+  @Override
+  public long getTotalSize() {
+    MemoryFootprint footprint = getMemoryFootprint();
+    return (footprint != null) ? footprint.getTotalSize() : 0;
+  }
+
+  @Override
+  public double getBitsPerNode() {
+    MemoryFootprint footprint = getMemoryFootprint();
+    return (footprint != null) ? footprint.getBitsPerNode() : 0;
+  }
+
+  @Override
+  public Map<String, Long> getStructureSizes() {
+    MemoryFootprint footprint = getMemoryFootprint();
+    return (footprint != null) ? footprint.getStructureSizes()
+        : Collections.<String, Long>emptyMap();
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import org.w3c.dom.Document;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A binary snapshot of the succinct DOM. The snapshot holds the primary succinct data structures
+ * (the bit strings and the stores) so that the DOM can be loaded without parsing the XML again.
+ * The auxiliary rank/select structures are rebuilt on loading.
+ * <p>
+ * The snapshot starts with the header that consists of the magic number and the format version.
+ * A snapshot of an unknown version is rejected. The header is followed by the number of the
+ * segments of the document and the structures of every segment.
+ *
+ * @author Yauheni Shahun
+ */
+public final class SuccinctDomSnapshot {
+
+  /**
+   * The magic number of the snapshot ("SDOM").
+   */
+  static final int MAGIC = 0x53444F4D;
+  /**
+   * The version of the snapshot format.
+   */
+  static final int VERSION = 4;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private SuccinctDomSnapshot() {
+  }
+
+  /**
+   * Writes the succinct document to the output stream. The stream isn't closed.
+   *
+   * @param document the succinct {@link Document}
+   * @param out the output stream
+   * @throws IllegalArgumentException if the document isn't succinct
+   * @throws IOException if the output fails
+   */
+  public static void write(Document document, OutputStream out) throws IOException {
+    SuccinctDom dom = getDom(document);
+    DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+    dataOut.writeInt(MAGIC);
+    dataOut.writeInt(VERSION);
+    int segmentCount = dom.getSegmentCount();
+    dataOut.writeInt(segmentCount);
+    for (int i = 0; i < segmentCount; i++) {
+      dom.getSegment(i).writeTo(dataOut);
+    }
+    dataOut.flush();
+  }
+
+  /**
+   * Writes the succinct document to the file.
+   *
+   * @param document the succinct {@link Document}
+   * @param file the snapshot file
+   * @throws IllegalArgumentException if the document isn't succinct
+   * @throws IOException if the output fails
+   */
+  public static void write(Document document, File file) throws IOException {
+    try (OutputStream out = new FileOutputStream(file)) {
+      write(document, out);
+    }
+  }
+
+  /**
+   * Reads the succinct document from the input stream. The stream isn't closed.
+   *
+   * @param in the input stream
+   * @return the succinct {@link Document}
+   * @throws IOException if the input fails or the snapshot is corrupted or of unknown version
+   */
+  public static Document read(InputStream in) throws IOException {
+    DataInputStream dataIn = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+    readHeader(dataIn);
+    return readSegments(dataIn).getDocument();
+  }
+
+  /**
+   * Reads the succinct document from the file.
+   *
+   * @param file the snapshot file
+   * @return the succinct {@link Document}
+   * @throws IOException if the input fails or the snapshot is corrupted or of unknown version
+   */
+  public static Document read(File file) throws IOException {
+    try (InputStream in = new FileInputStream(file)) {
+      return read(in);
+    }
+  }
+
+  /**
+   * Maps the snapshot file into the memory and loads the succinct document from it. The text
+   * content and its offsets aren't copied to the heap but read from the mapped regions directly,
+   * so they are paged in lazily and shared via the page cache among the processes that map the
+   * same file. The bit strings and the name stores are still read to the heap as the rank/select
+   * structures are built upon them.
+   * <p>
+   * The file must not be modified while the document is in use.
+   *
+   * @param file the snapshot file
+   * @return the succinct {@link Document}
+   * @throws IOException if the input fails or the snapshot is corrupted or of unknown version
+   */
+  public static Document map(File file) throws IOException {
+    try (FileInputStream in = new FileInputStream(file)) {
+      MappedSnapshotInput dataIn = new MappedSnapshotInput(in);
+      readHeader(dataIn);
+      return readSegments(dataIn).getDocument();
+    }
+  }
+
+  /**
+   * Reads and checks the snapshot header.
+   *
+   * @throws IOException if the header is unknown
+   */
+  private static void readHeader(DataInput in) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a succinct DOM snapshot.");
+    }
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported snapshot version: " + version);
+    }
+  }
+
+  /**
+   * Reads the segments of the document and joins them.
+   *
+   * @throws IOException if the number of the segments isn't valid
+   */
+  private static SuccinctDom readSegments(DataInput in) throws IOException {
+    int segmentCount = in.readInt();
+    if (segmentCount <= 0) {
+      throw new IOException("Invalid number of segments: " + segmentCount);
+    }
+    SuccinctDom[] segments = new SuccinctDom[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = SuccinctDom.readFrom(in);
+    }
+    return SuccinctDom.join(segments);
+  }
+
+  /**
+   * Gets the succinct DOM that the document belongs to.
+   *
+   * @throws IllegalArgumentException if the document isn't succinct
+   */
+  static SuccinctDom getDom(Document document) {
+    if (document instanceof DocumentImpl) {
+      return ((DocumentImpl) document).dom;
+    }
+    throw new IllegalArgumentException("Not a succinct document.");
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import ys.succinct.util.BitVector;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A posting index of the elements by their names. For every unique local name of the
+ * {@link ElementStore} the index keeps the sorted positions of the elements in the balanced
+ * parentheses. So the elements of the given name are found in the whole document in O(result),
+ * and in the subtree of a node by the binary search within its {@code [open, close]} range.
+ * <p>
+ * The posting lists are concatenated into a single array in the order of the name codes.
+ *
+ * @author Yauheni Shahun
+ */
+final class TagIndex {
+
+  /**
+   * The start offsets of the posting lists in {@link #positions} by the name codes, the last
+   * value is the total number of the positions.
+   */
+  private final int[] starts;
+  private final int[] positions;
+  private final Map<String, Integer> nameCodes;
+
+  private TagIndex(int[] starts, int[] positions, Map<String, Integer> nameCodes) {
+    this.starts = starts;
+    this.positions = positions;
+    this.nameCodes = nameCodes;
+  }
+
+  /**
+   * Builds the index in two passes: the first one counts the elements of every name, and the
+   * second one walks the parentheses and puts the positions of the elements in place.
+   *
+   * @param elementStore the store of the non-text nodes
+   * @param storeSize the number of the nodes in the element store
+   * @param parenthesisVector the rank/select structure of the balanced parentheses
+   * @param parenthesisCount the number of the parentheses
+   * @param nodeVector the rank/select structure of the node bit string
+   * @return the index instance
+   */
+  static TagIndex build(ElementStore elementStore, int storeSize, BitVector parenthesisVector,
+      int parenthesisCount, BitVector nodeVector) {
+    int codeLimit = elementStore.getNameCodeLimit(storeSize);
+    int[] starts = new int[codeLimit + 1];
+    for (int i = 0; i < storeSize; i++) {
+      int code = elementStore.getElementNameCode(i);
+      if (code != -1) {
+        starts[code + 1]++;
+      }
+    }
+    for (int code = 0; code < codeLimit; code++) {
+      starts[code + 1] += starts[code];
+    }
+
+    int[] positions = new int[starts[codeLimit]];
+    int[] offsets = new int[codeLimit];
+    System.arraycopy(starts, 0, offsets, 0, codeLimit);
+    int nodeIndex = -1;
+    int elementIndex = -1;
+    for (int i = 0; i < parenthesisCount; i++) {
+      if (!parenthesisVector.get(i)) {
+        continue;
+      }
+      nodeIndex++;
+      if (!nodeVector.get(nodeIndex)) {
+        continue; // It's a text node.
+      }
+      elementIndex++;
+      int code = elementStore.getElementNameCode(elementIndex);
+      if (code != -1) {
+        positions[offsets[code]++] = i;
+      }
+    }
+
+    Map<String, Integer> nameCodes = new HashMap<>();
+    for (int code = 0; code < codeLimit; code++) {
+      if (starts[code + 1] > starts[code]) {
+        nameCodes.put(elementStore.getNameByCode(code), code);
+      }
+    }
+    return new TagIndex(starts, positions, nameCodes);
+  }
+
+  /**
+   * Finds the code of the element name.
+   *
+   * @param name the local name of the element
+   * @return the code or {@code -1} if no element has such name
+   */
+  int findNameCode(String name) {
+    Integer code = nameCodes.get(name);
+    return (code != null) ? code : -1;
+  }
+
+  /**
+   * Returns the positions of all the posting lists. The posting list of the name spans from
+   * {@link #find(int, int) find(code, 0)} to {@code find(code, Integer.MAX_VALUE)}.
+   */
+  int[] getPositions() {
+    return positions;
+  }
+
+  /**
+   * Finds the first element of the given name whose position isn't less than the given one.
+   *
+   * @param nameCode the code of the element name
+   * @param position the position in the balanced parentheses
+   * @return the index of the element in the {@link #getPositions() positions}, it's the end of
+   *         the posting list if there is no such element
+   */
+  int find(int nameCode, int position) {
+    int low = starts[nameCode];
+    int high = starts[nameCode + 1];
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (positions[middle] < position) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
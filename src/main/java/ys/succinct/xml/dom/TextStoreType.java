@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+/**
+ * The types of the {@link OffsetStore} that keeps the text content of the succinct DOM i.e. the
+ * values of the text nodes and attributes.
+ *
+ * @author Yauheni Shahun
+ */
+public enum TextStoreType {
+
+  /**
+   * The content is kept in the single character array on the heap.
+   *
+   * @see ArrayOffsetStore
+   */
+  ARRAY {
+    @Override
+    public OffsetStore.Builder newBuilder() {
+      return new ArrayOffsetStore.Builder();
+    }
+
+    @Override
+    public OffsetStore.Builder newBuilder(long expectedLength) {
+      return new ArrayOffsetStore.Builder(expectedLength);
+    }
+  },
+  /**
+   * The content is kept in the chunks of the direct (off-heap) memory.
+   *
+   * @see DirectOffsetStore
+   */
+  DIRECT {
+    @Override
+    public OffsetStore.Builder newBuilder() {
+      return new DirectOffsetStore.Builder();
+    }
+
+    @Override
+    public OffsetStore.Builder newBuilder(long expectedLength) {
+      return new DirectOffsetStore.Builder(expectedLength);
+    }
+  },
+  /**
+   * The content is kept encoded in UTF-8 on the heap. It takes about a half of the memory of
+   * {@link #ARRAY} for the mostly ASCII content at the cost of decoding on access.
+   *
+   * @see Utf8OffsetStore
+   */
+  UTF8 {
+    @Override
+    public OffsetStore.Builder newBuilder() {
+      return new Utf8OffsetStore.Builder();
+    }
+
+    @Override
+    public OffsetStore.Builder newBuilder(long expectedLength) {
+      return new Utf8OffsetStore.Builder(expectedLength);
+    }
+  },
+  /**
+   * The content is kept compressed in the blocks on the heap. The blocks are decompressed on
+   * demand and cached. The type suits the rarely queried documents.
+   *
+   * @see CompressedOffsetStore
+   */
+  COMPRESSED {
+    @Override
+    public OffsetStore.Builder newBuilder() {
+      return new CompressedOffsetStore.Builder();
+    }
+  };
+
+  /**
+   * Creates a builder of the store of this type.
+   */
+  public abstract OffsetStore.Builder newBuilder();
+
+  /**
+   * Creates a builder of the store of this type that is sized for the expected length of the
+   * content. The types that can't benefit from the length ignore it.
+   *
+   * @param expectedLength the expected length of the content
+   */
+  public OffsetStore.Builder newBuilder(long expectedLength) {
+    return newBuilder();
+  }
+}
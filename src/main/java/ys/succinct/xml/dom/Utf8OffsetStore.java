@@ -0,0 +1,309 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.dom;
+
+import ys.succinct.xml.parser.NodeLimitException;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An {@link OffsetStore} that keeps the content encoded in UTF-8 to take 1 byte per the ASCII
+ * character instead of 2 bytes of Java {@code char}. Each UTF-16 unit is encoded separately (the
+ * surrogates take 3 bytes each) so that the content is still addressed in the characters.
+ * <p>
+ * To locate the character in the byte array the store samples the byte offset of every
+ * {@code 2^SAMPLE_BITS}-th character and decodes the remaining characters sequentially. If the
+ * entire content is ASCII, the byte offsets are equal to the character offsets and no samples are
+ * kept.
+ * <p>
+ * The encoded content is kept in a single byte array and thus is limited to 2 GB. The builder
+ * throws {@link NodeLimitException} if the limit is exceeded.
+ *
+ * @author Yauheni Shahun
+ */
+public class Utf8OffsetStore implements OffsetStore {
+
+  /**
+   * The number of bits that defines the sampling rate of the byte offsets.
+   */
+  static final int SAMPLE_BITS = 6;
+  private static final int SAMPLE_MASK = (1 << SAMPLE_BITS) - 1;
+  /**
+   * The number of bits that defines the size of the chunks of the builder.
+   */
+  static final int CHUNK_BITS = 24;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+  private final byte[] content;
+  /**
+   * The byte offsets of the sampled characters, or {@code null} if the content is ASCII.
+   */
+  private final int[] samples;
+
+  /**
+   * Constructs a store.
+   *
+   * @param content the entire content encoded into the byte array
+   * @param samples the byte offsets of the sampled characters, or {@code null} if the content is
+   *        ASCII
+   */
+  private Utf8OffsetStore(byte[] content, int[] samples) {
+    this.content = content;
+    this.samples = samples;
+  }
+
+  @Override
+  public String getString(long startIndex, long endIndex /* exclusive */) {
+    if (startIndex == endIndex) {
+      return ""; // The index may point to the end of the content.
+    }
+    // The offsets fit into int as the builder doesn't exceed the capacity of the byte array.
+    int start = (int) startIndex;
+    int length = (int) (endIndex - startIndex);
+    if (samples == null) {
+      return new String(content, start, length, StandardCharsets.ISO_8859_1);
+    }
+
+    int position = samples[start >>> SAMPLE_BITS];
+    for (int i = start & SAMPLE_MASK; i > 0; i--) {
+      position += getByteCount(content[position]);
+    }
+
+    char[] chars = new char[length];
+    for (int i = 0; i < chars.length; i++) {
+      int b = content[position++];
+      if (b >= 0) {
+        chars[i] = (char) b;
+      } else if ((b & 0xE0) == 0xC0) {
+        chars[i] = (char) (((b & 0x1F) << 6) | (content[position++] & 0x3F));
+      } else {
+        chars[i] = (char) (((b & 0x0F) << 12) | ((content[position++] & 0x3F) << 6)
+            | (content[position++] & 0x3F));
+      }
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Returns the number of bytes of the encoded character by its first byte.
+   */
+  private static int getByteCount(byte b) {
+    if (b >= 0) {
+      return 1;
+    }
+    return ((b & 0xE0) == 0xC0) ? 2 : 3;
+  }
+
+  /**
+   * Writes the store to the snapshot.
+   *
+   * @param out the snapshot output
+   */
+  void writeTo(DataOutput out) throws IOException {
+    out.writeInt(content.length);
+    out.write(content);
+    out.writeBoolean(samples != null);
+    if (samples != null) {
+      SnapshotIO.writeInts(out, samples);
+    }
+  }
+
+  /**
+   * Reads the store from the snapshot.
+   *
+   * @param in the snapshot input
+   * @return the {@link Utf8OffsetStore} instance
+   */
+  static Utf8OffsetStore readFrom(DataInput in) throws IOException {
+    byte[] content = new byte[SnapshotIO.readLength(in)];
+    in.readFully(content);
+    int[] samples = in.readBoolean() ? SnapshotIO.readInts(in) : null;
+    return new Utf8OffsetStore(content, samples);
+  }
+
+  /**
+   * A builder that helps to construct a {@link Utf8OffsetStore}.
+   * <p>
+   * The builder collects the encoded content in the chunks, so the content isn't copied on
+   * growth. The chunks are assembled into the byte array of the store once it's built.
+   */
+  public static class Builder implements OffsetStore.Builder {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    /**
+     * The maximum number of bytes of the encoded content, i.e. the capacity of the byte array.
+     */
+    private static final int MAX_BYTE_COUNT = Integer.MAX_VALUE - 8;
+
+    private final List<byte[]> chunks = new ArrayList<>();
+    /**
+     * The expected length of the content in characters or {@code -1} if it's unknown.
+     */
+    private final long expectedLength;
+    /**
+     * The chunk that is being filled. It grows until it reaches the chunk size.
+     */
+    private byte[] chunk;
+    private int chunkLength;
+    private int byteCount;
+    private int[] samples;
+    private int charCount;
+    private boolean isAscii = true;
+
+    /**
+     * Constructs a builder.
+     */
+    public Builder() {
+      this.expectedLength = -1;
+      this.chunk = new byte[INITIAL_CAPACITY];
+      this.samples = new int[16];
+    }
+
+    /**
+     * Constructs a builder that allocates the chunks for the expected length of the content. If
+     * the content is ASCII and has the expected length, the chunks are neither grown nor copied.
+     * Otherwise, the builder grows the chunks as usual.
+     *
+     * @param expectedLength the expected length of the content in characters
+     */
+    public Builder(long expectedLength) {
+      if (expectedLength < 0) {
+        throw new IllegalArgumentException("Length must be non-negative: " + expectedLength);
+      }
+      this.expectedLength = expectedLength;
+      this.chunk = new byte[getNewChunkSize()];
+      this.samples = new int[16];
+    }
+
+    @Override
+    public long addChars(char[] chars, int start, int length) {
+      int offset = charCount;
+      int end = start + length;
+      for (int i = start; i < end; i++) {
+        addChar(chars[i]);
+      }
+      return offset;
+    }
+
+    @Override
+    public long addString(String s) {
+      int offset = charCount;
+      for (int i = 0; i < s.length(); i++) {
+        addChar(s.charAt(i));
+      }
+      return offset;
+    }
+
+    @Override
+    public Utf8OffsetStore build() {
+      byte[] content;
+      if (chunks.isEmpty() && chunkLength == chunk.length) {
+        content = chunk; // The chunk has been sized exactly.
+      } else {
+        content = new byte[byteCount];
+        int copied = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+          byte[] completed = chunks.get(i);
+          System.arraycopy(completed, 0, content, copied, completed.length);
+          copied += completed.length;
+          chunks.set(i, null); // Release the chunk as soon as possible.
+        }
+        System.arraycopy(chunk, 0, content, copied, chunkLength);
+      }
+      chunks.clear();
+      chunk = null;
+      return new Utf8OffsetStore(content,
+          isAscii ? null : Arrays.copyOf(samples, (charCount + SAMPLE_MASK) >>> SAMPLE_BITS));
+    }
+
+    /**
+     * Encodes the character.
+     */
+    private void addChar(char c) {
+      if ((charCount & SAMPLE_MASK) == 0) {
+        int sampleIndex = charCount >>> SAMPLE_BITS;
+        if (sampleIndex == samples.length) {
+          samples = Arrays.copyOf(samples, samples.length * 2);
+        }
+        samples[sampleIndex] = byteCount;
+      }
+      charCount++;
+
+      if (c < 0x80) {
+        addByte(c);
+      } else if (c < 0x800) {
+        addByte(0xC0 | (c >> 6));
+        addByte(0x80 | (c & 0x3F));
+        isAscii = false;
+      } else {
+        addByte(0xE0 | (c >> 12));
+        addByte(0x80 | ((c >> 6) & 0x3F));
+        addByte(0x80 | (c & 0x3F));
+        isAscii = false;
+      }
+    }
+
+    private void addByte(int b) {
+      if (chunkLength == chunk.length) {
+        ensureChunk();
+      }
+      chunk[chunkLength++] = (byte) b;
+      byteCount++;
+    }
+
+    /**
+     * Makes room for the next byte in the full chunk. The chunk is grown if it's smaller than the
+     * chunk size, otherwise the new chunk is started.
+     *
+     * @throws NodeLimitException if the capacity of the byte array is exceeded
+     */
+    private void ensureChunk() {
+      if (byteCount == MAX_BYTE_COUNT) {
+        throw new NodeLimitException(
+            "Length of the text exceeds the limit of the UTF-8 store (2 GB).");
+      }
+      if (chunk.length < CHUNK_SIZE) {
+        long capacity = Math.min(Math.max(chunk.length * 2L, INITIAL_CAPACITY), CHUNK_SIZE);
+        // The chunk already holds its bytes, so only the rest of the capacity is added.
+        chunk = Arrays.copyOf(
+            chunk, (int) Math.min(capacity, (long) chunkLength + MAX_BYTE_COUNT - byteCount));
+      } else {
+        chunks.add(chunk);
+        chunk = new byte[getNewChunkSize()];
+        chunkLength = 0;
+      }
+    }
+
+    /**
+     * Returns the size of the chunk to start with. The chunk fits the rest of the expected content
+     * if it's known.
+     */
+    private int getNewChunkSize() {
+      long size = INITIAL_CAPACITY;
+      if (expectedLength > byteCount) {
+        size = Math.min(expectedLength - byteCount, CHUNK_SIZE);
+      }
+      return (int) Math.min(size, MAX_BYTE_COUNT - byteCount);
+    }
+  }
+}
@@ -18,6 +18,11 @@ package ys.succinct.xml.dom;
 
 import ys.succinct.util.IntBitSet;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 /**
  * An ordered store for the XML text content (node values).
  *
@@ -25,34 +30,55 @@ import ys.succinct.util.IntBitSet;
  */
 public class ValueStore implements OrderedStore {
 
-  private final int[] offsets;
+  /**
+   * The snapshot tag of the {@link ArrayOffsetStore}.
+   */
+  private static final byte ARRAY_OFFSET_STORE = 1;
+  /**
+   * The snapshot tag of the {@link Utf8OffsetStore}.
+   */
+  private static final byte UTF8_OFFSET_STORE = 2;
+  /**
+   * The snapshot tag of the {@link CompressedOffsetStore}.
+   */
+  private static final byte COMPRESSED_OFFSET_STORE = 3;
+  /**
+   * The snapshot tag of the {@link IntOffsetArray}.
+   */
+  private static final byte INT_OFFSET_ARRAY = 1;
+  /**
+   * The snapshot tag of the {@link EliasFanoOffsetArray}.
+   */
+  private static final byte ELIAS_FANO_OFFSET_ARRAY = 2;
+
+  private final OffsetArray offsets;
   private final OffsetStore textStore;
 
   /**
    * Constructs a store.
    *
-   * @param offsets the array of the offset values
+   * @param offsets the offset values
    * @param textStore the underlying {@link OffsetStore} that the offset values match to
    */
-  private ValueStore(int[] offsets, OffsetStore textStore) {
+  private ValueStore(OffsetArray offsets, OffsetStore textStore) {
     this.offsets = offsets;
     this.textStore = textStore;
   }
 
   @Override
   public String getString(int index) {
-    return textStore.getString(offsets[index], offsets[index + 1]);
+    return textStore.getString(offsets.get(index), offsets.get(index + 1));
   }
 
   @Override
   public int getLength(int index) {
-    return offsets[index + 1] - offsets[index];
+    return (int) (offsets.get(index + 1) - offsets.get(index));
   }
 
   @Override
   public String getSubstring(int index, int offset, int count) {
-    int startIndex = offsets[index] + offset;
-    int endIndex = offsets[index + 1]; // exclusive
+    long startIndex = offsets.get(index) + offset;
+    long endIndex = offsets.get(index + 1); // exclusive
     if (startIndex >= endIndex) {
       return null;
     } else {
@@ -60,14 +86,177 @@ public class ValueStore implements OrderedStore {
     }
   }
 
+  /**
+   * Estimates the sizes of the offsets and the content of the store.
+   *
+   * @param builder the builder of the footprint
+   * @param name the name of the store in the footprint
+   */
+  void estimate(MemoryFootprint.Builder builder, String name) {
+    builder.add(name + ".offsets", offsets).add(name + ".content", textStore);
+  }
+
+  /**
+   * Writes the store to the snapshot.
+   *
+   * @param out the snapshot output
+   * @throws IOException if the underlying {@link OffsetStore} can't be written
+   */
+  void writeTo(DataOutput out) throws IOException {
+    if (offsets instanceof EliasFanoOffsetArray) {
+      out.writeByte(ELIAS_FANO_OFFSET_ARRAY);
+      ((EliasFanoOffsetArray) offsets).writeTo(out);
+    } else {
+      out.writeByte(INT_OFFSET_ARRAY);
+      SnapshotIO.writeInts(out, offsets);
+    }
+    if (textStore instanceof ChunkedOffsetStore) {
+      // The chunks aren't kept in the snapshot, so all the chunked stores share the same format.
+      out.writeByte(ARRAY_OFFSET_STORE);
+      ((ChunkedOffsetStore) textStore).writeTo(out);
+    } else if (textStore instanceof Utf8OffsetStore) {
+      out.writeByte(UTF8_OFFSET_STORE);
+      ((Utf8OffsetStore) textStore).writeTo(out);
+    } else if (textStore instanceof CompressedOffsetStore) {
+      out.writeByte(COMPRESSED_OFFSET_STORE);
+      ((CompressedOffsetStore) textStore).writeTo(out);
+    } else {
+      throw new IOException("Unsupported offset store: " + textStore.getClass().getName());
+    }
+  }
+
+  /**
+   * Reads the store from the snapshot. If the snapshot is memory-mapped, the offsets and the
+   * content aren't copied to the heap but read from the mapped regions directly.
+   *
+   * @param in the snapshot input
+   * @return the {@link ValueStore} instance
+   */
+  static ValueStore readFrom(DataInput in) throws IOException {
+    if (in instanceof MappedSnapshotInput) {
+      return mapFrom((MappedSnapshotInput) in);
+    }
+    OffsetArray offsets;
+    byte offsetTag = in.readByte();
+    switch (offsetTag) {
+      case INT_OFFSET_ARRAY:
+        offsets = new IntOffsetArray(SnapshotIO.readInts(in), SnapshotIO.readInts(in));
+        break;
+      case ELIAS_FANO_OFFSET_ARRAY:
+        offsets = EliasFanoOffsetArray.readFrom(in);
+        break;
+      default:
+        throw new IOException("Snapshot is corrupted: unknown offset array " + offsetTag);
+    }
+    byte tag = in.readByte();
+    switch (tag) {
+      case ARRAY_OFFSET_STORE:
+        return new ValueStore(offsets, ArrayOffsetStore.readFrom(in));
+      case UTF8_OFFSET_STORE:
+        return new ValueStore(offsets, Utf8OffsetStore.readFrom(in));
+      case COMPRESSED_OFFSET_STORE:
+        return new ValueStore(offsets, CompressedOffsetStore.readFrom(in));
+      default:
+        throw new IOException("Snapshot is corrupted: unknown offset store " + tag);
+    }
+  }
+
+  /**
+   * Maps the store from the memory-mapped snapshot.
+   */
+  private static ValueStore mapFrom(MappedSnapshotInput in) throws IOException {
+    OffsetArray offsets;
+    byte offsetTag = in.readByte();
+    switch (offsetTag) {
+      case INT_OFFSET_ARRAY:
+        int offsetCount = SnapshotIO.readLength(in);
+        ByteBuffer[] offsetChunks = in.map(offsetCount * 4L, MappedOffsetArray.CHUNK_BITS + 2);
+        offsets = new MappedOffsetArray(offsetChunks, offsetCount, SnapshotIO.readInts(in));
+        break;
+      case ELIAS_FANO_OFFSET_ARRAY:
+        // The encoded offsets are compact enough to be read to the heap.
+        offsets = EliasFanoOffsetArray.readFrom(in);
+        break;
+      default:
+        throw new IOException("Snapshot is corrupted: unknown offset array " + offsetTag);
+    }
+    byte tag = in.readByte();
+    switch (tag) {
+      case ARRAY_OFFSET_STORE:
+        long length = SnapshotIO.readLongLength(in);
+        ByteBuffer[] chunks = in.map(length * 2L, MappedOffsetStore.CHUNK_BITS + 1);
+        return new ValueStore(offsets, new MappedOffsetStore(chunks, length));
+      case UTF8_OFFSET_STORE:
+        // The encoded content is compact enough to be read to the heap.
+        return new ValueStore(offsets, Utf8OffsetStore.readFrom(in));
+      case COMPRESSED_OFFSET_STORE:
+        return new ValueStore(offsets, CompressedOffsetStore.readFrom(in));
+      default:
+        throw new IOException("Snapshot is corrupted: unknown offset store " + tag);
+    }
+  }
+
   /**
    * A builder that helps to construct a {@link ValueStore}.
    */
   public static class Builder {
 
-    private ArrayOffsetStore.Builder textBuilder = new ArrayOffsetStore.Builder();
-    private IntBitSet offsets = new IntBitSet();
+    private final OffsetStore.Builder textBuilder;
+    private final boolean isCompactOffsets;
+    /**
+     * The lower 32 bits of the offsets.
+     */
+    private IntArrayBuffer offsets;
     private int valueCount;
+    /**
+     * The indexes where the upper 32 bits of the offsets are incremented.
+     */
+    private IntBitSet wraps = new IntBitSet();
+    private int wrapCount;
+    private long lastOffset;
+
+    /**
+     * Constructs a builder that keeps the content in the {@link ArrayOffsetStore}.
+     */
+    public Builder() {
+      this(new ArrayOffsetStore.Builder());
+    }
+
+    /**
+     * Constructs a builder that keeps the content in the given {@link OffsetStore}.
+     *
+     * @param textBuilder the builder of the underlying {@link OffsetStore}
+     */
+    public Builder(OffsetStore.Builder textBuilder) {
+      this(textBuilder, false);
+    }
+
+    /**
+     * Constructs a builder that keeps the content in the given {@link OffsetStore}.
+     *
+     * @param textBuilder the builder of the underlying {@link OffsetStore}
+     * @param isCompactOffsets whether the offsets are Elias-Fano encoded, which takes a few bits
+     *        per value instead of 32 bits at the cost of the slower access
+     */
+    public Builder(OffsetStore.Builder textBuilder, boolean isCompactOffsets) {
+      this.textBuilder = textBuilder;
+      this.isCompactOffsets = isCompactOffsets;
+      this.offsets = new IntArrayBuffer();
+    }
+
+    /**
+     * Constructs a builder that is sized for the expected number of the values.
+     *
+     * @param textBuilder the builder of the underlying {@link OffsetStore}
+     * @param isCompactOffsets whether the offsets are Elias-Fano encoded
+     * @param valueCount the expected number of the values
+     */
+    public Builder(OffsetStore.Builder textBuilder, boolean isCompactOffsets, int valueCount) {
+      this.textBuilder = textBuilder;
+      this.isCompactOffsets = isCompactOffsets;
+      // Reserve the room for the virtual value that tracks the total offset.
+      this.offsets = new IntArrayBuffer(valueCount + 1);
+    }
 
     /**
      * Adds the content value to the store.
@@ -77,8 +266,7 @@ public class ValueStore implements OrderedStore {
      * @param length the length of the value
      */
     public void addValue(char[] chars, int start, int length) {
-      int offset = textBuilder.addChars(chars, start, length);
-      offsets.setInt(valueCount++, offset);
+      addOffset(textBuilder.addChars(chars, start, length));
     }
 
     /**
@@ -87,8 +275,37 @@ public class ValueStore implements OrderedStore {
      * @param value the value
      */
     public void addValue(String value) {
-      int offset = textBuilder.addString(value);
-      offsets.setInt(valueCount++, offset);
+      addOffset(textBuilder.addString(value));
+    }
+
+    /**
+     * Appends the values of the other store to this builder.
+     *
+     * @param values the store to append
+     */
+    public void append(ValueStore values) {
+      int count = values.offsets.size() - 1; // Skip the virtual value.
+      if (values.textStore instanceof ChunkedOffsetStore) {
+        // Copy the content in bulk and shift the offsets.
+        long startOffset = textBuilder.addString("");
+        ((ChunkedOffsetStore) values.textStore).appendTo(textBuilder);
+        for (int i = 0; i < count; i++) {
+          addOffset(startOffset + values.offsets.get(i));
+        }
+      } else {
+        for (int i = 0; i < count; i++) {
+          addValue(values.getString(i));
+        }
+      }
+    }
+
+    /**
+     * Estimates the size of the collected values in bytes from the allocated offsets and the
+     * offset of the last value. The content is counted as 2 bytes per offset unit, i.e. exactly
+     * for the char based stores and as the upper bound for the byte based ones.
+     */
+    public long estimateSize() {
+      return offsets.getAllocatedSize() + lastOffset * 2;
     }
 
     /**
@@ -98,8 +315,21 @@ public class ValueStore implements OrderedStore {
      */
     public ValueStore build() {
       // Add the virtual value to track the total offset to avoid the range check in the get calls.
-      offsets.setInt(valueCount++, textBuilder.addString(""));
-      return new ValueStore(offsets.toIntArray(valueCount * 32), textBuilder.build());
+      addOffset(textBuilder.addString(""));
+      OffsetArray offsetArray = new IntOffsetArray(
+          offsets.toIntArray(valueCount), wraps.toIntArray(wrapCount * 32));
+      if (isCompactOffsets) {
+        offsetArray = EliasFanoOffsetArray.encode(offsetArray);
+      }
+      return new ValueStore(offsetArray, textBuilder.build());
+    }
+
+    private void addOffset(long offset) {
+      if ((offset >>> 32) != (lastOffset >>> 32)) {
+        wraps.setInt(wrapCount++, valueCount);
+      }
+      lastOffset = offset;
+      offsets.setInt(valueCount++, (int) offset);
     }
   }
 }
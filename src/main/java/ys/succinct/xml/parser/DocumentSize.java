@@ -0,0 +1,156 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.parser;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The sizes of the succinct DOM structures that are counted by the pre-scan of the XML input. The
+ * sizes let {@link SuccinctDomReader} allocate the structures once at their final size.
+ * <p>
+ * The counting mirrors the way {@link SuccinctDomReader} lays out the nodes.
+ *
+ * @author Yauheni Shahun
+ */
+final class DocumentSize {
+
+  /**
+   * The number of the parentheses.
+   */
+  long parenthesisCount;
+  /**
+   * The number of the DOM nodes (including the text nodes).
+   */
+  long nodeCount;
+  /**
+   * The number of bits in the attribute bit string.
+   */
+  long attributeBitCount;
+  /**
+   * The number of the nodes other than the text nodes.
+   */
+  long elementCount;
+  /**
+   * The number of the text nodes.
+   */
+  long textCount;
+  /**
+   * The total length of the text nodes.
+   */
+  long textLength;
+  /**
+   * The number of the attributes (including the pseudo-attributes).
+   */
+  long attributeCount;
+  /**
+   * The total length of the attribute values.
+   */
+  long attributeLength;
+
+  private DocumentSize() {
+  }
+
+  /**
+   * Scans the XML input to the end and counts the sizes.
+   *
+   * @param reader the XML stream reader that is positioned at the start of the document
+   * @return the {@link DocumentSize} instance
+   * @throws XMLStreamException if the underlying {@link XMLStreamReader} fails
+   */
+  static DocumentSize scan(XMLStreamReader reader) throws XMLStreamException {
+    DocumentSize size = new DocumentSize();
+    size.count(reader);
+    while (reader.hasNext()) {
+      reader.next();
+      size.count(reader);
+    }
+    return size;
+  }
+
+  private void count(XMLStreamReader reader) {
+    switch (reader.getEventType()) {
+      case XMLStreamConstants.START_DOCUMENT:
+        countNode(1, 0);
+        break;
+      case XMLStreamConstants.START_ELEMENT:
+        int count = reader.getAttributeCount();
+        for (int i = 0; i < count; i++) {
+          attributeLength += reader.getAttributeValue(i).length();
+        }
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+          attributeLength += length(reader.getNamespaceURI(i));
+        }
+        countNode(1, count + reader.getNamespaceCount());
+        break;
+      case XMLStreamConstants.END_ELEMENT:
+      case XMLStreamConstants.END_DOCUMENT:
+        parenthesisCount++; // Count the closed parenthesis.
+        break;
+      case XMLStreamConstants.CHARACTERS:
+        parenthesisCount += 2;
+        nodeCount++;
+        textCount++;
+        textLength += reader.getTextLength();
+        break;
+      case XMLStreamConstants.COMMENT:
+      case XMLStreamConstants.CDATA:
+        attributeLength += reader.getTextLength();
+        countNode(2, 1);
+        break;
+      case XMLStreamConstants.PROCESSING_INSTRUCTION:
+        attributeLength += length(reader.getPITarget()) + length(reader.getPIData());
+        countNode(2, 2);
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Counts the node that is kept in the element store.
+   *
+   * @param parenthesisCount the number of the parentheses that the event produces
+   * @param attributeCount the number of the attributes (including the pseudo-attributes)
+   */
+  private void countNode(int parenthesisCount, int attributeCount) {
+    this.parenthesisCount += parenthesisCount;
+    nodeCount++;
+    elementCount++;
+    this.attributeCount += attributeCount;
+    attributeBitCount += attributeCount + 1; // Count the attributes separator.
+  }
+
+  private static int length(String s) {
+    return (s == null) ? 0 : s.length();
+  }
+
+  /**
+   * Converts the counted size to the capacity of the array.
+   */
+  static int toCapacity(long size) {
+    return (int) Math.min(size, Integer.MAX_VALUE - 8);
+  }
+
+  /**
+   * Converts the counted number of bits to the capacity of the integer array.
+   */
+  static int toBitCapacity(long bitCount) {
+    return toCapacity((bitCount + 31) >>> 5);
+  }
+}
@@ -0,0 +1,500 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.parser;
+
+import org.w3c.dom.Node;
+
+import ys.succinct.xml.dom.DocumentContext;
+import ys.succinct.xml.dom.ElementStore;
+import ys.succinct.xml.dom.IntArrayBuffer;
+import ys.succinct.xml.dom.QNameStore;
+import ys.succinct.xml.dom.SuccinctDom;
+import ys.succinct.xml.dom.TextStoreType;
+import ys.succinct.xml.dom.ValueStore;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * A builder of the part of the succinct DOM that corresponds to a byte range of the XML input. The
+ * builder lays out the nodes the same way as {@link SuccinctDomReader} does in the non-namespace
+ * aware mode. The fragments are stitched by appending them to the builder of the first fragment in
+ * the document order.
+ * <p>
+ * As a fragment may start inside the elements that are opened by the previous fragments, the
+ * builder tracks the end tags that have no matching start tags in the fragment. They are matched
+ * against the elements that are left open on stitching.
+ *
+ * @author Yauheni Shahun
+ */
+final class FragmentBuilder {
+
+  /**
+   * The depth of the fragment that starts somewhere inside the root element. Any value greater
+   * than the maximum depth of the document fits.
+   */
+  static final int INNER_DEPTH = Integer.MAX_VALUE / 2;
+
+  private static final String NODE_LIMIT_MESSAGE = "Number of nodes exceeds the limit of the "
+      + "succinct DOM (2^31 - 1 parentheses, i.e. about 1.07 billion nodes).";
+
+  private final IntArrayBuffer parenthesisBits = new IntArrayBuffer();
+  private final IntArrayBuffer nodeBits = new IntArrayBuffer();
+  private final IntArrayBuffer attributeBits = new IntArrayBuffer();
+  private final ElementStore.Builder elementStoreBuilder = new ElementStore.Builder();
+  private final ValueStore.Builder textStoreBuilder;
+  private final QNameStore.Builder attributeNameStoreBuilder = new QNameStore.Builder();
+  private final ValueStore.Builder attributeValueStoreBuilder;
+
+  private int parenthesisCount;
+  private int nodeCount;
+  private int attributeCount;
+
+  /**
+   * The qualified names of the attributes that are indexed as the element IDs.
+   */
+  private final Set<String> idAttributeNames;
+  /**
+   * The positions of the ID attributes in the attribute bit string.
+   */
+  private final IntArrayBuffer idAttributeIndexes = new IntArrayBuffer();
+  private int idAttributeCount;
+
+  /**
+   * The names of the elements that are opened in the fragment but not closed yet.
+   */
+  private final Deque<String> openNames = new ArrayDeque<>();
+  /**
+   * The names of the end tags that close the elements opened before the fragment.
+   */
+  private final List<String> unmatchedNames = new ArrayList<>();
+  /**
+   * The names of the attributes of the current start tag to detect the duplicates.
+   */
+  private final List<NameTable.Name> attributeNames = new ArrayList<>();
+  private int attributeNameCount;
+  private int depth;
+  private boolean hasRoot;
+  /**
+   * The number of the parentheses or the attribute bits that a single segment of the succinct DOM
+   * holds. The native tokenizer doesn't segment the document, so it gives up past this size.
+   */
+  private final int segmentSize;
+
+  /**
+   * Constructs a builder of the fragment that is stitched into another one.
+   *
+   * @param depth the depth of the element that the fragment starts in, 0 for the document level
+   * @param hasRoot whether the root element precedes the fragment
+   * @param settings the settings of the succinct DOM construction
+   */
+  FragmentBuilder(int depth, boolean hasRoot, ReaderSettings settings) {
+    this(TextStoreType.ARRAY, false, depth, hasRoot, settings.getIdAttributeNames(),
+        settings.getSegmentSize());
+  }
+
+  /**
+   * Constructs a builder of the first fragment of the document that the other fragments are
+   * stitched into.
+   *
+   * @param settings the settings of the succinct DOM construction
+   */
+  FragmentBuilder(ReaderSettings settings) {
+    this(settings.getTextStoreType(), settings.isCompactOffsets(), 0, false,
+        settings.getIdAttributeNames(), settings.getSegmentSize());
+  }
+
+  private FragmentBuilder(TextStoreType textStoreType, boolean isCompactOffsets, int depth,
+      boolean hasRoot, Set<String> idAttributeNames, int segmentSize) {
+    this.textStoreBuilder = new ValueStore.Builder(textStoreType.newBuilder(), isCompactOffsets);
+    this.attributeValueStoreBuilder =
+        new ValueStore.Builder(textStoreType.newBuilder(), isCompactOffsets);
+    this.depth = depth;
+    this.hasRoot = hasRoot;
+    this.idAttributeNames = idAttributeNames;
+    this.segmentSize = segmentSize;
+  }
+
+  /**
+   * Returns the number of the nodes in the fragment.
+   */
+  int getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Estimates the size of the builders in bytes from their allocated buffers. It takes constant
+   * time, so the progress is checked in without walking the builders.
+   */
+  long estimateSize() {
+    return parenthesisBits.getAllocatedSize() + nodeBits.getAllocatedSize()
+        + attributeBits.getAllocatedSize() + elementStoreBuilder.estimateSize()
+        + textStoreBuilder.estimateSize() + attributeNameStoreBuilder.estimateSize()
+        + attributeValueStoreBuilder.estimateSize() + idAttributeIndexes.getAllocatedSize();
+  }
+
+  /**
+   * Checks that the fragment fits a single segment of the succinct DOM.
+   *
+   * @throws UnsupportedInputException if the number of the parentheses or the attribute bits
+   *         reaches the segment size, so the document must be segmented by the StAX reader
+   */
+  void checkSegmentSize() throws UnsupportedInputException {
+    if (parenthesisCount >= segmentSize || attributeCount >= segmentSize) {
+      throw new UnsupportedInputException("The document exceeds the segment size.");
+    }
+  }
+
+  /**
+   * Returns the depth of the current element, 0 for the document level.
+   */
+  int getDepth() {
+    return depth;
+  }
+
+  void startDocument() {
+    parenthesisBits.set(parenthesisCount); // Set the open parenthesis.
+    countParentheses(1);
+    nodeBits.set(nodeCount++); // Set the non-text node.
+    elementStoreBuilder.addNode(Node.DOCUMENT_NODE);
+    countAttributes(0); // No attributes.
+  }
+
+  /**
+   * Closes the document node.
+   *
+   * @throws XMLStreamException if the document has no root element or the root isn't closed
+   */
+  void endDocument() throws XMLStreamException {
+    if (!hasRoot) {
+      throw new XMLStreamException("The document has no root element.");
+    }
+    if (depth != 0) {
+      throw new XMLStreamException("The element isn't closed: " + openNames.peek());
+    }
+    countParentheses(1); // Count the closed parenthesis.
+  }
+
+  /**
+   * Opens the element. The attributes (if any) must be added next, and then the start tag must be
+   * ended by {@link #endStartTag(boolean)}.
+   *
+   * @param name the qualified name of the element
+   * @throws XMLStreamException if the element is a second root
+   */
+  void startElement(String name) throws XMLStreamException {
+    if (depth == 0) {
+      if (hasRoot) {
+        throw new XMLStreamException("The document has more than one root element: " + name);
+      }
+      hasRoot = true;
+    }
+    parenthesisBits.set(parenthesisCount); // Set the open parenthesis.
+    countParentheses(1);
+    nodeBits.set(nodeCount++); // Set the non-text node.
+    // The name isn't split into the prefix and the local part in the non-namespace aware mode.
+    elementStoreBuilder.addNode(null, null, name, Node.ELEMENT_NODE);
+    openNames.push(name);
+    depth++;
+  }
+
+  /**
+   * Adds the attribute of the current start tag.
+   *
+   * @param name the interned name of the attribute
+   * @param value the buffer that holds the normalized value
+   * @param start the start index of the value in the buffer
+   * @param length the length of the value
+   * @throws XMLStreamException if the attribute is a duplicate
+   */
+  void addAttribute(NameTable.Name name, char[] value, int start, int length)
+      throws XMLStreamException {
+    for (int i = 0; i < attributeNameCount; i++) {
+      // The names of a tag are interned by the same table.
+      if (attributeNames.get(i) == name) {
+        throw new XMLStreamException("Duplicate attribute: " + name.qualifiedName);
+      }
+    }
+    if (attributeNameCount == attributeNames.size()) {
+      attributeNames.add(name);
+    } else {
+      attributeNames.set(attributeNameCount, name);
+    }
+    if (idAttributeNames.contains(name.qualifiedName)) {
+      // The attributes of the element follow the current position in the attribute bit string.
+      idAttributeIndexes.setInt(idAttributeCount++, attributeCount + attributeNameCount);
+    }
+    attributeNameCount++;
+
+    attributeNameStoreBuilder.addName(name.namespaceUri, name.prefix, name.localName);
+    attributeValueStoreBuilder.addValue(value, start, length);
+  }
+
+  /**
+   * Ends the start tag of the current element.
+   *
+   * @param isEmpty whether the element is empty, i.e. it's closed by the start tag
+   */
+  void endStartTag(boolean isEmpty) {
+    countAttributes(attributeNameCount);
+    attributeNameCount = 0;
+    if (isEmpty) {
+      openNames.pop();
+      depth--;
+      countParentheses(1); // Count the closed parenthesis.
+    }
+  }
+
+  /**
+   * Closes the current element.
+   *
+   * @param name the qualified name in the end tag
+   * @throws XMLStreamException if the name doesn't match the open element
+   */
+  void endElement(String name) throws XMLStreamException {
+    if (depth == 0) {
+      throw new XMLStreamException("No element to close: " + name);
+    }
+    if (openNames.isEmpty()) {
+      unmatchedNames.add(name);
+    } else {
+      matchName(openNames.pop(), name);
+    }
+    depth--;
+    countParentheses(1); // Count the closed parenthesis.
+  }
+
+  /**
+   * Adds the text node. The whitespaces out of the root element are skipped.
+   *
+   * @throws XMLStreamException if the non-whitespace text is out of the root element
+   */
+  void addText(char[] chars, int start, int length) throws XMLStreamException {
+    if (depth == 0) {
+      for (int i = start; i < start + length; i++) {
+        char c = chars[i];
+        if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+          throw new XMLStreamException("Content is not allowed out of the root element.");
+        }
+      }
+      return;
+    }
+    parenthesisBits.set(parenthesisCount); // Set the open parenthesis.
+    countParentheses(2); // Count the open and closed parentheses.
+    nodeCount++; // Count the text node.
+    textStoreBuilder.addValue(chars, start, length);
+  }
+
+  void addComment(char[] chars, int start, int length) {
+    addLeaf(Node.COMMENT_NODE, 1);
+    // Add a pseudo-attribute for the comment's text content.
+    attributeNameStoreBuilder.addEmptyName();
+    attributeValueStoreBuilder.addValue(chars, start, length);
+  }
+
+  /**
+   * Adds the CDATA section.
+   *
+   * @throws XMLStreamException if the section is out of the root element
+   */
+  void addCData(char[] chars, int start, int length) throws XMLStreamException {
+    if (depth == 0) {
+      throw new XMLStreamException("CDATA is not allowed out of the root element.");
+    }
+    addLeaf(Node.CDATA_SECTION_NODE, 1);
+    // Add a pseudo-attribute for the CDATA's text content.
+    attributeNameStoreBuilder.addEmptyName();
+    attributeValueStoreBuilder.addValue(chars, start, length);
+  }
+
+  void addProcessingInstruction(String target, String data) {
+    addLeaf(Node.PROCESSING_INSTRUCTION_NODE, 2);
+    // Add the pseudo-attribute for the PI's target.
+    attributeNameStoreBuilder.addEmptyName();
+    attributeValueStoreBuilder.addValue(target);
+    // Add the pseudo-attribute for the PI's data.
+    attributeNameStoreBuilder.addEmptyName();
+    attributeValueStoreBuilder.addValue(data);
+  }
+
+  /**
+   * Appends the next fragment to this one. The bit strings are concatenated, the names are
+   * remapped to the dictionaries of this fragment and the values are copied to its stores.
+   *
+   * @param other the fragment that follows this one in the document
+   * @throws XMLStreamException if the end tags of the other fragment don't match the elements that
+   *         are open in this one
+   */
+  void append(FragmentBuilder other) throws XMLStreamException {
+    for (String name : other.unmatchedNames) {
+      if (openNames.isEmpty()) {
+        throw new XMLStreamException("No element to close: " + name);
+      }
+      matchName(openNames.pop(), name);
+    }
+    for (Iterator<String> iterator = other.openNames.descendingIterator(); iterator.hasNext();) {
+      openNames.push(iterator.next());
+    }
+    depth = openNames.size();
+    hasRoot |= other.hasRoot;
+
+    parenthesisBits.setBits(parenthesisCount, other.parenthesisBits, other.parenthesisCount);
+    countParentheses(other.parenthesisCount);
+    nodeBits.setBits(nodeCount, other.nodeBits, other.nodeCount);
+    nodeCount += other.nodeCount;
+    if (other.attributeCount >= Integer.MAX_VALUE - attributeCount) {
+      throw new NodeLimitException(
+          "Number of attributes exceeds the limit of the succinct DOM (2^31 - 1 bits).");
+    }
+    attributeBits.setBits(attributeCount, other.attributeBits, other.attributeCount);
+    for (int i = 0; i < other.idAttributeCount; i++) {
+      idAttributeIndexes.setInt(
+          idAttributeCount++, attributeCount + other.idAttributeIndexes.getInt(i));
+    }
+    attributeCount += other.attributeCount;
+
+    elementStoreBuilder.append(other.elementStoreBuilder);
+    textStoreBuilder.append(other.textStoreBuilder.build());
+    attributeNameStoreBuilder.append(other.attributeNameStoreBuilder);
+    attributeValueStoreBuilder.append(other.attributeValueStoreBuilder.build());
+  }
+
+  /**
+   * Builds the succinct DOM of the complete document.
+   *
+   * @param documentContext the properties of the document
+   * @param executor the executor to build the auxiliary indexes on, or {@code null} to build them
+   *        in the calling thread
+   * @param recorder the recorder of the statistics, or {@code null} if they aren't requested
+   * @throws ParseCancelledException if the thread is interrupted while the indexes are built
+   */
+  SuccinctDom build(DocumentContext documentContext, ExecutorService executor,
+      ParseStatistics.Recorder recorder) {
+    long time = 0;
+    if (recorder != null) {
+      recorder.setPeakBuilderMemory(estimateSize());
+      time = System.nanoTime();
+    }
+    int[] parentheses = parenthesisBits.toBitArray(parenthesisCount);
+    int[] nodes = nodeBits.toBitArray(nodeCount);
+    int[] attributes = attributeBits.toBitArray(attributeCount);
+    ElementStore elementStore = elementStoreBuilder.build();
+    ValueStore textStore = textStoreBuilder.build();
+    QNameStore attributeNameStore = attributeNameStoreBuilder.build();
+    ValueStore attributeValueStore = attributeValueStoreBuilder.build();
+    if (recorder != null) {
+      time = recorder.addTimeSince(ParsePhase.STORES, time);
+    }
+
+    SuccinctDom dom;
+    try {
+      dom = new SuccinctDom(
+          parentheses,
+          parenthesisCount,
+          nodes,
+          nodeCount,
+          attributes,
+          attributeCount,
+          elementStore,
+          textStore,
+          attributeNameStore,
+          attributeValueStore,
+          0, // The document node is always the first one.
+          documentContext,
+          null, // No namespaces in the non-namespace aware mode.
+          false,
+          idAttributeIndexes.toIntArray(idAttributeCount),
+          idAttributeCount,
+          executor);
+    } catch (IllegalStateException e) {
+      throw toCancellation(e);
+    }
+    if (recorder != null) {
+      recorder.addTimeSince(ParsePhase.INDEXES, time);
+      recorder.setNodeCount(parenthesisCount / 2);
+    }
+    return dom;
+  }
+
+  /**
+   * Converts the interruption of the concurrent indexes into the cancellation of the parsing, so
+   * it's reported like the interruption of the parsing itself.
+   *
+   * @param e the failure of the construction of the succinct DOM
+   * @return the cancellation if the construction is interrupted
+   * @throws IllegalStateException if the construction fails for another reason
+   */
+  static ParseCancelledException toCancellation(IllegalStateException e) {
+    if (e.getCause() instanceof InterruptedException) {
+      return new ParseCancelledException("The parsing is interrupted.", e);
+    }
+    throw e;
+  }
+
+  /**
+   * Adds the leaf node that has the given number of the pseudo-attributes.
+   */
+  private void addLeaf(short type, int attributeCount) {
+    parenthesisBits.set(parenthesisCount); // Set the open parenthesis.
+    countParentheses(2); // Count the open and closed parentheses.
+    nodeBits.set(nodeCount++); // Set the non-text node.
+    elementStoreBuilder.addNode(type);
+    countAttributes(attributeCount);
+  }
+
+  /**
+   * Counts the parentheses.
+   *
+   * @throws NodeLimitException if the number of parentheses that can be handled is exceeded
+   */
+  private void countParentheses(int count) {
+    parenthesisCount += count;
+    if (parenthesisCount < 0) {
+      throw new NodeLimitException(NODE_LIMIT_MESSAGE);
+    }
+  }
+
+  /**
+   * Counts the attributes (including the pseudo-attributes) of a node and sets the separator
+   * that follows them in the attribute bit string.
+   *
+   * @throws NodeLimitException if the number of bits that the attribute bit string can handle is
+   *         exceeded
+   */
+  private void countAttributes(int count) {
+    if (count >= Integer.MAX_VALUE - attributeCount) {
+      throw new NodeLimitException(
+          "Number of attributes exceeds the limit of the succinct DOM (2^31 - 1 bits).");
+    }
+    attributeCount += count;
+    attributeBits.set(attributeCount++); // Set attributes separator.
+  }
+
+  private static void matchName(String openName, String name) throws XMLStreamException {
+    if (!openName.equals(name)) {
+      throw new XMLStreamException(
+          "The end tag </" + name + "> doesn't match the start tag <" + openName + ">.");
+    }
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.parser;
+
+/**
+ * A runtime exception thrown if the projected memory of the succinct DOM construction exceeds the
+ * budget. The parsing is aborted before the heap is exhausted, so the rest of the application
+ * keeps running.
+ *
+ * @author Yauheni Shahun
+ * @see ReaderSettings#setMemoryBudget(long)
+ */
+public class MemoryBudgetException extends RuntimeException {
+
+  public MemoryBudgetException() {
+  }
+
+  /**
+   * Constructs an exception with the message that describes the exceeded budget.
+   *
+   * @param message the detail message
+   */
+  public MemoryBudgetException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.XMLConstants;
+
+/**
+ * A table that interns the XML names by their UTF-8 bytes. A name that has been seen before is
+ * resolved by the hash of its bytes with no {@link String} allocation, so every distinct name is
+ * decoded only once. As the interned strings cache their hash codes, the name dictionaries of the
+ * DOM stores resolve them cheaply too.
+ * <p>
+ * The table isn't thread-safe.
+ *
+ * @author Yauheni Shahun
+ */
+final class NameTable {
+
+  /**
+   * An interned name with its qualified name split into the prefix and the local part.
+   */
+  static final class Name {
+
+    final String qualifiedName;
+    /**
+     * The prefix, or {@code null} if the name has no prefix.
+     */
+    final String prefix;
+    final String localName;
+    /**
+     * The namespace URI that the prefix is bound to by definition ({@code xmlns} only).
+     */
+    final String namespaceUri;
+
+    private final byte[] bytes;
+    private final int hash;
+    private Name next;
+
+    private Name(String qualifiedName, byte[] bytes, int hash) {
+      this.qualifiedName = qualifiedName;
+      this.bytes = bytes;
+      this.hash = hash;
+      int colonIndex = qualifiedName.indexOf(':');
+      if (colonIndex > 0) {
+        this.prefix = qualifiedName.substring(0, colonIndex);
+        this.localName = qualifiedName.substring(colonIndex + 1);
+      } else {
+        this.prefix = null;
+        this.localName = qualifiedName;
+      }
+      this.namespaceUri = XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)
+          ? XMLConstants.XMLNS_ATTRIBUTE_NS_URI : null;
+    }
+  }
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private Name[] entries = new Name[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * Resolves the name that is given by the UTF-8 bytes.
+   *
+   * @param buffer the buffer that holds the bytes
+   * @param start the index of the first byte
+   * @param end the index after the last byte
+   */
+  Name get(ByteBuffer buffer, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + buffer.get(i);
+    }
+    for (Name name = entries[hash & (entries.length - 1)]; name != null; name = name.next) {
+      if (name.hash == hash && equals(name.bytes, buffer, start, end)) {
+        return name;
+      }
+    }
+    return add(buffer, start, end, hash);
+  }
+
+  private Name add(ByteBuffer buffer, int start, int end, int hash) {
+    byte[] bytes = new byte[end - start];
+    for (int i = start; i < end; i++) {
+      bytes[i - start] = buffer.get(i);
+    }
+    Name name = new Name(new String(bytes, StandardCharsets.UTF_8), bytes, hash);
+    if (++size > entries.length * 3 / 4) {
+      resize();
+    }
+    int index = hash & (entries.length - 1);
+    name.next = entries[index];
+    entries[index] = name;
+    return name;
+  }
+
+  private void resize() {
+    Name[] newEntries = new Name[entries.length * 2];
+    for (Name name : entries) {
+      while (name != null) {
+        Name next = name.next;
+        int index = name.hash & (newEntries.length - 1);
+        name.next = newEntries[index];
+        newEntries[index] = name;
+        name = next;
+      }
+    }
+    entries = newEntries;
+  }
+
+  private static boolean equals(byte[] bytes, ByteBuffer buffer, int start, int end) {
+    if (bytes.length != end - start) {
+      return false;
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes[i] != buffer.get(start + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,412 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.parser;
+
+import org.w3c.dom.Document;
+
+import ys.succinct.xml.dom.DocumentContext;
+import ys.succinct.xml.dom.SuccinctDom;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * A builder that parses the XML file with the {@link Utf8XmlTokenizer} that feeds the succinct DOM
+ * structures directly from the mapped bytes. The file is split into three parts:
+ * <ul>
+ * <li>the head, i.e. the prolog and the start tag of the root element
+ * <li>the body of the root element that is split into the byte ranges at the tag boundaries
+ * <li>the tail, i.e. the end tag of the root element and the epilog.
+ * </ul>
+ * If the parallelism is greater than 1, the ranges of the body are tokenized on a
+ * {@link ForkJoinPool} into the {@link FragmentBuilder}s that are stitched in the document order as
+ * soon as they are ready. Only a limited number of the ranges are in flight at a time to bound the
+ * memory that the partial fragments take. Otherwise, the ranges are tokenized one by one in the
+ * calling thread right into the document, and they are only as small as a single mapping
+ * requires.
+ * <p>
+ * The input that the builder can't handle (e.g. a non UTF-8 encoding or a DTD) is reported by the
+ * {@link UnsupportedInputException}.
+ *
+ * @author Yauheni Shahun
+ */
+final class NativeDomBuilder {
+
+  /**
+   * The default number of the bytes in a range of the root element's body.
+   */
+  static final int DEFAULT_RANGE_SIZE = 16 * 1024 * 1024;
+  /**
+   * The number of the bytes in a range when the body is parsed sequentially.
+   */
+  static final int SEQUENTIAL_RANGE_SIZE = 1024 * 1024 * 1024;
+
+  /**
+   * The maximum number of the bytes that the head and the tail of the document can take.
+   */
+  private static final int HEAD_TAIL_LIMIT = 1024 * 1024;
+  /**
+   * The maximum number of the bytes to look through for the tag boundary from the range start.
+   */
+  private static final int BOUNDARY_SCAN_LIMIT = 1024 * 1024;
+
+  private final ReaderSettings settings;
+  private final int parallelism;
+  private final int rangeSize;
+  private final ProgressTracker tracker;
+
+  /**
+   * Constructs a builder.
+   *
+   * @param settings the settings of the succinct DOM construction
+   */
+  NativeDomBuilder(ReaderSettings settings) {
+    // The progress is checked in per range, so the ranges are kept small if it's tracked.
+    this(settings, (settings.getParallelism() > 1 || ProgressTracker.create(settings) != null)
+        ? DEFAULT_RANGE_SIZE : SEQUENTIAL_RANGE_SIZE);
+  }
+
+  /**
+   * Constructs a builder with the custom range size.
+   *
+   * @param settings the settings of the succinct DOM construction
+   * @param rangeSize the approximate number of the bytes in a range
+   */
+  NativeDomBuilder(ReaderSettings settings, int rangeSize) {
+    this.settings = settings;
+    this.parallelism = settings.getParallelism();
+    this.rangeSize = rangeSize;
+    this.tracker = ProgressTracker.create(settings);
+  }
+
+  /**
+   * Parses the XML file to the succinct DOM.
+   *
+   * @param file the XML file
+   * @param URI the URI of the XML input
+   * @return the succinct {@link Document} instance
+   * @throws XMLStreamException if the XML isn't well-formed
+   * @throws UnsupportedInputException if the file can't be parsed by the native tokenizer or it
+   *         exceeds the segment size
+   * @throws NodeLimitException if the number of nodes that the succinct DOM can handle is exceeded
+   */
+  Document build(File file, String URI)
+      throws IOException, XMLStreamException, UnsupportedInputException {
+    return build(file, URI, null);
+  }
+
+  /**
+   * Parses the XML file to the succinct DOM and records the statistics.
+   *
+   * @param file the XML file
+   * @param URI the URI of the XML input
+   * @param recorder the recorder of the statistics, or {@code null} if they aren't requested
+   * @return the succinct {@link Document} instance
+   * @throws XMLStreamException if the XML isn't well-formed
+   * @throws UnsupportedInputException if the file can't be parsed by the native tokenizer or it
+   *         exceeds the segment size
+   * @throws NodeLimitException if the number of nodes that the succinct DOM can handle is exceeded
+   * @throws ParseCancelledException if the parsing is cancelled by the progress listener or the
+   *         thread is interrupted
+   * @throws MemoryBudgetException if the projected memory exceeds the budget
+   */
+  Document build(File file, String URI, ParseStatistics.Recorder recorder)
+      throws IOException, XMLStreamException, UnsupportedInputException {
+    long time = (recorder != null) ? System.nanoTime() : 0;
+    // The pool parses the ranges and then builds the auxiliary indexes of the DOM.
+    ForkJoinPool pool = (parallelism > 1) ? new ForkJoinPool(parallelism) : null;
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      FileChannel channel = randomAccessFile.getChannel();
+      long size = channel.size();
+
+      // The names are interned by a single table unless the ranges are parsed concurrently.
+      NameTable nameTable = new NameTable();
+      int headLength = (int) Math.min(size, HEAD_TAIL_LIMIT);
+      Utf8XmlTokenizer headTokenizer = new Utf8XmlTokenizer(
+          map(channel, 0, headLength), 0, headLength == size, nameTable);
+      headTokenizer.parseDeclaration();
+      FragmentBuilder document = new FragmentBuilder(settings);
+      document.startDocument();
+      if (headTokenizer.parse(document, true)) {
+        long bodyStart = headTokenizer.getPosition();
+        long bodyEnd = findRootEnd(channel, size, bodyStart);
+        if (pool != null) {
+          parseBody(channel, bodyStart, bodyEnd, document, pool);
+        } else {
+          parseBody(channel, bodyStart, bodyEnd, document, nameTable);
+        }
+
+        Utf8XmlTokenizer tailTokenizer = new Utf8XmlTokenizer(
+            map(channel, bodyEnd, size - bodyEnd), bodyEnd, true, nameTable);
+        tailTokenizer.parse(document, false);
+      } else if (headLength < size) {
+        throw new UnsupportedInputException("The prolog is too long.");
+      }
+      document.endDocument();
+      checkIn(size, document);
+      if (recorder != null) {
+        recorder.addTimeSince(ParsePhase.TOKENIZING, time);
+        recorder.setInputLength(size);
+      }
+
+      DocumentContext documentContext = new DocumentContext(URI, "UTF-8",
+          headTokenizer.getXmlEncoding(), headTokenizer.getXmlVersion(),
+          headTokenizer.isXmlStandalone());
+      SuccinctDom dom = document.build(documentContext, pool, recorder);
+      if (settings.isTagIndex()) {
+        time = (recorder != null) ? System.nanoTime() : 0;
+        dom.buildTagIndex();
+        if (recorder != null) {
+          recorder.addTimeSince(ParsePhase.INDEXES, time);
+        }
+      }
+      return dom.getDocument();
+    } finally {
+      if (pool != null) {
+        pool.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * Parses the body of the root element range by range right into the document.
+   */
+  private void parseBody(FileChannel channel, long start, long end, FragmentBuilder document,
+      NameTable nameTable) throws IOException, XMLStreamException, UnsupportedInputException {
+    List<Long> boundaries = findBoundaries(channel, start, end);
+    for (int i = 0; i < boundaries.size() - 1; i++) {
+      long rangeStart = boundaries.get(i);
+      Utf8XmlTokenizer tokenizer = new Utf8XmlTokenizer(
+          map(channel, rangeStart, boundaries.get(i + 1) - rangeStart), rangeStart, false,
+          nameTable);
+      tokenizer.parse(document, false);
+      checkIn(boundaries.get(i + 1), document);
+    }
+  }
+
+  /**
+   * Parses the body of the root element range by range concurrently and appends the fragments to
+   * the document.
+   */
+  private void parseBody(FileChannel channel, long start, long end, FragmentBuilder document,
+      ForkJoinPool pool) throws IOException, XMLStreamException, UnsupportedInputException {
+    List<Long> boundaries = findBoundaries(channel, start, end);
+    Deque<Future<FragmentBuilder>> futures = new ArrayDeque<>();
+    int submitted = 0;
+    try {
+      for (int i = 0; i < boundaries.size() - 1; i++) {
+        // Keep a few ranges ahead of the stitching to keep the threads busy.
+        while (submitted < boundaries.size() - 1 && futures.size() < parallelism * 2) {
+          futures.add(pool.submit(newRangeTask(channel, boundaries.get(submitted),
+              boundaries.get(submitted + 1), settings)));
+          submitted++;
+        }
+        document.append(getFragment(futures.remove()));
+        document.checkSegmentSize();
+        checkIn(boundaries.get(i + 1), document);
+      }
+    } finally {
+      // Drop the ranges that are still in flight if the parsing fails.
+      for (Future<FragmentBuilder> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private static Callable<FragmentBuilder> newRangeTask(final FileChannel channel,
+      final long start, final long end, final ReaderSettings settings) {
+    return new Callable<FragmentBuilder>() {
+      @Override
+      public FragmentBuilder call() throws Exception {
+        Utf8XmlTokenizer tokenizer =
+            new Utf8XmlTokenizer(map(channel, start, end - start), start, false, new NameTable());
+        FragmentBuilder fragment =
+            new FragmentBuilder(FragmentBuilder.INNER_DEPTH, true, settings);
+        tokenizer.parse(fragment, false);
+        return fragment;
+      }
+    };
+  }
+
+  /**
+   * Waits for the fragment and unwraps the failure of the range task (if any).
+   */
+  static FragmentBuilder getFragment(Future<FragmentBuilder> future)
+      throws XMLStreamException, UnsupportedInputException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      // Not an unsupported input, so the sequential parsing must not take over.
+      throw new ParseCancelledException("The parsing is interrupted.");
+    } catch (ExecutionException e) {
+      // The pool may wrap the checked exceptions into the runtime ones.
+      for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+        if (cause instanceof XMLStreamException) {
+          throw (XMLStreamException) cause;
+        }
+        if (cause instanceof UnsupportedInputException) {
+          throw (UnsupportedInputException) cause;
+        }
+      }
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * Checks in the progress if it's tracked.
+   *
+   * @param position the position in the file that the document is parsed up to
+   * @param document the builder of the document
+   */
+  private void checkIn(long position, FragmentBuilder document) {
+    if (tracker != null) {
+      tracker.checkIn(position, document.getNodeCount(), document.estimateSize());
+    }
+  }
+
+  /**
+   * Splits the body of the root element into the ranges. Every range except the first one starts
+   * with '<' that is followed by the name or '/', i.e. with a start or an end tag. A range may
+   * still start inside a comment, a CDATA section or a processing instruction; then the previous
+   * range ends with the unclosed token, so the split is rejected on parsing.
+   *
+   * @return the boundaries of the ranges including the start and the end of the body
+   */
+  private List<Long> findBoundaries(FileChannel channel, long start, long end)
+      throws IOException, UnsupportedInputException {
+    List<Long> boundaries = new ArrayList<>();
+    boundaries.add(start);
+    long position = start + rangeSize;
+    while (position < end) {
+      int length = (int) Math.min(end - position, BOUNDARY_SCAN_LIMIT);
+      ByteBuffer buffer = map(channel, position, length);
+      int index = 0;
+      while (index < length - 1 && !isTagStart(buffer.get(index), buffer.get(index + 1))) {
+        index++;
+      }
+      if (index < length - 1) {
+        boundaries.add(position + index);
+        position += index + rangeSize;
+      } else {
+        position += length;
+      }
+      if (position - boundaries.get(boundaries.size() - 1) > Integer.MAX_VALUE) {
+        throw new UnsupportedInputException("No tag boundary is found.");
+      }
+    }
+    if (end - boundaries.get(boundaries.size() - 1) > Integer.MAX_VALUE) {
+      throw new UnsupportedInputException("No tag boundary is found.");
+    }
+    boundaries.add(end);
+    return boundaries;
+  }
+
+  /**
+   * Finds the start of the root element's end tag by skipping the epilog backward.
+   */
+  private static long findRootEnd(FileChannel channel, long size, long bodyStart)
+      throws IOException, UnsupportedInputException {
+    long tailStart = Math.max(bodyStart, size - HEAD_TAIL_LIMIT);
+    ByteBuffer buffer = map(channel, tailStart, size - tailStart);
+    int index = buffer.limit() - 1;
+    while (true) {
+      while (index >= 0 && isWhitespace(buffer.get(index))) {
+        index--;
+      }
+      if (endsWith(buffer, index, "-->")) {
+        index = lastIndexOf(buffer, index - 3, "<!--") - 1;
+      } else if (endsWith(buffer, index, "?>")) {
+        index = lastIndexOf(buffer, index - 2, "<?") - 1;
+      } else {
+        break;
+      }
+    }
+    if (index < 0 || buffer.get(index) != '>') {
+      throw new UnsupportedInputException("The end tag of the root element isn't found.");
+    }
+    int tagStart = lastIndexOf(buffer, index, "</");
+    if (tagStart < 0) {
+      throw new UnsupportedInputException("The end tag of the root element isn't found.");
+    }
+    return tailStart + tagStart;
+  }
+
+  /**
+   * Checks whether the bytes end at the given index with the ASCII string.
+   */
+  private static boolean endsWith(ByteBuffer buffer, int index, String s) {
+    int start = index - s.length() + 1;
+    if (start < 0) {
+      return false;
+    }
+    for (int i = 0; i < s.length(); i++) {
+      if (buffer.get(start + i) != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Finds the last occurrence of the ASCII string that ends not after the given index.
+   *
+   * @return the index of the occurrence or -1 if it isn't found
+   */
+  private static int lastIndexOf(ByteBuffer buffer, int index, String s) {
+    for (int i = index; i >= 0; i--) {
+      if (endsWith(buffer, i, s)) {
+        return i - s.length() + 1;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean isTagStart(byte b, byte next) {
+    return b == '<' && (next == '/' || next == '_' || next == ':' || next < 0
+        || (next >= 'A' && next <= 'Z') || (next >= 'a' && next <= 'z'));
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\n' || b == '\t' || b == '\r';
+  }
+
+  private static ByteBuffer map(FileChannel channel, long position, long length)
+      throws IOException {
+    return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+  }
+}
@@ -18,9 +18,22 @@ package ys.succinct.xml.parser;
 
 /**
  * A runtime exception thrown if the number of nodes in XML exceeds the limit that the succicnt DOM
- * can handle.
+ * can handle. The limit comes from the {@code int} addressing of the bit strings that the DOM is
+ * built upon.
  *
  * @author Yauheni Shahun
  */
 public class NodeLimitException extends RuntimeException {
+
+  public NodeLimitException() {
+  }
+
+  /**
+   * Constructs an exception with the message that describes the exceeded limit.
+   *
+   * @param message the detail message
+   */
+  public NodeLimitException(String message) {
+    super(message);
+  }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.parser;
+
+/**
+ * A runtime exception thrown if the parsing is cancelled by the {@link ParseProgressListener} or
+ * the parsing thread is interrupted. The partial structures are dropped.
+ *
+ * @author Yauheni Shahun
+ */
+public class ParseCancelledException extends RuntimeException {
+
+  public ParseCancelledException() {
+  }
+
+  /**
+   * Constructs an exception with the message that describes the reason of the cancellation.
+   *
+   * @param message the detail message
+   */
+  public ParseCancelledException(String message) {
+    super(message);
+  }
+
+  /**
+   * Constructs an exception with the message and the cause of the cancellation.
+   *
+   * @param message the detail message
+   * @param cause the failure that the cancellation is detected by
+   */
+  public ParseCancelledException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.parser;
+
+/**
+ * The phases of the succinct DOM construction that {@link ParseStatistics} reports the time of.
+ *
+ * @author Yauheni Shahun
+ */
+public enum ParsePhase {
+
+  /**
+   * The pre-scan of the XML input that sizes the structures.
+   *
+   * @see ReaderSettings#setPreScan(boolean)
+   */
+  PRE_SCAN,
+  /**
+   * The tokenizing of the XML input by the StAX parser. The built-in tokenizer feeds the
+   * structures as it goes, so this phase also covers {@link #ELEMENTS} and {@link #TEXT} then.
+   */
+  TOKENIZING,
+  /**
+   * The handling of the document, element and end tag events: the names of the elements and
+   * attributes are interned into the name stores, and the attribute values are copied.
+   */
+  ELEMENTS,
+  /**
+   * The copying of the text nodes, CDATA sections, comments and processing instructions to the
+   * value stores.
+   */
+  TEXT,
+  /**
+   * The freezing of the builders into the bit strings and the stores of the final size.
+   */
+  STORES,
+  /**
+   * The construction of the auxiliary indexes: the range min-max tree, the rank/select structures
+   * and the optional tag and ID indexes.
+   */
+  INDEXES
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.parser;
+
+/**
+ * The progress of the succinct DOM construction that {@link ParseProgressListener} is notified of.
+ * The instance is reused among the notifications of the same parsing.
+ *
+ * @author Yauheni Shahun
+ */
+public final class ParseProgress {
+
+  private int attempt = 1;
+  private long inputLength;
+  private long nodeCount;
+  private long builderMemory;
+  private boolean isCancelled;
+
+  ParseProgress() {
+  }
+
+  /**
+   * Returns the attempt of the parsing, 1 for the first one. If the native tokenizer gives up on
+   * the input, the document is parsed again by the StAX reader as the next attempt: the listener
+   * is notified of the restart with no input and no nodes, and then the input length, the node
+   * count and the projected memory count from the start again.
+   */
+  public int getAttempt() {
+    return attempt;
+  }
+
+  /**
+   * Returns the number of the bytes of the XML input consumed so far. If the input is given by
+   * the character stream, or it isn't read by the document builder, the characters are counted
+   * instead. The parser reads the input ahead, so the number runs ahead of the built nodes by up
+   * to a buffer.
+   */
+  public long getInputLength() {
+    return inputLength;
+  }
+
+  /**
+   * Returns the number of the nodes built so far including the document and the text nodes, but
+   * not the attributes.
+   */
+  public long getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Returns the estimated size in bytes of the builders that hold the nodes built so far.
+   */
+  public long getBuilderMemory() {
+    return builderMemory;
+  }
+
+  /**
+   * Returns the projected peak memory in bytes of the construction of the nodes built so far. The
+   * builders are copied to the structures of the final size at the end of the parsing, so the
+   * projection is twice the size of the builders.
+   */
+  public long getProjectedMemory() {
+    return builderMemory * 2;
+  }
+
+  /**
+   * Cancels the parsing. The parsing is aborted with the {@link ParseCancelledException} once the
+   * listener returns.
+   */
+  public void cancel() {
+    isCancelled = true;
+  }
+
+  /**
+   * Returns whether the parsing is cancelled.
+   */
+  public boolean isCancelled() {
+    return isCancelled;
+  }
+
+  void setAttempt(int attempt) {
+    this.attempt = attempt;
+  }
+
+  void update(long inputLength, long nodeCount, long builderMemory) {
+    this.inputLength = inputLength;
+    this.nodeCount = nodeCount;
+    this.builderMemory = builderMemory;
+  }
+}
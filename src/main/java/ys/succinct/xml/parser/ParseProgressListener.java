@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.parser;
+
+/**
+ * A listener that is notified of the progress of the succinct DOM construction. The listener is
+ * called in the parsing thread periodically (every few tens of thousands of nodes) and once the
+ * input is consumed, so it should return quickly.
+ *
+ * @author Yauheni Shahun
+ * @see ReaderSettings#setProgressListener(ParseProgressListener)
+ */
+public interface ParseProgressListener {
+
+  /**
+   * Receives the current progress of the parsing. The parsing can be cancelled by
+   * {@link ParseProgress#cancel()}.
+   *
+   * @param progress the progress that is valid only during the call
+   */
+  void progress(ParseProgress progress);
+}
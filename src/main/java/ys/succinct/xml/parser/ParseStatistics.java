@@ -0,0 +1,175 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.parser;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The statistics of the succinct DOM construction: the time of the {@link ParsePhase}s, the
+ * throughput and the peak memory that the builders of the structures take.
+ * <p>
+ * The phase time is measured only while the statistics are requested, as the per-event timing of
+ * the StAX parsing costs a few percent of the throughput.
+ *
+ * @author Yauheni Shahun
+ * @see ParseStatisticsListener
+ */
+public final class ParseStatistics {
+
+  private static final ParsePhase[] PHASES = ParsePhase.values();
+
+  private final long[] phaseNanos;
+  private final long totalNanos;
+  private final long inputLength;
+  private final long nodeCount;
+  private final long peakBuilderMemory;
+
+  private ParseStatistics(Recorder recorder) {
+    this.phaseNanos = recorder.phaseNanos.clone();
+    long total = 0;
+    for (long nanos : phaseNanos) {
+      total += nanos;
+    }
+    this.totalNanos = total;
+    this.inputLength = recorder.inputLength;
+    this.nodeCount = recorder.nodeCount;
+    this.peakBuilderMemory = recorder.peakBuilderMemory;
+  }
+
+  /**
+   * Returns the time that the phase took, or {@code 0} if the phase was skipped.
+   *
+   * @param phase the phase of the parsing
+   * @param unit the unit of the time
+   */
+  public long getPhaseTime(ParsePhase phase, TimeUnit unit) {
+    return unit.convert(phaseNanos[phase.ordinal()], TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns the total time of the phases.
+   *
+   * @param unit the unit of the time
+   */
+  public long getTotalTime(TimeUnit unit) {
+    return unit.convert(totalNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns the number of the bytes of the XML input (or the characters if the input is given by
+   * the character stream), or {@code 0} if it's unknown.
+   */
+  public long getInputLength() {
+    return inputLength;
+  }
+
+  /**
+   * Returns the number of the nodes including the document and the text nodes, but not the
+   * attributes.
+   */
+  public long getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Returns the number of the input bytes parsed per second over the total time.
+   */
+  public double getBytesPerSecond() {
+    return (totalNanos > 0) ? inputLength * 1e9 / totalNanos : 0;
+  }
+
+  /**
+   * Returns the number of the nodes built per second over the total time.
+   */
+  public double getNodesPerSecond() {
+    return (totalNanos > 0) ? nodeCount * 1e9 / totalNanos : 0;
+  }
+
+  /**
+   * Returns the estimated size in bytes of the builders at the end of the parsing, i.e. when the
+   * growing buffers are the largest, before the structures of the final size are built from them.
+   */
+  public long getPeakBuilderMemory() {
+    return peakBuilderMemory;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format(Locale.ROOT,
+        "nodes=%d, input=%d bytes, total=%d ms, %.1f MB/s, %.0f nodes/s, peak builders=%d bytes",
+        nodeCount, inputLength, getTotalTime(TimeUnit.MILLISECONDS), getBytesPerSecond() / 1e6,
+        getNodesPerSecond(), peakBuilderMemory));
+    for (ParsePhase phase : PHASES) {
+      builder.append(String.format(Locale.ROOT, "%n%-10s %8d ms", phase,
+          getPhaseTime(phase, TimeUnit.MILLISECONDS)));
+    }
+    return builder.toString();
+  }
+
+  /**
+   * The mutable counterpart of {@link ParseStatistics} that the parsing records the measurements
+   * to.
+   */
+  static final class Recorder {
+
+    private final long[] phaseNanos = new long[PHASES.length];
+    private long inputLength;
+    private long nodeCount;
+    private long peakBuilderMemory;
+
+    /**
+     * Adds the time to the phase.
+     *
+     * @param phase the phase of the parsing
+     * @param nanos the time in nanoseconds
+     */
+    void addTime(ParsePhase phase, long nanos) {
+      phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Adds the time since the given moment to the phase.
+     *
+     * @param phase the phase of the parsing
+     * @param startNanos the {@link System#nanoTime()} when the phase started
+     * @return the current {@link System#nanoTime()}
+     */
+    long addTimeSince(ParsePhase phase, long startNanos) {
+      long nanos = System.nanoTime();
+      phaseNanos[phase.ordinal()] += nanos - startNanos;
+      return nanos;
+    }
+
+    void setInputLength(long inputLength) {
+      this.inputLength = inputLength;
+    }
+
+    void setNodeCount(long nodeCount) {
+      this.nodeCount = nodeCount;
+    }
+
+    void setPeakBuilderMemory(long peakBuilderMemory) {
+      this.peakBuilderMemory = peakBuilderMemory;
+    }
+
+    ParseStatistics build() {
+      return new ParseStatistics(this);
+    }
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.parser;
+
+/**
+ * A listener that receives the {@link ParseStatistics} once the succinct DOM is built. The
+ * listener is called in the parsing thread, so it should return quickly, e.g. log the statistics
+ * or record them to the metrics or the profiler events.
+ *
+ * @author Yauheni Shahun
+ * @see ReaderSettings#setStatisticsListener(ParseStatisticsListener)
+ */
+public interface ParseStatisticsListener {
+
+  /**
+   * Receives the statistics of the successful parsing.
+   *
+   * @param statistics the statistics of the parsing
+   */
+  void parsed(ParseStatistics statistics);
+}
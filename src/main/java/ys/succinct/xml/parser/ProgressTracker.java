@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.parser;
+
+import java.util.Locale;
+
+/**
+ * A tracker of the parsing progress that notifies the {@link ParseProgressListener}, enforces the
+ * memory budget and handles the cancellation at the checkpoints. The parsers check in every
+ * {@link #INTERVAL} nodes and once the input is consumed.
+ *
+ * @author Yauheni Shahun
+ */
+final class ProgressTracker {
+
+  /**
+   * The number of the nodes between the checkpoints.
+   */
+  static final int INTERVAL = 1 << 16;
+
+  private final ParseProgressListener listener;
+  private final long memoryBudget;
+  private final ParseProgress progress = new ParseProgress();
+
+  private ProgressTracker(ParseProgressListener listener, long memoryBudget) {
+    this.listener = listener;
+    this.memoryBudget = memoryBudget;
+  }
+
+  /**
+   * Creates a tracker according to the settings.
+   *
+   * @param settings the settings of the succinct DOM construction
+   * @return the tracker, or {@code null} if neither the progress listener nor the memory budget
+   *         is set
+   */
+  static ProgressTracker create(ReaderSettings settings) {
+    if (settings.getProgressListener() == null && settings.getMemoryBudget() == 0) {
+      return null;
+    }
+    return new ProgressTracker(settings.getProgressListener(), settings.getMemoryBudget());
+  }
+
+  /**
+   * Restarts the progress as the next attempt of the parsing and notifies the listener of the
+   * restart.
+   *
+   * @param attempt the attempt of the parsing, 1 for the first one
+   * @throws ParseCancelledException if the parsing is cancelled or the thread is interrupted
+   */
+  void restart(int attempt) {
+    progress.setAttempt(attempt);
+    checkIn(0, 0, 0);
+  }
+
+  /**
+   * Checks in the progress.
+   *
+   * @param inputLength the number of the bytes or characters consumed so far
+   * @param nodeCount the number of the nodes built so far
+   * @param builderMemory the estimated size of the builders
+   * @throws ParseCancelledException if the parsing is cancelled or the thread is interrupted
+   * @throws MemoryBudgetException if the projected memory exceeds the budget
+   */
+  void checkIn(long inputLength, long nodeCount, long builderMemory) {
+    progress.update(inputLength, nodeCount, builderMemory);
+    if (listener != null) {
+      listener.progress(progress);
+    }
+    if (progress.isCancelled()) {
+      throw new ParseCancelledException("The parsing is cancelled.");
+    }
+    if (Thread.currentThread().isInterrupted()) {
+      throw new ParseCancelledException("The parsing is interrupted.");
+    }
+    if (memoryBudget > 0 && progress.getProjectedMemory() > memoryBudget) {
+      throw new MemoryBudgetException(String.format(Locale.ROOT,
+          "The projected memory of %d bytes exceeds the budget of %d bytes after %d nodes.",
+          progress.getProjectedMemory(), memoryBudget, nodeCount));
+    }
+  }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.parser;
+
+import ys.succinct.xml.dom.TextStoreType;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The settings of the succinct DOM construction that go beyond the standard
+ * {@link javax.xml.parsers.DocumentBuilderFactory} configuration. The settings are exposed as the
+ * attributes of the {@link SuccinctDocumentBuilderFactory}.
+ *
+ * @author Yauheni Shahun
+ */
+public class ReaderSettings {
+
+  /**
+   * The default maximum number of the parentheses of a segment of the large document, i.e. half
+   * of the int-addressed limit of the balanced parentheses.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+  private TextStoreType textStoreType = TextStoreType.ARRAY;
+  private boolean isCompactOffsets;
+  private boolean isPreScan;
+  private boolean isNativeTokenizer;
+  private int parallelism = 1;
+  private boolean isTagIndex;
+  private Set<String> idAttributeNames = Collections.emptySet();
+  private ParseStatisticsListener statisticsListener;
+  private ParseProgressListener progressListener;
+  private long memoryBudget;
+  private int segmentSize = DEFAULT_SEGMENT_SIZE;
+
+  /**
+   * Constructs the default settings.
+   */
+  public ReaderSettings() {
+  }
+
+  /**
+   * Constructs a copy of the given settings.
+   *
+   * @param settings the settings to copy
+   */
+  public ReaderSettings(ReaderSettings settings) {
+    this.textStoreType = settings.textStoreType;
+    this.isCompactOffsets = settings.isCompactOffsets;
+    this.isPreScan = settings.isPreScan;
+    this.isNativeTokenizer = settings.isNativeTokenizer;
+    this.parallelism = settings.parallelism;
+    this.isTagIndex = settings.isTagIndex;
+    this.idAttributeNames = settings.idAttributeNames;
+    this.statisticsListener = settings.statisticsListener;
+    this.progressListener = settings.progressListener;
+    this.memoryBudget = settings.memoryBudget;
+    this.segmentSize = settings.segmentSize;
+  }
+
+  /**
+   * Returns the type of the store that keeps the values of the text nodes and attributes.
+   */
+  public TextStoreType getTextStoreType() {
+    return textStoreType;
+  }
+
+  /**
+   * Sets the type of the store that keeps the values of the text nodes and attributes.
+   *
+   * @param textStoreType the store type, {@link TextStoreType#ARRAY} by default
+   */
+  public void setTextStoreType(TextStoreType textStoreType) {
+    if (textStoreType == null) {
+      throw new IllegalArgumentException("textStoreType is null.");
+    }
+    this.textStoreType = textStoreType;
+  }
+
+  /**
+   * Returns whether the offsets of the text node and attribute values are Elias-Fano encoded.
+   */
+  public boolean isCompactOffsets() {
+    return isCompactOffsets;
+  }
+
+  /**
+   * Sets whether the offsets of the text node and attribute values are Elias-Fano encoded. The
+   * encoded offsets take a few bits per value instead of 32 bits, which pays off for the documents
+   * with many short values, but the access to the values is slower.
+   *
+   * @param isCompactOffsets whether the offsets are encoded, {@code false} by default
+   */
+  public void setCompactOffsets(boolean isCompactOffsets) {
+    this.isCompactOffsets = isCompactOffsets;
+  }
+
+  /**
+   * Returns whether the XML input is scanned beforehand to size the succinct DOM structures.
+   */
+  public boolean isPreScan() {
+    return isPreScan;
+  }
+
+  /**
+   * Sets whether the XML input is scanned beforehand to size the succinct DOM structures. The
+   * pre-scan counts the nodes, attributes and text characters, so that all the structures are
+   * allocated once at their final size with no reallocation and slack. This trades an extra pass
+   * over the input for the predictable peak memory.
+   * <p>
+   * The pre-scan is applied only to the input that can be read twice, i.e. the input that is
+   * given by the system ID (e.g. a file) rather than by a stream.
+   *
+   * @param isPreScan whether the input is pre-scanned, {@code false} by default
+   */
+  public void setPreScan(boolean isPreScan) {
+    this.isPreScan = isPreScan;
+  }
+
+  /**
+   * Returns whether the XML input is parsed by the built-in tokenizer instead of the StAX parser.
+   */
+  public boolean isNativeTokenizer() {
+    return isNativeTokenizer;
+  }
+
+  /**
+   * Sets whether the XML input is parsed by the built-in tokenizer instead of the StAX parser. The
+   * non-validating tokenizer reads the UTF-8 bytes of the mapped file and feeds the succinct DOM
+   * structures directly: the names are interned by their bytes and the values are decoded to a
+   * reusable buffer, so no string is allocated per name or value.
+   * <p>
+   * The tokenizer is applied only to the UTF-8 (or ASCII) file given by the system ID without a
+   * DTD and only if the builder isn't namespace aware. Otherwise, the input is parsed by the StAX
+   * parser. The StAX parser also reports the errors if the input isn't well-formed. Unlike the
+   * StAX parser, the tokenizer never splits the text nodes (e.g. at the character references).
+   *
+   * @param isNativeTokenizer whether the built-in tokenizer is used, {@code false} by default
+   */
+  public void setNativeTokenizer(boolean isNativeTokenizer) {
+    this.isNativeTokenizer = isNativeTokenizer;
+  }
+
+  /**
+   * Returns the number of the threads that parse the XML input in parallel.
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Sets the number of the threads that parse the XML input in parallel. If it's greater than 1,
+   * the input is split into the byte ranges at the tag boundaries, the ranges are parsed
+   * concurrently by the built-in tokenizer into the partial bit strings and stores, and the parts
+   * are stitched into a single succinct DOM. The same restrictions as for
+   * {@link #setNativeTokenizer(boolean) the tokenizer} are applied.
+   * <p>
+   * Regardless of the parser, the auxiliary indexes of the succinct DOM (the range min-max tree and
+   * the rank/select structures) are built concurrently after the parsing.
+   *
+   * @param parallelism the number of the threads, 1 by default
+   */
+  public void setParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Returns whether the posting index of the elements by their names is built after the parsing.
+   */
+  public boolean isTagIndex() {
+    return isTagIndex;
+  }
+
+  /**
+   * Sets whether the posting index of the elements by their names is built after the parsing. The
+   * index keeps the sorted positions of the elements per unique name, so
+   * {@link org.w3c.dom.Document#getElementsByTagName(String)} and its variants find the elements
+   * of the given name without scanning the subtree. The index takes an additional int per
+   * element.
+   *
+   * @param isTagIndex whether the index is built, {@code false} by default
+   */
+  public void setTagIndex(boolean isTagIndex) {
+    this.isTagIndex = isTagIndex;
+  }
+
+  /**
+   * Returns the unmodifiable set of the qualified names of the attributes that are indexed as the
+   * element IDs.
+   */
+  public Set<String> getIdAttributeNames() {
+    return idAttributeNames;
+  }
+
+  /**
+   * Sets the qualified names of the attributes that are indexed as the element IDs (e.g.
+   * {@code id} or {@code xml:id}). The positions of the ID attributes are collected during the
+   * parsing and indexed by their values, so {@link org.w3c.dom.Document#getElementById(String)}
+   * resolves the element without scanning the tree.
+   * <p>
+   * Regardless of the names, the attributes that are declared of the {@code ID} type in the DTD
+   * are indexed too if the document is parsed by the StAX parser. The types that are declared by
+   * the XML schema aren't recognized.
+   *
+   * @param idAttributeNames the qualified names of the ID attributes, none by default
+   */
+  public void setIdAttributeNames(Collection<String> idAttributeNames) {
+    this.idAttributeNames = Collections.unmodifiableSet(new LinkedHashSet<>(idAttributeNames));
+  }
+
+  /**
+   * Returns the listener that receives the statistics of the parsing, or {@code null} if none.
+   */
+  public ParseStatisticsListener getStatisticsListener() {
+    return statisticsListener;
+  }
+
+  /**
+   * Sets the listener that receives the {@link ParseStatistics} of every successful parsing: the
+   * time of the phases, the throughput and the peak memory of the builders. The phases are timed
+   * only if the listener is set.
+   *
+   * @param statisticsListener the listener, or {@code null} to disable the statistics (by
+   *        default)
+   */
+  public void setStatisticsListener(ParseStatisticsListener statisticsListener) {
+    this.statisticsListener = statisticsListener;
+  }
+
+  /**
+   * Returns the listener that is notified of the progress of the parsing, or {@code null} if none.
+   */
+  public ParseProgressListener getProgressListener() {
+    return progressListener;
+  }
+
+  /**
+   * Sets the listener that is notified of the {@link ParseProgress} periodically during the
+   * parsing: the input consumed and the nodes built so far. The listener may cancel the parsing
+   * that is aborted with the {@link ParseCancelledException} then. The parsing is also cancelled
+   * if the thread is interrupted while the listener or the {@link #setMemoryBudget(long) budget}
+   * is set.
+   *
+   * @param progressListener the listener, or {@code null} to disable the notifications (by
+   *        default)
+   */
+  public void setProgressListener(ParseProgressListener progressListener) {
+    this.progressListener = progressListener;
+  }
+
+  /**
+   * Returns the memory budget of the parsing in bytes, or {@code 0} if it's unlimited.
+   */
+  public long getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  /**
+   * Sets the memory budget of the parsing. The projected peak memory of the construction (see
+   * {@link ParseProgress#getProjectedMemory()}) is checked periodically, and the parsing is
+   * aborted with the {@link MemoryBudgetException} as soon as it exceeds the budget. This protects
+   * the rest of the application from the {@link OutOfMemoryError} on the unexpectedly large input.
+   *
+   * @param memoryBudget the budget in bytes, {@code 0} (by default) for the unlimited memory
+   */
+  public void setMemoryBudget(long memoryBudget) {
+    if (memoryBudget < 0) {
+      throw new IllegalArgumentException("memoryBudget must not be negative: " + memoryBudget);
+    }
+    this.memoryBudget = memoryBudget;
+  }
+
+  /**
+   * Returns the number of the parentheses after which the large document is cut into the next
+   * segment.
+   */
+  public int getSegmentSize() {
+    return segmentSize;
+  }
+
+  /**
+   * Sets the number of the parentheses (or the attributes) after which the large document is cut
+   * into the next segment. The structures of a single succinct DOM are addressed by int, so the
+   * document that exceeds them is split between the children of its root element into the
+   * segments that are succinct DOMs on their own, and the nodes are addressed across the segments
+   * by the long positions (see {@link ys.succinct.xml.dom.SuccinctDom#getPosition(int)}). The cut
+   * is made at the first child of the root element that starts after the limit, so every child of
+   * the root element along with its subtree must fit in a single segment.
+   * <p>
+   * The documents below the default limit are kept in a single segment, so the large-document mode
+   * is selected automatically. A smaller limit is useful to test the mode on the small documents.
+   * The segments are built only by the StAX parser, the built-in tokenizer falls back to it for
+   * the large document.
+   *
+   * @param segmentSize the number of the parentheses, {@link #DEFAULT_SEGMENT_SIZE} by default
+   */
+  public void setSegmentSize(int segmentSize) {
+    if (segmentSize <= 0) {
+      throw new IllegalArgumentException("segmentSize must be positive: " + segmentSize);
+    }
+    this.segmentSize = segmentSize;
+  }
+}
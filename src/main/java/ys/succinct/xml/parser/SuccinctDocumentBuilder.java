@@ -28,7 +28,12 @@ import org.xml.sax.ErrorHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.stream.XMLInputFactory;
@@ -58,41 +63,118 @@ import javax.xml.transform.stream.StreamSource;
  * The succinct {@link Document} that the parser produces is read-only. This means that the mutation
  * and creation API isn't supported also.
  * <p>
- * The size of XML document that the builder can handle is restricted by the heap space and succinct
- * data structure limits. Practically, the number of nodes that the succinct DOM can support doesn't
- * exceed {@link Integer#MAX_VALUE} / 2.
+ * The size of XML document that the builder can handle is restricted by the heap space. A single
+ * succinct DOM supports up to {@link Integer#MAX_VALUE} / 2 nodes, so the larger document is cut
+ * into the segments (see {@link ReaderSettings#setSegmentSize(int)}) by the StAX parser. The
+ * built-in tokenizer falls back to the StAX parser if the document exceeds a single DOM.
  *
  * @author Yauheni Shahun
  */
 public class SuccinctDocumentBuilder extends DocumentBuilder {
 
   private final XMLInputFactory factory;
+  private final ReaderSettings settings;
 
   /**
-   * Constructs a document builder.
+   * Constructs a document builder with the default settings.
    *
    * @param factory the underlying {@link XMLInputFactory}
    */
   protected SuccinctDocumentBuilder(XMLInputFactory factory) {
+    this(factory, new ReaderSettings());
+  }
+
+  /**
+   * Constructs a document builder.
+   *
+   * @param factory the underlying {@link XMLInputFactory}
+   * @param settings the settings of the succinct DOM construction
+   */
+  protected SuccinctDocumentBuilder(XMLInputFactory factory, ReaderSettings settings) {
     this.factory = factory;
+    this.settings = settings;
   }
 
   /**
-   * @throws SAXException if the number of nodes that the succinct DOM can handle is exceeded
+   * @throws SAXException if the number of nodes that the succinct DOM can handle is exceeded (the
+   *         {@link NodeLimitException} is wrapped), or the parsing is cancelled (the
+   *         {@link ParseCancelledException} is wrapped), or the memory budget is exceeded (the
+   *         {@link MemoryBudgetException} is wrapped)
    */
   @Override
   public Document parse(InputSource is) throws SAXException, IOException {
+    ParseStatisticsListener statisticsListener = settings.getStatisticsListener();
+    if (statisticsListener == null) {
+      return parse(is, null);
+    }
+    ParseStatistics.Recorder recorder = new ParseStatistics.Recorder();
+    Document document = parse(is, recorder);
+    statisticsListener.parsed(recorder.build());
+    return document;
+  }
+
+  /**
+   * Parses the XML input and records the statistics if the recorder is given.
+   */
+  private Document parse(InputSource is, ParseStatistics.Recorder recorder)
+      throws SAXException, IOException {
+    int attempt = 1;
     try {
-      XMLStreamReader streamReader = factory.createXMLStreamReader(toSource(is));
+      if ((settings.isNativeTokenizer() || settings.getParallelism() > 1)
+          && !isNamespaceAware()) {
+        File file = toFile(is);
+        if (file != null) {
+          try {
+            return new NativeDomBuilder(settings).build(file, is.getSystemId(), recorder);
+          } catch (UnsupportedInputException | NodeLimitException | XMLStreamException e) {
+            // Fall back to the sequential parsing that segments the large documents and is also in
+            // charge of the error reporting.
+            // The time of the failed attempt is left in the statistics.
+            attempt++;
+          }
+        }
+      }
+      DocumentSize size = null;
+      if (settings.isPreScan() && isRereadable(is)) {
+        long time = (recorder != null) ? System.nanoTime() : 0;
+        size = scan(is);
+        if (recorder != null) {
+          recorder.addTimeSince(ParsePhase.PRE_SCAN, time);
+        }
+      }
+      boolean isCounted = (recorder != null || settings.getProgressListener() != null);
+      InputCounter counter = isCounted ? new InputCounter() : null;
+      StreamSource source = toSource(is, counter);
       try {
-        SuccinctDomReader domReader =
-            new SuccinctDomReader(streamReader, is.getSystemId(), isNamespaceAware());
-        return domReader.parse();
+        XMLStreamReader streamReader = factory.createXMLStreamReader(source);
+        try {
+          SuccinctDomReader domReader = (size == null)
+              ? new SuccinctDomReader(streamReader, is.getSystemId(), isNamespaceAware(), settings)
+              : new SuccinctDomReader(
+                  streamReader, is.getSystemId(), isNamespaceAware(), settings, size);
+          if (recorder != null) {
+            domReader.setRecorder(recorder);
+          }
+          if (counter != null) {
+            domReader.setInputCounter(counter);
+          }
+          if (attempt > 1) {
+            // The progress of the failed attempt is dropped, so the listener is told it restarts.
+            domReader.setAttempt(attempt);
+          }
+          Document document = domReader.parse();
+          if (recorder != null) {
+            recorder.setInputLength(counter.getCount());
+          }
+          return document;
+        } finally {
+          streamReader.close();
+        }
       } finally {
-        streamReader.close();
+        closeOpenedStream(is, source);
       }
-    } catch (NodeLimitException e) {
-      throw new SAXException("Can't load the DOM: node limit is exceeded.");
+    } catch (NodeLimitException | ParseCancelledException | MemoryBudgetException e) {
+      throw new SAXException("Can't load the DOM: " + e.getMessage(), e);
     } catch (XMLStreamException e) {
       throw new SAXException(e.getMessage(), e);
     }
@@ -148,10 +230,51 @@ public class SuccinctDocumentBuilder extends DocumentBuilder {
     throw new UnsupportedOperationException("getDOMImplementation");
   }
 
+  /**
+   * Scans the XML input to count the sizes of the succinct DOM structures.
+   */
+  private DocumentSize scan(InputSource is) throws XMLStreamException {
+    XMLStreamReader streamReader = factory.createXMLStreamReader(toSource(is));
+    try {
+      return DocumentSize.scan(streamReader);
+    } finally {
+      streamReader.close();
+    }
+  }
+
+  /**
+   * Checks whether the input can be read more than once, i.e. it's given by the system ID only.
+   */
+  private static boolean isRereadable(InputSource is) {
+    return is.getCharacterStream() == null && is.getByteStream() == null
+        && is.getSystemId() != null;
+  }
+
+  /**
+   * Resolves the file that the input is given by.
+   *
+   * @return the file or {@code null} if the input isn't a file given by the system ID
+   */
+  private static File toFile(InputSource is) {
+    if (!isRereadable(is)) {
+      return null;
+    }
+    try {
+      URI uri = new URI(is.getSystemId());
+      if (!"file".equals(uri.getScheme())) {
+        return null;
+      }
+      File file = new File(uri);
+      return file.isFile() ? file : null;
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
   /**
    * Transforms the given {@link InputSource} to the {@link Source}.
    */
-  private static Source toSource(InputSource inputSource) {
+  private static StreamSource toSource(InputSource inputSource) {
     if (inputSource.getCharacterStream() != null) {
       return new StreamSource(inputSource.getCharacterStream(), inputSource.getSystemId());
     }
@@ -163,4 +286,43 @@ public class SuccinctDocumentBuilder extends DocumentBuilder {
     }
     throw new IllegalStateException("InputSource is empty.");
   }
+
+  /**
+   * Transforms the given {@link InputSource} to the {@link StreamSource} whose input is counted by
+   * the counter. The input that is given by the system ID is opened to be counted, so it must be
+   * closed by {@link #closeOpenedStream(InputSource, StreamSource)}.
+   *
+   * @param counter the counter of the input, or {@code null} if the input isn't counted
+   */
+  private static StreamSource toSource(InputSource inputSource, InputCounter counter)
+      throws IOException {
+    if (counter == null) {
+      return toSource(inputSource);
+    }
+    if (inputSource.getCharacterStream() != null) {
+      return new StreamSource(
+          counter.wrap(inputSource.getCharacterStream()), inputSource.getSystemId());
+    }
+    if (inputSource.getByteStream() != null) {
+      return new StreamSource(counter.wrap(inputSource.getByteStream()), inputSource.getSystemId());
+    }
+    URL url;
+    try {
+      url = new URL(inputSource.getSystemId());
+    } catch (MalformedURLException e) {
+      // Leave the system ID that isn't a URL to the parser, the input isn't counted then.
+      return toSource(inputSource);
+    }
+    return new StreamSource(counter.wrap(url.openStream()), inputSource.getSystemId());
+  }
+
+  /**
+   * Closes the stream that has been opened by the system ID of the input for counting.
+   */
+  private static void closeOpenedStream(InputSource inputSource, StreamSource source)
+      throws IOException {
+    if (isRereadable(inputSource) && source.getInputStream() != null) {
+      source.getInputStream().close();
+    }
+  }
 }
@@ -16,6 +16,12 @@
 
 package ys.succinct.xml.parser;
 
+import ys.succinct.xml.dom.TextStoreType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -30,6 +36,21 @@ import javax.xml.stream.XMLInputFactory;
  * <li>No JAXP attribute is supported
  * <li>No feature is supported.
  * </ul>
+ * <p>
+ * The factory supports the following attributes that tune the succinct DOM construction:
+ * <ul>
+ * <li>{@link #TEXT_STORE_TYPE}
+ * <li>{@link #COMPACT_OFFSETS}
+ * <li>{@link #PRE_SCAN}
+ * <li>{@link #NATIVE_TOKENIZER}
+ * <li>{@link #PARALLELISM}
+ * <li>{@link #TAG_INDEX}
+ * <li>{@link #ID_ATTRIBUTES}
+ * <li>{@link #STATISTICS_LISTENER}
+ * <li>{@link #PROGRESS_LISTENER}
+ * <li>{@link #MEMORY_BUDGET}
+ * <li>{@link #SEGMENT_SIZE}.
+ * </ul>
  *
  * @see javax.xml.stream
  *
@@ -37,7 +58,88 @@ import javax.xml.stream.XMLInputFactory;
  */
 public class SuccinctDocumentBuilderFactory extends DocumentBuilderFactory {
 
+  /**
+   * The attribute that defines the type of the store for the values of the text nodes and
+   * attributes. The value is either the {@link TextStoreType} or its name.
+   *
+   * @see ReaderSettings#setTextStoreType(TextStoreType)
+   */
+  public static final String TEXT_STORE_TYPE = "ys.succinct.xml.textStoreType";
+  /**
+   * The attribute that defines whether the offsets of the text node and attribute values are
+   * Elias-Fano encoded. The value is either the {@link Boolean} or its string representation.
+   *
+   * @see ReaderSettings#setCompactOffsets(boolean)
+   */
+  public static final String COMPACT_OFFSETS = "ys.succinct.xml.compactOffsets";
+  /**
+   * The attribute that defines whether the XML input is scanned beforehand to size the succinct
+   * DOM structures. The value is either the {@link Boolean} or its string representation.
+   *
+   * @see ReaderSettings#setPreScan(boolean)
+   */
+  public static final String PRE_SCAN = "ys.succinct.xml.preScan";
+  /**
+   * The attribute that defines whether the XML input is parsed by the built-in tokenizer instead of
+   * the StAX parser. The value is either the {@link Boolean} or its string representation.
+   *
+   * @see ReaderSettings#setNativeTokenizer(boolean)
+   */
+  public static final String NATIVE_TOKENIZER = "ys.succinct.xml.nativeTokenizer";
+  /**
+   * The attribute that defines the number of the threads that parse the XML input in parallel.
+   * The value is either the {@link Integer} or its string representation.
+   *
+   * @see ReaderSettings#setParallelism(int)
+   */
+  public static final String PARALLELISM = "ys.succinct.xml.parallelism";
+  /**
+   * The attribute that defines whether the posting index of the elements by their names is built.
+   * The value is either the {@link Boolean} or its string representation.
+   *
+   * @see ReaderSettings#setTagIndex(boolean)
+   */
+  public static final String TAG_INDEX = "ys.succinct.xml.tagIndex";
+  /**
+   * The attribute that defines the qualified names of the attributes that are indexed as the
+   * element IDs. The value is either the {@link Collection} of the names or the comma-separated
+   * string.
+   *
+   * @see ReaderSettings#setIdAttributeNames(Collection)
+   */
+  public static final String ID_ATTRIBUTES = "ys.succinct.xml.idAttributes";
+  /**
+   * The attribute that defines the listener that receives the statistics of the parsing. The
+   * value is the {@link ParseStatisticsListener} or {@code null}.
+   *
+   * @see ReaderSettings#setStatisticsListener(ParseStatisticsListener)
+   */
+  public static final String STATISTICS_LISTENER = "ys.succinct.xml.statisticsListener";
+  /**
+   * The attribute that defines the listener that is notified of the progress of the parsing. The
+   * value is the {@link ParseProgressListener} or {@code null}.
+   *
+   * @see ReaderSettings#setProgressListener(ParseProgressListener)
+   */
+  public static final String PROGRESS_LISTENER = "ys.succinct.xml.progressListener";
+  /**
+   * The attribute that defines the memory budget of the parsing in bytes. The value is either the
+   * {@link Long} (or {@link Integer}) or its string representation.
+   *
+   * @see ReaderSettings#setMemoryBudget(long)
+   */
+  public static final String MEMORY_BUDGET = "ys.succinct.xml.memoryBudget";
+  /**
+   * The attribute that defines the number of the parentheses after which the large document is
+   * cut into the next segment. The value is either the {@link Integer} or its string
+   * representation.
+   *
+   * @see ReaderSettings#setSegmentSize(int)
+   */
+  public static final String SEGMENT_SIZE = "ys.succinct.xml.segmentSize";
+
   private final XMLInputFactory factory;
+  private final ReaderSettings settings = new ReaderSettings();
 
   public SuccinctDocumentBuilderFactory() {
     factory = XMLInputFactory.newFactory();
@@ -48,17 +150,88 @@ public class SuccinctDocumentBuilderFactory extends DocumentBuilderFactory {
 
   @Override
   public DocumentBuilder newDocumentBuilder() throws ParserConfigurationException {
-    return new SuccinctDocumentBuilder(factory);
+    return new SuccinctDocumentBuilder(factory, new ReaderSettings(settings));
   }
 
+  /**
+   * Sets the attribute that tunes the succinct DOM construction.
+   *
+   * @throws IllegalArgumentException if the attribute isn't supported or its value is invalid
+   */
   @Override
   public void setAttribute(String name, Object value) throws IllegalArgumentException {
-    throw new IllegalArgumentException("No attribute is supported.");
+    switch (name) {
+      case TEXT_STORE_TYPE:
+        settings.setTextStoreType(toEnum(TextStoreType.class, value));
+        break;
+      case COMPACT_OFFSETS:
+        settings.setCompactOffsets(toBoolean(value));
+        break;
+      case PRE_SCAN:
+        settings.setPreScan(toBoolean(value));
+        break;
+      case NATIVE_TOKENIZER:
+        settings.setNativeTokenizer(toBoolean(value));
+        break;
+      case PARALLELISM:
+        settings.setParallelism(toInt(value));
+        break;
+      case TAG_INDEX:
+        settings.setTagIndex(toBoolean(value));
+        break;
+      case ID_ATTRIBUTES:
+        settings.setIdAttributeNames(toNames(value));
+        break;
+      case STATISTICS_LISTENER:
+        settings.setStatisticsListener(toInstance(ParseStatisticsListener.class, value));
+        break;
+      case PROGRESS_LISTENER:
+        settings.setProgressListener(toInstance(ParseProgressListener.class, value));
+        break;
+      case MEMORY_BUDGET:
+        settings.setMemoryBudget(toLong(value));
+        break;
+      case SEGMENT_SIZE:
+        settings.setSegmentSize(toInt(value));
+        break;
+      default:
+        throw new IllegalArgumentException("Attribute is not supported: " + name);
+    }
   }
 
+  /**
+   * Gets the attribute that tunes the succinct DOM construction.
+   *
+   * @throws IllegalArgumentException if the attribute isn't supported
+   */
   @Override
   public Object getAttribute(String name) throws IllegalArgumentException {
-    throw new IllegalArgumentException("No attribute is supported.");
+    switch (name) {
+      case TEXT_STORE_TYPE:
+        return settings.getTextStoreType();
+      case COMPACT_OFFSETS:
+        return settings.isCompactOffsets();
+      case PRE_SCAN:
+        return settings.isPreScan();
+      case NATIVE_TOKENIZER:
+        return settings.isNativeTokenizer();
+      case PARALLELISM:
+        return settings.getParallelism();
+      case TAG_INDEX:
+        return settings.isTagIndex();
+      case ID_ATTRIBUTES:
+        return settings.getIdAttributeNames();
+      case STATISTICS_LISTENER:
+        return settings.getStatisticsListener();
+      case PROGRESS_LISTENER:
+        return settings.getProgressListener();
+      case MEMORY_BUDGET:
+        return settings.getMemoryBudget();
+      case SEGMENT_SIZE:
+        return settings.getSegmentSize();
+      default:
+        throw new IllegalArgumentException("Attribute is not supported: " + name);
+    }
   }
 
   @Override
@@ -76,4 +249,117 @@ public class SuccinctDocumentBuilderFactory extends DocumentBuilderFactory {
     super.setNamespaceAware(awareness);
     factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, awareness);
   }
+
+  /**
+   * Converts the attribute value to the constant of the given enum type. The value is either the
+   * constant itself or its name.
+   *
+   * @throws IllegalArgumentException if the value can't be converted
+   */
+  private static <E extends Enum<E>> E toEnum(Class<E> type, Object value) {
+    if (type.isInstance(value)) {
+      return type.cast(value);
+    }
+    if (value instanceof String) {
+      return Enum.valueOf(type, (String) value);
+    }
+    throw new IllegalArgumentException("Invalid attribute value: " + value);
+  }
+
+  /**
+   * Converts the attribute value to the instance of the given type. The value is either the
+   * instance or {@code null}.
+   *
+   * @throws IllegalArgumentException if the value can't be converted
+   */
+  private static <T> T toInstance(Class<T> type, Object value) {
+    if (value == null || type.isInstance(value)) {
+      return type.cast(value);
+    }
+    throw new IllegalArgumentException("Invalid attribute value: " + value);
+  }
+
+  /**
+   * Converts the attribute value to the boolean. The value is either the {@link Boolean} or its
+   * string representation.
+   *
+   * @throws IllegalArgumentException if the value can't be converted
+   */
+  private static boolean toBoolean(Object value) {
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    if ("true".equals(value) || "false".equals(value)) {
+      return Boolean.parseBoolean((String) value);
+    }
+    throw new IllegalArgumentException("Invalid attribute value: " + value);
+  }
+
+  /**
+   * Converts the attribute value to the integer. The value is either the {@link Integer} or its
+   * string representation.
+   *
+   * @throws IllegalArgumentException if the value can't be converted
+   */
+  private static int toInt(Object value) {
+    if (value instanceof Integer) {
+      return (Integer) value;
+    }
+    if (value instanceof String) {
+      try {
+        return Integer.parseInt((String) value);
+      } catch (NumberFormatException e) {
+        // Fall through.
+      }
+    }
+    throw new IllegalArgumentException("Invalid attribute value: " + value);
+  }
+
+  /**
+   * Converts the attribute value to the long integer. The value is either the {@link Long} (or
+   * {@link Integer}) or its string representation.
+   *
+   * @throws IllegalArgumentException if the value can't be converted
+   */
+  private static long toLong(Object value) {
+    if (value instanceof Long || value instanceof Integer) {
+      return ((Number) value).longValue();
+    }
+    if (value instanceof String) {
+      try {
+        return Long.parseLong((String) value);
+      } catch (NumberFormatException e) {
+        // Fall through.
+      }
+    }
+    throw new IllegalArgumentException("Invalid attribute value: " + value);
+  }
+
+  /**
+   * Converts the attribute value to the list of the names. The value is either the
+   * {@link Collection} of the names or the comma-separated string.
+   *
+   * @throws IllegalArgumentException if the value can't be converted
+   */
+  private static List<String> toNames(Object value) {
+    List<String> names = new ArrayList<>();
+    if (value instanceof Collection) {
+      for (Object name : (Collection<?>) value) {
+        if (!(name instanceof String) || ((String) name).isEmpty()) {
+          throw new IllegalArgumentException("Invalid attribute value: " + value);
+        }
+        names.add((String) name);
+      }
+      return names;
+    }
+    if (value instanceof String) {
+      for (String name : ((String) value).split(",")) {
+        if (!name.trim().isEmpty()) {
+          names.add(name.trim());
+        }
+      }
+      return names;
+    }
+    throw new IllegalArgumentException("Invalid attribute value: " + value);
+  }
 }
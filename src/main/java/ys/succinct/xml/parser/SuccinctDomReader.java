@@ -19,13 +19,20 @@ package ys.succinct.xml.parser;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
-import ys.succinct.util.IntBitSet;
 import ys.succinct.xml.dom.DocumentContext;
 import ys.succinct.xml.dom.ElementStore;
+import ys.succinct.xml.dom.IntArrayBuffer;
 import ys.succinct.xml.dom.QNameStore;
 import ys.succinct.xml.dom.SuccinctDom;
+import ys.succinct.xml.dom.TextStoreType;
 import ys.succinct.xml.dom.ValueStore;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
 import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamConstants;
@@ -34,43 +41,111 @@ import javax.xml.stream.XMLStreamReader;
 
 /**
  * An object that builds the succinct {@link Document} using the underlying {@link XMLStreamReader}.
+ * <p>
+ * The large document is cut between the children of the root element into the segments once the
+ * parentheses (or the attribute bits) of the current segment reach the
+ * {@link ReaderSettings#getSegmentSize() segment size}. The next segment starts with the copies of
+ * the document node and the root element, and the segments are joined into a single document
+ * (see {@link SuccinctDom#join(SuccinctDom[])}).
  *
  * @author Yauheni Shahun
  */
 public class SuccinctDomReader {
 
+  private static final String NODE_LIMIT_MESSAGE = "Number of nodes exceeds the limit of the "
+      + "segment of the succinct DOM (2^31 - 1 parentheses, i.e. about 1.07 billion nodes): "
+      + "every child of the root element along with its subtree must fit in a segment.";
+
   private final XMLStreamReader reader;
   private final String documentURI;
   private final boolean isNamespaceAware;
-
-  private final IntBitSet parenthesisBits = new IntBitSet();
-  private final IntBitSet nodeBits = new IntBitSet();
-  private final IntBitSet attributeBits = new IntBitSet();
-  private final ElementStore.Builder elementStoreBuilder = new ElementStore.Builder();
-  private final ValueStore.Builder textStoreBuilder = new ValueStore.Builder();
-  private final QNameStore.Builder attributeNameStoreBuilder = new QNameStore.Builder();
-  private final ValueStore.Builder attributeValueStoreBuilder = new ValueStore.Builder();
+  private final int parallelism;
+  private final boolean isTagIndex;
+  private final Set<String> idAttributeNames;
+  private final ParseStatisticsListener statisticsListener;
+  private final TextStoreType textStoreType;
+  private final boolean isCompactOffsets;
+  private final int segmentSize;
+
+  /*
+   * The builders of the current segment.
+   */
+  private IntArrayBuffer parenthesisBits;
+  private IntArrayBuffer nodeBits;
+  private IntArrayBuffer attributeBits;
+  private ElementStore.Builder elementStoreBuilder;
+  private ValueStore.Builder textStoreBuilder;
+  private QNameStore.Builder attributeNameStoreBuilder;
+  private ValueStore.Builder attributeValueStoreBuilder;
+  /**
+   * The positions of the ID attributes in the attribute bit string.
+   */
+  private IntArrayBuffer idAttributeIndexes;
+  private int idAttributeCount;
 
   /**
-   * Counter of the parentheses.
+   * Counter of the parentheses of the current segment.
    */
   private int parenthesisCount;
   /**
-   * Counter of the DOM nodes.
+   * Counter of the DOM nodes of the current segment.
    */
   private int nodeCount;
   /**
-   * Counter of bits in the attribute bit string.
+   * Counter of bits in the attribute bit string of the current segment.
    */
   private int attributeCount;
 
   private int documentIndex;
+  /**
+   * The index of the root element (or its copy) in the current segment, or {@code -1} if the
+   * root element hasn't started yet.
+   */
+  private int rootIndex = -1;
+  /**
+   * The depth of the current element, {@code 0} outside of the root element.
+   */
+  private int depth;
+  /**
+   * The root element that is copied to every next segment.
+   */
+  private ElementCopy root;
+  /**
+   * The completed segments.
+   */
+  private final List<Segment> segments = new ArrayList<>();
+  /**
+   * The number of the nodes of the completed segments, excluding the copies.
+   */
+  private long baseNodeCount;
+  /**
+   * The estimated memory of the completed segments.
+   */
+  private long frozenMemory;
   private String inputEncoding;
   private String xmlEncoding;
   private String xmlVersion;
   private boolean isXmlStandalone;
   private String defaultNamespaceUri;
 
+  /**
+   * The recorder of the statistics, or {@code null} if the statistics aren't requested.
+   */
+  private ParseStatistics.Recorder recorder;
+  /**
+   * The tracker of the progress, or {@code null} if the progress isn't tracked.
+   */
+  private final ProgressTracker tracker;
+  /**
+   * The counter of the input, or {@code null} if the input isn't counted by the document builder.
+   */
+  private InputCounter inputCounter;
+  /**
+   * The number of the nodes of the document that the next checkpoint of the progress is at.
+   */
+  private long checkpointNodeCount;
+  private long inputLength;
+
   /**
    * Constructs an XML reader that builds the succinct DOM.
    *
@@ -79,9 +154,114 @@ public class SuccinctDomReader {
    * @param isNamespaceAware specifies whether the reader is aware of the namespaces
    */
   public SuccinctDomReader(XMLStreamReader reader, String URI, boolean isNamespaceAware) {
+    this(reader, URI, isNamespaceAware, new ReaderSettings());
+  }
+
+  /**
+   * Constructs an XML reader that builds the succinct DOM.
+   *
+   * @param reader the underlying XML stream reader
+   * @param URI the URI of the XML input
+   * @param isNamespaceAware specifies whether the reader is aware of the namespaces
+   * @param settings the settings of the succinct DOM construction
+   */
+  public SuccinctDomReader(
+      XMLStreamReader reader, String URI, boolean isNamespaceAware, ReaderSettings settings) {
     this.reader = reader;
     this.documentURI = URI;
     this.isNamespaceAware = isNamespaceAware;
+    this.parallelism = settings.getParallelism();
+    this.isTagIndex = settings.isTagIndex();
+    this.idAttributeNames = settings.getIdAttributeNames();
+    this.statisticsListener = settings.getStatisticsListener();
+    this.textStoreType = settings.getTextStoreType();
+    this.isCompactOffsets = settings.isCompactOffsets();
+    this.segmentSize = settings.getSegmentSize();
+    this.tracker = ProgressTracker.create(settings);
+    this.checkpointNodeCount = (tracker != null) ? ProgressTracker.INTERVAL : Long.MAX_VALUE;
+    createBuilders();
+  }
+
+  /**
+   * Constructs an XML reader that builds the succinct DOM of the known size. All the structures
+   * are allocated once at their final size.
+   *
+   * @param reader the underlying XML stream reader
+   * @param URI the URI of the XML input
+   * @param isNamespaceAware specifies whether the reader is aware of the namespaces
+   * @param settings the settings of the succinct DOM construction
+   * @param size the sizes that the pre-scan of the same XML input has counted
+   */
+  SuccinctDomReader(XMLStreamReader reader, String URI, boolean isNamespaceAware,
+      ReaderSettings settings, DocumentSize size) {
+    this(reader, URI, isNamespaceAware, settings);
+    if (size.parenthesisCount > segmentSize || size.attributeBitCount > segmentSize) {
+      return; // The document is segmented, the structures grow segment by segment.
+    }
+    this.parenthesisBits = new IntArrayBuffer(DocumentSize.toBitCapacity(size.parenthesisCount));
+    this.nodeBits = new IntArrayBuffer(DocumentSize.toBitCapacity(size.nodeCount));
+    this.attributeBits = new IntArrayBuffer(DocumentSize.toBitCapacity(size.attributeBitCount));
+    this.elementStoreBuilder = new ElementStore.Builder(DocumentSize.toCapacity(size.elementCount));
+    this.textStoreBuilder = new ValueStore.Builder(textStoreType.newBuilder(size.textLength),
+        isCompactOffsets, DocumentSize.toCapacity(size.textCount));
+    this.attributeNameStoreBuilder =
+        new QNameStore.Builder(DocumentSize.toCapacity(size.attributeCount));
+    this.attributeValueStoreBuilder = new ValueStore.Builder(
+        textStoreType.newBuilder(size.attributeLength), isCompactOffsets,
+        DocumentSize.toCapacity(size.attributeCount));
+  }
+
+  /**
+   * Creates the empty builders of the next segment.
+   */
+  private void createBuilders() {
+    parenthesisBits = new IntArrayBuffer();
+    nodeBits = new IntArrayBuffer();
+    attributeBits = new IntArrayBuffer();
+    elementStoreBuilder = new ElementStore.Builder();
+    textStoreBuilder = new ValueStore.Builder(textStoreType.newBuilder(), isCompactOffsets);
+    attributeNameStoreBuilder = new QNameStore.Builder();
+    attributeValueStoreBuilder =
+        new ValueStore.Builder(textStoreType.newBuilder(), isCompactOffsets);
+    idAttributeIndexes = new IntArrayBuffer();
+    idAttributeCount = 0;
+    parenthesisCount = 0;
+    nodeCount = 0;
+    attributeCount = 0;
+  }
+
+  /**
+   * Sets the recorder that the statistics of the parsing are recorded to. The caller is in charge
+   * of reporting them, the {@link ReaderSettings#getStatisticsListener() listener} of the settings
+   * isn't called then.
+   *
+   * @param recorder the recorder of the statistics
+   */
+  void setRecorder(ParseStatistics.Recorder recorder) {
+    this.recorder = recorder;
+  }
+
+  /**
+   * Sets the counter of the input that the progress is reported by. Otherwise, the progress is
+   * reported by the character offset of the parser.
+   *
+   * @param inputCounter the counter of the input
+   */
+  void setInputCounter(InputCounter inputCounter) {
+    this.inputCounter = inputCounter;
+  }
+
+  /**
+   * Sets the attempt of the parsing that the progress is reported for if the previous attempt has
+   * failed, and notifies the progress listener of the restart.
+   *
+   * @param attempt the attempt of the parsing, 1 for the first one
+   * @throws ParseCancelledException if the parsing is cancelled or the thread is interrupted
+   */
+  void setAttempt(int attempt) {
+    if (tracker != null) {
+      tracker.restart(attempt);
+    }
   }
 
   /**
@@ -89,34 +269,151 @@ public class SuccinctDomReader {
    *
    * @return the succinct {@link Document} instance
    * @throws XMLStreamException if the underlying {@link XMLStreamReader} fails
-   * @throws NodeLimitException if the number of nodes that the succinct DOM can handle is exceeded
+   * @throws NodeLimitException if the number of nodes that a segment of the succinct DOM can
+   *         handle is exceeded
+   * @throws ParseCancelledException if the parsing is cancelled by the progress listener or the
+   *         thread is interrupted
+   * @throws MemoryBudgetException if the projected memory exceeds the budget
    */
   public Document parse() throws XMLStreamException {
-    handleEvent(reader.getEventType());
-    while (reader.hasNext()) {
-      handleEvent(reader.next());
+    boolean isReporting = (recorder == null && statisticsListener != null);
+    if (isReporting) {
+      recorder = new ParseStatistics.Recorder();
     }
+    if (recorder == null) {
+      handleEvent(reader.getEventType());
+      while (reader.hasNext()) {
+        handleEvent(reader.next());
+        if (baseNodeCount + nodeCount >= checkpointNodeCount) {
+          checkIn();
+        }
+      }
+    } else {
+      handleTimedEvents();
+      recorder.setPeakBuilderMemory(estimateBuilderMemory());
+    }
+    if (tracker != null) {
+      checkIn(); // Check in the complete input.
+    }
+    long time = (recorder != null) ? System.nanoTime() : 0;
 
+    segments.add(freezeSegment());
     DocumentContext documentContext = new DocumentContext(
         documentURI, inputEncoding, xmlEncoding, xmlVersion, isXmlStandalone);
+    if (recorder != null) {
+      time = recorder.addTimeSince(ParsePhase.STORES, time);
+    }
 
-    SuccinctDom dom = new SuccinctDom(
-        parenthesisBits.toIntArray(parenthesisCount),
-        parenthesisCount,
-        nodeBits.toIntArray(nodeCount),
-        nodeCount,
-        attributeBits.toIntArray(attributeCount),
-        attributeCount,
-        elementStoreBuilder.build(),
-        textStoreBuilder.build(),
-        attributeNameStoreBuilder.build(),
-        attributeValueStoreBuilder.build(),
-        documentIndex,
-        documentContext,
-        defaultNamespaceUri,
-        isNamespaceAware);
+    // Build the auxiliary indexes concurrently if the parallelism is set.
+    ExecutorService executor = (parallelism > 1) ? new ForkJoinPool(parallelism) : null;
+    Document document;
+    try {
+      SuccinctDom[] doms = new SuccinctDom[segments.size()];
+      for (int i = 0; i < doms.length; i++) {
+        Segment segment = segments.get(i);
+        segments.set(i, null); // Let the builders of the segment go.
+        doms[i] = new SuccinctDom(
+            segment.parentheses,
+            segment.parenthesisCount,
+            segment.nodes,
+            segment.nodeCount,
+            segment.attributes,
+            segment.attributeCount,
+            segment.elementStore,
+            segment.textStore,
+            segment.attributeNameStore,
+            segment.attributeValueStore,
+            segment.documentIndex,
+            documentContext,
+            defaultNamespaceUri,
+            isNamespaceAware,
+            segment.idAttributeIndexes,
+            segment.idAttributeCount,
+            executor);
+      }
+      SuccinctDom dom = SuccinctDom.join(doms);
+      if (isTagIndex) {
+        dom.buildTagIndex();
+      }
+      document = dom.getDocument();
+    } catch (IllegalStateException e) {
+      throw FragmentBuilder.toCancellation(e);
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
 
-    return dom.getDocument();
+    if (recorder != null) {
+      recorder.addTimeSince(ParsePhase.INDEXES, time);
+      recorder.setNodeCount(baseNodeCount + nodeCount);
+    }
+    if (isReporting) {
+      statisticsListener.parsed(recorder.build());
+    }
+    return document;
+  }
+
+  /**
+   * Handles the XML Stream events and records the time of the tokenizing and the handling.
+   */
+  private void handleTimedEvents() throws XMLStreamException {
+    int event = reader.getEventType();
+    long time = System.nanoTime();
+    while (true) {
+      handleEvent(event);
+      time = recorder.addTimeSince(getPhase(event), time);
+      if (baseNodeCount + nodeCount >= checkpointNodeCount) {
+        checkIn();
+        time = System.nanoTime();
+      }
+      if (!reader.hasNext()) {
+        break;
+      }
+      event = reader.next();
+      time = recorder.addTimeSince(ParsePhase.TOKENIZING, time);
+    }
+  }
+
+  /**
+   * Checks in the progress and schedules the next checkpoint.
+   */
+  private void checkIn() {
+    long totalNodeCount = baseNodeCount + nodeCount;
+    checkpointNodeCount = totalNodeCount + ProgressTracker.INTERVAL;
+    if (inputCounter != null) {
+      inputLength = inputCounter.getCount();
+    } else {
+      // The offset is unknown at the end of the document, keep the last one then.
+      inputLength = Math.max(inputLength, reader.getLocation().getCharacterOffset());
+    }
+    tracker.checkIn(inputLength, totalNodeCount, estimateBuilderMemory());
+  }
+
+  /**
+   * Gets the phase that the handling of the XML Stream event belongs to.
+   */
+  private static ParsePhase getPhase(int event) {
+    switch (event) {
+      case XMLStreamConstants.CHARACTERS:
+      case XMLStreamConstants.CDATA:
+      case XMLStreamConstants.COMMENT:
+      case XMLStreamConstants.PROCESSING_INSTRUCTION:
+        return ParsePhase.TEXT;
+      default:
+        return ParsePhase.ELEMENTS;
+    }
+  }
+
+  /**
+   * Estimates the size of the builders that hold the parsed structures from their allocated
+   * buffers. It takes constant time, so it's cheap at every checkpoint.
+   */
+  private long estimateBuilderMemory() {
+    return frozenMemory + parenthesisBits.getAllocatedSize() + nodeBits.getAllocatedSize()
+        + attributeBits.getAllocatedSize() + elementStoreBuilder.estimateSize()
+        + textStoreBuilder.estimateSize() + attributeNameStoreBuilder.estimateSize()
+        + attributeValueStoreBuilder.estimateSize() + idAttributeIndexes.getAllocatedSize();
   }
 
   /**
@@ -163,12 +460,7 @@ public class SuccinctDomReader {
   }
 
   private void handleDocumentStart() {
-    documentIndex = parenthesisCount;
-    parenthesisBits.set(parenthesisCount); // Set the open parenthesis.
-    countParenthesis();
-    nodeBits.set(nodeCount++); // Set the non-text node.
-    elementStoreBuilder.addNode(Node.DOCUMENT_NODE);
-    attributeBits.set(attributeCount++); // No attributes.
+    addDocumentNode();
 
     inputEncoding = reader.getEncoding();
     xmlEncoding = reader.getCharacterEncodingScheme();
@@ -176,27 +468,54 @@ public class SuccinctDomReader {
     isXmlStandalone = reader.isStandalone();
   }
 
+  private void addDocumentNode() {
+    documentIndex = parenthesisCount;
+    parenthesisBits.set(parenthesisCount); // Set the open parenthesis.
+    countParenthesis();
+    nodeBits.set(nodeCount++); // Set the non-text node.
+    elementStoreBuilder.addNode(Node.DOCUMENT_NODE);
+    countAttributes(0); // No attributes.
+  }
+
   private void handleDocumentEnd() {
     countParenthesis(); // Count the closed parenthesis.
   }
 
   private void handleElementStart() {
+    checkSegment();
+    boolean isRoot = (depth == 0);
+    if (isRoot) {
+      rootIndex = parenthesisCount;
+    }
+    depth++;
     parenthesisBits.set(parenthesisCount); // Set the open parenthesis.
     countParenthesis();
     nodeBits.set(nodeCount++); // Set the non-text node.
-    elementStoreBuilder.addNode(reader.getNamespaceURI(), nullOrNotEmpty(reader.getPrefix()),
-        getLocalName(reader.getLocalName(), reader.getName()), Node.ELEMENT_NODE);
+    String elementPrefix = nullOrNotEmpty(reader.getPrefix());
+    String elementLocalName = getLocalName(reader.getLocalName(), reader.getName());
+    elementStoreBuilder.addNode(
+        reader.getNamespaceURI(), elementPrefix, elementLocalName, Node.ELEMENT_NODE);
+    int count = reader.getAttributeCount() + reader.getNamespaceCount();
+    if (isRoot) {
+      root = new ElementCopy(reader.getNamespaceURI(), elementPrefix, elementLocalName, count);
+    }
 
-    attributeCount += reader.getAttributeCount();
     for (int i = 0; i < reader.getAttributeCount(); i++) {
-      attributeNameStoreBuilder.addName(
-          reader.getAttributeNamespace(i), nullOrNotEmpty(reader.getAttributePrefix(i)),
-          getLocalName(reader.getAttributeLocalName(i), reader.getAttributeName(i)));
+      String prefix = nullOrNotEmpty(reader.getAttributePrefix(i));
+      String localName = getLocalName(reader.getAttributeLocalName(i), reader.getAttributeName(i));
+      attributeNameStoreBuilder.addName(reader.getAttributeNamespace(i), prefix, localName);
       attributeValueStoreBuilder.addValue(reader.getAttributeValue(i));
+      if (isRoot) {
+        root.setAttribute(
+            i, reader.getAttributeNamespace(i), prefix, localName, reader.getAttributeValue(i));
+      }
+      if (isIdAttribute(i, prefix, localName)) {
+        // The attributes of the element follow the current position in the attribute bit string.
+        idAttributeIndexes.setInt(idAttributeCount++, attributeCount + i);
+      }
     }
 
     // Process the namespaces as regular attributes.
-    attributeCount += reader.getNamespaceCount();
     for (int i = 0; i < reader.getNamespaceCount(); i++) {
       String namespaceUri = reader.getNamespaceURI(i);
       String prefix = reader.getNamespacePrefix(i);
@@ -204,20 +523,79 @@ public class SuccinctDomReader {
       attributeNameStoreBuilder.addName(
           XMLConstants.XMLNS_ATTRIBUTE_NS_URI, getXmlnsPrefix(prefix), getXmlnsName(prefix));
       attributeValueStoreBuilder.addValue(namespaceUri);
+      if (isRoot) {
+        root.setAttribute(reader.getAttributeCount() + i, XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+            getXmlnsPrefix(prefix), getXmlnsName(prefix), namespaceUri);
+      }
 
       if (defaultNamespaceUri == null && (prefix == null || prefix.isEmpty())) {
         defaultNamespaceUri = namespaceUri;
       }
     }
 
-    attributeBits.set(attributeCount++); // Set attributes separator.
+    countAttributes(count);
   }
 
   private void handleElementEnd() {
+    depth--;
     countParenthesis(); // Count the closed parenthesis.
   }
 
+  /**
+   * Cuts the document into the next segment if the current one has reached its size, and the
+   * next child of the root element starts. The root element and the document node are closed in
+   * the current segment and their copies are opened in the next one.
+   */
+  private void checkSegment() {
+    if (depth != 1 || parenthesisCount <= rootIndex + 1
+        || (parenthesisCount < segmentSize && attributeCount < segmentSize)) {
+      return;
+    }
+    countParentheses(); // Close the root element and the document node.
+    frozenMemory = estimateBuilderMemory();
+    segments.add(freezeSegment());
+    baseNodeCount += nodeCount;
+    createBuilders();
+
+    addDocumentNode();
+    rootIndex = parenthesisCount;
+    parenthesisBits.set(parenthesisCount); // Set the open parenthesis.
+    countParenthesis();
+    nodeBits.set(nodeCount++); // Set the non-text node.
+    elementStoreBuilder.addNode(root.namespaceURI, root.prefix, root.localName, Node.ELEMENT_NODE);
+    for (int i = 0; i < root.attributeValues.length; i++) {
+      attributeNameStoreBuilder.addName(root.attributeNamespaceURIs[i], root.attributePrefixes[i],
+          root.attributeLocalNames[i]);
+      attributeValueStoreBuilder.addValue(root.attributeValues[i]);
+    }
+    countAttributes(root.attributeValues.length);
+    // The copies aren't counted as the nodes of the document.
+    baseNodeCount -= nodeCount;
+  }
+
+  /**
+   * Builds the structures of the current segment.
+   */
+  private Segment freezeSegment() {
+    Segment segment = new Segment();
+    segment.parentheses = parenthesisBits.toBitArray(parenthesisCount);
+    segment.parenthesisCount = parenthesisCount;
+    segment.nodes = nodeBits.toBitArray(nodeCount);
+    segment.nodeCount = nodeCount;
+    segment.attributes = attributeBits.toBitArray(attributeCount);
+    segment.attributeCount = attributeCount;
+    segment.elementStore = elementStoreBuilder.build();
+    segment.textStore = textStoreBuilder.build();
+    segment.attributeNameStore = attributeNameStoreBuilder.build();
+    segment.attributeValueStore = attributeValueStoreBuilder.build();
+    segment.documentIndex = documentIndex;
+    segment.idAttributeIndexes = idAttributeIndexes.toIntArray(idAttributeCount);
+    segment.idAttributeCount = idAttributeCount;
+    return segment;
+  }
+
   private void handleCharacters() {
+    checkSegment();
     parenthesisBits.set(parenthesisCount); // Set the open parenthesis.
     countParentheses(); // Count the open and closed parentheses.
     nodeCount++; // Count the text node.
@@ -226,41 +604,41 @@ public class SuccinctDomReader {
   }
 
   private void handleComment() {
+    checkSegment();
     parenthesisBits.set(parenthesisCount); // Set the open parenthesis.
     countParentheses(); // Count the open and closed parentheses.
     nodeBits.set(nodeCount++); // Set the non-text node.
     elementStoreBuilder.addNode(Node.COMMENT_NODE);
 
     // Add a pseudo-attribute for the comment's text content.
-    attributeCount++;
-    attributeBits.set(attributeCount++);
+    countAttributes(1);
     attributeNameStoreBuilder.addEmptyName();
     attributeValueStoreBuilder.addValue(
         reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
   }
 
   private void handleCData() {
+    checkSegment();
     parenthesisBits.set(parenthesisCount); // Set the open parenthesis.
     countParentheses(); // Count the open and closed parentheses.
     nodeBits.set(nodeCount++); // Set the non-text node.
     elementStoreBuilder.addNode(Node.CDATA_SECTION_NODE);
 
     // Add a pseudo-attribute for the CDATA's text content.
-    attributeCount++;
-    attributeBits.set(attributeCount++);
+    countAttributes(1);
     attributeNameStoreBuilder.addEmptyName();
     attributeValueStoreBuilder.addValue(
         reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
   }
 
   private void handleProcessingInstruction() {
+    checkSegment();
     parenthesisBits.set(parenthesisCount); // Set the open parenthesis.
     countParentheses(); // Count the open and closed parentheses.
     nodeBits.set(nodeCount++); // Set the non-text node.
     elementStoreBuilder.addNode(Node.PROCESSING_INSTRUCTION_NODE);
 
-    attributeCount += 2;
-    attributeBits.set(attributeCount++);
+    countAttributes(2);
     // Add the pseudo-attribute for the PI's target.
     attributeNameStoreBuilder.addEmptyName();
     attributeValueStoreBuilder.addValue(reader.getPITarget());
@@ -277,7 +655,7 @@ public class SuccinctDomReader {
   private void countParenthesis() {
     parenthesisCount++;
     if (parenthesisCount < 0) {
-      throw new NodeLimitException();
+      throw new NodeLimitException(NODE_LIMIT_MESSAGE);
     }
   }
 
@@ -289,10 +667,41 @@ public class SuccinctDomReader {
   private void countParentheses() {
     parenthesisCount += 2;
     if (parenthesisCount < 0) {
-      throw new NodeLimitException();
+      throw new NodeLimitException(NODE_LIMIT_MESSAGE);
     }
   }
 
+  /**
+   * Counts the attributes (including the pseudo-attributes) of a node and sets the separator
+   * that follows them in the attribute bit string.
+   *
+   * @param count the number of the attributes
+   * @throws NodeLimitException if the number of bits that the attribute bit string can handle is
+   *         exceeded
+   */
+  private void countAttributes(int count) {
+    if (count >= Integer.MAX_VALUE - attributeCount) {
+      throw new NodeLimitException(
+          "Number of attributes exceeds the limit of the succinct DOM (2^31 - 1 bits).");
+    }
+    attributeCount += count;
+    attributeBits.set(attributeCount++); // Set attributes separator.
+  }
+
+  /**
+   * Checks whether the attribute of the current element is either declared of the ID type or
+   * listed among the ID attribute names.
+   */
+  private boolean isIdAttribute(int index, String prefix, String localName) {
+    if ("ID".equals(reader.getAttributeType(index))) {
+      return true;
+    }
+    if (idAttributeNames.isEmpty()) {
+      return false;
+    }
+    return idAttributeNames.contains((prefix != null) ? (prefix + ":" + localName) : localName);
+  }
+
   /**
    * Returns either the given string if it has non-zero length or {@code null} otherwise.
    */
@@ -323,4 +732,55 @@ public class SuccinctDomReader {
   private static String getXmlnsName(String prefix) {
     return (prefix == null) ? XMLConstants.XMLNS_ATTRIBUTE : prefix;
   }
+
+  /**
+   * The structures of the completed segment.
+   */
+  private static final class Segment {
+    int[] parentheses;
+    int parenthesisCount;
+    int[] nodes;
+    int nodeCount;
+    int[] attributes;
+    int attributeCount;
+    ElementStore elementStore;
+    ValueStore textStore;
+    QNameStore attributeNameStore;
+    ValueStore attributeValueStore;
+    int documentIndex;
+    int[] idAttributeIndexes;
+    int idAttributeCount;
+  }
+
+  /**
+   * The name and the attributes (including the namespaces) of the root element that are copied to
+   * every next segment.
+   */
+  private static final class ElementCopy {
+    final String namespaceURI;
+    final String prefix;
+    final String localName;
+    final String[] attributeNamespaceURIs;
+    final String[] attributePrefixes;
+    final String[] attributeLocalNames;
+    final String[] attributeValues;
+
+    ElementCopy(String namespaceURI, String prefix, String localName, int attributeCount) {
+      this.namespaceURI = namespaceURI;
+      this.prefix = prefix;
+      this.localName = localName;
+      this.attributeNamespaceURIs = new String[attributeCount];
+      this.attributePrefixes = new String[attributeCount];
+      this.attributeLocalNames = new String[attributeCount];
+      this.attributeValues = new String[attributeCount];
+    }
+
+    void setAttribute(
+        int index, String namespaceURI, String prefix, String localName, String value) {
+      attributeNamespaceURIs[index] = namespaceURI;
+      attributePrefixes[index] = prefix;
+      attributeLocalNames[index] = localName;
+      attributeValues[index] = value;
+    }
+  }
 }
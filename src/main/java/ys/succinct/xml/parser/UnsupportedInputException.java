@@ -0,0 +1,35 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.parser;
+
+/**
+ * An exception thrown if the XML input can't be parsed in parallel, e.g. it's not encoded in UTF-8
+ * or has a DTD. The input is parsed sequentially then.
+ *
+ * @author Yauheni Shahun
+ */
+class UnsupportedInputException extends Exception {
+
+  /**
+   * Constructs an exception with the message that describes the unsupported feature.
+   *
+   * @param message the detail message
+   */
+  UnsupportedInputException(String message) {
+    super(message);
+  }
+}
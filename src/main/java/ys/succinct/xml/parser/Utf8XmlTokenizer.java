@@ -0,0 +1,593 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * A tokenizer of the UTF-8 encoded XML that feeds the {@link FragmentBuilder} directly from the
+ * bytes. The tokenizer handles a byte range of the document that starts and ends at the tag
+ * boundaries, so the ranges can be tokenized independently. The names are interned by their bytes
+ * in the {@link NameTable}, and the text and attribute values are decoded to a reusable character
+ * buffer, so no {@link String} is allocated per token.
+ * <p>
+ * The tokenizer supports the XML subset that doesn't require a DTD: the predefined entity and
+ * character references are resolved, the line ends and the attribute values are normalized. The
+ * well-formedness checks are limited to the structure of the markup, the characters aren't
+ * checked against the XML grammar.
+ *
+ * @author Yauheni Shahun
+ */
+final class Utf8XmlTokenizer {
+
+  private static final int INITIAL_CAPACITY = 256;
+  private static final int MAX_ENTITY_NAME_LENGTH = 8;
+
+  private final ByteBuffer buffer;
+  private final long offset;
+  private final int limit;
+  private final boolean isLast;
+  private final NameTable nameTable;
+
+  private int position;
+  /**
+   * The buffer of the decoded characters of the current token.
+   */
+  private char[] chars = new char[INITIAL_CAPACITY];
+  private int charCount;
+
+  private String xmlVersion;
+  private String xmlEncoding;
+  private boolean isXmlStandalone;
+
+  /**
+   * Constructs a tokenizer.
+   *
+   * @param buffer the bytes of the range from the index 0 to the limit
+   * @param offset the offset of the range in the document (for the error messages)
+   * @param isLast whether the range ends at the end of the document
+   * @param nameTable the table to intern the names
+   */
+  Utf8XmlTokenizer(ByteBuffer buffer, long offset, boolean isLast, NameTable nameTable) {
+    this.buffer = buffer;
+    this.offset = offset;
+    this.limit = buffer.limit();
+    this.isLast = isLast;
+    this.nameTable = nameTable;
+  }
+
+  /**
+   * Returns the index of the byte that the tokenizer stopped at.
+   */
+  int getPosition() {
+    return position;
+  }
+
+  String getXmlVersion() {
+    return xmlVersion;
+  }
+
+  String getXmlEncoding() {
+    return xmlEncoding;
+  }
+
+  boolean isXmlStandalone() {
+    return isXmlStandalone;
+  }
+
+  /**
+   * Parses the byte order mark and the XML declaration at the start of the document (if any).
+   *
+   * @throws UnsupportedInputException if the document isn't encoded in UTF-8
+   */
+  void parseDeclaration() throws XMLStreamException, UnsupportedInputException {
+    if (limit >= 2 && (buffer.get(0) == 0 || buffer.get(1) == 0
+        || (buffer.get(0) == (byte) 0xFE && buffer.get(1) == (byte) 0xFF)
+        || (buffer.get(0) == (byte) 0xFF && buffer.get(1) == (byte) 0xFE))) {
+      throw new UnsupportedInputException("The input isn't encoded in UTF-8.");
+    }
+    if (limit >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB
+        && buffer.get(2) == (byte) 0xBF) {
+      position = 3; // Skip the byte order mark.
+    }
+    if (limit - position < 6 || !startsWith("<?xml") || !isWhitespace(byteAt(position + 5))) {
+      return;
+    }
+    position += 5;
+    xmlVersion = parsePseudoAttribute("version");
+    if (xmlVersion == null) {
+      throw error("The version is missing in the XML declaration.");
+    }
+    xmlEncoding = parsePseudoAttribute("encoding");
+    String standalone = parsePseudoAttribute("standalone");
+    if (standalone != null) {
+      if (!"yes".equals(standalone) && !"no".equals(standalone)) {
+        throw error("Invalid standalone value: " + standalone);
+      }
+      isXmlStandalone = "yes".equals(standalone);
+    }
+    skipWhitespaces();
+    if (!startsWith("?>")) {
+      throw error("The XML declaration isn't closed.");
+    }
+    position += 2;
+    if (xmlEncoding != null && !"UTF-8".equalsIgnoreCase(xmlEncoding)
+        && !"UTF8".equalsIgnoreCase(xmlEncoding) && !"US-ASCII".equalsIgnoreCase(xmlEncoding)
+        && !"ASCII".equalsIgnoreCase(xmlEncoding)) {
+      throw new UnsupportedInputException("Unsupported encoding: " + xmlEncoding);
+    }
+  }
+
+  /**
+   * Tokenizes the range from the current position.
+   *
+   * @param builder the builder to feed
+   * @param isRootStop whether the tokenizer stops right after the start tag of the root element
+   *        unless the root is empty
+   * @return {@code true} if the tokenizer stopped after the start tag of the root element, or
+   *         {@code false} if it reached the end of the range
+   * @throws XMLStreamException if the XML isn't well-formed
+   * @throws UnsupportedInputException if the range has a DTD, a token crosses its end or the
+   *         builder exceeds the segment size
+   */
+  boolean parse(FragmentBuilder builder, boolean isRootStop)
+      throws XMLStreamException, UnsupportedInputException {
+    while (position < limit) {
+      builder.checkSegmentSize();
+      if (buffer.get(position) != '<') {
+        parseText(builder);
+        continue;
+      }
+      byte next = byteAt(position + 1);
+      if (next == '/') {
+        parseEndTag(builder);
+      } else if (next == '?') {
+        parseProcessingInstruction(builder);
+      } else if (next != '!') {
+        parseStartTag(builder);
+        if (isRootStop && builder.getDepth() == 1) {
+          return true;
+        }
+      } else if (startsWith("<!--")) {
+        parseComment(builder);
+      } else if (startsWith("<![CDATA[")) {
+        parseCData(builder);
+      } else if (startsWith("<!DOCTYPE")) {
+        throw new UnsupportedInputException("DTD isn't supported.");
+      } else {
+        throw error("Invalid markup.");
+      }
+    }
+    return false;
+  }
+
+  private void parseStartTag(FragmentBuilder builder)
+      throws XMLStreamException, UnsupportedInputException {
+    position++; // Skip '<'.
+    builder.startElement(parseName().qualifiedName);
+    while (true) {
+      boolean hasWhitespace = skipWhitespaces();
+      byte b = byteAt(position);
+      if (b == '>') {
+        position++;
+        builder.endStartTag(false);
+        return;
+      }
+      if (b == '/') {
+        if (byteAt(position + 1) != '>') {
+          throw error("The start tag isn't closed properly.");
+        }
+        position += 2;
+        builder.endStartTag(true);
+        return;
+      }
+      if (!hasWhitespace) {
+        throw error("Whitespace is required before the attribute.");
+      }
+      NameTable.Name name = parseName();
+      skipWhitespaces();
+      if (byteAt(position) != '=') {
+        throw error("The attribute has no value: " + name.qualifiedName);
+      }
+      position++;
+      skipWhitespaces();
+      parseAttributeValue();
+      builder.addAttribute(name, chars, 0, charCount);
+    }
+  }
+
+  private void parseEndTag(FragmentBuilder builder)
+      throws XMLStreamException, UnsupportedInputException {
+    position += 2; // Skip "</".
+    String name = parseName().qualifiedName;
+    skipWhitespaces();
+    if (byteAt(position) != '>') {
+      throw error("The end tag isn't closed properly: " + name);
+    }
+    position++;
+    builder.endElement(name);
+  }
+
+  private void parseText(FragmentBuilder builder)
+      throws XMLStreamException, UnsupportedInputException {
+    charCount = 0;
+    while (position < limit) {
+      byte b = buffer.get(position);
+      if (b == '<') {
+        break;
+      }
+      if (b == '&') {
+        parseReference();
+      } else if (b == '\r') {
+        parseLineEnd('\n');
+      } else {
+        decodeChar();
+      }
+    }
+    builder.addText(chars, 0, charCount);
+  }
+
+  private void parseAttributeValue() throws XMLStreamException, UnsupportedInputException {
+    byte quote = byteAt(position);
+    if (quote != '"' && quote != '\'') {
+      throw error("The attribute value isn't quoted.");
+    }
+    position++;
+    charCount = 0;
+    while (true) {
+      byte b = byteAt(position);
+      if (b == quote) {
+        position++;
+        return;
+      }
+      if (b == '<') {
+        throw error("The attribute value contains '<'.");
+      }
+      if (b == '&') {
+        parseReference();
+      } else if (b == '\r') {
+        parseLineEnd(' ');
+      } else if (b == '\n' || b == '\t') {
+        appendChar(' ');
+        position++;
+      } else {
+        decodeChar();
+      }
+    }
+  }
+
+  private void parseComment(FragmentBuilder builder)
+      throws XMLStreamException, UnsupportedInputException {
+    position += 4; // Skip "<!--".
+    charCount = 0;
+    while (true) {
+      byte b = byteAt(position);
+      if (b == '-' && byteAt(position + 1) == '-') {
+        if (byteAt(position + 2) != '>') {
+          throw error("The comment contains '--'.");
+        }
+        position += 3;
+        break;
+      }
+      if (b == '\r') {
+        parseLineEnd('\n');
+      } else {
+        decodeChar();
+      }
+    }
+    builder.addComment(chars, 0, charCount);
+  }
+
+  private void parseCData(FragmentBuilder builder)
+      throws XMLStreamException, UnsupportedInputException {
+    position += 9; // Skip "<![CDATA[".
+    charCount = 0;
+    while (true) {
+      byte b = byteAt(position);
+      if (b == ']' && byteAt(position + 1) == ']' && byteAt(position + 2) == '>') {
+        position += 3;
+        break;
+      }
+      if (b == '\r') {
+        parseLineEnd('\n');
+      } else {
+        decodeChar();
+      }
+    }
+    builder.addCData(chars, 0, charCount);
+  }
+
+  private void parseProcessingInstruction(FragmentBuilder builder)
+      throws XMLStreamException, UnsupportedInputException {
+    position += 2; // Skip "<?".
+    String target = parseName().qualifiedName;
+    if (target.equalsIgnoreCase("xml")) {
+      throw error("The XML declaration is allowed only at the start of the document.");
+    }
+    charCount = 0;
+    if (!skipWhitespaces() && !startsWith("?>")) {
+      throw error("Whitespace is required after the processing instruction target.");
+    }
+    while (true) {
+      byte b = byteAt(position);
+      if (b == '?' && byteAt(position + 1) == '>') {
+        position += 2;
+        break;
+      }
+      if (b == '\r') {
+        parseLineEnd('\n');
+      } else {
+        decodeChar();
+      }
+    }
+    builder.addProcessingInstruction(target, new String(chars, 0, charCount));
+  }
+
+  /**
+   * Parses the entity or character reference that starts at the current position.
+   */
+  private void parseReference() throws XMLStreamException, UnsupportedInputException {
+    position++; // Skip '&'.
+    if (byteAt(position) == '#') {
+      position++;
+      int radix = 10;
+      if (byteAt(position) == 'x') {
+        radix = 16;
+        position++;
+      }
+      int codePoint = 0;
+      int digitCount = 0;
+      for (byte b = byteAt(position); b != ';'; b = byteAt(++position)) {
+        int digit = Character.digit(b, radix);
+        if (digit < 0 || codePoint > Character.MAX_CODE_POINT) {
+          throw error("Invalid character reference.");
+        }
+        codePoint = codePoint * radix + digit;
+        digitCount++;
+      }
+      position++;
+      if (digitCount == 0 || codePoint == 0 || codePoint > Character.MAX_CODE_POINT) {
+        throw error("Invalid character reference.");
+      }
+      appendCodePoint(codePoint);
+      return;
+    }
+
+    int start = position;
+    while (byteAt(position) != ';') {
+      if (++position - start > MAX_ENTITY_NAME_LENGTH) {
+        throw error("Undeclared entity.");
+      }
+    }
+    int end = position++;
+    if (matches(start, end, "lt")) {
+      appendChar('<');
+    } else if (matches(start, end, "gt")) {
+      appendChar('>');
+    } else if (matches(start, end, "amp")) {
+      appendChar('&');
+    } else if (matches(start, end, "apos")) {
+      appendChar('\'');
+    } else if (matches(start, end, "quot")) {
+      appendChar('"');
+    } else {
+      throw error("Undeclared entity: " + toString(start, end));
+    }
+  }
+
+  /**
+   * Parses the carriage return (followed by the line feed, if any) as the given character.
+   */
+  private void parseLineEnd(char c) {
+    appendChar(c);
+    position++;
+    if (position < limit && buffer.get(position) == '\n') {
+      position++;
+    }
+  }
+
+  /**
+   * Parses the name that ends at a whitespace or at a markup character.
+   */
+  private NameTable.Name parseName() throws XMLStreamException, UnsupportedInputException {
+    int start = position;
+    for (byte b = byteAt(position); !isWhitespace(b) && !isNameEnd(b); b = byteAt(++position)) {
+      // Advance to the end of the name.
+    }
+    if (position == start) {
+      throw error("The name is missing.");
+    }
+    return nameTable.get(buffer, start, position);
+  }
+
+  /**
+   * Decodes the UTF-8 sequence at the current position into the character buffer.
+   */
+  private void decodeChar() throws XMLStreamException, UnsupportedInputException {
+    int b = buffer.get(position) & 0xFF;
+    if (b < 0x80) {
+      appendChar((char) b);
+      position++;
+      return;
+    }
+    int count;
+    int codePoint;
+    if ((b & 0xE0) == 0xC0) {
+      count = 1;
+      codePoint = b & 0x1F;
+    } else if ((b & 0xF0) == 0xE0) {
+      count = 2;
+      codePoint = b & 0x0F;
+    } else if ((b & 0xF8) == 0xF0) {
+      count = 3;
+      codePoint = b & 0x07;
+    } else {
+      throw error("Invalid UTF-8 sequence.");
+    }
+    for (int i = 1; i <= count; i++) {
+      int next = byteAt(position + i) & 0xFF;
+      if ((next & 0xC0) != 0x80) {
+        throw error("Invalid UTF-8 sequence.");
+      }
+      codePoint = (codePoint << 6) | (next & 0x3F);
+    }
+    if (codePoint > Character.MAX_CODE_POINT) {
+      throw error("Invalid UTF-8 sequence.");
+    }
+    position += count + 1;
+    appendCodePoint(codePoint);
+  }
+
+  private void appendCodePoint(int codePoint) {
+    if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+      appendChar((char) codePoint);
+    } else {
+      appendChar(Character.highSurrogate(codePoint));
+      appendChar(Character.lowSurrogate(codePoint));
+    }
+  }
+
+  private void appendChar(char c) {
+    if (charCount == chars.length) {
+      char[] newChars = new char[chars.length * 2];
+      System.arraycopy(chars, 0, newChars, 0, charCount);
+      chars = newChars;
+    }
+    chars[charCount++] = c;
+  }
+
+  /**
+   * Parses the pseudo-attribute of the XML declaration.
+   *
+   * @return the value or {@code null} if the declaration has no such pseudo-attribute
+   */
+  private String parsePseudoAttribute(String name)
+      throws XMLStreamException, UnsupportedInputException {
+    int start = position;
+    if (!skipWhitespaces() || !startsWith(name)) {
+      position = start;
+      return null;
+    }
+    position += name.length();
+    skipWhitespaces();
+    if (byteAt(position) != '=') {
+      throw error("Invalid XML declaration.");
+    }
+    position++;
+    skipWhitespaces();
+    byte quote = byteAt(position);
+    if (quote != '"' && quote != '\'') {
+      throw error("Invalid XML declaration.");
+    }
+    int valueStart = ++position;
+    while (byteAt(position) != quote) {
+      position++;
+    }
+    return toString(valueStart, position++);
+  }
+
+  /**
+   * Skips the whitespaces.
+   *
+   * @return whether any whitespace has been skipped
+   */
+  private boolean skipWhitespaces() throws XMLStreamException, UnsupportedInputException {
+    int start = position;
+    while (isWhitespace(byteAt(position))) {
+      position++;
+    }
+    return position > start;
+  }
+
+  /**
+   * Checks whether the bytes at the current position match the given ASCII string.
+   */
+  private boolean startsWith(String s) throws XMLStreamException, UnsupportedInputException {
+    for (int i = 0; i < s.length(); i++) {
+      if (byteAt(position + i) != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the byte at the given index of the range.
+   *
+   * @throws XMLStreamException if the index is beyond the end of the document
+   * @throws UnsupportedInputException if the index is beyond the end of the range, i.e. a token
+   *         crosses the range boundary
+   */
+  private byte byteAt(int index) throws XMLStreamException, UnsupportedInputException {
+    if (index < limit) {
+      return buffer.get(index);
+    }
+    if (isLast) {
+      throw error("Unexpected end of the document.");
+    }
+    throw new UnsupportedInputException("A token crosses the boundary of the range.");
+  }
+
+  /**
+   * Checks whether the bytes of the range match the given ASCII string.
+   */
+  private boolean matches(int start, int end, String s) {
+    if (end - start != s.length()) {
+      return false;
+    }
+    for (int i = 0; i < s.length(); i++) {
+      if (buffer.get(start + i) != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Decodes the UTF-8 bytes of the range to the string.
+   */
+  private String toString(int start, int end) {
+    char[] asciiChars = new char[end - start];
+    for (int i = start; i < end; i++) {
+      byte b = buffer.get(i);
+      if (b < 0) {
+        byte[] bytes = new byte[end - start];
+        for (int j = start; j < end; j++) {
+          bytes[j - start] = buffer.get(j);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+      }
+      asciiChars[i - start] = (char) b;
+    }
+    return new String(asciiChars);
+  }
+
+  private XMLStreamException error(String message) {
+    return new XMLStreamException(message + " (byte offset " + (offset + position) + ")");
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\n' || b == '\t' || b == '\r';
+  }
+
+  private static boolean isNameEnd(byte b) {
+    return b == '>' || b == '/' || b == '=' || b == '?' || b == '<' || b == '"' || b == '\'';
+  }
+}
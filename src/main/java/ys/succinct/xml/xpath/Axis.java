@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.xpath;
+
+/**
+ * The XPath axes that the evaluator supports. The following and preceding axes aren't supported.
+ *
+ * @author Yauheni Shahun
+ */
+enum Axis {
+
+  CHILD("child", false),
+  DESCENDANT("descendant", false),
+  DESCENDANT_OR_SELF("descendant-or-self", false),
+  SELF("self", false),
+  PARENT("parent", true),
+  ANCESTOR("ancestor", true),
+  ANCESTOR_OR_SELF("ancestor-or-self", true),
+  FOLLOWING_SIBLING("following-sibling", false),
+  PRECEDING_SIBLING("preceding-sibling", true),
+  ATTRIBUTE("attribute", false);
+
+  private final String name;
+  private final boolean isReverse;
+
+  private Axis(String name, boolean isReverse) {
+    this.name = name;
+    this.isReverse = isReverse;
+  }
+
+  /**
+   * Returns whether the nodes of the axis go in reverse document order.
+   */
+  boolean isReverse() {
+    return isReverse;
+  }
+
+  /**
+   * Finds the axis by its name in the expression.
+   *
+   * @return the axis or {@code null} if it isn't supported
+   */
+  static Axis forName(String name) {
+    for (Axis axis : values()) {
+      if (axis.name.equals(name)) {
+        return axis;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.xpath;
+
+import org.w3c.dom.Node;
+
+import ys.succinct.xml.dom.SuccinctCursor;
+
+/**
+ * The state of a single evaluation of the expression. The evaluator owns the cursor that the
+ * steps move over the tree, so it isn't shared among the threads.
+ *
+ * @author Yauheni Shahun
+ */
+final class Evaluator {
+
+  final SuccinctCursor cursor;
+  final boolean isNamespaceAware;
+
+  /**
+   * Constructs an evaluator.
+   *
+   * @param cursor the cursor to move over the tree
+   */
+  Evaluator(SuccinctCursor cursor) {
+    this.cursor = cursor;
+    this.isNamespaceAware = cursor.dom().isNamespaceAware();
+  }
+
+  /**
+   * Returns the string value of the node, i.e. the concatenated text of the descendants for the
+   * element and the document, and the character content of the other nodes.
+   *
+   * @param node the position of the node
+   */
+  String getStringValue(long node) {
+    cursor.moveToPosition(node);
+    short type = cursor.nodeType();
+    if (type == Node.ELEMENT_NODE || type == Node.DOCUMENT_NODE) {
+      return cursor.dom().getTextContent(cursor.index());
+    }
+    return cursor.text();
+  }
+
+  /**
+   * Returns the value of the attribute of the element.
+   *
+   * @param node the position of the element
+   * @param test the name test of the attribute
+   * @return the value or {@code null} if the element has no such attribute
+   */
+  String getAttribute(long node, NodeTest test) {
+    cursor.moveToPosition(node);
+    return test.getAttribute(cursor, isNamespaceAware);
+  }
+}
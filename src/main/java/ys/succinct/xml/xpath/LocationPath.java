@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.xpath;
+
+import java.util.List;
+
+/**
+ * The location path, i.e. the sequence of the steps. The path may end with the attribute step
+ * only within a predicate.
+ *
+ * @author Yauheni Shahun
+ */
+final class LocationPath {
+
+  /**
+   * The position of the document node.
+   */
+  private static final long DOCUMENT_POSITION = 0;
+
+  private final boolean isAbsolute;
+  private final Step[] steps;
+  /**
+   * The name test of the trailing attribute step, or {@code null} if there is no such step.
+   */
+  final NodeTest attributeTest;
+
+  LocationPath(boolean isAbsolute, List<Step> steps, NodeTest attributeTest) {
+    this.isAbsolute = isAbsolute;
+    this.steps = steps.toArray(new Step[steps.size()]);
+    this.attributeTest = attributeTest;
+  }
+
+  /**
+   * Selects the nodes by the path. The attribute step isn't applied.
+   *
+   * @param evaluator the state of the evaluation
+   * @param context the context nodes in document order
+   * @return the selected nodes in document order
+   */
+  NodeSet select(Evaluator evaluator, NodeSet context) {
+    NodeSet nodes = isAbsolute ? NodeSet.of(DOCUMENT_POSITION) : context;
+    for (Step step : steps) {
+      if (nodes.isEmpty()) {
+        break;
+      }
+      nodes = step.apply(evaluator, nodes);
+    }
+    return nodes;
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.xpath;
+
+import java.util.Arrays;
+
+/**
+ * A growable set of the nodes that are identified by their positions in the document (see
+ * {@link ys.succinct.xml.dom.SuccinctDom#getPosition(int)}). The nodes are kept in document
+ * order once the set is {@link #sort() sorted}.
+ *
+ * @author Yauheni Shahun
+ */
+final class NodeSet {
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  private long[] nodes = new long[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * Creates a set of the single node.
+   *
+   * @param node the position of the node
+   */
+  static NodeSet of(long node) {
+    NodeSet set = new NodeSet();
+    set.add(node);
+    return set;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  long get(int index) {
+    return nodes[index];
+  }
+
+  void set(int index, long node) {
+    nodes[index] = node;
+  }
+
+  void add(long node) {
+    if (size == nodes.length) {
+      nodes = Arrays.copyOf(nodes, size * 2);
+    }
+    nodes[size++] = node;
+  }
+
+  void addAll(long[] array) {
+    if (size + array.length > nodes.length) {
+      nodes = Arrays.copyOf(nodes, Math.max(size * 2, size + array.length));
+    }
+    System.arraycopy(array, 0, nodes, size, array.length);
+    size += array.length;
+  }
+
+  void addAll(NodeSet set) {
+    for (int i = 0; i < set.size; i++) {
+      add(set.nodes[i]);
+    }
+  }
+
+  /**
+   * Drops the nodes beyond the given size.
+   */
+  void truncate(int newSize) {
+    size = newSize;
+  }
+
+  void clear() {
+    size = 0;
+  }
+
+  /**
+   * Puts the nodes in document order and removes the duplicates.
+   */
+  void sort() {
+    Arrays.sort(nodes, 0, size);
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      if (count == 0 || nodes[i] != nodes[count - 1]) {
+        nodes[count++] = nodes[i];
+      }
+    }
+    size = count;
+  }
+
+  long[] toArray() {
+    return Arrays.copyOf(nodes, size);
+  }
+}
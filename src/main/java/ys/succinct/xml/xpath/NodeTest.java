@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.xpath;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+import ys.succinct.xml.dom.SuccinctCursor;
+
+/**
+ * The node test of the location step.
+ * <p>
+ * If the DOM is aware of the namespaces, the names are matched by the namespace URI (that the
+ * prefix is bound to) and the local name, the name without a prefix has no namespace. Otherwise,
+ * the qualified names are matched literally.
+ *
+ * @author Yauheni Shahun
+ */
+final class NodeTest {
+
+  /**
+   * The kind of the node test.
+   */
+  enum Kind {
+    /**
+     * The qualified name, e.g. {@code p:price}.
+     */
+    NAME,
+    /**
+     * The name of any local part in the namespace, e.g. {@code p:*}.
+     */
+    NAMESPACE,
+    /**
+     * The name of any node of the principal type, i.e. {@code *}.
+     */
+    ANY_NAME,
+    NODE,
+    TEXT,
+    COMMENT,
+    PROCESSING_INSTRUCTION
+  }
+
+  static final NodeTest ANY_NODE = new NodeTest(Kind.NODE, null, null, null, null);
+
+  final Kind kind;
+  /**
+   * The qualified name of the name test, the prefix of the namespace test or the target of the
+   * processing instruction test (optional).
+   */
+  final String qualifiedName;
+  final String prefix;
+  final String localName;
+  /**
+   * The namespace URI that the prefix is bound to, {@code null} if the name has no prefix or the
+   * prefix isn't resolved.
+   */
+  final String namespaceURI;
+
+  NodeTest(Kind kind, String qualifiedName, String prefix, String localName,
+      String namespaceURI) {
+    this.kind = kind;
+    this.qualifiedName = qualifiedName;
+    this.prefix = prefix;
+    this.localName = localName;
+    this.namespaceURI = namespaceURI;
+  }
+
+  /**
+   * Checks whether the node that the cursor points to matches the test. The node of the principal
+   * type is an element as the attribute axis is evaluated separately.
+   *
+   * @param cursor the cursor that points to the node
+   * @param isNamespaceAware whether the DOM is aware of the namespaces
+   */
+  boolean matches(SuccinctCursor cursor, boolean isNamespaceAware) {
+    switch (kind) {
+      case NODE:
+        return true;
+      case TEXT:
+        short type = cursor.nodeType();
+        return type == Node.TEXT_NODE || type == Node.CDATA_SECTION_NODE;
+      case COMMENT:
+        return cursor.nodeType() == Node.COMMENT_NODE;
+      case PROCESSING_INSTRUCTION:
+        return cursor.nodeType() == Node.PROCESSING_INSTRUCTION_NODE && (qualifiedName == null
+            || qualifiedName.equals(((ProcessingInstruction) cursor.node()).getTarget()));
+      case ANY_NAME:
+        return cursor.nodeType() == Node.ELEMENT_NODE;
+      case NAMESPACE:
+        if (cursor.nodeType() != Node.ELEMENT_NODE) {
+          return false;
+        }
+        if (isNamespaceAware) {
+          return namespaceURI.equals(cursor.namespaceURI());
+        }
+        String name = cursor.localName();
+        return name.length() > prefix.length() && name.charAt(prefix.length()) == ':'
+            && name.startsWith(prefix);
+      case NAME:
+        if (isNamespaceAware) {
+          String uri = cursor.namespaceURI();
+          return localName.equals(cursor.localName())
+              && ((namespaceURI == null) ? (uri == null) : namespaceURI.equals(uri));
+        }
+        return qualifiedName.equals(cursor.localName());
+      default:
+        throw new AssertionError(kind);
+    }
+  }
+
+  /**
+   * Checks whether the element names are tested, i.e. the matching nodes can be looked up by
+   * the tag name.
+   */
+  boolean isElementTest() {
+    return kind == Kind.NAME || kind == Kind.NAMESPACE || kind == Kind.ANY_NAME;
+  }
+
+  /**
+   * Returns the value of the attribute of the element that matches the test.
+   *
+   * @param cursor the cursor that points to the element
+   * @param isNamespaceAware whether the DOM is aware of the namespaces
+   * @return the value or {@code null} if there is no such attribute
+   */
+  String getAttribute(SuccinctCursor cursor, boolean isNamespaceAware) {
+    if (isNamespaceAware && namespaceURI != null) {
+      return cursor.attributeNS(namespaceURI, localName);
+    }
+    return cursor.attribute(qualifiedName);
+  }
+}
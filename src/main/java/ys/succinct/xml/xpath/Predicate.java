@@ -0,0 +1,235 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.xpath;
+
+/**
+ * The predicate of the location step.
+ *
+ * @author Yauheni Shahun
+ */
+abstract class Predicate {
+
+  /**
+   * Checks whether the candidate node satisfies the predicate.
+   *
+   * @param evaluator the state of the evaluation
+   * @param node the position of the node
+   * @param position the 1-based position of the node among the candidates in the axis order
+   * @param size the number of the candidates
+   */
+  abstract boolean test(Evaluator evaluator, long node, int position, int size);
+
+  /**
+   * Returns whether the predicate depends on the position of the node.
+   */
+  boolean isPositional() {
+    return false;
+  }
+
+  /**
+   * The numeric predicate, e.g. {@code [2]} or {@code [position()=2]}.
+   */
+  static final class Position extends Predicate {
+
+    private final double position;
+
+    Position(double position) {
+      this.position = position;
+    }
+
+    @Override
+    boolean test(Evaluator evaluator, long node, int position, int size) {
+      return position == this.position;
+    }
+
+    @Override
+    boolean isPositional() {
+      return true;
+    }
+  }
+
+  /**
+   * The {@code [last()]} predicate.
+   */
+  static final class Last extends Predicate {
+
+    @Override
+    boolean test(Evaluator evaluator, long node, int position, int size) {
+      return position == size;
+    }
+
+    @Override
+    boolean isPositional() {
+      return true;
+    }
+  }
+
+  /**
+   * The predicate that checks whether the path selects any node, e.g. {@code [@id]} or
+   * {@code [title]}.
+   */
+  static final class Exists extends Predicate {
+
+    private final LocationPath path;
+
+    Exists(LocationPath path) {
+      this.path = path;
+    }
+
+    @Override
+    boolean test(Evaluator evaluator, long node, int position, int size) {
+      NodeSet nodes = path.select(evaluator, NodeSet.of(node));
+      if (path.attributeTest == null) {
+        return !nodes.isEmpty();
+      }
+      for (int i = 0; i < nodes.size(); i++) {
+        if (evaluator.getAttribute(nodes.get(i), path.attributeTest) != null) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * The predicate that compares the string values of the nodes that the path selects with the
+   * literal or the number, e.g. {@code [@id='101']} or {@code [price!=5.95]}. As in XPath, the
+   * predicate is satisfied if any node matches.
+   */
+  static final class Comparison extends Predicate {
+
+    private final LocationPath path;
+    private final String literal;
+    private final double number;
+    private final boolean isNegated;
+
+    /**
+     * Constructs a comparison.
+     *
+     * @param path the path that selects the nodes
+     * @param literal the string to compare, or {@code null} to compare the number
+     * @param number the number to compare
+     * @param isNegated whether the values must differ
+     */
+    Comparison(LocationPath path, String literal, double number, boolean isNegated) {
+      this.path = path;
+      this.literal = literal;
+      this.number = number;
+      this.isNegated = isNegated;
+    }
+
+    @Override
+    boolean test(Evaluator evaluator, long node, int position, int size) {
+      NodeSet nodes = path.select(evaluator, NodeSet.of(node));
+      for (int i = 0; i < nodes.size(); i++) {
+        String value = (path.attributeTest == null)
+            ? evaluator.getStringValue(nodes.get(i))
+            : evaluator.getAttribute(nodes.get(i), path.attributeTest);
+        if (value != null && matches(value)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean matches(String value) {
+      if (literal != null) {
+        return literal.equals(value) != isNegated;
+      }
+      double valueNumber;
+      try {
+        valueNumber = Double.parseDouble(value.trim());
+      } catch (NumberFormatException e) {
+        valueNumber = Double.NaN;
+      }
+      // NaN is unequal to any number.
+      return isNegated ? valueNumber != number : valueNumber == number;
+    }
+  }
+
+  /**
+   * The {@code and} predicate.
+   */
+  static final class And extends Predicate {
+
+    private final Predicate left;
+    private final Predicate right;
+
+    And(Predicate left, Predicate right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    boolean test(Evaluator evaluator, long node, int position, int size) {
+      return left.test(evaluator, node, position, size)
+          && right.test(evaluator, node, position, size);
+    }
+
+    @Override
+    boolean isPositional() {
+      return left.isPositional() || right.isPositional();
+    }
+  }
+
+  /**
+   * The {@code or} predicate.
+   */
+  static final class Or extends Predicate {
+
+    private final Predicate left;
+    private final Predicate right;
+
+    Or(Predicate left, Predicate right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    boolean test(Evaluator evaluator, long node, int position, int size) {
+      return left.test(evaluator, node, position, size)
+          || right.test(evaluator, node, position, size);
+    }
+
+    @Override
+    boolean isPositional() {
+      return left.isPositional() || right.isPositional();
+    }
+  }
+
+  /**
+   * The {@code not()} predicate.
+   */
+  static final class Not extends Predicate {
+
+    private final Predicate operand;
+
+    Not(Predicate operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    boolean test(Evaluator evaluator, long node, int position, int size) {
+      return !operand.test(evaluator, node, position, size);
+    }
+
+    @Override
+    boolean isPositional() {
+      return operand.isPositional();
+    }
+  }
+}
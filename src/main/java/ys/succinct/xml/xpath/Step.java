@@ -0,0 +1,233 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.xpath;
+
+import ys.succinct.xml.dom.SuccinctCursor;
+import ys.succinct.xml.dom.SuccinctDom;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The location step: the axis, the node test and the predicates. The step is applied to every
+ * node of the context set, and the nodes that it selects are merged in document order.
+ *
+ * @author Yauheni Shahun
+ */
+final class Step {
+
+  final Axis axis;
+  final NodeTest test;
+  final Predicate[] predicates;
+
+  Step(Axis axis, NodeTest test, List<Predicate> predicates) {
+    this.axis = axis;
+    this.test = test;
+    this.predicates = predicates.toArray(new Predicate[predicates.size()]);
+  }
+
+  /**
+   * Checks whether the step has a predicate that depends on the position of the node.
+   */
+  boolean isPositional() {
+    for (Predicate predicate : predicates) {
+      if (predicate.isPositional()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Creates a copy of the step along the other axis.
+   */
+  Step withAxis(Axis newAxis) {
+    return new Step(newAxis, test, Arrays.asList(predicates));
+  }
+
+  /**
+   * Applies the step to the context nodes.
+   *
+   * @param evaluator the state of the evaluation
+   * @param context the context nodes in document order
+   * @return the selected nodes in document order
+   */
+  NodeSet apply(Evaluator evaluator, NodeSet context) {
+    NodeSet result = new NodeSet();
+    NodeSet candidates = new NodeSet();
+    boolean isOrdered = true;
+    for (int i = 0; i < context.size(); i++) {
+      candidates.clear();
+      // Collect the candidates before the predicates move the cursor.
+      collect(evaluator, context.get(i), candidates);
+      for (Predicate predicate : predicates) {
+        filter(evaluator, predicate, candidates);
+      }
+      int size = candidates.size();
+      for (int j = 0; j < size; j++) {
+        long node = candidates.get(axis.isReverse() ? size - 1 - j : j);
+        if (result.size() > 0 && node <= result.get(result.size() - 1)) {
+          isOrdered = false;
+        }
+        result.add(node);
+      }
+    }
+    if (!isOrdered) {
+      result.sort();
+    }
+    return result;
+  }
+
+  /**
+   * Collects the nodes along the axis that match the node test in the axis order.
+   */
+  private void collect(Evaluator evaluator, long node, NodeSet nodes) {
+    SuccinctCursor cursor = evaluator.cursor;
+    boolean isNamespaceAware = evaluator.isNamespaceAware;
+    cursor.moveToPosition(node);
+    switch (axis) {
+      case SELF:
+        if (test.matches(cursor, isNamespaceAware)) {
+          nodes.add(node);
+        }
+        break;
+      case CHILD:
+        if (cursor.toFirstChild()) {
+          do {
+            if (test.matches(cursor, isNamespaceAware)) {
+              nodes.add(cursor.position());
+            }
+          } while (cursor.toNextSibling());
+        }
+        break;
+      case PARENT:
+        if (cursor.toParent() && test.matches(cursor, isNamespaceAware)) {
+          nodes.add(cursor.position());
+        }
+        break;
+      case ANCESTOR_OR_SELF:
+        if (test.matches(cursor, isNamespaceAware)) {
+          nodes.add(node);
+        }
+        // Fall through.
+      case ANCESTOR:
+        while (cursor.toParent()) {
+          if (test.matches(cursor, isNamespaceAware)) {
+            nodes.add(cursor.position());
+          }
+        }
+        break;
+      case FOLLOWING_SIBLING:
+        while (cursor.toNextSibling()) {
+          if (test.matches(cursor, isNamespaceAware)) {
+            nodes.add(cursor.position());
+          }
+        }
+        break;
+      case PRECEDING_SIBLING:
+        while (cursor.toPreviousSibling()) {
+          if (test.matches(cursor, isNamespaceAware)) {
+            nodes.add(cursor.position());
+          }
+        }
+        break;
+      case DESCENDANT_OR_SELF:
+        if (test.matches(cursor, isNamespaceAware)) {
+          nodes.add(node);
+        }
+        // Fall through.
+      case DESCENDANT:
+        if (test.isElementTest()) {
+          nodes.addAll(findElements(evaluator, node));
+        } else {
+          collectDescendants(evaluator, node, nodes);
+        }
+        break;
+      default:
+        throw new AssertionError(axis);
+    }
+  }
+
+  /**
+   * Finds the descendant elements by the tag name. The lookup uses the tag posting lists of the
+   * DOM if they are built.
+   */
+  private long[] findElements(Evaluator evaluator, long node) {
+    SuccinctCursor cursor = evaluator.cursor;
+    cursor.moveToPosition(node);
+    SuccinctDom dom = cursor.dom();
+    int index = cursor.index();
+    switch (test.kind) {
+      case NAME:
+        if (evaluator.isNamespaceAware) {
+          return dom.getElementPositionsByTagNameNS(
+              index, (test.namespaceURI == null) ? "" : test.namespaceURI, test.localName);
+        }
+        return dom.getElementPositionsByTagName(index, test.qualifiedName);
+      case NAMESPACE:
+        if (evaluator.isNamespaceAware) {
+          return dom.getElementPositionsByTagNameNS(index, test.namespaceURI, "*");
+        }
+        NodeSet nodes = new NodeSet();
+        collectDescendants(evaluator, node, nodes);
+        return nodes.toArray();
+      default:
+        return dom.getElementPositionsByTagName(index, "*");
+    }
+  }
+
+  /**
+   * Walks the subtree of the node in document order.
+   */
+  private void collectDescendants(Evaluator evaluator, long node, NodeSet nodes) {
+    SuccinctCursor cursor = evaluator.cursor;
+    cursor.moveToPosition(node);
+    if (!cursor.toFirstChild()) {
+      return;
+    }
+    while (true) {
+      if (test.matches(cursor, evaluator.isNamespaceAware)) {
+        nodes.add(cursor.position());
+      }
+      if (cursor.toFirstChild()) {
+        continue;
+      }
+      while (!cursor.toNextSibling()) {
+        cursor.toParent();
+        if (cursor.position() == node) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Retains the candidates that satisfy the predicate. The positions are counted in the axis
+   * order.
+   */
+  private static void filter(Evaluator evaluator, Predicate predicate, NodeSet candidates) {
+    int size = candidates.size();
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      long node = candidates.get(i);
+      if (predicate.test(evaluator, node, i + 1, size)) {
+        candidates.set(count++, node);
+      }
+    }
+    candidates.truncate(count);
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.xpath;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import ys.succinct.xml.dom.SuccinctCursor;
+
+import java.util.List;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.xpath.XPathExpressionException;
+
+/**
+ * A compiled XPath expression that is evaluated natively over the succinct DOM. Unlike the
+ * generic XPath engines that walk the tree by the {@link Node} API, the location steps are applied
+ * to the sets of the node indexes in the balanced parentheses by moving a
+ * {@link SuccinctCursor}, and the descendants are looked up by the tag name (in the posting lists
+ * if they are built), so no node is materialized until the result is accessed.
+ * <p>
+ * The evaluator supports the subset of XPath 1.0 that selects the nodes of the tree:
+ * <ul>
+ * <li>the absolute and relative location paths and their unions ({@code |})
+ * <li>the {@code child}, {@code descendant}, {@code descendant-or-self}, {@code self},
+ * {@code parent}, {@code ancestor}, {@code ancestor-or-self}, {@code following-sibling} and
+ * {@code preceding-sibling} axes with the abbreviations {@code //}, {@code .} and {@code ..}
+ * <li>the name tests ({@code name}, {@code p:name}, {@code p:*}, {@code *}) and the node type
+ * tests ({@code node()}, {@code text()}, {@code comment()}, {@code processing-instruction()})
+ * <li>the predicates: the position ({@code [2]}, {@code [position()=2]}, {@code [last()]}), the
+ * existence of a path ({@code [title]}, {@code [@id]}) and the comparison of its string value
+ * with a literal or a number ({@code [@id='101']}, {@code [price!=5.95]}) combined by
+ * {@code and}, {@code or} and {@code not()}.
+ * </ul>
+ * The attributes are tested only in the predicates, i.e. the result consists of the tree nodes.
+ * If the DOM is aware of the namespaces, the prefixes are resolved by the given
+ * {@link NamespaceContext}, otherwise the qualified names are matched literally.
+ * <p>
+ * The compiled expression is immutable and thread-safe.
+ *
+ * @author Yauheni Shahun
+ */
+public final class SuccinctXPath {
+
+  private final String expression;
+  private final LocationPath[] paths;
+  private final boolean hasUnresolvedPrefix;
+
+  private SuccinctXPath(String expression, List<LocationPath> paths, boolean hasUnresolvedPrefix) {
+    this.expression = expression;
+    this.paths = paths.toArray(new LocationPath[paths.size()]);
+    this.hasUnresolvedPrefix = hasUnresolvedPrefix;
+  }
+
+  /**
+   * Compiles the expression with no namespace context.
+   *
+   * @param expression the XPath expression
+   * @return the compiled expression
+   * @throws XPathExpressionException if the expression isn't valid or isn't supported
+   */
+  public static SuccinctXPath compile(String expression) throws XPathExpressionException {
+    return compile(expression, null);
+  }
+
+  /**
+   * Compiles the expression.
+   *
+   * @param expression the XPath expression
+   * @param namespaceContext the context that resolves the namespace prefixes, or {@code null}
+   * @return the compiled expression
+   * @throws XPathExpressionException if the expression isn't valid or isn't supported, or it has
+   *         a prefix that isn't bound in the namespace context
+   */
+  public static SuccinctXPath compile(String expression, NamespaceContext namespaceContext)
+      throws XPathExpressionException {
+    XPathParser parser = new XPathParser(expression, namespaceContext);
+    List<LocationPath> paths = parser.parse();
+    return new SuccinctXPath(expression, paths, parser.hasUnresolvedPrefix());
+  }
+
+  /**
+   * Selects the nodes.
+   *
+   * @param context the context node, i.e. the succinct document or its descendant
+   * @return the indexes of the selected nodes in the balanced parentheses in document order
+   * @throws IllegalArgumentException if the context node isn't a succinct tree node
+   * @throws XPathExpressionException if the prefixes must be resolved as the DOM is aware of the
+   *         namespaces, but the expression has been compiled with no namespace context, or a
+   *         selected node is out of the first segment of a large document, i.e. it isn't addressed
+   *         by the index alone (see {@link #selectPositions(Node)})
+   */
+  public int[] select(Node context) throws XPathExpressionException {
+    long[] positions = selectPositions(context);
+    int[] nodes = new int[positions.length];
+    for (int i = 0; i < positions.length; i++) {
+      // The positions of the first segment are equal to the indexes.
+      if (positions[i] > Integer.MAX_VALUE) {
+        throw new XPathExpressionException("The selected nodes span the segments of the document, "
+            + "use selectPositions(Node) instead: " + expression);
+      }
+      nodes[i] = (int) positions[i];
+    }
+    return nodes;
+  }
+
+  /**
+   * Selects the nodes of the document of any size.
+   *
+   * @param context the context node, i.e. the succinct document or its descendant
+   * @return the positions of the selected nodes in document order
+   * @throws IllegalArgumentException if the context node isn't a succinct tree node
+   * @throws XPathExpressionException if the prefixes must be resolved as the DOM is aware of the
+   *         namespaces, but the expression has been compiled with no namespace context
+   * @see ys.succinct.xml.dom.SuccinctDom#getPosition(int)
+   */
+  public long[] selectPositions(Node context) throws XPathExpressionException {
+    return select(SuccinctCursor.create(context));
+  }
+
+  /**
+   * Selects the nodes.
+   *
+   * @param context the context node, i.e. the succinct document or its descendant
+   * @return the selected nodes in document order, they are materialized on access
+   * @throws IllegalArgumentException if the context node isn't a succinct tree node
+   * @throws XPathExpressionException if the prefixes must be resolved as the DOM is aware of the
+   *         namespaces, but the expression has been compiled with no namespace context
+   */
+  public NodeList selectNodes(Node context) throws XPathExpressionException {
+    SuccinctCursor cursor = SuccinctCursor.create(context);
+    return cursor.dom().getNodes(select(cursor));
+  }
+
+  /**
+   * Selects the first node in document order.
+   *
+   * @param context the context node, i.e. the succinct document or its descendant
+   * @return the selected node or {@code null} if nothing is selected
+   * @throws IllegalArgumentException if the context node isn't a succinct tree node
+   * @throws XPathExpressionException if the prefixes must be resolved as the DOM is aware of the
+   *         namespaces, but the expression has been compiled with no namespace context
+   */
+  public Node selectNode(Node context) throws XPathExpressionException {
+    SuccinctCursor cursor = SuccinctCursor.create(context);
+    long[] nodes = select(cursor);
+    return (nodes.length > 0) ? cursor.dom().getNodeAt(nodes[0]) : null;
+  }
+
+  private long[] select(SuccinctCursor cursor) throws XPathExpressionException {
+    Evaluator evaluator = new Evaluator(cursor);
+    if (hasUnresolvedPrefix && evaluator.isNamespaceAware) {
+      throw new XPathExpressionException("No namespace context to resolve prefixes: " + expression);
+    }
+    NodeSet context = NodeSet.of(cursor.position());
+    NodeSet result = paths[0].select(evaluator, context);
+    if (paths.length > 1) {
+      result = copy(result);
+      for (int i = 1; i < paths.length; i++) {
+        result.addAll(paths[i].select(evaluator, context));
+      }
+      result.sort();
+    }
+    return result.toArray();
+  }
+
+  /**
+   * Copies the node set as the path may return the context set itself.
+   */
+  private static NodeSet copy(NodeSet nodes) {
+    NodeSet copy = new NodeSet();
+    copy.addAll(nodes);
+    return copy;
+  }
+
+  /**
+   * Returns the source expression.
+   */
+  @Override
+  public String toString() {
+    return expression;
+  }
+}
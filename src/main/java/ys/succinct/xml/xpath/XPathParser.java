@@ -0,0 +1,495 @@
+/*
+ * Copyright 2014 Yauheni Shahun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ys.succinct.xml.xpath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.xpath.XPathExpressionException;
+
+/**
+ * A recursive descent parser of the XPath subset that {@link SuccinctXPath} supports.
+ *
+ * @author Yauheni Shahun
+ */
+final class XPathParser {
+
+  /**
+   * The type of the token.
+   */
+  private enum TokenType {
+    SLASH, DOUBLE_SLASH, DOT, DOUBLE_DOT, AT, DOUBLE_COLON, LEFT_BRACKET, RIGHT_BRACKET,
+    LEFT_PAREN, RIGHT_PAREN, STAR, PIPE, EQUALS, NOT_EQUALS, NAME, LITERAL, NUMBER, END
+  }
+
+  private static final class Token {
+
+    final TokenType type;
+    final String text;
+
+    Token(TokenType type, String text) {
+      this.type = type;
+      this.text = text;
+    }
+  }
+
+  private final String expression;
+  private final NamespaceContext namespaceContext;
+  private final List<Token> tokens;
+  private int position;
+  private boolean hasUnresolvedPrefix;
+
+  /**
+   * Constructs a parser.
+   *
+   * @param expression the XPath expression
+   * @param namespaceContext the context that resolves the namespace prefixes, or {@code null}
+   * @throws XPathExpressionException if the expression has an invalid token
+   */
+  XPathParser(String expression, NamespaceContext namespaceContext)
+      throws XPathExpressionException {
+    this.expression = expression;
+    this.namespaceContext = namespaceContext;
+    this.tokens = tokenize();
+  }
+
+  /**
+   * Returns whether the expression has the prefixes that aren't resolved as no namespace context
+   * is given.
+   */
+  boolean hasUnresolvedPrefix() {
+    return hasUnresolvedPrefix;
+  }
+
+  /**
+   * Parses the union of the location paths.
+   *
+   * @return the paths
+   * @throws XPathExpressionException if the expression isn't valid or isn't supported
+   */
+  List<LocationPath> parse() throws XPathExpressionException {
+    List<LocationPath> paths = new ArrayList<>();
+    do {
+      LocationPath path = parsePath();
+      if (path.attributeTest != null) {
+        throw newException("The attribute nodes can be tested only in the predicates");
+      }
+      paths.add(path);
+    } while (accept(TokenType.PIPE));
+    expect(TokenType.END);
+    return paths;
+  }
+
+  private LocationPath parsePath() throws XPathExpressionException {
+    List<Step> steps = new ArrayList<>();
+    boolean isAbsolute = false;
+    if (accept(TokenType.SLASH)) {
+      isAbsolute = true;
+      if (isStepStart()) {
+        steps.add(parseStep());
+      }
+    } else if (accept(TokenType.DOUBLE_SLASH)) {
+      isAbsolute = true;
+      parseDescendantStep(steps);
+    } else {
+      steps.add(parseStep());
+    }
+    while (true) {
+      if (accept(TokenType.SLASH)) {
+        steps.add(parseStep());
+      } else if (accept(TokenType.DOUBLE_SLASH)) {
+        parseDescendantStep(steps);
+      } else {
+        break;
+      }
+    }
+
+    NodeTest attributeTest = null;
+    for (int i = 0; i < steps.size(); i++) {
+      Step step = steps.get(i);
+      if (step.axis != Axis.ATTRIBUTE) {
+        continue;
+      }
+      if (i != steps.size() - 1 || step.predicates.length > 0
+          || step.test.kind != NodeTest.Kind.NAME) {
+        throw newException("Only the named attribute can be tested as the last step");
+      }
+      attributeTest = step.test;
+      steps.remove(i);
+    }
+    return new LocationPath(isAbsolute, steps, attributeTest);
+  }
+
+  /**
+   * Parses the step that follows {@code //}. The abbreviation stands for
+   * {@code /descendant-or-self::node()/}, but the pair of steps is collapsed to a single
+   * descendant step unless the positions of the children matter.
+   */
+  private void parseDescendantStep(List<Step> steps) throws XPathExpressionException {
+    Step step = parseStep();
+    if (step.axis == Axis.CHILD && !step.isPositional()) {
+      steps.add(step.withAxis(Axis.DESCENDANT));
+    } else {
+      steps.add(new Step(Axis.DESCENDANT_OR_SELF, NodeTest.ANY_NODE,
+          Collections.<Predicate>emptyList()));
+      steps.add(step);
+    }
+  }
+
+  private boolean isStepStart() {
+    switch (peek().type) {
+      case DOT:
+      case DOUBLE_DOT:
+      case AT:
+      case STAR:
+      case NAME:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private Step parseStep() throws XPathExpressionException {
+    List<Predicate> predicates = new ArrayList<>();
+    if (accept(TokenType.DOT)) {
+      return new Step(Axis.SELF, NodeTest.ANY_NODE, predicates);
+    }
+    if (accept(TokenType.DOUBLE_DOT)) {
+      return new Step(Axis.PARENT, NodeTest.ANY_NODE, predicates);
+    }
+
+    Axis axis = Axis.CHILD;
+    if (accept(TokenType.AT)) {
+      axis = Axis.ATTRIBUTE;
+    } else if (peek().type == TokenType.NAME && peek(1).type == TokenType.DOUBLE_COLON) {
+      String name = next().text;
+      next();
+      axis = Axis.forName(name);
+      if (axis == null) {
+        throw newException("Unsupported axis: " + name);
+      }
+    }
+    NodeTest test = parseNodeTest();
+    while (accept(TokenType.LEFT_BRACKET)) {
+      predicates.add(parseOr());
+      expect(TokenType.RIGHT_BRACKET);
+    }
+    return new Step(axis, test, predicates);
+  }
+
+  private NodeTest parseNodeTest() throws XPathExpressionException {
+    if (accept(TokenType.STAR)) {
+      return new NodeTest(NodeTest.Kind.ANY_NAME, null, null, null, null);
+    }
+    String name = expect(TokenType.NAME).text;
+    if (accept(TokenType.LEFT_PAREN)) {
+      NodeTest test;
+      switch (name) {
+        case "node":
+          test = NodeTest.ANY_NODE;
+          break;
+        case "text":
+          test = new NodeTest(NodeTest.Kind.TEXT, null, null, null, null);
+          break;
+        case "comment":
+          test = new NodeTest(NodeTest.Kind.COMMENT, null, null, null, null);
+          break;
+        case "processing-instruction":
+          String target = (peek().type == TokenType.LITERAL) ? next().text : null;
+          test = new NodeTest(NodeTest.Kind.PROCESSING_INSTRUCTION, target, null, null, null);
+          break;
+        default:
+          throw newException("Unsupported node type: " + name);
+      }
+      expect(TokenType.RIGHT_PAREN);
+      return test;
+    }
+
+    int colonIndex = name.indexOf(':');
+    if (colonIndex == -1) {
+      return new NodeTest(NodeTest.Kind.NAME, name, null, name, null);
+    }
+    String prefix = name.substring(0, colonIndex);
+    String localName = name.substring(colonIndex + 1);
+    String namespaceURI = resolve(prefix);
+    if (localName.equals("*")) {
+      return new NodeTest(NodeTest.Kind.NAMESPACE, null, prefix, null, namespaceURI);
+    }
+    return new NodeTest(NodeTest.Kind.NAME, name, prefix, localName, namespaceURI);
+  }
+
+  private String resolve(String prefix) throws XPathExpressionException {
+    if (namespaceContext == null) {
+      hasUnresolvedPrefix = true;
+      return null;
+    }
+    String namespaceURI = namespaceContext.getNamespaceURI(prefix);
+    if (namespaceURI == null || namespaceURI.isEmpty()) {
+      throw newException("Unbound prefix: " + prefix);
+    }
+    return namespaceURI;
+  }
+
+  private Predicate parseOr() throws XPathExpressionException {
+    Predicate predicate = parseAnd();
+    while (acceptName("or")) {
+      predicate = new Predicate.Or(predicate, parseAnd());
+    }
+    return predicate;
+  }
+
+  private Predicate parseAnd() throws XPathExpressionException {
+    Predicate predicate = parsePrimary();
+    while (acceptName("and")) {
+      predicate = new Predicate.And(predicate, parsePrimary());
+    }
+    return predicate;
+  }
+
+  private Predicate parsePrimary() throws XPathExpressionException {
+    if (peek().type == TokenType.NUMBER) {
+      return new Predicate.Position(Double.parseDouble(next().text));
+    }
+    if (accept(TokenType.LEFT_PAREN)) {
+      Predicate predicate = parseOr();
+      expect(TokenType.RIGHT_PAREN);
+      return predicate;
+    }
+    if (peek().type == TokenType.NAME && peek(1).type == TokenType.LEFT_PAREN) {
+      switch (peek().text) {
+        case "last":
+          position += 2;
+          expect(TokenType.RIGHT_PAREN);
+          return new Predicate.Last();
+        case "position":
+          position += 2;
+          expect(TokenType.RIGHT_PAREN);
+          expect(TokenType.EQUALS);
+          return new Predicate.Position(Double.parseDouble(expect(TokenType.NUMBER).text));
+        case "not":
+          position += 2;
+          Predicate predicate = parseOr();
+          expect(TokenType.RIGHT_PAREN);
+          return new Predicate.Not(predicate);
+        case "node":
+        case "text":
+        case "comment":
+        case "processing-instruction":
+          break; // The node type test starts the path.
+        default:
+          throw newException("Unsupported function: " + peek().text);
+      }
+    }
+
+    LocationPath path = parsePath();
+    boolean isNegated = accept(TokenType.NOT_EQUALS);
+    if (isNegated || accept(TokenType.EQUALS)) {
+      Token token = next();
+      if (token.type == TokenType.LITERAL) {
+        return new Predicate.Comparison(path, token.text, Double.NaN, isNegated);
+      } else if (token.type == TokenType.NUMBER) {
+        return new Predicate.Comparison(path, null, Double.parseDouble(token.text), isNegated);
+      }
+      throw newException("Literal or number is expected");
+    }
+    return new Predicate.Exists(path);
+  }
+
+  private Token peek() {
+    return peek(0);
+  }
+
+  private Token peek(int offset) {
+    return tokens.get(Math.min(position + offset, tokens.size() - 1));
+  }
+
+  private Token next() {
+    Token token = peek();
+    if (token.type != TokenType.END) {
+      position++;
+    }
+    return token;
+  }
+
+  private boolean accept(TokenType type) {
+    if (peek().type == type) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  private boolean acceptName(String name) {
+    if (peek().type == TokenType.NAME && peek().text.equals(name)) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  private Token expect(TokenType type) throws XPathExpressionException {
+    Token token = peek();
+    if (token.type != type) {
+      throw newException(type + " is expected");
+    }
+    return next();
+  }
+
+  private List<Token> tokenize() throws XPathExpressionException {
+    List<Token> result = new ArrayList<>();
+    int i = 0;
+    while (i < expression.length()) {
+      char c = expression.charAt(i);
+      char next = (i + 1 < expression.length()) ? expression.charAt(i + 1) : 0;
+      if (Character.isWhitespace(c)) {
+        i++;
+        continue;
+      }
+      switch (c) {
+        case '/':
+          i += (next == '/') ? 2 : 1;
+          result.add(new Token((next == '/') ? TokenType.DOUBLE_SLASH : TokenType.SLASH, null));
+          continue;
+        case '.':
+          if (next == '.') {
+            result.add(new Token(TokenType.DOUBLE_DOT, null));
+            i += 2;
+            continue;
+          }
+          if (!isDigit(next)) {
+            result.add(new Token(TokenType.DOT, null));
+            i++;
+            continue;
+          }
+          break; // The number.
+        case '@':
+          result.add(new Token(TokenType.AT, null));
+          i++;
+          continue;
+        case ':':
+          if (next != ':') {
+            throw newException("Unexpected character ':'");
+          }
+          result.add(new Token(TokenType.DOUBLE_COLON, null));
+          i += 2;
+          continue;
+        case '[':
+          result.add(new Token(TokenType.LEFT_BRACKET, null));
+          i++;
+          continue;
+        case ']':
+          result.add(new Token(TokenType.RIGHT_BRACKET, null));
+          i++;
+          continue;
+        case '(':
+          result.add(new Token(TokenType.LEFT_PAREN, null));
+          i++;
+          continue;
+        case ')':
+          result.add(new Token(TokenType.RIGHT_PAREN, null));
+          i++;
+          continue;
+        case '*':
+          result.add(new Token(TokenType.STAR, null));
+          i++;
+          continue;
+        case '|':
+          result.add(new Token(TokenType.PIPE, null));
+          i++;
+          continue;
+        case '=':
+          result.add(new Token(TokenType.EQUALS, null));
+          i++;
+          continue;
+        case '!':
+          if (next != '=') {
+            throw newException("Unexpected character '!'");
+          }
+          result.add(new Token(TokenType.NOT_EQUALS, null));
+          i += 2;
+          continue;
+        case '\'':
+        case '"':
+          int end = expression.indexOf(c, i + 1);
+          if (end == -1) {
+            throw newException("Unterminated literal");
+          }
+          result.add(new Token(TokenType.LITERAL, expression.substring(i + 1, end)));
+          i = end + 1;
+          continue;
+        default:
+          break;
+      }
+
+      int start = i;
+      if (isDigit(c) || c == '.') {
+        while (i < expression.length() && isDigit(expression.charAt(i))) {
+          i++;
+        }
+        if (i < expression.length() && expression.charAt(i) == '.') {
+          i++;
+          while (i < expression.length() && isDigit(expression.charAt(i))) {
+            i++;
+          }
+        }
+        result.add(new Token(TokenType.NUMBER, expression.substring(start, i)));
+      } else if (isNameStart(c)) {
+        i = scanName(i);
+        // The qualified name or the namespace test, but not the axis separator.
+        if (i + 1 < expression.length() && expression.charAt(i) == ':'
+            && expression.charAt(i + 1) != ':') {
+          if (expression.charAt(i + 1) == '*') {
+            i += 2;
+          } else if (isNameStart(expression.charAt(i + 1))) {
+            i = scanName(i + 1);
+          }
+        }
+        result.add(new Token(TokenType.NAME, expression.substring(start, i)));
+      } else {
+        throw newException("Unexpected character '" + c + "'");
+      }
+    }
+    result.add(new Token(TokenType.END, null));
+    return result;
+  }
+
+  private int scanName(int start) {
+    int i = start;
+    while (i < expression.length() && isNameChar(expression.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isNameStart(char c) {
+    return Character.isLetter(c) || c == '_';
+  }
+
+  private static boolean isNameChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.';
+  }
+
+  private XPathExpressionException newException(String message) {
+    return new XPathExpressionException(message + ": " + expression);
+  }
+}
@@ -0,0 +1,52 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+
+/**
+ * Tests for {@link ArrayOffsetStore}.
+ */
+public class ArrayOffsetStoreTest {
+
+  @Test
+  public void testGetString() {
+    ArrayOffsetStore.Builder builder = new ArrayOffsetStore.Builder();
+    assertEquals(0, builder.addString("catalog"));
+    assertEquals(7, builder.addChars("[book]".toCharArray(), 1, 4));
+    OffsetStore store = builder.build();
+
+    assertEquals("catalog", store.getString(0, 7));
+    assertEquals("book", store.getString(7, 11));
+    assertEquals("", store.getString(11, 11));
+  }
+
+  @Test
+  public void testGetString_acrossChunks() throws Exception {
+    int boundary = 1 << ArrayOffsetStore.CHUNK_BITS;
+    char[] chars = new char[boundary - 3];
+    Arrays.fill(chars, 'a');
+
+    ArrayOffsetStore.Builder builder = new ArrayOffsetStore.Builder();
+    builder.addString("xyz");
+    builder.addChars(chars, 0, chars.length);
+    assertEquals(boundary, builder.addString("catalog"));
+    ArrayOffsetStore store = builder.build();
+
+    assertEquals("aacat", store.getString(boundary - 2, boundary + 3));
+    assertEquals("catalog", store.getString(boundary, boundary + 7));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    store.writeTo(new DataOutputStream(out));
+    OffsetStore copy = ArrayOffsetStore.readFrom(
+        new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+    assertEquals("xyza", copy.getString(0, 4));
+    assertEquals("aacatalog", copy.getString(boundary - 2, boundary + 7));
+  }
+}
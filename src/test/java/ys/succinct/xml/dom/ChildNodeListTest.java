@@ -0,0 +1,92 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import ys.succinct.xml.XmlBaseTest;
+
+import java.io.StringReader;
+
+/**
+ * Tests for {@link ChildNodeList}.
+ */
+public class ChildNodeListTest extends XmlBaseTest {
+
+  private static final int WIDTH = 1000;
+
+  @Test
+  public void testItem() throws Exception {
+    Node expected = build(getDefaultFactory(), XML_PI).getDocumentElement();
+    Node actual = build(getSuccinctFactory(), XML_PI).getDocumentElement();
+    NodeList expectedChildren = expected.getChildNodes();
+    NodeList actualChildren = actual.getChildNodes();
+
+    assertEquals(expectedChildren.getLength(), actualChildren.getLength());
+    for (int i = 0; i < expectedChildren.getLength(); i++) {
+      assertEquals(expectedChildren.item(i).getNodeName(), actualChildren.item(i).getNodeName());
+      assertEquals(expectedChildren.item(i).getTextContent(),
+          actualChildren.item(i).getTextContent());
+    }
+  }
+
+  @Test
+  public void testItem_randomAccess() throws Exception {
+    Node root = buildWide().getDocumentElement();
+    NodeList children = root.getChildNodes();
+
+    // Jump forward, back, to the end and to the start without counting the length first.
+    int[] positions = {500, 10, 11, 499, 260, 999, 0, 998, 1};
+    for (int position : positions) {
+      assertEquals("e" + position, children.item(position).getNodeName());
+    }
+    assertNull(children.item(WIDTH));
+    assertNull(children.item(-1));
+
+    assertEquals(WIDTH, children.getLength());
+    for (int position : positions) {
+      assertEquals("e" + position, children.item(position).getNodeName());
+    }
+    assertNull(children.item(WIDTH));
+  }
+
+  @Test
+  public void testItem_sequential() throws Exception {
+    Node root = buildWide().getDocumentElement();
+    NodeList children = root.getChildNodes();
+
+    Node child = root.getFirstChild();
+    for (int i = 0; i < WIDTH; i++) {
+      assertTrue(child.isSameNode(children.item(i)));
+      child = child.getNextSibling();
+    }
+    for (int i = WIDTH - 1; i >= 0; i--) {
+      assertEquals("e" + i, children.item(i).getNodeName());
+    }
+  }
+
+  @Test
+  public void testItem_noChildren() throws Exception {
+    NodeList children = buildWide().getDocumentElement().getFirstChild().getChildNodes();
+
+    assertNull(children.item(0));
+    assertEquals(0, children.getLength());
+    assertNull(children.item(0));
+  }
+
+  private static Document buildWide() throws Exception {
+    StringBuilder xml = new StringBuilder("<root>");
+    for (int i = 0; i < WIDTH; i++) {
+      xml.append("<e").append(i).append("/>");
+    }
+    xml.append("</root>");
+    return getSuccinctFactory().newDocumentBuilder()
+        .parse(new InputSource(new StringReader(xml.toString())));
+  }
+}
@@ -0,0 +1,73 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+/**
+ * Tests for {@link CompressedOffsetStore}.
+ */
+public class CompressedOffsetStoreTest {
+
+  @Test
+  public void testGetString() {
+    CompressedOffsetStore.Builder builder = new CompressedOffsetStore.Builder();
+    assertEquals(0, builder.addString("catalog"));
+    assertEquals(7, builder.addChars("[book]".toCharArray(), 1, 4));
+    OffsetStore store = builder.build();
+
+    assertEquals("catalog", store.getString(0, 7));
+    assertEquals("book", store.getString(7, 11));
+    assertEquals("", store.getString(11, 11));
+  }
+
+  @Test
+  public void testGetString_acrossBlocks() {
+    String s = newText((1 << CompressedOffsetStore.BLOCK_BITS) * 3 + 100);
+
+    // The cache of a single block forces the blocks to be decompressed again.
+    CompressedOffsetStore.Builder builder = new CompressedOffsetStore.Builder(1);
+    builder.addString("x");
+    builder.addChars(s.toCharArray(), 0, s.length());
+    OffsetStore store = builder.build();
+
+    assertEquals("x", store.getString(0, 1));
+    assertEquals(s, store.getString(1, 1 + s.length()));
+    for (int i = 0; i < s.length(); i += 9973) {
+      int end = Math.min(s.length(), i + 200);
+      assertEquals(s.substring(i, end), store.getString(1 + i, 1 + end));
+    }
+  }
+
+  @Test
+  public void testWriteRead() throws Exception {
+    String s = newText((1 << CompressedOffsetStore.BLOCK_BITS) + 10);
+    CompressedOffsetStore.Builder builder = new CompressedOffsetStore.Builder();
+    builder.addString(s);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    builder.build().writeTo(new DataOutputStream(out));
+    OffsetStore store = CompressedOffsetStore.readFrom(
+        new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+
+    assertEquals(s, store.getString(0, s.length()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBuilder_invalidCacheCapacity() {
+    new CompressedOffsetStore.Builder(0);
+  }
+
+  private static String newText(int length) {
+    StringBuilder text = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      text.append((char) ('a' + i % 26 + (i % 1000 == 0 ? 0x400 : 0)));
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,76 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import ys.succinct.xml.XmlBaseTest;
+
+import java.io.StringReader;
+
+/**
+ * Tests for {@link DegreeIndex}.
+ */
+public class DegreeIndexTest extends XmlBaseTest {
+
+  @Test
+  public void testChildOperations() throws Exception {
+    // The widths around the sample rate and its multiples with the nested wide nodes.
+    StringBuilder xml = new StringBuilder("<root>");
+    int[] widths = {0, 1, 63, 64, 65, 127, 128, 129, 1000};
+    for (int width : widths) {
+      xml.append("<wide>");
+      for (int i = 0; i < width; i++) {
+        if (i % 100 == 7) {
+          xml.append("<e>").append(i).append("<y").append(i).append("/></e>");
+        } else {
+          xml.append((i % 2 == 0) ? "<e/>" : "text" + i);
+        }
+      }
+      xml.append("</wide>");
+    }
+    xml.append("</root>");
+    Document document = getSuccinctFactory().newDocumentBuilder()
+        .parse(new InputSource(new StringReader(xml.toString())));
+    SuccinctDom dom = SuccinctDomSnapshot.getDom(document);
+
+    assertChildOperations(dom, 0);
+    assertEquals(-1, dom.getChildRank(0));
+  }
+
+  @Test
+  public void testChildOperations_narrow() throws Exception {
+    SuccinctDom dom = SuccinctDomSnapshot.getDom(build(getSuccinctFactory(), XML_PI));
+
+    assertChildOperations(dom, 0);
+  }
+
+  @Test
+  public void testLazyBuild() throws Exception {
+    SuccinctDom dom = SuccinctDomSnapshot.getDom(build(getSuccinctFactory(), XML));
+    assertEquals(0, dom.getMemoryFootprint().getSize("degreeIndex"));
+
+    dom.getChildCount(0);
+    assertTrue(dom.getMemoryFootprint().getSize("degreeIndex") > 0);
+  }
+
+  /**
+   * Checks the operations against the sibling walk for the node and its descendants.
+   */
+  private static void assertChildOperations(SuccinctDom dom, int parenthesisIndex) {
+    int position = 0;
+    for (int i = dom.getFirstChildIndex(parenthesisIndex); i != -1;
+        i = dom.getNextSiblingIndex(i)) {
+      assertEquals(i, dom.getChildIndex(parenthesisIndex, position));
+      assertEquals(position, dom.getChildRank(i));
+      assertChildOperations(dom, i);
+      position++;
+    }
+    assertEquals(position, dom.getChildCount(parenthesisIndex));
+    assertEquals(-1, dom.getChildIndex(parenthesisIndex, position));
+    assertEquals(-1, dom.getChildIndex(parenthesisIndex, -1));
+  }
+}
@@ -0,0 +1,46 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests for {@link DirectOffsetStore}.
+ */
+public class DirectOffsetStoreTest {
+
+  @Test
+  public void testGetString() {
+    DirectOffsetStore.Builder builder = new DirectOffsetStore.Builder();
+    assertEquals(0, builder.addString("catalog"));
+    assertEquals(7, builder.addChars("[book]".toCharArray(), 1, 4));
+    assertEquals(11, builder.addString(""));
+    OffsetStore store = builder.build();
+
+    assertEquals("catalog", store.getString(0, 7));
+    assertEquals("book", store.getString(7, 11));
+    assertEquals("logbo", store.getString(4, 9));
+    assertEquals("", store.getString(11, 11));
+  }
+
+  @Test
+  public void testGetString_acrossChunks() {
+    int boundary = 1 << DirectOffsetStore.CHUNK_BITS;
+    char[] chars = new char[boundary + 10];
+    Arrays.fill(chars, 'a');
+    // Put the characters right after the chunk boundary taking into account the prefix.
+    chars[boundary - 3] = 'b';
+    chars[boundary - 2] = 'c';
+
+    DirectOffsetStore.Builder builder = new DirectOffsetStore.Builder();
+    builder.addString("xyz");
+    long offset = builder.addChars(chars, 0, chars.length);
+    OffsetStore store = builder.build();
+
+    assertEquals("xyz", store.getString(0, 3));
+    assertEquals("abc", store.getString(boundary - 1, boundary + 2));
+    assertEquals(new String(chars), store.getString(offset, offset + chars.length));
+  }
+}
@@ -0,0 +1,304 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import ys.succinct.xml.XmlBaseTest;
+import ys.succinct.xml.parser.SuccinctDocumentBuilderFactory;
+import ys.succinct.xml.xpath.SuccinctXPath;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathExpressionException;
+
+/**
+ * Tests for {@link DomSegments}.
+ */
+public class DomSegmentsTest extends XmlBaseTest {
+
+  private Document single;
+  private Document segmented;
+
+  @Before
+  public void setUp() throws Exception {
+    StringBuilder xml = new StringBuilder();
+    xml.append("<?xml version=\"1.0\"?><!-- prolog --><?app start?>");
+    xml.append("<catalog xmlns:p=\"http://example.com/price\" version=\"2\">");
+    for (int i = 0; i < 20; i++) {
+      xml.append("<book id=\"b").append(i).append("\"><title>Title ").append(i)
+          .append("</title><p:price>").append(i * 10).append("</p:price></book>");
+      if (i % 3 == 0) {
+        xml.append("text ").append(i).append("<!-- note ").append(i).append(" -->");
+      }
+    }
+    xml.append("</catalog><!-- epilog --><?app end?>");
+
+    single = parse(xml.toString(), getSuccinctFactory());
+    DocumentBuilderFactory factory = getSuccinctFactory();
+    factory.setAttribute(SuccinctDocumentBuilderFactory.SEGMENT_SIZE, 8);
+    segmented = parse(xml.toString(), factory);
+  }
+
+  private static Document parse(String xml, DocumentBuilderFactory factory) throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.ID_ATTRIBUTES, Arrays.asList("id"));
+    return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+  }
+
+  private static SuccinctDom getDom(Document document) {
+    return SuccinctDomSnapshot.getDom(document);
+  }
+
+  @Test
+  public void testSegmentCount() {
+    assertEquals(1, getDom(single).getSegmentCount());
+    assertTrue(getDom(segmented).getSegmentCount() > 5);
+  }
+
+  @Test
+  public void testIsEqualNode() {
+    assertTrue(segmented.isEqualNode(single));
+    assertTrue(single.isEqualNode(segmented));
+  }
+
+  @Test
+  public void testNavigation() {
+    assertEquals(walkForward(single), walkForward(segmented));
+    assertEquals(walkBackward(single), walkBackward(segmented));
+  }
+
+  private static List<String> walkForward(Node node) {
+    List<String> result = new ArrayList<>();
+    walkForward(node, result);
+    return result;
+  }
+
+  private static void walkForward(Node node, List<String> result) {
+    result.add(node.getNodeName() + "=" + node.getNodeValue());
+    Node document = (node.getNodeType() == Node.DOCUMENT_NODE) ? node : node.getOwnerDocument();
+    Node previous = null;
+    for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+      assertTrue(node.isSameNode(child.getParentNode()));
+      assertSame(document, child.getOwnerDocument());
+      if (previous != null) {
+        assertTrue(previous.isSameNode(child.getPreviousSibling()));
+      }
+      walkForward(child, result);
+      previous = child;
+    }
+  }
+
+  private static List<String> walkBackward(Node node) {
+    List<String> result = new ArrayList<>();
+    walkBackward(node, result);
+    return result;
+  }
+
+  private static void walkBackward(Node node, List<String> result) {
+    result.add(node.getNodeName() + "=" + node.getNodeValue());
+    for (Node child = node.getLastChild(); child != null; child = child.getPreviousSibling()) {
+      walkBackward(child, result);
+    }
+  }
+
+  @Test
+  public void testChildNodes() {
+    assertChildNodes(single, segmented);
+    assertChildNodes(single.getDocumentElement(), segmented.getDocumentElement());
+  }
+
+  private static void assertChildNodes(Node expected, Node actual) {
+    NodeList expectedList = expected.getChildNodes();
+    NodeList actualList = actual.getChildNodes();
+    assertEquals(expectedList.getLength(), actualList.getLength());
+    for (int i = 0; i < expectedList.getLength(); i++) {
+      assertTrue(expectedList.item(i).isEqualNode(actualList.item(i)));
+    }
+    assertNull(actualList.item(actualList.getLength()));
+    assertTrue(actual.hasChildNodes());
+  }
+
+  @Test
+  public void testGetElementsByTagName() {
+    assertElements(single.getElementsByTagName("title"), segmented.getElementsByTagName("title"));
+    assertElements(single.getDocumentElement().getElementsByTagName("*"),
+        segmented.getDocumentElement().getElementsByTagName("*"));
+    assertEquals(20, segmented.getElementsByTagName("book").getLength());
+  }
+
+  private static void assertElements(NodeList expected, NodeList actual) {
+    assertEquals(expected.getLength(), actual.getLength());
+    for (int i = 0; i < expected.getLength(); i++) {
+      assertEquals(expected.item(i).getTextContent(), actual.item(i).getTextContent());
+    }
+  }
+
+  @Test
+  public void testGetElementById() {
+    for (int i = 0; i < 20; i++) {
+      Element element = segmented.getElementById("b" + i);
+      assertEquals("Title " + i, element.getFirstChild().getTextContent());
+    }
+    assertNull(segmented.getElementById("none"));
+  }
+
+  @Test
+  public void testTextContent() {
+    assertEquals(single.getDocumentElement().getTextContent(),
+        segmented.getDocumentElement().getTextContent());
+  }
+
+  @Test
+  public void testCompareDocumentPosition() {
+    NodeList books = segmented.getElementsByTagName("book");
+    Node first = books.item(0);
+    Node last = books.item(books.getLength() - 1);
+    Element root = segmented.getDocumentElement();
+    assertEquals(Node.DOCUMENT_POSITION_FOLLOWING, first.compareDocumentPosition(last));
+    assertEquals(Node.DOCUMENT_POSITION_PRECEDING, last.compareDocumentPosition(first));
+    assertEquals(Node.DOCUMENT_POSITION_CONTAINED_BY | Node.DOCUMENT_POSITION_FOLLOWING,
+        root.compareDocumentPosition(last));
+    assertEquals(Node.DOCUMENT_POSITION_CONTAINS | Node.DOCUMENT_POSITION_PRECEDING,
+        last.getFirstChild().compareDocumentPosition(segmented));
+    assertEquals(Node.DOCUMENT_POSITION_FOLLOWING,
+        last.compareDocumentPosition(segmented.getLastChild()));
+  }
+
+  @Test
+  public void testCursor() {
+    List<Long> positions = new ArrayList<>();
+    SuccinctCursor cursor = SuccinctCursor.create(segmented);
+    int count = 0;
+    while (true) {
+      positions.add(cursor.position());
+      count++;
+      if (cursor.toFirstChild()) {
+        continue;
+      }
+      while (!cursor.toNextSibling()) {
+        if (!cursor.toParent()) {
+          assertEquals(walkForward(single).size(), count);
+          for (int i = 1; i < positions.size(); i++) {
+            assertTrue(positions.get(i - 1) < positions.get(i));
+          }
+          return;
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testXPath() throws Exception {
+    for (String expression : new String[] {"//title", "/catalog/book[last()]/title",
+        "//book[@id='b17']", "/catalog/text()", "//book[p:price='50']/..", "/comment()"}) {
+      SuccinctXPath xpath = SuccinctXPath.compile(expression);
+      NodeList expected = xpath.selectNodes(single);
+      NodeList actual = xpath.selectNodes(segmented);
+      assertEquals(expression, expected.getLength(), actual.getLength());
+      for (int i = 0; i < expected.getLength(); i++) {
+        assertTrue(expression, expected.item(i).isEqualNode(actual.item(i)));
+      }
+      assertEquals(expected.getLength(), xpath.selectPositions(segmented).length);
+    }
+  }
+
+  @Test
+  public void testXPath_selectIndexes() throws Exception {
+    // The nodes of the first segment are addressed by the indexes.
+    SuccinctXPath xpath = SuccinctXPath.compile("/catalog/book[1]/title");
+    int[] indexes = xpath.select(segmented);
+    assertEquals(1, indexes.length);
+    assertArrayEquals(xpath.select(single), indexes);
+  }
+
+  @Test(expected = XPathExpressionException.class)
+  public void testXPath_selectIndexes_segments() throws Exception {
+    SuccinctXPath.compile("//title").select(segmented);
+  }
+
+  @Test
+  public void testSnapshot() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SuccinctDomSnapshot.write(segmented, out);
+    Document snapshot = SuccinctDomSnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+
+    assertEquals(getDom(segmented).getSegmentCount(), getDom(snapshot).getSegmentCount());
+    assertTrue(snapshot.isEqualNode(single));
+    assertEquals(walkForward(single), walkForward(snapshot));
+  }
+
+  @Test
+  public void testMemoryFootprint() {
+    MemoryFootprint expected = getDom(single).getMemoryFootprint();
+    MemoryFootprint actual = getDom(segmented).getMemoryFootprint();
+    assertEquals(expected.getNodeCount(), actual.getNodeCount());
+    assertEquals(expected.getElementCount(), actual.getElementCount());
+    assertEquals(expected.getTextCount(), actual.getTextCount());
+    assertEquals(expected.getAttributeCount(), actual.getAttributeCount());
+    assertEquals(expected.getElementNameCount(), actual.getElementNameCount());
+    assertEquals(expected.getAttributeNameCount(), actual.getAttributeNameCount());
+  }
+
+  @Test
+  public void testGetNodes() {
+    SuccinctDom dom = getDom(segmented);
+    long[] positions = getDom(segmented).getElementPositionsByTagName(
+        dom.getDocumentElementIndex(), "book");
+    NodeList nodes = dom.getNodes(positions);
+    assertEquals(20, nodes.getLength());
+    for (int i = 0; i < positions.length; i++) {
+      assertTrue(nodes.item(i).isSameNode(dom.getNodeAt(positions[i])));
+    }
+  }
+
+  @Test
+  public void testChildPositions() {
+    SuccinctDom expected = getDom(single);
+    SuccinctDom actual = getDom(segmented);
+    assertChildPositions(expected, 0, actual, 0);
+    assertChildPositions(expected, expected.getDocumentElementIndex(),
+        actual, actual.getDocumentElementIndex());
+  }
+
+  private static void assertChildPositions(
+      SuccinctDom expected, int expectedIndex, SuccinctDom actual, int actualIndex) {
+    long count = actual.getChildCount(actualIndex);
+    assertEquals(expected.getChildCount(expectedIndex), count);
+    assertEquals(actual.getNode(actualIndex).getChildNodes().getLength(), count);
+    assertEquals(expected.getSubtreeSize(expectedIndex), actual.getSubtreeSize(actualIndex));
+    for (int i = 0; i < count; i++) {
+      Node child = actual.getNodeAt(actual.getChildPosition(actualIndex, i));
+      assertTrue(expected.getNode(expected.getChildIndex(expectedIndex, i)).isEqualNode(child));
+      int childIndex = ((AbstractSuccinctNode) child).index;
+      SuccinctDom childDom = ((AbstractSuccinctNode) child).dom;
+      assertEquals(i, childDom.getChildRank(childIndex));
+      assertEquals(expected.getSubtreeSize(expected.getChildIndex(expectedIndex, i)),
+          childDom.getSubtreeSize(childIndex));
+    }
+    assertEquals(-1, actual.getChildPosition(actualIndex, count));
+    assertEquals(-1, actual.getChildIndex(actualIndex, (int) count));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetChildIndex_anotherSegment() {
+    SuccinctDom dom = getDom(segmented);
+    int rootIndex = dom.getDocumentElementIndex();
+    dom.getChildIndex(rootIndex, (int) dom.getChildCount(rootIndex) - 1);
+  }
+}
@@ -0,0 +1,86 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Random;
+
+/**
+ * Tests for {@link EliasFanoOffsetArray}.
+ */
+public class EliasFanoOffsetArrayTest {
+
+  @Test
+  public void testGet() {
+    int[] offsets = {0, 0, 3, 7, 7, 8, 100, 1000, 1001};
+    assertOffsets(offsets, encode(offsets));
+  }
+
+  @Test
+  public void testGet_zeros() {
+    int[] offsets = {0, 0, 0};
+    assertOffsets(offsets, encode(offsets));
+  }
+
+  @Test
+  public void testGet_random() {
+    Random random = new Random(42);
+    int[] offsets = new int[10000];
+    for (int i = 1; i < offsets.length; i++) {
+      offsets[i] = offsets[i - 1] + (random.nextInt(10) == 0 ? random.nextInt(100000) : 0)
+          + random.nextInt(20);
+    }
+    assertOffsets(offsets, encode(offsets));
+  }
+
+  @Test
+  public void testGet_largeOffsets() {
+    int[] offsets = {5, Integer.MAX_VALUE / 2, Integer.MAX_VALUE};
+    assertOffsets(offsets, encode(offsets));
+  }
+
+  @Test
+  public void testGet_longOffsets() {
+    // The lower bits wrap around at the index 2, so the offsets are 5, 2^31, 2^32 + 7, 2^33 - 1.
+    OffsetArray offsets =
+        new IntOffsetArray(new int[] {5, Integer.MIN_VALUE, 7, -1}, new int[] {2});
+    OffsetArray array = EliasFanoOffsetArray.encode(offsets);
+
+    assertEquals(4, array.size());
+    for (int i = 0; i < offsets.size(); i++) {
+      assertEquals(offsets.get(i), array.get(i));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEncode_decreasing() {
+    encode(new int[] {1, 5, 4});
+  }
+
+  @Test
+  public void testWriteRead() throws Exception {
+    int[] offsets = {0, 12, 12, 40, 41, 97, 130};
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    encode(offsets).writeTo(new DataOutputStream(out));
+    OffsetArray array = EliasFanoOffsetArray.readFrom(
+        new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+
+    assertOffsets(offsets, array);
+  }
+
+  private static EliasFanoOffsetArray encode(int[] offsets) {
+    return EliasFanoOffsetArray.encode(new IntOffsetArray(offsets, new int[0]));
+  }
+
+  private static void assertOffsets(int[] expected, OffsetArray array) {
+    assertEquals(expected.length, array.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], array.get(i));
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import ys.succinct.xml.XmlBaseTest;
+import ys.succinct.xml.parser.SuccinctDocumentBuilderFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Tests for {@link IdIndex} and the element lookup by the ID.
+ */
+public class IdIndexTest extends XmlBaseTest {
+
+  private static final String XML_DTD_ID = "<!DOCTYPE r [<!ATTLIST x key ID #IMPLIED>]>"
+      + "<r><x key='k1' id='a'/><y key='k2'/><x key='k3'><x key='k4'/></x></r>";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testGetElementById() throws Exception {
+    DocumentBuilderFactory factory = getSuccinctFactory();
+    factory.setAttribute(SuccinctDocumentBuilderFactory.ID_ATTRIBUTES, "id");
+    Document document = build(factory, XML);
+
+    Element book = document.getElementById("102");
+    assertEquals("book", book.getNodeName());
+    assertEquals("102", book.getAttribute("id"));
+    assertTrue(book.isSameNode(document.getElementsByTagName("book").item(1)));
+    assertNull(document.getElementById("100"));
+    assertNull(document.getElementById(null));
+  }
+
+  @Test
+  public void testGetElementById_notIndexed() throws Exception {
+    assertNull(build(getSuccinctFactory(), XML).getElementById("102"));
+  }
+
+  @Test
+  public void testGetElementById_namespaces() throws Exception {
+    DocumentBuilderFactory factory = withNamespaces(getSuccinctFactory());
+    factory.setAttribute(
+        SuccinctDocumentBuilderFactory.ID_ATTRIBUTES, Arrays.asList("id", "xml:lang"));
+    Document document = build(factory, XML_NS);
+
+    assertEquals("103", document.getElementById("103").getAttribute("id"));
+    Element description = document.getElementById("en");
+    assertEquals("description", description.getLocalName());
+    assertEquals("101", ((Element) description.getParentNode()).getAttribute("id"));
+  }
+
+  @Test
+  public void testGetElementById_dtd() throws Exception {
+    File file = write(XML_DTD_ID);
+    Document expected = getDefaultFactory().newDocumentBuilder().parse(file);
+    Document document = getSuccinctFactory().newDocumentBuilder().parse(file);
+
+    for (String id : new String[] {"k1", "k2", "k3", "k4", "a"}) {
+      Element expectedElement = expected.getElementById(id);
+      Element element = document.getElementById(id);
+      if (expectedElement == null) {
+        assertNull(id, element);
+      } else {
+        assertEquals(id, expectedElement.getAttribute("key"), element.getAttribute("key"));
+      }
+    }
+  }
+
+  @Test
+  public void testBuildIdIndex_snapshot() throws Exception {
+    DocumentBuilderFactory factory = withNamespaces(getSuccinctFactory());
+    factory.setAttribute(SuccinctDocumentBuilderFactory.ID_ATTRIBUTES, "id");
+    File file = folder.newFile();
+    SuccinctDomSnapshot.write(build(factory, XML_NS), file);
+    Document document = SuccinctDomSnapshot.read(file);
+    assertNull(document.getElementById("103"));
+
+    SuccinctDom dom = SuccinctDomSnapshot.getDom(document);
+    dom.buildIdIndex(Arrays.asList("id", "xml:lang"));
+    assertEquals("103", document.getElementById("103").getAttribute("id"));
+    assertEquals("description", document.getElementById("en").getLocalName());
+    assertNull(document.getElementById("lang"));
+
+    dom.buildIdIndex(Collections.singleton("lang"));
+    assertNull(document.getElementById("103"));
+    assertNull(document.getElementById("en"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBuild_tooManyIds() {
+    IdIndex.build(null, null, IdIndex.MAX_SIZE + 1);
+  }
+
+  @Test
+  public void testGetAttribute() throws Exception {
+    DocumentBuilderFactory factory = getSuccinctFactory();
+    factory.setAttribute(SuccinctDocumentBuilderFactory.ID_ATTRIBUTES, " id, ,xml:id");
+    assertEquals(new HashSet<>(Arrays.asList("id", "xml:id")),
+        factory.getAttribute(SuccinctDocumentBuilderFactory.ID_ATTRIBUTES));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetAttribute_invalid() {
+    getSuccinctFactory().setAttribute(
+        SuccinctDocumentBuilderFactory.ID_ATTRIBUTES, Collections.singleton(1));
+  }
+
+  private File write(String xml) throws IOException {
+    File file = folder.newFile();
+    try (Writer writer =
+        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+      writer.write(xml);
+    }
+    return file;
+  }
+}
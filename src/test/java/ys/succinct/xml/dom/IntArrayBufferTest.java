@@ -0,0 +1,80 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ys.succinct.util.IntBitSet;
+
+/**
+ * Tests for {@link IntArrayBuffer}.
+ */
+public class IntArrayBufferTest {
+
+  @Test
+  public void testSetInt_acrossSegments() {
+    int length = (1 << IntArrayBuffer.SEGMENT_BITS) * 2 + 100;
+    IntArrayBuffer buffer = new IntArrayBuffer(10);
+    for (int i = 0; i < length; i++) {
+      buffer.setInt(i, i * 3);
+    }
+
+    int[] values = buffer.toIntArray(length - 1);
+    assertEquals(length - 1, values.length);
+    for (int i = 0; i < values.length; i++) {
+      assertEquals(i * 3, values[i]);
+    }
+  }
+
+  @Test
+  public void testSet() {
+    IntArrayBuffer buffer = new IntArrayBuffer();
+    IntBitSet expected = new IntBitSet();
+    int bitCount = (1 << IntArrayBuffer.SEGMENT_BITS) * 32 + 1000;
+    for (int i = 0; i < bitCount; i += 7) {
+      buffer.set(i);
+      expected.set(i);
+    }
+
+    assertArrayEquals(expected.toIntArray(bitCount), buffer.toBitArray(bitCount));
+  }
+
+  @Test
+  public void testSetBits() {
+    IntArrayBuffer source = new IntArrayBuffer();
+    int bitCount = 1000;
+    for (int i = 0; i < bitCount; i += 3) {
+      source.set(i);
+    }
+
+    for (int offset : new int[] {0, 5, 32, 37}) {
+      IntArrayBuffer buffer = new IntArrayBuffer();
+      IntBitSet expected = new IntBitSet();
+      buffer.set(1);
+      expected.set(1);
+      buffer.setBits(offset + 2, source, bitCount);
+      for (int i = 0; i < bitCount; i += 3) {
+        expected.set(offset + 2 + i);
+      }
+
+      int totalCount = offset + 2 + bitCount;
+      assertArrayEquals(expected.toIntArray(totalCount), buffer.toBitArray(totalCount));
+    }
+  }
+
+  @Test
+  public void testToIntArray_exactCapacity() {
+    IntArrayBuffer buffer = new IntArrayBuffer(3);
+    buffer.setInt(0, 1);
+    buffer.setInt(2, 3);
+    int[] values = buffer.toIntArray(3);
+    assertArrayEquals(new int[] {1, 0, 3}, values);
+  }
+
+  @Test
+  public void testToIntArray_empty() {
+    assertEquals(0, new IntArrayBuffer().toIntArray(0).length);
+    assertEquals(0, new IntArrayBuffer(0).toBitArray(0).length);
+  }
+}
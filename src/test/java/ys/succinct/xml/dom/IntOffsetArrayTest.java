@@ -0,0 +1,51 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+/**
+ * Tests for {@link IntOffsetArray}.
+ */
+public class IntOffsetArrayTest {
+
+  @Test
+  public void testGet() {
+    OffsetArray array = new IntOffsetArray(new int[] {0, 3, Integer.MAX_VALUE}, new int[0]);
+    assertEquals(3, array.size());
+    assertEquals(0, array.get(0));
+    assertEquals(3, array.get(1));
+    assertEquals(Integer.MAX_VALUE, array.get(2));
+  }
+
+  @Test
+  public void testGet_wraps() {
+    OffsetArray array =
+        new IntOffsetArray(new int[] {-2, 1, -1, 0, 5}, new int[] {1, 3});
+    assertEquals(0xFFFFFFFEL, array.get(0));
+    assertEquals(0x100000001L, array.get(1));
+    assertEquals(0x1FFFFFFFFL, array.get(2));
+    assertEquals(0x200000000L, array.get(3));
+    assertEquals(0x200000005L, array.get(4));
+  }
+
+  @Test
+  public void testWriteRead() throws Exception {
+    OffsetArray array =
+        new IntOffsetArray(new int[] {-2, 1, -1, 0, 5}, new int[] {1, 3});
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SnapshotIO.writeInts(new DataOutputStream(out), array);
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+    OffsetArray copy = new IntOffsetArray(SnapshotIO.readInts(in), SnapshotIO.readInts(in));
+
+    assertEquals(array.size(), copy.size());
+    for (int i = 0; i < array.size(); i++) {
+      assertEquals(array.get(i), copy.get(i));
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import ys.succinct.xml.XmlBaseTest;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Tests for {@link MemoryFootprint}.
+ */
+public class MemoryFootprintTest extends XmlBaseTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testCounts() throws Exception {
+    Document document = build(getSuccinctFactory(), XML_PI);
+    Counts counts = new Counts();
+    counts.count(document);
+
+    MemoryFootprint footprint = MemoryFootprint.of(document);
+    assertEquals(counts.nodes, footprint.getNodeCount());
+    assertEquals(counts.elements, footprint.getElementCount());
+    assertEquals(counts.texts, footprint.getTextCount());
+    assertEquals(counts.attributes, footprint.getAttributeCount());
+    assertEquals(counts.elementNames.size(), footprint.getElementNameCount());
+    assertEquals(counts.attributeNames.size(), footprint.getAttributeNameCount());
+  }
+
+  @Test
+  public void testSizes() throws Exception {
+    MemoryFootprint footprint = MemoryFootprint.of(build(getSuccinctFactory(), XML_PI));
+
+    long total = 0;
+    for (long size : footprint.getStructureSizes().values()) {
+      total += size;
+    }
+    assertEquals(total, footprint.getTotalSize());
+    assertTrue(footprint.getSize("parentheses.bits") > 0);
+    assertTrue(footprint.getSize("parentheses.rankSelect") > 0);
+    assertTrue(footprint.getSize("elements.nameCodes") > 0);
+    assertTrue(footprint.getSize("text.content") > 0);
+    assertEquals(0, footprint.getSize("tagIndex"));
+    assertEquals(total * 8.0 / footprint.getNodeCount(), footprint.getBitsPerNode(), 1e-9);
+    assertTrue(footprint.toString().contains("parentheses.bits"));
+  }
+
+  @Test
+  public void testSizes_tagIndex() throws Exception {
+    Document document = build(getSuccinctFactory(), XML_PI);
+    MemoryFootprint footprint = MemoryFootprint.of(document);
+    SuccinctDomSnapshot.getDom(document).buildTagIndex();
+
+    MemoryFootprint indexedFootprint = MemoryFootprint.of(document);
+    assertTrue(indexedFootprint.getSize("tagIndex") > 0);
+    assertEquals(footprint.getTotalSize() + indexedFootprint.getSize("tagIndex"),
+        indexedFootprint.getTotalSize());
+  }
+
+  @Test
+  public void testSizes_mapped() throws Exception {
+    Document document = build(getSuccinctFactory(), XML_PI);
+    File file = folder.newFile();
+    SuccinctDomSnapshot.write(document, file);
+
+    MemoryFootprint footprint = MemoryFootprint.of(document);
+    MemoryFootprint mappedFootprint = MemoryFootprint.of(SuccinctDomSnapshot.map(file));
+    assertEquals(footprint.getNodeCount(), mappedFootprint.getNodeCount());
+    assertTrue(mappedFootprint.getSize("text.content") < footprint.getSize("text.content"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOf_notSuccinct() throws Exception {
+    MemoryFootprint.of(build(getDefaultFactory(), XML));
+  }
+
+  @Test
+  public void testMonitor() throws Exception {
+    Document document = build(getSuccinctFactory(), XML_PI);
+    ObjectName name = SuccinctDomMonitor.register(document, "catalog");
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      MemoryFootprint footprint = MemoryFootprint.of(document);
+      assertEquals(footprint.getNodeCount(), server.getAttribute(name, "NodeCount"));
+      assertEquals(footprint.getTotalSize(), server.getAttribute(name, "TotalSize"));
+      assertFalse(new SuccinctDomMonitor(document).getStructureSizes().isEmpty());
+    } finally {
+      server.unregisterMBean(name);
+    }
+    assertFalse(server.isRegistered(name));
+  }
+
+  /**
+   * The counts of the DOM traversal.
+   */
+  private static class Counts {
+
+    long nodes;
+    long elements;
+    long texts;
+    long attributes;
+    final Set<String> elementNames = new HashSet<>();
+    final Set<String> attributeNames = new HashSet<>();
+
+    void count(Node node) {
+      nodes++;
+      switch (node.getNodeType()) {
+        case Node.ELEMENT_NODE:
+          elements++;
+          elementNames.add(node.getNodeName());
+          NamedNodeMap attributeMap = node.getAttributes();
+          attributes += attributeMap.getLength();
+          for (int i = 0; i < attributeMap.getLength(); i++) {
+            attributeNames.add(attributeMap.item(i).getNodeName());
+          }
+          break;
+        case Node.TEXT_NODE:
+        case Node.CDATA_SECTION_NODE:
+          texts++;
+          break;
+        default:
+          break;
+      }
+      for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+        count(child);
+      }
+    }
+  }
+}
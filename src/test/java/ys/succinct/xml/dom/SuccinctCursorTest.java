@@ -0,0 +1,144 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import ys.succinct.xml.XmlBaseTest;
+
+/**
+ * Tests for {@link SuccinctCursor}.
+ */
+public class SuccinctCursorTest extends XmlBaseTest {
+
+  @Test
+  public void testWalk() throws Exception {
+    Document document = build(getSuccinctFactory(), XML_PI);
+    assertWalk(document, SuccinctCursor.create(document), false);
+  }
+
+  @Test
+  public void testWalk_withNamespaces() throws Exception {
+    Document document = build(withNamespaces(getSuccinctFactory()), XML_NS);
+    assertWalk(document, SuccinctCursor.create(document), true);
+  }
+
+  @Test
+  public void testWalk_backward() throws Exception {
+    Document document = build(getSuccinctFactory(), XML);
+    SuccinctCursor cursor = SuccinctCursor.create(document.getDocumentElement());
+    assertTrue(cursor.toLastChild());
+    Node node = document.getDocumentElement().getLastChild();
+    while (node != null) {
+      assertEquals(node, cursor.node());
+      assertEquals(node.getPreviousSibling() != null, cursor.toPreviousSibling());
+      node = node.getPreviousSibling();
+    }
+  }
+
+  @Test
+  public void testNavigation_document() throws Exception {
+    Document document = build(getSuccinctFactory(), XML);
+    SuccinctCursor cursor = SuccinctCursor.create(document);
+
+    assertFalse(cursor.toParent());
+    assertFalse(cursor.toNextSibling());
+    assertFalse(cursor.toPreviousSibling());
+    assertEquals(Node.DOCUMENT_NODE, cursor.nodeType());
+    assertNull(cursor.localName());
+    assertNull(cursor.text());
+    assertEquals(document, cursor.node());
+  }
+
+  @Test
+  public void testCopyAndMoveTo() throws Exception {
+    Document document = build(getSuccinctFactory(), XML);
+    SuccinctCursor cursor = SuccinctCursor.create(document.getDocumentElement());
+    SuccinctCursor copy = cursor.copy();
+
+    assertTrue(copy.toFirstChild());
+    assertEquals(document.getDocumentElement(), cursor.node());
+    cursor.moveTo(copy);
+    assertEquals(copy.index(), cursor.index());
+    assertEquals(document.getDocumentElement().getFirstChild(), cursor.node());
+  }
+
+  @Test
+  public void testMoveTo_index() throws Exception {
+    Document document = build(getSuccinctFactory(), XML);
+    SuccinctCursor cursor = SuccinctCursor.create(document);
+    SuccinctCursor leaf = SuccinctCursor.create(document.getDocumentElement());
+    boolean hasChildren = true;
+    while (hasChildren) {
+      hasChildren = leaf.toFirstChild();
+    }
+
+    cursor.moveTo(leaf.index());
+    assertEquals(leaf.node(), cursor.node());
+    // The parenthesis right after the leaf closes it.
+    assertMoveToFails(cursor, leaf.index() + 1);
+    assertMoveToFails(cursor, -1);
+    assertMoveToFails(cursor, Integer.MAX_VALUE);
+    assertEquals(leaf.node(), cursor.node());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreate_attribute() throws Exception {
+    Node book = getChildNode(build(getSuccinctFactory(), XML).getDocumentElement(), "book");
+    SuccinctCursor.create(((Element) book).getAttributeNode("id"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreate_notSuccinct() throws Exception {
+    SuccinctCursor.create(build(getDefaultFactory(), XML));
+  }
+
+  private static void assertMoveToFails(SuccinctCursor cursor, int index) {
+    try {
+      cursor.moveTo(index);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Not a node index: " + index, e.getMessage());
+    }
+  }
+
+  /**
+   * Walks the subtree with both the cursor and the {@link Node} API and compares the nodes.
+   */
+  private static void assertWalk(Node node, SuccinctCursor cursor, boolean isNamespaceAware) {
+    assertEquals(node, cursor.node());
+    assertEquals(node.getNodeType(), cursor.nodeType());
+    if (node.getNodeType() == Node.ELEMENT_NODE) {
+      assertEquals(isNamespaceAware ? node.getLocalName() : node.getNodeName(),
+          cursor.localName());
+      assertEquals(node.getNamespaceURI(), cursor.namespaceURI());
+      assertNull(cursor.text());
+    } else {
+      assertNull(cursor.localName());
+      assertEquals(node.getNodeValue(), cursor.text());
+    }
+
+    if (cursor.toFirstChild()) {
+      Node child = node.getFirstChild();
+      while (true) {
+        assertWalk(child, cursor, isNamespaceAware);
+        child = child.getNextSibling();
+        if (!cursor.toNextSibling()) {
+          break;
+        }
+      }
+      assertNull(child);
+      assertTrue(cursor.toParent());
+    } else {
+      assertFalse(node.hasChildNodes());
+    }
+    assertEquals(node, cursor.node());
+  }
+}
@@ -0,0 +1,158 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import ys.succinct.xml.XmlBaseTest;
+import ys.succinct.xml.parser.SuccinctDocumentBuilderFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Tests for {@link SuccinctDomSnapshot}.
+ */
+public class SuccinctDomSnapshotTest extends XmlBaseTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testWriteRead() throws Exception {
+    Document document = build(getSuccinctFactory(), XML_PI);
+    Document snapshot = roundTrip(document);
+
+    assertTrue(snapshot.isEqualNode(document));
+    assertEquals(document.getDocumentURI(), snapshot.getDocumentURI());
+    assertEquals(document.getXmlVersion(), snapshot.getXmlVersion());
+    assertEquals(document.getXmlEncoding(), snapshot.getXmlEncoding());
+    assertEquals(document.getXmlStandalone(), snapshot.getXmlStandalone());
+    assertEquals(document.getDocumentElement().getTextContent(),
+        snapshot.getDocumentElement().getTextContent());
+  }
+
+  @Test
+  public void testWriteRead_withNamespaces() throws Exception {
+    Document document = build(withNamespaces(getSuccinctFactory()), XML_NS);
+    Document snapshot = roundTrip(document);
+
+    assertTrue(snapshot.isEqualNode(document));
+    Element root = snapshot.getDocumentElement();
+    assertEquals(NS_CATALOG, root.getNamespaceURI());
+    assertTrue(root.isDefaultNamespace(NS_CATALOG));
+  }
+
+  @Test
+  public void testWriteRead_file() throws Exception {
+    Document document = build(getSuccinctFactory(), XML);
+    File file = folder.newFile();
+    SuccinctDomSnapshot.write(document, file);
+
+    assertTrue(SuccinctDomSnapshot.read(file).isEqualNode(document));
+  }
+
+  @Test
+  public void testWriteRead_utf8TextStore() throws Exception {
+    DocumentBuilderFactory factory = getSuccinctFactory();
+    factory.setAttribute(SuccinctDocumentBuilderFactory.TEXT_STORE_TYPE, TextStoreType.UTF8);
+    Document document = build(factory, XML_PI);
+    File file = folder.newFile();
+    SuccinctDomSnapshot.write(document, file);
+
+    assertTrue(roundTrip(document).isEqualNode(document));
+    assertTrue(SuccinctDomSnapshot.map(file).isEqualNode(document));
+  }
+
+  @Test
+  public void testWriteRead_compressedTextStore() throws Exception {
+    DocumentBuilderFactory factory = getSuccinctFactory();
+    factory.setAttribute(
+        SuccinctDocumentBuilderFactory.TEXT_STORE_TYPE, TextStoreType.COMPRESSED);
+    Document document = build(factory, XML_PI);
+    File file = folder.newFile();
+    SuccinctDomSnapshot.write(document, file);
+
+    assertTrue(roundTrip(document).isEqualNode(document));
+    assertTrue(SuccinctDomSnapshot.map(file).isEqualNode(document));
+  }
+
+  @Test
+  public void testWriteRead_compactOffsets() throws Exception {
+    DocumentBuilderFactory factory = getSuccinctFactory();
+    factory.setAttribute(SuccinctDocumentBuilderFactory.COMPACT_OFFSETS, Boolean.TRUE);
+    Document document = build(factory, XML_PI);
+    File file = folder.newFile();
+    SuccinctDomSnapshot.write(document, file);
+
+    assertTrue(roundTrip(document).isEqualNode(document));
+    assertTrue(SuccinctDomSnapshot.map(file).isEqualNode(document));
+  }
+
+  @Test
+  public void testMap() throws Exception {
+    Document document = build(withNamespaces(getSuccinctFactory()), XML_NS);
+    File file = folder.newFile();
+    SuccinctDomSnapshot.write(document, file);
+
+    Document mapped = SuccinctDomSnapshot.map(file);
+    assertTrue(mapped.isEqualNode(document));
+    assertEquals(document.getDocumentElement().getTextContent(),
+        mapped.getDocumentElement().getTextContent());
+  }
+
+  @Test
+  public void testMap_writeAgain() throws Exception {
+    Document document = build(getSuccinctFactory(), XML_PI);
+    File file = folder.newFile();
+    SuccinctDomSnapshot.write(document, file);
+
+    assertTrue(roundTrip(SuccinctDomSnapshot.map(file)).isEqualNode(document));
+  }
+
+  @Test(expected = IOException.class)
+  public void testMap_truncated() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SuccinctDomSnapshot.write(build(getSuccinctFactory(), XML), out);
+    File file = folder.newFile();
+    try (FileOutputStream fileOut = new FileOutputStream(file)) {
+      fileOut.write(out.toByteArray(), 0, out.size() - 16);
+    }
+    SuccinctDomSnapshot.map(file);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrite_notSuccinct() throws Exception {
+    SuccinctDomSnapshot.write(build(getDefaultFactory(), XML), new ByteArrayOutputStream());
+  }
+
+  @Test(expected = IOException.class)
+  public void testRead_notSnapshot() throws Exception {
+    SuccinctDomSnapshot.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+  }
+
+  @Test(expected = IOException.class)
+  public void testRead_unknownVersion() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SuccinctDomSnapshot.write(build(getSuccinctFactory(), XML), out);
+    byte[] bytes = out.toByteArray();
+    bytes[7] = 0x7F; // Corrupt the lowest byte of the version.
+    SuccinctDomSnapshot.read(new ByteArrayInputStream(bytes));
+  }
+
+  private static Document roundTrip(Document document) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SuccinctDomSnapshot.write(document, out);
+    return SuccinctDomSnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+  }
+}
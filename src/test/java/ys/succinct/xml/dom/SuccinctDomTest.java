@@ -0,0 +1,143 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import ys.succinct.xml.XmlBaseTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link SuccinctDom}.
+ */
+public class SuccinctDomTest extends XmlBaseTest {
+
+  private static final int DIRECTION_MASK =
+      Node.DOCUMENT_POSITION_PRECEDING | Node.DOCUMENT_POSITION_FOLLOWING;
+
+  @Test
+  public void testGetDepth() throws Exception {
+    Document document = build(getSuccinctFactory(), XML_PI);
+    SuccinctDom dom = SuccinctDomSnapshot.getDom(document);
+
+    for (Node node : collectNodes(document, false)) {
+      int depth = 0;
+      for (Node parent = node.getParentNode(); parent != null; parent = parent.getParentNode()) {
+        depth++;
+      }
+      assertEquals(depth, dom.getDepth(((AbstractSuccinctNode) node).index));
+    }
+  }
+
+  @Test
+  public void testGetSubtreeSize() throws Exception {
+    Document document = build(getSuccinctFactory(), XML_PI);
+    SuccinctDom dom = SuccinctDomSnapshot.getDom(document);
+
+    assertEquals(collectNodes(document, false).size(), dom.getSubtreeSize(0));
+    for (Node node : collectNodes(document, false)) {
+      assertEquals(collectNodes(node, false).size(),
+          dom.getSubtreeSize(((AbstractSuccinctNode) node).index));
+    }
+  }
+
+  @Test
+  public void testCompareDocumentPosition() throws Exception {
+    assertCompareDocumentPosition(build(getDefaultFactory(), XML_PI),
+        build(getSuccinctFactory(), XML_PI));
+    assertCompareDocumentPosition(build(withNamespaces(getDefaultFactory()), XML_NS),
+        build(withNamespaces(getSuccinctFactory()), XML_NS));
+  }
+
+  @Test
+  public void testCompareDocumentPosition_disconnected() throws Exception {
+    Node node = build(getSuccinctFactory(), XML).getDocumentElement();
+    Node other = build(getSuccinctFactory(), XML).getDocumentElement();
+    Node foreign = build(getDefaultFactory(), XML).getDocumentElement();
+    int disconnected =
+        Node.DOCUMENT_POSITION_DISCONNECTED | Node.DOCUMENT_POSITION_IMPLEMENTATION_SPECIFIC;
+
+    for (Node otherNode : new Node[] {other, other.getAttributes().item(0), foreign}) {
+      int position = node.compareDocumentPosition(otherNode);
+      assertEquals(disconnected, position & ~DIRECTION_MASK);
+      assertEquals(1, Integer.bitCount(position & DIRECTION_MASK));
+    }
+    // The order is consistent in both directions.
+    assertEquals(DIRECTION_MASK,
+        (node.compareDocumentPosition(other) ^ other.compareDocumentPosition(node))
+            & DIRECTION_MASK);
+  }
+
+  /**
+   * Checks the positions of all the pairs of the nodes (including the attributes and their text)
+   * against the reference DOM. The order of the attributes of the same element is implementation
+   * specific so it's not compared.
+   */
+  private static void assertCompareDocumentPosition(Document expectedDocument,
+      Document actualDocument) {
+    List<Node> expectedNodes = collectNodes(expectedDocument, true);
+    List<Node> actualNodes = collectNodes(actualDocument, true);
+    // The attributes are paired by the names as their order may differ.
+    assertEquals(expectedNodes.size(), actualNodes.size());
+
+    for (int i = 0; i < actualNodes.size(); i++) {
+      for (int j = 0; j < actualNodes.size(); j++) {
+        int expected = expectedNodes.get(i).compareDocumentPosition(expectedNodes.get(j));
+        int actual = actualNodes.get(i).compareDocumentPosition(actualNodes.get(j));
+        if ((expected & Node.DOCUMENT_POSITION_IMPLEMENTATION_SPECIFIC) != 0) {
+          expected &= Node.DOCUMENT_POSITION_IMPLEMENTATION_SPECIFIC;
+          actual &= Node.DOCUMENT_POSITION_IMPLEMENTATION_SPECIFIC;
+        } else if (isAttributeRelated(actualNodes.get(i))
+            && isAttributeRelated(actualNodes.get(j))) {
+          // The reference DOM treats the attributes of an ancestor as containing the attributes
+          // of the descendants, so compare the direction only.
+          expected &= DIRECTION_MASK;
+          actual &= DIRECTION_MASK;
+        }
+        assertEquals(expected, actual);
+      }
+    }
+  }
+
+  private static boolean isAttributeRelated(Node node) {
+    Node parent = node.getParentNode();
+    return node.getNodeType() == Node.ATTRIBUTE_NODE
+        || (parent != null && parent.getNodeType() == Node.ATTRIBUTE_NODE);
+  }
+
+  /**
+   * Collects the node and its descendants in the document order, optionally with the attributes
+   * and their text that follow the element. The attributes are sorted by their names.
+   */
+  private static List<Node> collectNodes(Node node, boolean withAttributes) {
+    List<Node> nodes = new ArrayList<>();
+    collectNodes(node, withAttributes, nodes);
+    return nodes;
+  }
+
+  private static void collectNodes(Node node, boolean withAttributes, List<Node> nodes) {
+    nodes.add(node);
+    NamedNodeMap attributes = node.getAttributes();
+    if (withAttributes && attributes != null) {
+      List<String> names = new ArrayList<>();
+      for (int i = 0; i < attributes.getLength(); i++) {
+        names.add(attributes.item(i).getNodeName());
+      }
+      Collections.sort(names);
+      for (String name : names) {
+        Node attribute = attributes.getNamedItem(name);
+        nodes.add(attribute);
+        nodes.add(attribute.getFirstChild());
+      }
+    }
+    for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+      collectNodes(child, withAttributes, nodes);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import ys.succinct.xml.XmlBaseTest;
+import ys.succinct.xml.parser.SuccinctDocumentBuilderFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Tests for {@link TagIndex} and the element lookup by the tag name.
+ */
+public class TagIndexTest extends XmlBaseTest {
+
+  private static final String[] NAMES = {
+      "*", "catalog", "book", "title", "price", "p:price", "p:book", "missing"};
+  private static final String[][] NS_NAMES = {
+      {"*", "*"}, {null, "*"}, {"", "*"}, {"*", "book"}, {"*", "price"}, {NS_CATALOG, "*"},
+      {NS_CATALOG, "book"}, {NS_PRICE, "price"}, {NS_PRICE, "*"}, {NS_CATALOG, "price"},
+      {null, "book"}, {"", "price"}, {"urn:missing", "*"}, {"*", "missing"}};
+
+  @Test
+  public void testGetElementsByTagName() throws Exception {
+    assertLookup(getDefaultFactory(), getSuccinctFactory(), XML);
+  }
+
+  @Test
+  public void testGetElementsByTagName_index() throws Exception {
+    assertLookup(getDefaultFactory(), withTagIndex(getSuccinctFactory()), XML);
+  }
+
+  @Test
+  public void testGetElementsByTagName_prefixes() throws Exception {
+    assertLookup(getDefaultFactory(), getSuccinctFactory(), XML_NS);
+    assertLookup(getDefaultFactory(), withTagIndex(getSuccinctFactory()), XML_NS);
+  }
+
+  @Test
+  public void testGetElementsByTagName_namespaces() throws Exception {
+    assertLookup(withNamespaces(getDefaultFactory()), withNamespaces(getSuccinctFactory()),
+        XML_NS);
+  }
+
+  @Test
+  public void testGetElementsByTagName_namespacesIndex() throws Exception {
+    assertLookup(withNamespaces(getDefaultFactory()),
+        withTagIndex(withNamespaces(getSuccinctFactory())), XML_NS);
+  }
+
+  @Test
+  public void testGetElementsByTagName_nativeTokenizer() throws Exception {
+    DocumentBuilderFactory factory = withTagIndex(getSuccinctFactory());
+    factory.setAttribute(SuccinctDocumentBuilderFactory.NATIVE_TOKENIZER, Boolean.TRUE);
+    assertLookup(getDefaultFactory(), factory, XML_PI);
+  }
+
+  @Test
+  public void testGetElementsByTagName_view() throws Exception {
+    Document document = build(withTagIndex(getSuccinctFactory()), XML);
+    NodeList books = document.getElementsByTagName("book");
+    Element book = (Element) books.item(1);
+    NodeList titles = book.getElementsByTagName("title");
+
+    assertEquals(1, titles.getLength());
+    assertTrue(book.isSameNode(titles.item(0).getParentNode()));
+    assertNull(titles.item(1));
+    assertNull(titles.item(-1));
+  }
+
+  @Test
+  public void testBuildTagIndex_snapshot() throws Exception {
+    Document document = build(getSuccinctFactory(), XML);
+    SuccinctDom dom = SuccinctDomSnapshot.getDom(document);
+    int count = document.getElementsByTagName("book").getLength();
+    dom.buildTagIndex();
+    dom.buildTagIndex();
+
+    assertEquals(count, document.getElementsByTagName("book").getLength());
+  }
+
+  private static DocumentBuilderFactory withTagIndex(DocumentBuilderFactory factory) {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.TAG_INDEX, Boolean.TRUE);
+    return factory;
+  }
+
+  /**
+   * Asserts that the lookups in the document and in its every element are the same as the ones of
+   * the default DOM.
+   */
+  private static void assertLookup(DocumentBuilderFactory expectedFactory,
+      DocumentBuilderFactory actualFactory, String xmlFile) throws Exception {
+    Document expected = build(expectedFactory, xmlFile);
+    Document actual = build(actualFactory, xmlFile);
+    assertLookup(expected, actual);
+
+    List<Node> expectedElements = toList(expected.getElementsByTagName("*"));
+    List<Node> actualElements = toList(actual.getElementsByTagName("*"));
+    for (int i = 0; i < expectedElements.size(); i++) {
+      assertLookup(expectedElements.get(i), actualElements.get(i));
+    }
+  }
+
+  private static void assertLookup(Node expected, Node actual) {
+    for (String name : NAMES) {
+      assertElements(name, getElementsByTagName(expected, name),
+          getElementsByTagName(actual, name));
+    }
+    for (String[] name : NS_NAMES) {
+      assertElements(name[0] + " " + name[1],
+          getElementsByTagNameNS(expected, name[0], name[1]),
+          getElementsByTagNameNS(actual, name[0], name[1]));
+    }
+  }
+
+  private static NodeList getElementsByTagName(Node node, String name) {
+    return (node instanceof Document)
+        ? ((Document) node).getElementsByTagName(name)
+        : ((Element) node).getElementsByTagName(name);
+  }
+
+  private static NodeList getElementsByTagNameNS(Node node, String namespaceURI,
+      String localName) {
+    return (node instanceof Document)
+        ? ((Document) node).getElementsByTagNameNS(namespaceURI, localName)
+        : ((Element) node).getElementsByTagNameNS(namespaceURI, localName);
+  }
+
+  private static void assertElements(String message, NodeList expected, NodeList actual) {
+    assertEquals(message, expected.getLength(), actual.getLength());
+    for (int i = 0; i < expected.getLength(); i++) {
+      assertEquals(message, expected.item(i).getNodeName(), actual.item(i).getNodeName());
+      assertEquals(message, expected.item(i).getTextContent(), actual.item(i).getTextContent());
+    }
+  }
+
+  private static List<Node> toList(NodeList nodes) {
+    List<Node> list = new ArrayList<>();
+    for (int i = 0; i < nodes.getLength(); i++) {
+      list.add(nodes.item(i));
+    }
+    return list;
+  }
+}
@@ -0,0 +1,88 @@
+package ys.succinct.xml.dom;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests for {@link Utf8OffsetStore}.
+ */
+public class Utf8OffsetStoreTest {
+
+  @Test
+  public void testGetString_ascii() {
+    Utf8OffsetStore.Builder builder = new Utf8OffsetStore.Builder();
+    assertEquals(0, builder.addString("catalog"));
+    assertEquals(7, builder.addChars("[book]".toCharArray(), 1, 4));
+    OffsetStore store = builder.build();
+
+    assertEquals("catalog", store.getString(0, 7));
+    assertEquals("book", store.getString(7, 11));
+    assertEquals("", store.getString(11, 11));
+  }
+
+  @Test
+  public void testGetString_nonAscii() {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      text.append('a').append('é').append('€').append("😀");
+    }
+    String s = text.toString();
+
+    Utf8OffsetStore.Builder builder = new Utf8OffsetStore.Builder();
+    builder.addString("x");
+    builder.addString(s);
+    OffsetStore store = builder.build();
+
+    assertEquals("x", store.getString(0, 1));
+    assertEquals(s, store.getString(1, 1 + s.length()));
+    for (int i = 0; i < s.length(); i += 7) {
+      int end = Math.min(s.length(), i + 13);
+      assertEquals(s.substring(i, end), store.getString(1 + i, 1 + end));
+    }
+    assertEquals("", store.getString(1 + s.length(), 1 + s.length()));
+  }
+
+  @Test
+  public void testGetString_sampleBoundary() {
+    Utf8OffsetStore.Builder builder = new Utf8OffsetStore.Builder();
+    char[] chars = new char[1 << Utf8OffsetStore.SAMPLE_BITS];
+    Arrays.fill(chars, 'é');
+    builder.addChars(chars, 0, chars.length);
+    OffsetStore store = builder.build();
+
+    assertEquals(new String(chars), store.getString(0, chars.length));
+    assertEquals("", store.getString(chars.length, chars.length));
+  }
+
+  @Test
+  public void testGetString_chunkBoundary() {
+    // The 2-byte characters cross the chunk boundary in the middle.
+    Utf8OffsetStore.Builder builder = new Utf8OffsetStore.Builder();
+    builder.addString("x");
+    char[] chars = new char[1 << (Utf8OffsetStore.CHUNK_BITS - 1)];
+    Arrays.fill(chars, '\u00E9');
+    builder.addChars(chars, 0, chars.length);
+    builder.addString("y");
+    OffsetStore store = builder.build();
+
+    assertEquals("x\u00E9", store.getString(0, 2));
+    assertEquals("\u00E9\u00E9y", store.getString(chars.length - 1, chars.length + 2));
+  }
+
+  @Test
+  public void testGetString_expectedLength() {
+    Utf8OffsetStore.Builder builder = new Utf8OffsetStore.Builder(11);
+    builder.addString("catalog");
+    builder.addString("book");
+    assertEquals("catalogbook", builder.build().getString(0, 11));
+
+    // The content that is longer than expected is still accepted.
+    builder = new Utf8OffsetStore.Builder(2);
+    builder.addString("a\u20AC");
+    builder.addString("book");
+    assertEquals("a\u20ACbook", builder.build().getString(0, 6));
+  }
+}
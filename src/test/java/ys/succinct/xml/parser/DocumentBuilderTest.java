@@ -1,16 +1,36 @@
 package ys.succinct.xml.parser;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
 
 import ys.succinct.xml.XmlBaseTest;
+import ys.succinct.xml.dom.TextStoreType;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -20,6 +40,9 @@ import javax.xml.parsers.DocumentBuilderFactory;
  */
 public class DocumentBuilderTest extends XmlBaseTest {
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   private DocumentBuilderFactory factory;
 
   @Before
@@ -42,6 +65,312 @@ public class DocumentBuilderTest extends XmlBaseTest {
     assertNotNull(factory.newDocumentBuilder().parse(getResourceAsCharacterStream(XML)));
   }
 
+  @Test
+  public void testParse_directTextStore() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.TEXT_STORE_TYPE, "DIRECT");
+    assertEquals(TextStoreType.DIRECT,
+        factory.getAttribute(SuccinctDocumentBuilderFactory.TEXT_STORE_TYPE));
+
+    Document document = build(factory, XML_PI);
+    assertTrue(document.isEqualNode(build(getSuccinctFactory(), XML_PI)));
+  }
+
+  @Test
+  public void testParse_compactOffsets() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.COMPACT_OFFSETS, "true");
+    assertEquals(Boolean.TRUE,
+        factory.getAttribute(SuccinctDocumentBuilderFactory.COMPACT_OFFSETS));
+
+    Document document = build(factory, XML_PI);
+    Document expected = build(getSuccinctFactory(), XML_PI);
+    assertTrue(document.isEqualNode(expected));
+    assertEquals(expected.getDocumentElement().getTextContent(),
+        document.getDocumentElement().getTextContent());
+  }
+
+  @Test
+  public void testParse_preScan() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.PRE_SCAN, Boolean.TRUE);
+    assertEquals(Boolean.TRUE, factory.getAttribute(SuccinctDocumentBuilderFactory.PRE_SCAN));
+
+    for (String xml : new String[] {XML, XML_PI}) {
+      Document document = build(factory, xml);
+      Document expected = build(getSuccinctFactory(), xml);
+      assertTrue(document.isEqualNode(expected));
+      assertEquals(expected.getDocumentElement().getTextContent(),
+          document.getDocumentElement().getTextContent());
+    }
+  }
+
+  @Test
+  public void testParse_preScanWithNamespaces() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.PRE_SCAN, "true");
+    factory.setAttribute(SuccinctDocumentBuilderFactory.TEXT_STORE_TYPE, TextStoreType.DIRECT);
+    factory.setNamespaceAware(true);
+
+    Document document = build(factory, XML_NS);
+    assertTrue(document.isEqualNode(build(withNamespaces(getSuccinctFactory()), XML_NS)));
+  }
+
+  @Test
+  public void testParse_preScanFromByteStream() throws Exception {
+    // The stream can't be read twice, so the input isn't pre-scanned.
+    factory.setAttribute(SuccinctDocumentBuilderFactory.PRE_SCAN, Boolean.TRUE);
+    Document document = factory.newDocumentBuilder().parse(getResourceAsByteStream(XML));
+    assertTrue(document.isEqualNode(build(getSuccinctFactory(), XML)));
+  }
+
+  @Test
+  public void testParse_nativeTokenizer() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.NATIVE_TOKENIZER, Boolean.TRUE);
+    assertEquals(
+        Boolean.TRUE, factory.getAttribute(SuccinctDocumentBuilderFactory.NATIVE_TOKENIZER));
+
+    for (String xml : new String[] {XML, XML_PI, XML_DTD}) {
+      Document document = build(factory, xml);
+      assertTrue(document.isEqualNode(build(getSuccinctFactory(), xml)));
+    }
+    // The stream isn't parsed by the tokenizer.
+    Document document = factory.newDocumentBuilder().parse(getResourceAsByteStream(XML));
+    assertTrue(document.isEqualNode(build(getSuccinctFactory(), XML)));
+  }
+
+  @Test
+  public void testParse_parallel() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.PARALLELISM, "4");
+    assertEquals(4, factory.getAttribute(SuccinctDocumentBuilderFactory.PARALLELISM));
+
+    // The DTD isn't supported by the parallel parsing, so the file is parsed sequentially.
+    for (String xml : new String[] {XML, XML_PI, XML_DTD}) {
+      Document document = build(factory, xml);
+      Document expected = build(getSuccinctFactory(), xml);
+      assertTrue(document.isEqualNode(expected));
+      assertEquals(expected.getDocumentElement().getTextContent(),
+          document.getDocumentElement().getTextContent());
+    }
+  }
+
+  @Test
+  public void testParse_parallelWithNamespaces() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.PARALLELISM, 2);
+    factory.setNamespaceAware(true);
+
+    Document document = build(factory, XML_NS);
+    assertTrue(document.isEqualNode(build(withNamespaces(getSuccinctFactory()), XML_NS)));
+  }
+
+  @Test
+  public void testParse_parallelFromByteStream() throws Exception {
+    // The stream is parsed sequentially, but the indexes are still built concurrently.
+    factory.setAttribute(SuccinctDocumentBuilderFactory.PARALLELISM, 3);
+    Document document = factory.newDocumentBuilder().parse(getResourceAsByteStream(XML_PI));
+    Document expected = build(getSuccinctFactory(), XML_PI);
+    assertTrue(document.isEqualNode(expected));
+    assertEquals(expected.getDocumentElement().getTextContent(),
+        document.getDocumentElement().getTextContent());
+  }
+
+  @Test
+  public void testParse_statistics() throws Exception {
+    StatisticsCollector collector = new StatisticsCollector();
+    factory.setAttribute(SuccinctDocumentBuilderFactory.STATISTICS_LISTENER, collector);
+    factory.setAttribute(SuccinctDocumentBuilderFactory.PRE_SCAN, true);
+    assertSame(collector, factory.getAttribute(SuccinctDocumentBuilderFactory.STATISTICS_LISTENER));
+
+    Document document = build(factory, XML_PI);
+    assertTrue(document.isEqualNode(build(getSuccinctFactory(), XML_PI)));
+    assertEquals(1, collector.statistics.size());
+    ParseStatistics statistics = collector.statistics.get(0);
+    for (ParsePhase phase : ParsePhase.values()) {
+      assertTrue(phase.name(), statistics.getPhaseTime(phase, TimeUnit.NANOSECONDS) > 0);
+    }
+    assertEquals(getFile(XML_PI).length(), statistics.getInputLength());
+    assertEquals(countNodes(document), statistics.getNodeCount());
+    assertTrue(statistics.getPeakBuilderMemory() > 0);
+    assertTrue(statistics.getBytesPerSecond() > 0);
+    assertTrue(statistics.getNodesPerSecond() > 0);
+  }
+
+  @Test
+  public void testParse_statisticsFromCharacterStream() throws Exception {
+    StatisticsCollector collector = new StatisticsCollector();
+    factory.setAttribute(SuccinctDocumentBuilderFactory.STATISTICS_LISTENER, collector);
+
+    Document document = factory.newDocumentBuilder().parse(getResourceAsCharacterStream(XML));
+    ParseStatistics statistics = collector.statistics.get(0);
+    assertEquals(0, statistics.getPhaseTime(ParsePhase.PRE_SCAN, TimeUnit.NANOSECONDS));
+    assertEquals(countChars(XML), statistics.getInputLength());
+    assertEquals(countNodes(document), statistics.getNodeCount());
+  }
+
+  @Test
+  public void testParse_statisticsNativeTokenizer() throws Exception {
+    StatisticsCollector collector = new StatisticsCollector();
+    factory.setAttribute(SuccinctDocumentBuilderFactory.STATISTICS_LISTENER, collector);
+    factory.setAttribute(SuccinctDocumentBuilderFactory.NATIVE_TOKENIZER, true);
+
+    Document document = build(factory, XML_PI);
+    ParseStatistics statistics = collector.statistics.get(0);
+    assertTrue(statistics.getPhaseTime(ParsePhase.TOKENIZING, TimeUnit.NANOSECONDS) > 0);
+    assertEquals(0, statistics.getPhaseTime(ParsePhase.ELEMENTS, TimeUnit.NANOSECONDS));
+    assertTrue(statistics.getPhaseTime(ParsePhase.INDEXES, TimeUnit.NANOSECONDS) > 0);
+    assertEquals(getFile(XML_PI).length(), statistics.getInputLength());
+    assertEquals(countNodes(document), statistics.getNodeCount());
+  }
+
+  @Test
+  public void testParse_progress() throws Exception {
+    final List<long[]> checkpoints = new ArrayList<>();
+    factory.setAttribute(SuccinctDocumentBuilderFactory.PROGRESS_LISTENER,
+        new ParseProgressListener() {
+          @Override
+          public void progress(ParseProgress progress) {
+            checkpoints.add(new long[] {progress.getInputLength(), progress.getNodeCount()});
+            assertEquals(progress.getBuilderMemory() * 2, progress.getProjectedMemory());
+          }
+        });
+    byte[] xml = generateXml(3 * ProgressTracker.INTERVAL);
+
+    Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+    assertTrue(checkpoints.size() > 2);
+    for (int i = 1; i < checkpoints.size(); i++) {
+      assertTrue(checkpoints.get(i)[0] >= checkpoints.get(i - 1)[0]);
+      assertTrue(checkpoints.get(i)[1] > checkpoints.get(i - 1)[1]);
+    }
+    long[] last = checkpoints.get(checkpoints.size() - 1);
+    assertEquals(xml.length, last[0]);
+    assertEquals(countNodes(document), last[1]);
+  }
+
+  @Test
+  public void testParse_progressNativeFallback() throws Exception {
+    final List<long[]> checkpoints = new ArrayList<>();
+    factory.setAttribute(SuccinctDocumentBuilderFactory.NATIVE_TOKENIZER, true);
+    factory.setAttribute(SuccinctDocumentBuilderFactory.PROGRESS_LISTENER,
+        new ParseProgressListener() {
+          @Override
+          public void progress(ParseProgress progress) {
+            checkpoints.add(new long[] {
+                progress.getAttempt(), progress.getInputLength(), progress.getNodeCount()});
+          }
+        });
+    // The native tokenizer gives up on the encoding, so the StAX reader parses the file again.
+    File file = folder.newFile();
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write("<?xml version='1.0' encoding='ISO-8859-1'?>".getBytes("US-ASCII"));
+      out.write(generateXml(2 * ProgressTracker.INTERVAL));
+    }
+
+    Document document = factory.newDocumentBuilder().parse(file);
+    int restart = 0;
+    while (checkpoints.get(restart)[0] == 1) {
+      restart++;
+    }
+    assertArrayEquals(new long[] {2, 0, 0}, checkpoints.get(restart));
+    assertTrue(checkpoints.size() > restart + 2);
+    for (int i = restart + 1; i < checkpoints.size(); i++) {
+      assertEquals(2, checkpoints.get(i)[0]);
+      assertTrue(checkpoints.get(i)[1] >= checkpoints.get(i - 1)[1]);
+      assertTrue(checkpoints.get(i)[2] > checkpoints.get(i - 1)[2]);
+    }
+    long[] last = checkpoints.get(checkpoints.size() - 1);
+    assertEquals(file.length(), last[1]);
+    assertEquals(countNodes(document), last[2]);
+  }
+
+  @Test
+  public void testParse_cancelled() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.PROGRESS_LISTENER,
+        new ParseProgressListener() {
+          @Override
+          public void progress(ParseProgress progress) {
+            progress.cancel();
+          }
+        });
+    try {
+      factory.newDocumentBuilder().parse(
+          new ByteArrayInputStream(generateXml(2 * ProgressTracker.INTERVAL)));
+      fail();
+    } catch (SAXException e) {
+      assertTrue(e.getException() instanceof ParseCancelledException);
+    }
+  }
+
+  @Test
+  public void testParse_memoryBudget() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.MEMORY_BUDGET, "100000");
+    assertEquals(100000L, factory.getAttribute(SuccinctDocumentBuilderFactory.MEMORY_BUDGET));
+    try {
+      factory.newDocumentBuilder().parse(
+          new ByteArrayInputStream(generateXml(2 * ProgressTracker.INTERVAL)));
+      fail();
+    } catch (SAXException e) {
+      assertTrue(e.getException() instanceof MemoryBudgetException);
+    }
+
+    // The budget that fits the document doesn't interfere.
+    factory.setAttribute(SuccinctDocumentBuilderFactory.MEMORY_BUDGET, 100000000);
+    assertTrue(build(factory, XML_PI).isEqualNode(build(getSuccinctFactory(), XML_PI)));
+  }
+
+  @Test
+  public void testParse_memoryBudgetNativeTokenizer() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.NATIVE_TOKENIZER, true);
+    factory.setAttribute(SuccinctDocumentBuilderFactory.MEMORY_BUDGET, 1000L);
+    try {
+      build(factory, XML_PI);
+      fail();
+    } catch (SAXException e) {
+      assertTrue(e.getException() instanceof MemoryBudgetException);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetAttribute_invalidMemoryBudget() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.MEMORY_BUDGET, -1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetAttribute_invalidStatisticsListener() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.STATISTICS_LISTENER, "listener");
+  }
+
+  @Test
+  public void testParse_segmentSize() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.SEGMENT_SIZE, "4");
+    assertEquals(4, factory.getAttribute(SuccinctDocumentBuilderFactory.SEGMENT_SIZE));
+    Document expected = build(getSuccinctFactory(), XML_PI);
+    assertTrue(build(factory, XML_PI).isEqualNode(expected));
+
+    // The pre-scanned document is segmented too.
+    factory.setAttribute(SuccinctDocumentBuilderFactory.PRE_SCAN, true);
+    assertTrue(build(factory, XML_PI).isEqualNode(expected));
+
+    // The native tokenizer gives up, so the document is segmented by the StAX reader.
+    factory.setAttribute(SuccinctDocumentBuilderFactory.NATIVE_TOKENIZER, true);
+    assertTrue(build(factory, XML_PI).isEqualNode(expected));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetAttribute_invalidSegmentSize() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.SEGMENT_SIZE, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetAttribute_invalidParallelism() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.PARALLELISM, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetAttribute_unsupported() throws Exception {
+    factory.setAttribute("unknown", Boolean.TRUE);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetAttribute_invalidValue() throws Exception {
+    factory.setAttribute(SuccinctDocumentBuilderFactory.TEXT_STORE_TYPE, 1);
+  }
+
   @Test
   public void testIsNamespaceAware() throws Exception {
     // XML namespaces support is off by default.
@@ -78,4 +407,50 @@ public class DocumentBuilderTest extends XmlBaseTest {
   public void testGetDOMImplementation() throws Exception {
     factory.newDocumentBuilder().getDOMImplementation();
   }
+
+  /**
+   * Generates the document of the given number of the elements that hold the text nodes.
+   */
+  private static byte[] generateXml(int elementCount) throws Exception {
+    StringBuilder xml = new StringBuilder("<catalog>");
+    for (int i = 0; i < elementCount; i++) {
+      xml.append("<book id=\"").append(i).append("\">Title ").append(i).append("</book>");
+    }
+    return xml.append("</catalog>").toString().getBytes("UTF-8");
+  }
+
+  private static File getFile(String path) throws Exception {
+    return new File(new URI(getResourceAsURL(path).getSystemId()));
+  }
+
+  private static long countChars(String path) throws Exception {
+    long count = 0;
+    try (Reader reader = getResourceAsCharacterStream(path).getCharacterStream()) {
+      while (reader.read() != -1) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static int countNodes(Node node) {
+    int count = 1;
+    for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+      count += countNodes(child);
+    }
+    return count;
+  }
+
+  /**
+   * The listener that collects the statistics.
+   */
+  private static class StatisticsCollector implements ParseStatisticsListener {
+
+    final List<ParseStatistics> statistics = new ArrayList<>();
+
+    @Override
+    public void parsed(ParseStatistics statistics) {
+      this.statistics.add(statistics);
+    }
+  }
 }
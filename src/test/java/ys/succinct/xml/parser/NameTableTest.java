@@ -0,0 +1,64 @@
+package ys.succinct.xml.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.XMLConstants;
+
+/**
+ * Tests for {@link NameTable}.
+ */
+public class NameTableTest {
+
+  @Test
+  public void testGet() {
+    ByteBuffer buffer = ByteBuffer.wrap("<book id='1'/><book>".getBytes(StandardCharsets.UTF_8));
+    NameTable table = new NameTable();
+
+    NameTable.Name name = table.get(buffer, 1, 5);
+    assertEquals("book", name.qualifiedName);
+    assertEquals("book", name.localName);
+    assertNull(name.prefix);
+    assertSame(name, table.get(buffer, 15, 19));
+    assertNotSame(name, table.get(buffer, 6, 8));
+  }
+
+  @Test
+  public void testGet_qualifiedName() {
+    ByteBuffer buffer =
+        ByteBuffer.wrap("p:price xmlns:p \u00FCber".getBytes(StandardCharsets.UTF_8));
+    NameTable table = new NameTable();
+
+    NameTable.Name name = table.get(buffer, 0, 7);
+    assertEquals("p", name.prefix);
+    assertEquals("price", name.localName);
+    assertNull(name.namespaceUri);
+
+    NameTable.Name xmlns = table.get(buffer, 8, 15);
+    assertEquals(XMLConstants.XMLNS_ATTRIBUTE, xmlns.prefix);
+    assertEquals(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, xmlns.namespaceUri);
+
+    assertEquals("\u00FCber", table.get(buffer, 16, buffer.limit()).qualifiedName);
+  }
+
+  @Test
+  public void testGet_manyNames() {
+    NameTable table = new NameTable();
+    NameTable.Name[] names = new NameTable.Name[1000];
+    for (int i = 0; i < names.length; i++) {
+      ByteBuffer buffer = ByteBuffer.wrap(("n" + i).getBytes(StandardCharsets.UTF_8));
+      names[i] = table.get(buffer, 0, buffer.limit());
+    }
+    for (int i = 0; i < names.length; i++) {
+      ByteBuffer buffer = ByteBuffer.wrap(("n" + i).getBytes(StandardCharsets.UTF_8));
+      assertSame(names[i], table.get(buffer, 0, buffer.limit()));
+    }
+  }
+}
@@ -0,0 +1,267 @@
+package ys.succinct.xml.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import ys.succinct.xml.XmlBaseTest;
+import ys.succinct.xml.dom.DocumentContext;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Tests for {@link NativeDomBuilder}.
+ */
+public class NativeDomBuilderTest extends XmlBaseTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testBuild() throws Exception {
+    for (String xml : new String[] {XML, XML_PI, XML_NS}) {
+      Document expected = build(getSuccinctFactory(), xml);
+      for (int rangeSize : new int[] {1, 7, 64, NativeDomBuilder.DEFAULT_RANGE_SIZE}) {
+        Document document = build(getResourceAsFile(xml), rangeSize);
+
+        assertTrue(document.isEqualNode(expected));
+        assertEquals(expected.getDocumentElement().getTextContent(),
+            document.getDocumentElement().getTextContent());
+        assertEquals(expected.getXmlVersion(), document.getXmlVersion());
+        assertEquals(expected.getXmlEncoding(), document.getXmlEncoding());
+        assertEquals(expected.getInputEncoding(), document.getInputEncoding());
+        assertEquals(expected.getDocumentURI(), document.getDocumentURI());
+      }
+    }
+  }
+
+  @Test
+  public void testBuild_generated() throws Exception {
+    StringBuilder xml = new StringBuilder("<?xml version='1.0'?>\r\n<?pi data?><root>");
+    for (int i = 0; i < 500; i++) {
+      xml.append("<item id=\"").append(i).append("\" name='\u00FCber\t").append(i).append("'>")
+          .append("text \u20AC ").append(i).append("\n")
+          .append("<!-- comment ").append(i).append(" -->")
+          .append("<![CDATA[a > b && c]]>")
+          .append("<?target  data ").append(i).append(" ?>")
+          .append("<empty/><p:q p:a='1' xmlns:p='urn:p'>").append(i).append("</p:q>")
+          .append("</item>\n");
+    }
+    xml.append("</root>\n<!-- epilog --><?end?>\n");
+    File file = write(xml.toString());
+
+    Document expected = getSuccinctFactory().newDocumentBuilder().parse(file);
+    for (int rangeSize : new int[] {13, 256, 4096}) {
+      Document document = build(file, rangeSize);
+      assertTrue(document.isEqualNode(expected));
+      assertEquals(expected.getDocumentElement().getTextContent(),
+          document.getDocumentElement().getTextContent());
+    }
+  }
+
+  @Test
+  public void testBuild_references() throws Exception {
+    File file = write(
+        "<r a=\"x&amp;y&#10;z\r\nw\">a&lt;b&#x1D11E;\uD834\uDD1E&quot;\r\n&apos;&gt;</r>");
+    Document document = build(file, 4);
+
+    Element root = document.getDocumentElement();
+    assertEquals("a<b\uD834\uDD1E\uD834\uDD1E\"\n'>", root.getTextContent());
+    assertEquals("x&y\nz w", root.getAttribute("a"));
+  }
+
+  @Test
+  public void testBuild_emptyRoot() throws Exception {
+    File file =
+        write("\uFEFF<?xml version=\"1.1\" encoding=\"utf-8\" standalone=\"yes\"?><r a='1'/>");
+    Document document = build(file, 1);
+
+    assertEquals("r", document.getDocumentElement().getNodeName());
+    assertEquals("1.1", document.getXmlVersion());
+    assertEquals("utf-8", document.getXmlEncoding());
+    assertTrue(document.getXmlStandalone());
+  }
+
+  @Test(expected = XMLStreamException.class)
+  public void testBuild_mismatchedEndTag() throws Exception {
+    build(write("<r><a><b>text</a></b></r>"), 3);
+  }
+
+  @Test(expected = XMLStreamException.class)
+  public void testBuild_unclosedElement() throws Exception {
+    build(write("<r><a><b>text</b></r>"), 3);
+  }
+
+  @Test(expected = XMLStreamException.class)
+  public void testBuild_duplicateAttribute() throws Exception {
+    build(write("<r><a x='1' x='2'/></r>"), 3);
+  }
+
+  @Test(expected = UnsupportedInputException.class)
+  public void testBuild_dtd() throws Exception {
+    build(getResourceAsFile(XML_DTD), 64);
+  }
+
+  @Test(expected = UnsupportedInputException.class)
+  public void testBuild_unsupportedEncoding() throws Exception {
+    build(write("<?xml version='1.0' encoding='ISO-8859-1'?><r/>"), 64);
+  }
+
+  @Test(expected = UnsupportedInputException.class)
+  public void testBuild_splitComment() throws Exception {
+    // The range starts at "<a" inside the comment.
+    build(write("<r>0123456789<!-- <a --></r>"), 14);
+  }
+
+  @Test
+  public void testBuild_sequential() throws Exception {
+    for (String xml : new String[] {XML, XML_PI}) {
+      Document expected = build(getSuccinctFactory(), xml);
+      for (int rangeSize : new int[] {5, NativeDomBuilder.SEQUENTIAL_RANGE_SIZE}) {
+        Document document = build(getResourceAsFile(xml), rangeSize, 1);
+
+        assertTrue(document.isEqualNode(expected));
+        assertEquals(expected.getDocumentElement().getTextContent(),
+            document.getDocumentElement().getTextContent());
+      }
+    }
+  }
+
+  @Test
+  public void testBuild_idAttributes() throws Exception {
+    StringBuilder xml = new StringBuilder("<root>");
+    for (int i = 0; i < 200; i++) {
+      xml.append("<item a='x' id='i").append(i).append("'><b xml:id='b").append(i)
+          .append("'/></item>");
+    }
+    xml.append("<item id='i7'/></root>");
+    File file = write(xml.toString());
+
+    ReaderSettings settings = new ReaderSettings();
+    settings.setIdAttributeNames(Arrays.asList("id", "xml:id"));
+    for (int parallelism : new int[] {1, 4}) {
+      settings.setParallelism(parallelism);
+      Document document =
+          new NativeDomBuilder(settings, 64).build(file, file.toURI().toString());
+      for (int i = 0; i < 200; i++) {
+        Element item = document.getElementById("i" + i);
+        assertEquals("i" + i, item.getAttribute("id"));
+        assertTrue(item.hasChildNodes()); // The first duplicate wins.
+        assertEquals("b" + i, document.getElementById("b" + i).getAttribute("xml:id"));
+      }
+      assertNull(document.getElementById("x"));
+    }
+  }
+
+  @Test
+  public void testBuild_segmentSize() throws Exception {
+    File file = getResourceAsFile(XML_PI);
+    ReaderSettings settings = new ReaderSettings();
+    settings.setSegmentSize(8);
+    for (int parallelism : new int[] {1, 4}) {
+      settings.setParallelism(parallelism);
+      try {
+        new NativeDomBuilder(settings, 64).build(file, file.toURI().toString());
+        fail();
+      } catch (UnsupportedInputException e) {
+        // The document is left to the StAX reader that segments it.
+      }
+    }
+  }
+
+  @Test(expected = XMLStreamException.class)
+  public void testBuild_sequentialMismatchedEndTag() throws Exception {
+    build(write("<r><a><b>text</a></b></r>"), 3, 1);
+  }
+
+  @Test
+  public void testGetFragment_interrupted() throws Exception {
+    FutureTask<FragmentBuilder> future = new FutureTask<>(new Callable<FragmentBuilder>() {
+      @Override
+      public FragmentBuilder call() {
+        return null;
+      }
+    });
+    Thread.currentThread().interrupt();
+    try {
+      NativeDomBuilder.getFragment(future);
+      fail();
+    } catch (ParseCancelledException e) {
+      // The interruption isn't reported as the unsupported input, so nothing falls back.
+      assertTrue(Thread.interrupted());
+    }
+  }
+
+  @Test
+  public void testBuildFragment_interrupted() throws Exception {
+    FragmentBuilder document = new FragmentBuilder(new ReaderSettings());
+    document.startDocument();
+    document.startElement("r");
+    document.endStartTag(true);
+    document.endDocument();
+
+    // The indexes aren't built until the latch is released, so the waiting is interrupted.
+    final CountDownLatch latch = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        latch.await();
+        return null;
+      }
+    });
+    Thread.currentThread().interrupt();
+    try {
+      document.build(new DocumentContext(null, "UTF-8", null, "1.0", false), executor, null);
+      fail();
+    } catch (ParseCancelledException e) {
+      assertTrue(Thread.interrupted());
+    } finally {
+      latch.countDown();
+      executor.shutdown();
+    }
+  }
+
+  private static Document build(File file, int rangeSize) throws Exception {
+    return build(file, rangeSize, 4);
+  }
+
+  private static Document build(File file, int rangeSize, int parallelism) throws Exception {
+    ReaderSettings settings = new ReaderSettings();
+    settings.setParallelism(parallelism);
+    return new NativeDomBuilder(settings, rangeSize).build(file, file.toURI().toString());
+  }
+
+  private static File getResourceAsFile(String path) throws Exception {
+    return new File(XmlBaseTest.class.getClassLoader().getResource(path).toURI());
+  }
+
+  private File write(String xml) throws IOException {
+    File file = folder.newFile();
+    try (Writer writer =
+        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+      writer.write(xml);
+    }
+    return file;
+  }
+}
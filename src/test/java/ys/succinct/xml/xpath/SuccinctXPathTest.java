@@ -0,0 +1,193 @@
+package ys.succinct.xml.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import ys.succinct.xml.XmlBaseTest;
+import ys.succinct.xml.parser.SuccinctDocumentBuilderFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * Tests for {@link SuccinctXPath}.
+ */
+public class SuccinctXPathTest extends XmlBaseTest {
+
+  private static final String[] EXPRESSIONS = {
+      "/", ".", "/catalog", "/catalog/book", "catalog/book/title", "//title", "//book/title",
+      "/catalog/book[2]", "/catalog/book[last()]", "//book[@id='107']", "//book[@id]",
+      "//book[@missing]", "//book[price=5.95]", "//book[price!=5.95]", "//book[genre='Fantasy']",
+      "//book[genre='Fantasy' and price='5.95'][2]", "//book[@id='101' or @id='103']",
+      "//book[not(markup)]", "//book/*[1]", "//book/*[position()=3]", "//*", "//node()",
+      "//title/text()", "//comment()", "//processing-instruction()",
+      "//processing-instruction('sort')", "/catalog/book/title/text()", "//title/..",
+      "//price/parent::book", "//price/ancestor::*", "//price/ancestor-or-self::node()",
+      "//genre/following-sibling::*", "//genre/preceding-sibling::*[1]",
+      "//book[1]/descendant::*", "//book/descendant-or-self::book", "//book[2]/self::book",
+      "//title | //price", "//book[title][3]/title", "/catalog//markup", "//*[.='Fantasy']",
+      "child::catalog/child::book[@id='102']/child::title", "/descendant::book[2]",
+      "//book[(genre='Fantasy' or genre='Computer') and not(@id='102')]", "/..", "//missing"};
+
+  private static final String[] NS_EXPRESSIONS = {
+      "/c:catalog/c:book", "//c:book[2]/p:price", "//p:*", "//c:*[@id='103']", "//book",
+      "//*[@xml:lang='en']", "//c:book[p:price=5.95]", "//c:title | //p:price", "//*",
+      "//c:title/text()"};
+
+  private static final NamespaceContext NAMESPACES = new NamespaceContext() {
+    @Override
+    public String getNamespaceURI(String prefix) {
+      switch (prefix) {
+        case "c":
+          return NS_CATALOG;
+        case "p":
+          return NS_PRICE;
+        case "xml":
+          return XMLConstants.XML_NS_URI;
+        default:
+          return XMLConstants.NULL_NS_URI;
+      }
+    }
+
+    @Override
+    public String getPrefix(String namespaceURI) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<String> getPrefixes(String namespaceURI) {
+      throw new UnsupportedOperationException();
+    }
+  };
+
+  @Test
+  public void testSelect() throws Exception {
+    assertSelect(getDefaultFactory(), getSuccinctFactory(), XML, EXPRESSIONS, null);
+    assertSelect(getDefaultFactory(), getSuccinctFactory(), XML_PI, EXPRESSIONS, null);
+  }
+
+  @Test
+  public void testSelect_tagIndex() throws Exception {
+    DocumentBuilderFactory factory = getSuccinctFactory();
+    factory.setAttribute(SuccinctDocumentBuilderFactory.TAG_INDEX, Boolean.TRUE);
+    assertSelect(getDefaultFactory(), factory, XML_PI, EXPRESSIONS, null);
+  }
+
+  @Test
+  public void testSelect_namespaces() throws Exception {
+    assertSelect(withNamespaces(getDefaultFactory()), withNamespaces(getSuccinctFactory()),
+        XML_NS, NS_EXPRESSIONS, NAMESPACES);
+
+    DocumentBuilderFactory factory = withNamespaces(getSuccinctFactory());
+    factory.setAttribute(SuccinctDocumentBuilderFactory.TAG_INDEX, Boolean.TRUE);
+    assertSelect(withNamespaces(getDefaultFactory()), factory, XML_NS, NS_EXPRESSIONS,
+        NAMESPACES);
+  }
+
+  @Test
+  public void testSelect_relative() throws Exception {
+    Document document = build(getSuccinctFactory(), XML);
+    Node book = SuccinctXPath.compile("//book[3]").selectNode(document);
+
+    assertEquals("103", ((org.w3c.dom.Element) book).getAttribute("id"));
+    assertEquals("Maeve Ascendant", SuccinctXPath.compile("title").selectNode(book)
+        .getTextContent());
+    assertEquals(12, SuccinctXPath.compile("../book").selectNodes(book).getLength());
+    assertEquals(2, SuccinctXPath.compile("preceding-sibling::book").select(book).length);
+    assertNull(SuccinctXPath.compile("missing").selectNode(book));
+  }
+
+  @Test
+  public void testSelect_cdata() throws Exception {
+    // The CDATA section is a text node in the XPath data model.
+    Document document = build(getSuccinctFactory(), XML);
+    Node markup = SuccinctXPath.compile("//markup/text()").selectNode(document);
+    assertEquals(Node.CDATA_SECTION_NODE, markup.getNodeType());
+  }
+
+  @Test(expected = XPathExpressionException.class)
+  public void testSelect_unresolvedPrefix() throws Exception {
+    SuccinctXPath.compile("//p:price").select(build(withNamespaces(getSuccinctFactory()), XML_NS));
+  }
+
+  @Test
+  public void testSelect_literalPrefix() throws Exception {
+    Document document = build(getSuccinctFactory(), XML_NS);
+    assertEquals(12, SuccinctXPath.compile("//p:price").select(document).length);
+    assertEquals(12, SuccinctXPath.compile("//p:*").select(document).length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSelect_notSuccinct() throws Exception {
+    SuccinctXPath.compile("/").select(build(getDefaultFactory(), XML));
+  }
+
+  @Test
+  public void testCompile_unsupported() {
+    for (String expression : new String[] {"", "/catalog/", "//book/@id", "//book[@*]",
+        "following::book", "count(//book)", "//book[", "//book['x']", "//book[@id=]", "a!b",
+        "'x", "//q:book[1]"}) {
+      try {
+        SuccinctXPath.compile(expression, NAMESPACES);
+        throw new AssertionError("Not rejected: " + expression);
+      } catch (XPathExpressionException e) {
+        // Expected.
+      }
+    }
+  }
+
+  private static void assertSelect(DocumentBuilderFactory expectedFactory,
+      DocumentBuilderFactory actualFactory, String xmlFile, String[] expressions,
+      NamespaceContext namespaceContext) throws Exception {
+    Document expectedDocument = build(expectedFactory, xmlFile);
+    Document actualDocument = build(actualFactory, xmlFile);
+    XPath xpath = XPathFactory.newInstance().newXPath();
+    if (namespaceContext != null) {
+      xpath.setNamespaceContext(namespaceContext);
+    }
+    for (String expression : expressions) {
+      NodeList expected =
+          (NodeList) xpath.evaluate(expression, expectedDocument, XPathConstants.NODESET);
+      NodeList actual =
+          SuccinctXPath.compile(expression, namespaceContext).selectNodes(actualDocument);
+      assertEquals(expression, toPaths(expected), toPaths(actual));
+    }
+  }
+
+  /**
+   * Converts the nodes to their positional paths, e.g. {@code /2/4/1}.
+   */
+  private static List<String> toPaths(NodeList nodes) {
+    List<String> paths = new ArrayList<>();
+    for (int i = 0; i < nodes.getLength(); i++) {
+      List<Integer> positions = new ArrayList<>();
+      for (Node node = nodes.item(i); node.getParentNode() != null;
+          node = node.getParentNode()) {
+        int position = 1;
+        for (Node sibling = node.getPreviousSibling(); sibling != null;
+            sibling = sibling.getPreviousSibling()) {
+          position++;
+        }
+        positions.add(position);
+      }
+      Collections.reverse(positions);
+      paths.add(positions.toString());
+    }
+    return paths;
+  }
+}